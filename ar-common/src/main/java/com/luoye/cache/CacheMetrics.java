@@ -0,0 +1,142 @@
+package com.luoye.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存统计注册表
+ * Spring Cache（TwoLevelCache）和RedisUtil中手写的缓存都按区域名汇总到这里，
+ * 区域名取缓存键中第一个冒号之前的部分，与Spring Cache的缓存名称一致。
+ * 序列化器无法得知当前读写属于哪个缓存，由调用方在读写前通过enterRegion登记当前线程的区域
+ */
+@Component
+public class CacheMetrics {
+
+    /**
+     * 未命中后超过该时间才回填的视为无关写入，不计入回源耗时
+     */
+    private static final long MAX_PENDING_LOAD_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, CacheStats> statsByName = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<CacheStats> currentRegion = new ThreadLocal<>();
+
+    /**
+     * 未命中后等待回填的请求，回填时按键匹配计算回源耗时；每个线程只保留最近一次
+     */
+    private final ThreadLocal<PendingLoad> pendingLoad = new ThreadLocal<>();
+
+    /**
+     * 获取区域统计，不存在时创建
+     * @param name 区域名
+     * @return 区域统计
+     */
+    public CacheStats stats(String name) {
+        return statsByName.computeIfAbsent(name, CacheStats::new);
+    }
+
+    /**
+     * 根据缓存键获取区域统计
+     * @param key 缓存键，如slot_doctor_date::1::2024-07-01
+     * @return 区域统计
+     */
+    public CacheStats statsOfKey(String key) {
+        return stats(regionOf(key));
+    }
+
+    /**
+     * 登记当前线程正在读写的区域
+     * @param stats 区域统计
+     * @return 之前登记的区域，需在finally中传给exitRegion恢复
+     */
+    public CacheStats enterRegion(CacheStats stats) {
+        CacheStats previous = currentRegion.get();
+        currentRegion.set(stats);
+        return previous;
+    }
+
+    /**
+     * 恢复之前登记的区域
+     * @param previous enterRegion的返回值
+     */
+    public void exitRegion(CacheStats previous) {
+        if (previous == null) {
+            currentRegion.remove();
+        } else {
+            currentRegion.set(previous);
+        }
+    }
+
+    /**
+     * 当前线程登记的区域，未登记时返回null
+     */
+    public CacheStats currentRegion() {
+        return currentRegion.get();
+    }
+
+    /**
+     * 记录未命中，调用方随后回源并以同一个键回填时计入回源耗时
+     * @param stats 区域统计
+     * @param key 缓存键
+     */
+    public void recordMiss(CacheStats stats, String key) {
+        stats.recordMiss();
+        pendingLoad.set(new PendingLoad(stats, key, System.nanoTime()));
+    }
+
+    /**
+     * 回填缓存时调用，键与当前线程最近一次未命中相同则记录回源耗时
+     * @param key 缓存键
+     * @return 匹配到的区域统计，调用方据此把回填写入的字节数计入该区域；不匹配时返回null
+     */
+    public CacheStats completeLoad(String key) {
+        PendingLoad pending = pendingLoad.get();
+        if (pending == null || !pending.key.equals(key)) {
+            return null;
+        }
+        pendingLoad.remove();
+        long elapsed = System.nanoTime() - pending.startNanos;
+        if (elapsed > MAX_PENDING_LOAD_NANOS) {
+            return null;
+        }
+        pending.stats.recordLoad(elapsed, true);
+        return pending.stats;
+    }
+
+    /**
+     * 所有区域的统计快照
+     * @return 区域名到统计数据的映射
+     */
+    public Map<String, Map<String, Object>> getSnapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        statsByName.forEach((name, stats) -> result.put(name, stats.snapshot()));
+        return result;
+    }
+
+    /**
+     * 缓存键的区域名
+     * @param key 缓存键
+     * @return 第一个冒号之前的部分
+     */
+    public static String regionOf(String key) {
+        int index = key.indexOf(':');
+        return index > 0 ? key.substring(0, index) : key;
+    }
+
+    private static final class PendingLoad {
+
+        private final CacheStats stats;
+        private final String key;
+        private final long startNanos;
+
+        private PendingLoad(CacheStats stats, String key, long startNanos) {
+            this.stats = stats;
+            this.key = key;
+            this.startNanos = startNanos;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.luoye.cache;
+
+import com.luoye.metrics.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个缓存区域的统计
+ * 命中、未命中、回源耗时、失效次数以及读写的序列化字节数，用于根据数据调整过期时间和本地缓存容量
+ */
+public class CacheStats {
+
+    private final String name;
+
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * 命中空值标记或被ID过滤器拒绝的请求，没有回源，但也没有返回数据
+     */
+    private final LongAdder negativeHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder loadFailures = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder valuesRead = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private final LongAdder valuesWritten = new LongAdder();
+
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    CacheStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordNegativeHit() {
+        negativeHits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * 记录一次回源
+     * @param nanos 回源耗时（纳秒）
+     * @param success 是否成功
+     */
+    public void recordLoad(long nanos, boolean success) {
+        loadLatency.record(nanos);
+        if (!success) {
+            loadFailures.increment();
+        }
+    }
+
+    public void recordEvictions(long count) {
+        if (count > 0) {
+            evictions.add(count);
+        }
+    }
+
+    public void recordRead(int bytes) {
+        bytesRead.add(bytes);
+        valuesRead.increment();
+    }
+
+    public void recordWrite(int bytes) {
+        bytesWritten.add(bytes);
+        valuesWritten.increment();
+    }
+
+    /**
+     * 统计快照
+     * @return 命中率、回源耗时分布、平均读写字节数等
+     */
+    public Map<String, Object> snapshot() {
+        long hitCount = hits.sum();
+        long negativeCount = negativeHits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + negativeCount + missCount;
+        long readCount = valuesRead.sum();
+        long writeCount = valuesWritten.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests);
+        stats.put("hits", hitCount);
+        stats.put("negativeHits", negativeCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : Math.round(10000.0 * (hitCount + negativeCount) / requests) / 10000.0);
+        stats.put("load", loadLatency.snapshot());
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("valuesRead", readCount);
+        stats.put("bytesRead", bytesRead.sum());
+        stats.put("avgReadBytes", readCount == 0 ? 0 : bytesRead.sum() / readCount);
+        stats.put("valuesWritten", writeCount);
+        stats.put("bytesWritten", bytesWritten.sum());
+        stats.put("avgWriteBytes", writeCount == 0 ? 0 : bytesWritten.sum() / writeCount);
+        return stats;
+    }
+}
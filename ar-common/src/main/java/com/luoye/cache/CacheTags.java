@@ -0,0 +1,54 @@
+package com.luoye.cache;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 缓存标签命名
+ * 派生缓存（如医生每日号源列表）写入时登记到所依赖实体的标签下，实体变化时按标签精确失效
+ */
+public final class CacheTags {
+
+    private CacheTags() {
+    }
+
+    public static String doctor(Long doctorId) {
+        return "doctor:" + doctorId;
+    }
+
+    public static String dept(Long deptId) {
+        return "dept:" + deptId;
+    }
+
+    public static String slot(Long slotId) {
+        return "slot:" + slotId;
+    }
+
+    public static String date(LocalDate date) {
+        return "date:" + date;
+    }
+
+    /**
+     * 医生每日号源列表依赖的标签：医生、日期、号源所属科室及列表中的每个号源
+     * @param doctorId 医生ID
+     * @param date 出诊日期
+     * @param deptIds 号源所属科室ID
+     * @param slotIds 列表中的号源ID
+     * @return 标签数组
+     */
+    public static String[] slotList(Long doctorId, LocalDate date, Iterable<Long> deptIds, Iterable<Long> slotIds) {
+        Set<String> tags = new LinkedHashSet<>();
+        tags.add(doctor(doctorId));
+        tags.add(date(date));
+        for (Long deptId : deptIds) {
+            if (deptId != null) {
+                tags.add(dept(deptId));
+            }
+        }
+        for (Long slotId : slotIds) {
+            tags.add(slot(slotId));
+        }
+        return tags.toArray(new String[0]);
+    }
+}
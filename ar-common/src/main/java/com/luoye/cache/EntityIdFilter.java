@@ -0,0 +1,177 @@
+package com.luoye.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * 实体ID存在性过滤器
+ * 每种实体类型维护一个布隆过滤器，用于在不产生任何IO的情况下拒绝一定不存在的ID。
+ * ID自增，因此大于已知最大ID的请求一律放行（交给空值缓存处理），
+ * 避免其他节点新增的实体在广播到达前被误拒
+ */
+@Slf4j
+@Component
+public class EntityIdFilter implements MessageListener {
+
+    /**
+     * 新增实体广播频道
+     */
+    public static final String CREATED_CHANNEL = "entity:created";
+
+    /**
+     * 期望误判率
+     */
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * 重建时在现有数量基础上预留的容量
+     */
+    private static final long RESERVED_CAPACITY = 10000;
+
+    /**
+     * 最近新增ID的保留数量，重建时回放，覆盖扫描期间尚未提交的新增
+     */
+    private static final int RECENT_ID_CAPACITY = 1024;
+
+    private final Map<String, Holder> holders = new ConcurrentHashMap<>();
+
+    /**
+     * 判断实体是否可能存在
+     * @param type 实体类型，如patient
+     * @param id 实体ID
+     * @return false表示一定不存在
+     */
+    public boolean mightExist(String type, Long id) {
+        if (id == null || id <= 0) {
+            return false;
+        }
+        Holder holder = holders.get(type);
+        if (holder == null || holder.filter == null) {
+            // 尚未完成初始化时不做拦截
+            return true;
+        }
+        return id > holder.maxId.get() || holder.filter.mightContain(id);
+    }
+
+    /**
+     * 记录新增的实体ID
+     * @param type 实体类型
+     * @param id 实体ID
+     */
+    public void put(String type, long id) {
+        Holder holder = holders.computeIfAbsent(type, t -> new Holder());
+        holder.maxId.accumulateAndGet(id, Math::max);
+        holder.recordRecent(id);
+        IdBloomFilter filter = holder.filter;
+        if (filter != null) {
+            filter.put(id);
+        }
+    }
+
+    /**
+     * 重建指定类型的过滤器
+     * @param type 实体类型
+     * @param expectedCount 当前实体数量
+     * @param idSource 按批提供全部ID的数据源
+     */
+    public void rebuild(String type, long expectedCount, Consumer<LongConsumer> idSource) {
+        Holder holder = holders.computeIfAbsent(type, t -> new Holder());
+        IdBloomFilter filter = new IdBloomFilter(expectedCount * 2 + RESERVED_CAPACITY, FALSE_POSITIVE_RATE);
+        AtomicLong maxId = new AtomicLong();
+        long[] count = new long[1];
+        idSource.accept(id -> {
+            filter.put(id);
+            maxId.accumulateAndGet(id, Math::max);
+            count[0]++;
+        });
+        // 切换前后各回放一次，覆盖重建期间并发写入旧过滤器的ID
+        holder.replayRecent(filter);
+        holder.filter = filter;
+        holder.replayRecent(filter);
+        holder.maxId.accumulateAndGet(maxId.get(), Math::max);
+        holder.loadedCount = count[0];
+        log.info("实体ID过滤器重建完成，类型: {}, ID数量: {}, 最大ID: {}, 占用: {}字节",
+                type, count[0], holder.maxId.get(), filter.sizeInBytes());
+    }
+
+    /**
+     * 由缓存键前缀得到实体类型，如"doctor::"和"doctor:"都对应doctor
+     * @param prefix 缓存键前缀
+     * @return 实体类型
+     */
+    public static String typeOf(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == ':') {
+            end--;
+        }
+        return prefix.substring(0, end);
+    }
+
+    /**
+     * 接收其他节点的新增广播，消息格式为 类型|ID
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator <= 0) {
+            return;
+        }
+        try {
+            put(body.substring(0, separator), Long.parseLong(body.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("无法解析新增实体广播: {}", body);
+        }
+    }
+
+    /**
+     * 各类型过滤器状态
+     * @return 统计快照
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        holders.forEach((type, holder) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("ready", holder.filter != null);
+            stats.put("loadedCount", holder.loadedCount);
+            stats.put("maxId", holder.maxId.get());
+            stats.put("sizeInBytes", holder.filter != null ? holder.filter.sizeInBytes() : 0);
+            result.put(type, stats);
+        });
+        return result;
+    }
+
+    private static final class Holder {
+        private volatile IdBloomFilter filter;
+        private volatile long loadedCount;
+        private final AtomicLong maxId = new AtomicLong();
+        private final AtomicLongArray recentIds = new AtomicLongArray(RECENT_ID_CAPACITY);
+        private final AtomicLong recentCursor = new AtomicLong();
+
+        private void recordRecent(long id) {
+            int slot = (int) (recentCursor.getAndIncrement() % RECENT_ID_CAPACITY);
+            recentIds.set(slot, id);
+        }
+
+        private void replayRecent(IdBloomFilter target) {
+            for (int i = 0; i < RECENT_ID_CAPACITY; i++) {
+                long id = recentIds.get(i);
+                if (id > 0) {
+                    target.put(id);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.luoye.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 热点键访问频率统计
+ * 使用滑动窗口Count-Min Sketch估算访问次数：窗口被切分为若干子窗口，每个子窗口一个计数矩阵，
+ * 估算值为所有未过期子窗口中各行计数最小值之和。内存固定，与访问的键数量无关，
+ * 估算值只会偏大不会偏小，热点键不会被漏判。
+ * 另外保留少量估算值较高的候选键，仅用于展示排行
+ */
+@Component
+public class HotKeyTracker {
+
+    private static final int DEPTH = 4;
+
+    private static final int WIDTH = 8192;
+
+    private static final int SUB_WINDOWS = 6;
+
+    private static final int MAX_CANDIDATES = 256;
+
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    /**
+     * 窗口内访问次数达到该值视为热点，临近过期时提前刷新
+     */
+    @Value("${cache.refresh-ahead.hot-threshold:20}")
+    private long hotThreshold;
+
+    /**
+     * 窗口内访问次数达到该值时升级为本地副本
+     */
+    @Value("${cache.hot-key.replica-threshold:500}")
+    private long replicaThreshold;
+
+    @Value("${cache.refresh-ahead.window-seconds:60}")
+    private long windowSeconds;
+
+    private final AtomicIntegerArray[] counters = new AtomicIntegerArray[SUB_WINDOWS];
+
+    /**
+     * 各子窗口对应的时间片编号，时间片变化时清零复用
+     */
+    private final AtomicLongArray epochs = new AtomicLongArray(SUB_WINDOWS);
+
+    private final Map<String, Long> candidates = new ConcurrentHashMap<>();
+
+    /**
+     * 毫秒时钟，测试时替换
+     */
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public HotKeyTracker() {
+        for (int i = 0; i < SUB_WINDOWS; i++) {
+            counters[i] = new AtomicIntegerArray(DEPTH * WIDTH);
+            epochs.set(i, -1);
+        }
+    }
+
+    /**
+     * 记录一次访问
+     * @param key 缓存键
+     * @return 窗口内访问次数的估算值
+     */
+    public long recordAccess(String key) {
+        long epoch = currentEpoch();
+        int slot = (int) (epoch % SUB_WINDOWS);
+        AtomicIntegerArray sketch = sketchOf(slot, epoch);
+        int hash = key.hashCode();
+        for (int row = 0; row < DEPTH; row++) {
+            sketch.incrementAndGet(indexOf(row, hash));
+        }
+        long estimate = estimate(hash, epoch);
+        if (estimate >= hotThreshold) {
+            rememberCandidate(key, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * 估算访问次数是否达到提前刷新的热点阈值
+     */
+    public boolean isHot(long estimate) {
+        return estimate >= hotThreshold;
+    }
+
+    /**
+     * 估算访问次数是否达到本地副本阈值
+     */
+    public boolean isReplicaHot(long estimate) {
+        return estimate >= replicaThreshold;
+    }
+
+    /**
+     * 访问频率最高的候选键
+     * @param limit 返回数量
+     * @return 缓存键到当前窗口访问次数估算值的映射，按次数降序
+     */
+    public Map<String, Long> getHotKeys(int limit) {
+        long epoch = currentEpoch();
+        Map<String, Long> result = new LinkedHashMap<>();
+        candidates.keySet().stream()
+                .map(key -> Map.entry(key, estimate(key.hashCode(), epoch)))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .forEach(entry -> result.put(entry.getKey(), entry.getValue()));
+        return result;
+    }
+
+    public long getHotThreshold() {
+        return hotThreshold;
+    }
+
+    public long getReplicaThreshold() {
+        return replicaThreshold;
+    }
+
+    private long currentEpoch() {
+        long subWindowMillis = Math.max(1, windowSeconds * 1000 / SUB_WINDOWS);
+        return clock.getAsLong() / subWindowMillis;
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private AtomicIntegerArray sketchOf(int slot, long epoch) {
+        if (epochs.get(slot) != epoch) {
+            synchronized (counters[slot]) {
+                if (epochs.get(slot) != epoch) {
+                    AtomicIntegerArray sketch = counters[slot];
+                    for (int i = 0; i < sketch.length(); i++) {
+                        sketch.set(i, 0);
+                    }
+                    epochs.set(slot, epoch);
+                    // 子窗口滚动时移出已经降温的候选键
+                    candidates.keySet().removeIf(key -> estimate(key.hashCode(), epoch) < hotThreshold);
+                }
+            }
+        }
+        return counters[slot];
+    }
+
+    /**
+     * 只累加仍在窗口内的子窗口
+     */
+    private long estimate(int hash, long epoch) {
+        long total = 0;
+        for (int slot = 0; slot < SUB_WINDOWS; slot++) {
+            long slotEpoch = epochs.get(slot);
+            if (slotEpoch < 0 || epoch - slotEpoch >= SUB_WINDOWS) {
+                continue;
+            }
+            AtomicIntegerArray sketch = counters[slot];
+            int min = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, sketch.get(indexOf(row, hash)));
+            }
+            total += min;
+        }
+        return total;
+    }
+
+    private void rememberCandidate(String key, long estimate) {
+        if (candidates.size() >= MAX_CANDIDATES && !candidates.containsKey(key)) {
+            // 候选已满时淘汰估算值最低的一个，只有更热的键才能进入
+            Map.Entry<String, Long> coldest = candidates.entrySet().stream()
+                    .min(Map.Entry.comparingByValue()).orElse(null);
+            if (coldest == null || coldest.getValue() >= estimate) {
+                return;
+            }
+            candidates.remove(coldest.getKey());
+        }
+        candidates.put(key, estimate);
+    }
+
+    /**
+     * 每行使用不同种子的MurmurHash3混淆函数，使各行的冲突相互独立
+     */
+    private static int indexOf(int row, int hash) {
+        int h = hash ^ SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return row * WIDTH + (h & (WIDTH - 1));
+    }
+}
@@ -0,0 +1,214 @@
+package com.luoye.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * 进程内本地缓存
+ * 容量有界、按条目过期；超出容量时先清理过期条目，再淘汰最久未访问的一批条目
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LocalCache<K, V> {
+
+    /**
+     * 超出容量时一次淘汰的比例，摊薄排序开销
+     */
+    private static final double EVICTION_BATCH_RATIO = 0.1;
+
+    private final ConcurrentHashMap<K, Entry<V>> store = new ConcurrentHashMap<>();
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final AtomicBoolean evicting = new AtomicBoolean(false);
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maximumSize 最大条目数
+     * @param ttl 默认过期时间
+     * @param unit 时间单位
+     */
+    public LocalCache(int maximumSize, long ttl, TimeUnit unit) {
+        if (maximumSize <= 0 || ttl <= 0) {
+            throw new IllegalArgumentException("本地缓存容量和过期时间必须大于0");
+        }
+        this.maximumSize = maximumSize;
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * 获取缓存值，不存在或已过期时返回null
+     * @param key 键
+     * @return 值
+     */
+    public V get(K key) {
+        Entry<V> entry = store.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - entry.expireAt >= 0) {
+            store.remove(key, entry);
+            return null;
+        }
+        entry.lastAccess = now;
+        return entry.value;
+    }
+
+    /**
+     * 使用默认过期时间写入缓存
+     * @param key 键
+     * @param value 值，为null时仅移除旧条目
+     */
+    public void put(K key, V value) {
+        putNanos(key, value, ttlNanos);
+    }
+
+    /**
+     * 使用指定过期时间写入缓存
+     * @param key 键
+     * @param value 值，为null时仅移除旧条目
+     * @param ttl 过期时间
+     * @param unit 时间单位
+     */
+    public void put(K key, V value, long ttl, TimeUnit unit) {
+        putNanos(key, value, unit.toNanos(ttl));
+    }
+
+    /**
+     * 获取缓存值，不存在或已过期时用默认过期时间原子地创建，并发调用同一个键只会创建一次
+     * @param key 键
+     * @param mappingFunction 创建值的方法，返回null时不写入
+     * @return 已有或新建的值
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        long now = System.nanoTime();
+        Entry<V> entry = store.compute(key, (k, existing) -> {
+            if (existing != null && now - existing.expireAt < 0) {
+                existing.lastAccess = now;
+                return existing;
+            }
+            V value = mappingFunction.apply(k);
+            return value != null ? new Entry<>(value, now + ttlNanos, now) : null;
+        });
+        if (entry == null) {
+            return null;
+        }
+        if (store.size() > maximumSize) {
+            evictIfNecessary();
+        }
+        return entry.value;
+    }
+
+    private void putNanos(K key, V value, long ttl) {
+        if (value == null) {
+            store.remove(key);
+            return;
+        }
+        long now = System.nanoTime();
+        store.put(key, new Entry<>(value, now + ttl, now));
+        if (store.size() > maximumSize) {
+            evictIfNecessary();
+        }
+    }
+
+    /**
+     * 移除单个条目
+     * @param key 键
+     */
+    public void invalidate(K key) {
+        store.remove(key);
+    }
+
+    /**
+     * 移除满足条件的条目，需要遍历全部条目，只用于低频的批量清除
+     * @param predicate 按键和值判断是否移除
+     * @return 移除的条目数
+     */
+    public int removeIf(BiPredicate<K, V> predicate) {
+        int removed = 0;
+        for (Map.Entry<K, Entry<V>> e : store.entrySet()) {
+            if (predicate.test(e.getKey(), e.getValue().value) && store.remove(e.getKey(), e.getValue())) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 清空全部条目
+     */
+    public void invalidateAll() {
+        store.clear();
+    }
+
+    /**
+     * 当前条目数（可能包含尚未清理的过期条目）
+     */
+    public int size() {
+        return store.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * 因容量或过期被淘汰的条目数
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void evictIfNecessary() {
+        // 同一时刻只允许一个线程做淘汰，其余写入直接返回
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            List<Map.Entry<K, Entry<V>>> alive = new ArrayList<>(store.size());
+            for (Map.Entry<K, Entry<V>> e : store.entrySet()) {
+                if (now - e.getValue().expireAt >= 0) {
+                    if (store.remove(e.getKey(), e.getValue())) {
+                        evictionCount.increment();
+                    }
+                } else {
+                    alive.add(e);
+                }
+            }
+            if (alive.size() <= maximumSize) {
+                return;
+            }
+            int toEvict = alive.size() - maximumSize + (int) (maximumSize * EVICTION_BATCH_RATIO);
+            alive.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (int i = 0; i < toEvict && i < alive.size(); i++) {
+                Map.Entry<K, Entry<V>> e = alive.get(i);
+                if (store.remove(e.getKey(), e.getValue())) {
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expireAt;
+        private volatile long lastAccess;
+
+        private Entry(V value, long expireAt, long lastAccess) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.luoye.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Redis熔断器
+ * 按秒分桶统计最近一段时间内Redis调用的错误率和慢调用率，任一超过阈值即打开熔断，
+ * 打开期间调用方直接走降级逻辑，不再等待Redis超时；冷却时间过后进入半开状态，
+ * 放行少量探测调用，全部成功才关闭熔断，任一失败或过慢则重新打开
+ */
+@Slf4j
+@Component
+public class RedisCircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 统计窗口秒数
+     */
+    @Value("${cache.redis-breaker.window-seconds:10}")
+    private int windowSeconds;
+
+    /**
+     * 窗口内调用次数达到该值才计算错误率，避免低流量时偶发错误触发熔断
+     */
+    @Value("${cache.redis-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    /**
+     * 错误率阈值（百分比）
+     */
+    @Value("${cache.redis-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    /**
+     * 耗时超过该值的调用视为慢调用
+     */
+    @Value("${cache.redis-breaker.slow-call-millis:200}")
+    private long slowCallMillis;
+
+    /**
+     * 慢调用率阈值（百分比）
+     */
+    @Value("${cache.redis-breaker.slow-call-rate-threshold:80}")
+    private int slowCallRateThreshold;
+
+    /**
+     * 打开后的冷却秒数
+     */
+    @Value("${cache.redis-breaker.open-seconds:10}")
+    private long openSeconds;
+
+    /**
+     * 半开状态放行的探测调用数
+     */
+    @Value("${cache.redis-breaker.half-open-calls:5}")
+    private int halfOpenCalls;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /**
+     * 毫秒时钟，测试时替换
+     */
+    private LongSupplier clock = System::currentTimeMillis;
+
+    private volatile long stateSince = clock.getAsLong();
+
+    private volatile String lastOpenReason;
+
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder rejectedCalls = new LongAdder();
+
+    private final LongAdder openCount = new LongAdder();
+
+    private Bucket[] buckets;
+
+    @PostConstruct
+    public void init() {
+        buckets = new Bucket[Math.max(1, windowSeconds)];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+        this.stateSince = clock.getAsLong();
+    }
+
+    /**
+     * 注册状态变化监听，在触发状态变化的线程中同步调用，监听方不应执行耗时操作
+     * @param listener 接收新状态
+     */
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 是否允许本次调用访问Redis
+     * @return false表示熔断打开或半开探测名额已用完，调用方应直接降级
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        long now = clock.getAsLong();
+        if (current == State.OPEN) {
+            if (now - stateSince < TimeUnit.SECONDS.toMillis(openSeconds)) {
+                rejectedCalls.increment();
+                return false;
+            }
+            if (transition(State.OPEN, State.HALF_OPEN)) {
+                halfOpenSuccesses.set(0);
+                halfOpenPermits.set(halfOpenCalls);
+            }
+        } else if (now - stateSince >= TimeUnit.SECONDS.toMillis(openSeconds) && halfOpenPermits.get() <= 0) {
+            // 探测调用未回报结果（如调用方提前返回）时重新发放名额，避免停留在半开状态
+            halfOpenPermits.set(halfOpenCalls);
+        }
+        if (halfOpenPermits.getAndDecrement() > 0) {
+            return true;
+        }
+        rejectedCalls.increment();
+        return false;
+    }
+
+    /**
+     * 记录一次Redis调用结果
+     * @param nanos 耗时（纳秒）
+     * @param success 是否成功
+     */
+    public void record(long nanos, boolean success) {
+        boolean slow = nanos >= TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        State current = state.get();
+        if (current == State.OPEN) {
+            // 打开之前发出的调用陆续返回，不再计入
+            return;
+        }
+        if (current == State.HALF_OPEN) {
+            if (!success || slow) {
+                open(success ? "半开探测调用过慢" : "半开探测调用失败");
+            } else if (halfOpenSuccesses.incrementAndGet() >= halfOpenCalls && transition(State.HALF_OPEN, State.CLOSED)) {
+                resetBuckets();
+            }
+            return;
+        }
+
+        Bucket bucket = currentBucket();
+        bucket.calls.increment();
+        if (!success) {
+            bucket.failures.increment();
+        }
+        if (slow) {
+            bucket.slowCalls.increment();
+        }
+        // 只有失败或慢调用才可能触发熔断，正常调用不汇总窗口
+        if (!success || slow) {
+            evaluate();
+        }
+    }
+
+    /**
+     * 经熔断器执行Redis调用：熔断时直接返回降级结果，否则计时执行并记录结果，异常继续抛出
+     * @param action Redis调用
+     * @param fallback 降级结果
+     * @return 调用或降级结果
+     * @param <T> 结果类型
+     */
+    public <T> T execute(Supplier<T> action, Supplier<T> fallback) {
+        if (!allowRequest()) {
+            return fallback.get();
+        }
+        return call(action);
+    }
+
+    /**
+     * 在allowRequest放行后计时执行Redis调用并记录结果，异常继续抛出
+     * @param action Redis调用
+     * @return 调用结果
+     * @param <T> 结果类型
+     */
+    public <T> T call(Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            record(System.nanoTime() - start, true);
+            return result;
+        } catch (RuntimeException e) {
+            // 序列化异常是数据问题，不代表Redis不可用
+            record(System.nanoTime() - start, e instanceof SerializationException);
+            throw e;
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    /**
+     * 熔断器状态和窗口统计
+     * @return 统计快照
+     */
+    public Map<String, Object> getStatistics() {
+        long[] totals = windowTotals();
+        long calls = totals[0];
+        long failures = totals[1];
+        long slowCalls = totals[2];
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state.get().name());
+        stats.put("stateSince", stateSince);
+        stats.put("lastOpenReason", lastOpenReason);
+        stats.put("openCount", openCount.sum());
+        stats.put("rejectedCalls", rejectedCalls.sum());
+        stats.put("windowCalls", calls);
+        stats.put("windowFailureRate", calls > 0 ? (double) failures / calls : 0.0);
+        stats.put("windowSlowCallRate", calls > 0 ? (double) slowCalls / calls : 0.0);
+        return stats;
+    }
+
+    private void evaluate() {
+        long[] totals = windowTotals();
+        long calls = totals[0];
+        long failures = totals[1];
+        long slowCalls = totals[2];
+        if (calls < minimumCalls) {
+            return;
+        }
+        if (failures * 100 >= (long) failureRateThreshold * calls) {
+            open("错误率 " + failures + "/" + calls);
+        } else if (slowCalls * 100 >= (long) slowCallRateThreshold * calls) {
+            open("慢调用率 " + slowCalls + "/" + calls);
+        }
+    }
+
+    /**
+     * 汇总窗口内的调用数、失败数和慢调用数
+     */
+    private long[] windowTotals() {
+        long[] totals = new long[3];
+        long nowSecond = clock.getAsLong() / 1000;
+        for (Bucket bucket : buckets) {
+            if (nowSecond - bucket.second < windowSeconds) {
+                totals[0] += bucket.calls.sum();
+                totals[1] += bucket.failures.sum();
+                totals[2] += bucket.slowCalls.sum();
+            }
+        }
+        return totals;
+    }
+
+    private void open(String reason) {
+        State current = state.get();
+        if (current != State.OPEN && transition(current, State.OPEN)) {
+            lastOpenReason = reason;
+            openCount.increment();
+            log.error("Redis熔断打开，{}秒内调用直接降级，原因: {}", openSeconds, reason);
+        }
+    }
+
+    private boolean transition(State from, State to) {
+        if (!state.compareAndSet(from, to)) {
+            return false;
+        }
+        stateSince = clock.getAsLong();
+        if (to != State.OPEN) {
+            log.warn("Redis熔断状态变化: {} -> {}", from, to);
+        }
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(to);
+            } catch (Exception e) {
+                log.warn("Redis熔断状态监听执行失败: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private Bucket currentBucket() {
+        long second = clock.getAsLong() / 1000;
+        Bucket bucket = buckets[(int) (second % buckets.length)];
+        if (bucket.second != second) {
+            synchronized (bucket) {
+                if (bucket.second != second) {
+                    bucket.calls.reset();
+                    bucket.failures.reset();
+                    bucket.slowCalls.reset();
+                    bucket.second = second;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private void resetBuckets() {
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                bucket.calls.reset();
+                bucket.failures.reset();
+                bucket.slowCalls.reset();
+                bucket.second = -1;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private volatile long second = -1;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder slowCalls = new LongAdder();
+    }
+}
@@ -0,0 +1,182 @@
+package com.luoye.cache;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已验证令牌缓存
+ * 同一个令牌在有效期内会被反复携带，验签（Base64解码、JSON解析和HMAC-SHA512）结果只需计算一次。
+ * 以令牌的SHA-256摘要为键保存解析出的身份和过期时间，内存中不保留令牌原文；
+ * 条目存活时间不超过令牌自身的过期时间，也不超过配置的上限；
+ * 缓存只省去验签，吊销检查由拦截器对每个请求单独执行，按用户吊销时同时清除该用户的所有条目
+ */
+@Component
+public class VerifiedTokenCache {
+
+    @Value("${cache.verified-token.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.verified-token.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * 条目最长存活秒数
+     */
+    @Value("${cache.verified-token.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private LocalCache<String, VerifiedToken> cache;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JDK不支持SHA-256", e);
+        }
+    });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(maxSize, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 查询已验证的令牌
+     * @param token 令牌原文
+     * @return 解析结果，未缓存或已过期时返回null
+     */
+    public VerifiedToken get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        VerifiedToken verified = cache.get(digest(token));
+        if (verified == null || verified.getExpiresAt() <= System.currentTimeMillis()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return verified;
+    }
+
+    /**
+     * 缓存验签通过的令牌
+     * @param token 令牌原文
+     * @param id 用户ID
+     * @param identity 身份类型
+     * @param tokenId 令牌ID，旧令牌没有时为null
+     * @param issuedAt 签发时间（毫秒时间戳），旧令牌没有时为0
+     * @param expiresAt 令牌过期时间（毫秒时间戳）
+     * @return 缓存的解析结果
+     */
+    public VerifiedToken put(String token, Long id, String identity, String tokenId, long issuedAt, long expiresAt) {
+        VerifiedToken verified = new VerifiedToken(id, identity, tokenId, issuedAt, expiresAt);
+        long remainingMillis = Math.min(expiresAt - System.currentTimeMillis(), TimeUnit.SECONDS.toMillis(ttlSeconds));
+        if (enabled && remainingMillis > 0) {
+            cache.put(digest(token), verified, remainingMillis, TimeUnit.MILLISECONDS);
+        }
+        return verified;
+    }
+
+    /**
+     * 清除指定令牌
+     * @param token 令牌原文
+     */
+    public void invalidate(String token) {
+        cache.invalidate(digest(token));
+        invalidations.increment();
+    }
+
+    /**
+     * 清除指定用户的所有令牌，用于按用户吊销
+     * @param identity 身份类型
+     * @param id 用户ID
+     * @return 清除的条目数
+     */
+    public int invalidatePrincipal(String identity, Long id) {
+        int removed = cache.removeIf((key, verified) ->
+                verified.getId().equals(id) && verified.getIdentity().equals(identity));
+        invalidations.add(removed);
+        return removed;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        invalidations.increment();
+    }
+
+    /**
+     * 缓存统计
+     * @return 条目数、命中数、未命中数、命中率和清除次数
+     */
+    public Map<String, Object> getStatistics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", cache.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private static String digest(String token) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 令牌解析结果，不可变，可在线程间共享
+     */
+    public static final class VerifiedToken {
+        private final Long id;
+        private final String identity;
+        private final String tokenId;
+        private final long issuedAt;
+        private final long expiresAt;
+
+        public VerifiedToken(Long id, String identity, String tokenId, long issuedAt, long expiresAt) {
+            this.id = id;
+            this.identity = identity;
+            this.tokenId = tokenId;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getIdentity() {
+            return identity;
+        }
+
+        public String getTokenId() {
+            return tokenId;
+        }
+
+        public long getIssuedAt() {
+            return issuedAt;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
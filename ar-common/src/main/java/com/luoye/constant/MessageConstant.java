@@ -185,4 +185,8 @@ public class MessageConstant {
     public static final String TOKEN_INVALID = "令牌验证未通过，无法注册";
     public static final String ADMIN_TOKEN = "lylzx-admin";
     public static final String DOCTOR_TOKEN = "lylzx-doctor";
+    public static final String TOKEN_PARSE_FAILED = "令牌无效或已过期";
+    public static final String TOKEN_ID_MISSING = "令牌没有ID，请按用户吊销";
+    public static final String TOKEN_REVOKE_SUCCESS = "吊销成功";
+    public static final String TRACE_NOT_FOUND = "链路不存在或未被保留";
 }
@@ -1,23 +1,45 @@
 package com.luoye.context;
 
 
+import java.util.concurrent.Callable;
+
 /**
- * 线程本地变量，用于存储当前用户信息
+ * 线程本地变量，用于存储当前请求上下文
+ * 用户ID、身份、请求ID和开始时间保存在同一个不可变的RequestContext中，读取时不分配对象、不输出日志；
+ * 异步任务通过wrap方法或TaskDecorator携带提交时的上下文
  */
 public class BaseContext {
 
-    // 用于存储用户ID的ThreadLocal
-    private static ThreadLocal<Long> idThreadLocal = new ThreadLocal<>();
-    // 用于存储身份类型的ThreadLocal
-    private static ThreadLocal<String> identityThreadLocal = new ThreadLocal<>();
+    private static final ThreadLocal<RequestContext> CONTEXT = new ThreadLocal<>();
+
+    /**
+     * 获取当前请求上下文
+     * @return 请求上下文，没有时返回RequestContext.EMPTY
+     */
+    public static RequestContext get() {
+        RequestContext context = CONTEXT.get();
+        return context != null ? context : RequestContext.EMPTY;
+    }
+
+    /**
+     * 设置当前请求上下文
+     * @param context 请求上下文，为null时清除
+     */
+    public static void set(RequestContext context) {
+        if (context == null || context == RequestContext.EMPTY) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(context);
+        }
+    }
 
     /**
      * 设置当前用户ID
      * @param id 用户ID
      */
     public static void setCurrentId(Long id) {
-        idThreadLocal.set(id);
-
+        RequestContext current = get();
+        set(current.withUser(id, current.getIdentity()));
     }
 
     /**
@@ -25,18 +47,14 @@ public class BaseContext {
      * @return 当前用户ID
      */
     public static Long getCurrentId() {
-        Long id = idThreadLocal.get();
-        // 添加调试日志
-        System.out.println("BaseContext获取ID - 线程ID: " + Thread.currentThread().getId() +
-                ", ID: " + id);
-        return id;
+        return get().getUserId();
     }
 
     /**
      * 移除当前用户ID
      */
     public static void removeCurrentId() {
-        idThreadLocal.remove();
+        setCurrentId(null);
     }
 
     /**
@@ -44,7 +62,8 @@ public class BaseContext {
      * @param identity 身份类型
      */
     public static void setCurrentIdentity(String identity) {
-        identityThreadLocal.set(identity);
+        RequestContext current = get();
+        set(current.withUser(current.getUserId(), identity));
     }
 
     /**
@@ -52,39 +71,74 @@ public class BaseContext {
      * @return 当前用户身份
      */
     public static String getCurrentIdentity() {
-        String identity = identityThreadLocal.get();
-        // 添加调试日志
-        System.out.println("BaseContext获取Identity - 线程ID: " + Thread.currentThread().getId() +
-                ", Identity: " + identity);
-        return identity;
+        return get().getIdentity();
     }
 
     /**
      * 移除当前用户身份
      */
     public static void removeCurrentIdentity() {
-        identityThreadLocal.remove();
+        setCurrentIdentity(null);
     }
 
     /**
-     * 设置当前用户ID和身份类型
+     * 设置当前用户ID和身份类型，请求ID和开始时间保持不变
      * @param id 用户ID
      * @param identity 身份类型
      */
     public static void setCurrentId(Long id, String identity) {
-        idThreadLocal.set(id);
-        identityThreadLocal.set(identity);
-        // 添加调试日志
-        System.out.println("BaseContext设置 - 线程ID: " + Thread.currentThread().getId() +
-                ", ID: " + id + ", Identity: " + identity);
+        set(get().withUser(id, identity));
+    }
 
+    /**
+     * 获取当前请求ID
+     * @return 请求ID，没有请求上下文时返回null
+     */
+    public static String getRequestId() {
+        return get().getRequestId();
     }
 
     /**
      * 清除所有当前用户信息
      */
     public static void clear() {
-        idThreadLocal.remove();
-        identityThreadLocal.remove();
+        CONTEXT.remove();
+    }
+
+    /**
+     * 包装任务，使其在执行线程中使用提交时的上下文，执行完毕后恢复执行线程原有的上下文
+     * @param task 任务
+     * @return 包装后的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestContext captured = get();
+        return () -> {
+            RequestContext previous = get();
+            set(captured);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * 包装有返回值的任务，规则同wrap(Runnable)
+     * @param task 任务
+     * @return 包装后的任务
+     * @param <T> 返回值类型
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestContext captured = get();
+        return () -> {
+            RequestContext previous = get();
+            set(captured);
+            try {
+                return task.call();
+            } finally {
+                set(previous);
+            }
+        };
     }
 }
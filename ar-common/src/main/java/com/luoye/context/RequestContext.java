@@ -0,0 +1,115 @@
+package com.luoye.context;
+
+import com.luoye.trace.Trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 请求上下文
+ * 一次请求（或一次定时任务）的用户、身份、请求ID、开始时间和调用链路，创建后不可修改，
+ * 可以在线程间直接传递；登录后补充用户信息时生成新的对象，请求ID、开始时间和链路保持不变
+ */
+public final class RequestContext {
+
+    /**
+     * 没有请求时的空上下文
+     */
+    public static final RequestContext EMPTY = new RequestContext(null, null, null, 0L, null);
+
+    /**
+     * 请求ID序号，起点随机，避免多个节点重启后生成相同的ID
+     */
+    private static final AtomicLong SEQUENCE = new AtomicLong(ThreadLocalRandom.current().nextLong() >>> 16);
+
+    private final Long userId;
+    private final String identity;
+    private final String requestId;
+    private final long startTimeMillis;
+    private final Trace trace;
+
+    private RequestContext(Long userId, String identity, String requestId, long startTimeMillis, Trace trace) {
+        this.userId = userId;
+        this.identity = identity;
+        this.requestId = requestId;
+        this.startTimeMillis = startTimeMillis;
+        this.trace = trace;
+    }
+
+    /**
+     * 新请求的上下文，尚无用户信息
+     * @param requestId 请求ID，为空时自动生成
+     * @return 请求上下文
+     */
+    public static RequestContext start(String requestId) {
+        String id = requestId == null || requestId.isEmpty() ? nextRequestId() : requestId;
+        return new RequestContext(null, null, id, System.currentTimeMillis(), null);
+    }
+
+    /**
+     * 定时任务等后台执行的上下文，身份为SYSTEM
+     * @param name 任务名称，作为请求ID前缀
+     * @return 请求上下文
+     */
+    public static RequestContext system(String name) {
+        return new RequestContext(null, "SYSTEM", name + "-" + nextRequestId(), System.currentTimeMillis(), null);
+    }
+
+    /**
+     * 补充用户信息后的上下文
+     * @param userId 用户ID
+     * @param identity 身份类型
+     * @return 新的上下文
+     */
+    public RequestContext withUser(Long userId, String identity) {
+        return new RequestContext(userId, identity, requestId, startTimeMillis, trace);
+    }
+
+    /**
+     * 附带调用链路的上下文
+     * @param trace 调用链路，为null时不记录
+     * @return 新的上下文
+     */
+    public RequestContext withTrace(Trace trace) {
+        return new RequestContext(userId, identity, requestId, startTimeMillis, trace);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * 当前请求的调用链路，未采集时为null
+     */
+    public Trace getTrace() {
+        return trace;
+    }
+
+    /**
+     * 请求开始至今的毫秒数
+     */
+    public long elapsedMillis() {
+        return startTimeMillis == 0L ? 0L : System.currentTimeMillis() - startTimeMillis;
+    }
+
+    private static String nextRequestId() {
+        return Long.toHexString(SEQUENCE.incrementAndGet());
+    }
+
+    @Override
+    public String toString() {
+        return "RequestContext{requestId=" + requestId + ", userId=" + userId + ", identity=" + identity + "}";
+    }
+}
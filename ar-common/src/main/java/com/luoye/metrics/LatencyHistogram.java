@@ -0,0 +1,135 @@
+package com.luoye.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁耗时直方图
+ * 按微秒对数线性分桶：16微秒以内每微秒一个桶，之后每个2的幂区间再均分为8个子桶，桶宽不超过下界的1/8；
+ * 记录只做一次位运算定位和一次原子累加，适合放在热路径上。
+ * 分位数在所在桶内按线性插值估算，相对误差不超过12.5%，不再取整到相差2~2.5倍的桶上界
+ */
+public class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间的子桶数为2^SUB_BUCKET_BITS
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * 可区分的最大耗时（微秒），约18分钟，更大的值计入最后一个桶
+     */
+    private static final long MAX_TRACKABLE_MICROS = (1L << 30) - 1;
+
+    private static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_MICROS) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_TRACKABLE_MICROS);
+        buckets.incrementAndGet(indexOf(micros));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * 统计快照，耗时单位为毫秒
+     * @return 次数、平均值、P50/P90/P95/P99和最大值
+     */
+    public Map<String, Object> snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long max = maxNanos.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", total);
+        stats.put("meanMs", total == 0 ? 0.0 : toMillis(totalNanos.sum() / total));
+        stats.put("p50Ms", toMillis(percentile(counts, total, 0.50, max)));
+        stats.put("p90Ms", toMillis(percentile(counts, total, 0.90, max)));
+        stats.put("p95Ms", toMillis(percentile(counts, total, 0.95, max)));
+        stats.put("p99Ms", toMillis(percentile(counts, total, 0.99, max)));
+        stats.put("maxMs", toMillis(max));
+        return stats;
+    }
+
+    /**
+     * 找到累计数量首次达到目标排名的桶，按排名在桶内的位置线性插值，不超过实际最大值
+     */
+    static long percentile(long[] counts, long total, double ratio, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * ratio);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            if (seen + counts[i] >= target) {
+                if (i == counts.length - 1) {
+                    return max;
+                }
+                long lower = lowerBoundOf(i);
+                long width = lowerBoundOf(i + 1) - lower;
+                double micros = lower + width * (double) (target - seen) / counts[i];
+                return Math.min((long) (micros * 1_000), max);
+            }
+            seen += counts[i];
+        }
+        return max;
+    }
+
+    /**
+     * 微秒值所在的桶：小于2*SUB_BUCKETS时每微秒一个桶，之后按最高位所在的2的幂区间和其后SUB_BUCKET_BITS位定位
+     */
+    static int indexOf(long micros) {
+        if (micros < 2 * SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (micros >>> shift);
+    }
+
+    /**
+     * 桶的下界（微秒，含），也是前一个桶的上界（不含）
+     */
+    static long lowerBoundOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return mantissa << shift;
+    }
+
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
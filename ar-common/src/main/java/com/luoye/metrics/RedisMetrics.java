@@ -0,0 +1,271 @@
+package com.luoye.metrics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Redis命令耗时和分布式锁竞争统计
+ * 命令按名称（get、set、evalSha、closePipeline等）各一个直方图；锁按族（lock:slot_operation等，去掉末尾的业务ID）
+ * 统计等锁耗时、持锁耗时和等锁超时次数，另外按具体锁键统计当前和上一个窗口内发生竞争的次数，用于找出最热的锁
+ */
+@Component
+public class RedisMetrics {
+
+    /**
+     * 单个窗口内最多跟踪的锁键数量，超出后新出现的键不再计数
+     */
+    private static final int MAX_CONTENDED_KEYS = 1024;
+
+    /**
+     * 同时跟踪持锁时间的锁数量上限，其他节点抢到已过期的锁后本节点无法得知，需要防止无限增长
+     */
+    private static final int MAX_HELD_LOCKS = 10000;
+
+    /**
+     * 两次清理过期持锁记录的最小间隔
+     */
+    private static final long HELD_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * 等锁耗时达到该值视为发生竞争
+     */
+    @Value("${metrics.redis.contention-threshold-millis:5}")
+    private long contentionThresholdMillis;
+
+    @Value("${metrics.redis.contention-window-seconds:60}")
+    private long contentionWindowSeconds;
+
+    /**
+     * 最长的锁租期，持锁记录超过该时长时锁必然已经释放，直接清理
+     */
+    @Value("${metrics.redis.max-lock-hold-seconds:3600}")
+    private long maxLockHoldSeconds;
+
+    private final ConcurrentHashMap<String, CommandStats> commands = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, LockStats> locks = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Long> heldSince = new ConcurrentHashMap<>();
+
+    private volatile ConcurrentHashMap<String, LongAdder> currentContention = new ConcurrentHashMap<>();
+
+    private volatile Map<String, LongAdder> previousContention = new ConcurrentHashMap<>();
+
+    private volatile long windowStart = System.currentTimeMillis();
+
+    private final LongAdder contentionOverflow = new LongAdder();
+
+    private final LongAdder heldEvicted = new LongAdder();
+
+    private LongSupplier clock = System::nanoTime;
+
+    private final AtomicLong lastHeldSweep = new AtomicLong(clock.getAsLong());
+
+    /**
+     * 记录一次Redis命令
+     * @param command 命令名称
+     * @param nanos 耗时（纳秒）
+     * @param success 是否成功
+     */
+    public void recordCommand(String command, long nanos, boolean success) {
+        CommandStats stats = commands.get(command);
+        if (stats == null) {
+            stats = commands.computeIfAbsent(command, key -> new CommandStats());
+        }
+        stats.histogram.record(nanos);
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * 记录一次加锁
+     * @param lockKey 锁键
+     * @param waitNanos 等锁耗时（纳秒）
+     * @param acquired 是否拿到锁
+     */
+    public void recordLockWait(String lockKey, long waitNanos, boolean acquired) {
+        LockStats stats = lockStatsOf(lockKey);
+        stats.waitHistogram.record(waitNanos);
+        if (acquired) {
+            stats.acquired.increment();
+            long now = clock.getAsLong();
+            sweepHeldLocks(now);
+            if (heldSince.size() < MAX_HELD_LOCKS) {
+                heldSince.put(lockKey, now);
+            }
+        } else {
+            stats.timeouts.increment();
+        }
+        if (!acquired || waitNanos >= TimeUnit.MILLISECONDS.toNanos(contentionThresholdMillis)) {
+            stats.contended.increment();
+            recordContention(lockKey);
+        }
+    }
+
+    /**
+     * 记录一次释放锁，计算持锁耗时
+     * @param lockKey 锁键
+     */
+    public void recordLockRelease(String lockKey) {
+        Long since = heldSince.remove(lockKey);
+        if (since != null) {
+            lockStatsOf(lockKey).holdHistogram.record(clock.getAsLong() - since);
+        }
+    }
+
+    /**
+     * 丢弃持锁记录，不计入持锁耗时，用于锁已因租期到期释放或被强制释放等无法得知实际释放时间的情况
+     * @param lockKey 锁键
+     */
+    public void discardLockHold(String lockKey) {
+        heldSince.remove(lockKey);
+    }
+
+    /**
+     * 命令和锁统计
+     * @param topKeys 返回竞争最多的锁键数量
+     * @return 各命令耗时分布、各锁族的等锁和持锁耗时分布、竞争最多的锁键
+     */
+    public Map<String, Object> getStatistics(int topKeys) {
+        rotateIfNeeded();
+        sweepHeldLocks(clock.getAsLong());
+        Map<String, Object> result = new LinkedHashMap<>();
+        Map<String, Object> commandStats = new TreeMap<>();
+        commands.forEach((command, stats) -> {
+            Map<String, Object> item = new LinkedHashMap<>(stats.histogram.snapshot());
+            item.put("errors", stats.errors.sum());
+            commandStats.put(command, item);
+        });
+        result.put("commands", commandStats);
+
+        Map<String, Object> lockStats = new TreeMap<>();
+        locks.forEach((family, stats) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("acquired", stats.acquired.sum());
+            item.put("timeouts", stats.timeouts.sum());
+            item.put("contended", stats.contended.sum());
+            item.put("wait", stats.waitHistogram.snapshot());
+            item.put("hold", stats.holdHistogram.snapshot());
+            lockStats.put(family, item);
+        });
+        result.put("locks", lockStats);
+        result.put("heldLocks", heldSince.size());
+        result.put("heldLocksEvicted", heldEvicted.sum());
+
+        Map<String, Long> merged = new HashMap<>();
+        previousContention.forEach((key, count) -> merged.merge(key, count.sum(), Long::sum));
+        currentContention.forEach((key, count) -> merged.merge(key, count.sum(), Long::sum));
+        Map<String, Long> top = new LinkedHashMap<>();
+        merged.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(topKeys)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        result.put("contentionThresholdMillis", contentionThresholdMillis);
+        result.put("topContendedKeys", top);
+        result.put("contentionOverflow", contentionOverflow.sum());
+        return result;
+    }
+
+    /**
+     * 锁族：lock:类型:业务ID 取前两段，其他格式取第一段
+     */
+    private static String familyOf(String lockKey) {
+        int first = lockKey.indexOf(':');
+        if (first < 0) {
+            return lockKey;
+        }
+        if (!lockKey.startsWith("lock:")) {
+            return lockKey.substring(0, first);
+        }
+        int second = lockKey.indexOf(':', first + 1);
+        return second < 0 ? lockKey : lockKey.substring(0, second);
+    }
+
+    private LockStats lockStatsOf(String lockKey) {
+        String family = familyOf(lockKey);
+        LockStats stats = locks.get(family);
+        if (stats == null) {
+            stats = locks.computeIfAbsent(family, key -> new LockStats());
+        }
+        return stats;
+    }
+
+    private void recordContention(String lockKey) {
+        rotateIfNeeded();
+        ConcurrentHashMap<String, LongAdder> window = currentContention;
+        LongAdder count = window.get(lockKey);
+        if (count == null) {
+            if (window.size() >= MAX_CONTENDED_KEYS) {
+                contentionOverflow.increment();
+                return;
+            }
+            count = window.computeIfAbsent(lockKey, key -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * 清理持锁超过最长租期的记录，每秒最多一次，避免每次加锁都遍历
+     */
+    private void sweepHeldLocks(long now) {
+        long last = lastHeldSweep.get();
+        if (now - last < HELD_SWEEP_INTERVAL_NANOS || !lastHeldSweep.compareAndSet(last, now)) {
+            return;
+        }
+        long maxHoldNanos = TimeUnit.SECONDS.toNanos(maxLockHoldSeconds);
+        heldSince.entrySet().removeIf(entry -> {
+            boolean stale = now - entry.getValue() > maxHoldNanos;
+            if (stale) {
+                heldEvicted.increment();
+            }
+            return stale;
+        });
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+        this.lastHeldSweep.set(clock.getAsLong());
+    }
+
+    private void rotateIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart < TimeUnit.SECONDS.toMillis(contentionWindowSeconds)) {
+            return;
+        }
+        synchronized (this) {
+            if (now - windowStart < TimeUnit.SECONDS.toMillis(contentionWindowSeconds)) {
+                return;
+            }
+            // 超过两个窗口没有竞争时，上一个窗口的数据也已过时
+            previousContention = now - windowStart < TimeUnit.SECONDS.toMillis(contentionWindowSeconds) * 2
+                    ? currentContention : new ConcurrentHashMap<>();
+            currentContention = new ConcurrentHashMap<>();
+            windowStart = now;
+        }
+    }
+
+    private static final class CommandStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    private static final class LockStats {
+        private final LatencyHistogram waitHistogram = new LatencyHistogram();
+        private final LatencyHistogram holdHistogram = new LatencyHistogram();
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder contended = new LongAdder();
+    }
+}
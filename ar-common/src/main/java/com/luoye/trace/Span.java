@@ -0,0 +1,59 @@
+package com.luoye.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 链路中的一段调用
+ * 由Tracer.start创建并加入所属Trace，Tracer.end结束，只在所属线程内修改
+ */
+public final class Span {
+
+    final Trace trace;
+    final Span parent;
+    final int id;
+    final String type;
+    final String name;
+    final long startNanos;
+    volatile long durationNanos = -1;
+    volatile String error;
+
+    Span(Trace trace, Span parent, int id, String type, String name, long startNanos) {
+        this.trace = trace;
+        this.parent = parent;
+        this.id = id;
+        this.type = type;
+        this.name = name;
+        this.startNanos = startNanos;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 耗时（纳秒），未结束时为-1
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    Map<String, Object> toMap(long traceStartNanos) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("parentId", parent != null ? parent.id : 0);
+        map.put("type", type);
+        map.put("name", name);
+        map.put("startMs", (startNanos - traceStartNanos) / 1_000_000.0);
+        long duration = durationNanos;
+        map.put("durationMs", duration >= 0 ? duration / 1_000_000.0 : -1);
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,153 @@
+package com.luoye.trace;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次请求的调用链路
+ * 以请求ID为链路ID，按开始顺序保存该请求内的Span（数量有上限，超出后只计数，外层的Controller和Service总能保留），
+ * 并按类型累计次数和耗时；
+ * 随RequestContext传递，BaseContext.wrap提交的异步任务中的调用同样记入，请求结束后不再接受新的Span
+ */
+public final class Trace {
+
+    private final String traceId;
+    private final String name;
+    private final long startNanos;
+    private final long startTimeMillis;
+    private final int maxSpans;
+
+    private final List<Span> spans = new ArrayList<>();
+    private final Map<String, long[]> breakdown = new LinkedHashMap<>();
+    private int nextSpanId = 1;
+    private int droppedSpans;
+    private boolean spanFailed;
+    private boolean finished;
+    private long durationNanos;
+    private int status;
+    private String error;
+
+    /**
+     * @param traceId 链路ID，即请求ID
+     * @param name 入口名称，如 POST /order/register
+     * @param maxSpans 保存的Span数量上限
+     */
+    public Trace(String traceId, String name, int maxSpans) {
+        this.traceId = traceId;
+        this.name = name;
+        this.maxSpans = maxSpans;
+        this.startNanos = System.nanoTime();
+        this.startTimeMillis = System.currentTimeMillis();
+    }
+
+    synchronized Span newSpan(Span parent, String type, String spanName, long spanStartNanos) {
+        if (finished) {
+            return null;
+        }
+        Span span = new Span(this, parent, nextSpanId++, type, spanName, spanStartNanos);
+        if (spans.size() < maxSpans) {
+            spans.add(span);
+        } else {
+            droppedSpans++;
+        }
+        return span;
+    }
+
+    synchronized void endSpan(Span span) {
+        if (finished) {
+            return;
+        }
+        long[] total = breakdown.computeIfAbsent(span.type, key -> new long[2]);
+        total[0]++;
+        total[1] += span.durationNanos;
+        if (span.error != null && !Tracer.CONTROLLER.equals(span.type) && !Tracer.SERVICE.equals(span.type)) {
+            spanFailed = true;
+        }
+    }
+
+    /**
+     * 结束链路，之后到达的Span被忽略
+     * @param status HTTP状态码
+     * @param error 异常信息，没有异常时为null
+     */
+    public synchronized void finish(int status, String error) {
+        if (finished) {
+            return;
+        }
+        this.finished = true;
+        this.durationNanos = System.nanoTime() - startNanos;
+        this.status = status;
+        this.error = error;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    public synchronized long getDurationNanos() {
+        return finished ? durationNanos : System.nanoTime() - startNanos;
+    }
+
+    public synchronized int getStatus() {
+        return status;
+    }
+
+    /**
+     * 请求是否失败：有未处理的异常、状态码为5xx，或SQL、Redis、锁的Span以异常或超时结束；
+     * Controller和Service抛出的业务异常（如号源已满）由全局异常处理器转换为正常响应，不算失败
+     */
+    public synchronized boolean hasError() {
+        return error != null || status >= 500 || spanFailed;
+    }
+
+    /**
+     * 链路摘要，不含Span明细
+     */
+    public synchronized Map<String, Object> toSummary() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("traceId", traceId);
+        map.put("name", name);
+        map.put("startTime", startTimeMillis);
+        map.put("durationMs", getDurationNanos() / 1_000_000.0);
+        map.put("status", status);
+        if (error != null) {
+            map.put("error", error);
+        }
+        Map<String, Object> types = new LinkedHashMap<>();
+        breakdown.forEach((type, total) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("count", total[0]);
+            item.put("totalMs", total[1] / 1_000_000.0);
+            types.put(type, item);
+        });
+        map.put("breakdown", types);
+        map.put("spanCount", spans.size());
+        map.put("droppedSpans", droppedSpans);
+        return map;
+    }
+
+    /**
+     * 完整链路，Span按开始时间排列，startMs为相对请求开始的偏移，请求结束时仍未结束的Span耗时为-1
+     */
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = toSummary();
+        List<Span> sorted = new ArrayList<>(spans);
+        sorted.sort((a, b) -> Long.compare(a.startNanos, b.startNanos));
+        List<Map<String, Object>> items = new ArrayList<>(sorted.size());
+        for (Span span : sorted) {
+            items.add(span.toMap(startNanos));
+        }
+        map.put("spans", items);
+        return map;
+    }
+}
@@ -0,0 +1,113 @@
+package com.luoye.trace;
+
+import com.luoye.context.BaseContext;
+
+/**
+ * 链路记录入口
+ * 当前请求没有链路（定时任务、未启用追踪）时start返回null，end忽略null，调用方无需判断；
+ * 每个线程记录当前所在的Span，新Span以它为父节点，异步线程中的Span挂在链路根节点下
+ *
+ * <pre>
+ * Span span = Tracer.start(Tracer.SQL, statementId);
+ * try {
+ *     ...
+ * } catch (Throwable e) {
+ *     Tracer.error(span, e);
+ *     throw e;
+ * } finally {
+ *     Tracer.end(span);
+ * }
+ * </pre>
+ */
+public final class Tracer {
+
+    public static final String CONTROLLER = "CONTROLLER";
+    public static final String SERVICE = "SERVICE";
+    public static final String SQL = "SQL";
+    public static final String REDIS = "REDIS";
+    public static final String LOCK = "LOCK";
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private Tracer() {
+    }
+
+    /**
+     * 开始一个Span
+     * @param type 类型，如Tracer.SQL
+     * @param name 名称，如Mapper方法或Redis命令
+     * @return Span，当前请求没有链路时返回null
+     */
+    public static Span start(String type, String name) {
+        Trace trace = BaseContext.get().getTrace();
+        if (trace == null) {
+            return null;
+        }
+        Span current = CURRENT.get();
+        Span parent = current != null && current.trace == trace ? current : null;
+        Span span = trace.newSpan(parent, type, name, System.nanoTime());
+        if (span != null) {
+            CURRENT.set(span);
+        }
+        return span;
+    }
+
+    /**
+     * 记录一个已经结束的Span，用于调用前后已自行计时的场景，不改变当前Span
+     * @param type 类型
+     * @param name 名称
+     * @param startNanos 开始时间（System.nanoTime）
+     * @param durationNanos 耗时（纳秒）
+     * @param error 失败原因，成功时为null
+     */
+    public static void record(String type, String name, long startNanos, long durationNanos, String error) {
+        Trace trace = BaseContext.get().getTrace();
+        if (trace == null) {
+            return;
+        }
+        Span current = CURRENT.get();
+        Span span = trace.newSpan(current != null && current.trace == trace ? current : null, type, name, startNanos);
+        if (span != null) {
+            span.durationNanos = durationNanos;
+            span.error = error;
+            trace.endSpan(span);
+        }
+    }
+
+    /**
+     * 标记Span以异常结束
+     * @param span Span，可以为null
+     * @param error 异常
+     */
+    public static void error(Span span, Throwable error) {
+        if (span != null && error != null) {
+            span.error = error.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * 结束Span，当前Span恢复为其父节点
+     * @param span Span，可以为null
+     */
+    public static void end(Span span) {
+        if (span == null || span.durationNanos >= 0) {
+            return;
+        }
+        span.durationNanos = System.nanoTime() - span.startNanos;
+        if (CURRENT.get() == span) {
+            if (span.parent != null) {
+                CURRENT.set(span.parent);
+            } else {
+                CURRENT.remove();
+            }
+        }
+        span.trace.endSpan(span);
+    }
+
+    /**
+     * 清除当前线程的Span，请求结束时调用，防止异常路径遗留的Span被线程复用
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
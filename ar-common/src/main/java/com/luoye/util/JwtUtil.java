@@ -14,6 +14,7 @@ import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.Map;
+import java.util.UUID;
 import java.util.regex.Pattern;
 
 @Component
@@ -63,10 +64,14 @@ public class JwtUtil implements org.springframework.beans.factory.InitializingBe
      */
     public static String createToken(Map<String, Object> claims) {
         try {
-            Date expireDate = new Date(System.currentTimeMillis() + staticJwtTtl);
+            long now = System.currentTimeMillis();
+            Date expireDate = new Date(now + staticJwtTtl);
 
+            // 令牌ID和签发时间用于吊销：按ID吊销单个令牌，按签发时间吊销用户此前的全部令牌
             return Jwts.builder()
                     .setClaims(claims)
+                    .setId(UUID.randomUUID().toString())
+                    .setIssuedAt(new Date(now))
                     .setExpiration(expireDate)
                     .signWith(staticSecretKey, SignatureAlgorithm.HS512)
                     .compact();
@@ -131,8 +136,8 @@ public class JwtUtil implements org.springframework.beans.factory.InitializingBe
         }
         
         String trimmedToken = token.trim();
-        logger.info("验证token格式: {}", trimmedToken);
-        logger.info("Token长度: {}", trimmedToken.length());
+        logger.debug("验证token格式: {}", trimmedToken);
+        logger.debug("Token长度: {}", trimmedToken.length());
         
         // 检查是否包含Bearer前缀
         if (trimmedToken.startsWith("Bearer ")) {
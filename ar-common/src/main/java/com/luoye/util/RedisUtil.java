@@ -1,16 +1,46 @@
 package com.luoye.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luoye.cache.CacheMetrics;
+import com.luoye.cache.CacheStats;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.cache.HotKeyTracker;
+import com.luoye.cache.LocalCache;
+import com.luoye.cache.RedisCircuitBreaker;
+import com.luoye.metrics.RedisMetrics;
+import com.luoye.trace.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Slf4j
 @Component
 public class RedisUtil {
 
@@ -20,6 +50,38 @@ public class RedisUtil {
     private static final String CACHE_PREFIX_DEPT = "dept:";
     // 缓存过期时间（分钟）
     private static final long CACHE_EXPIRE_TIME = 30;
+    // 空值标记键后缀
+    private static final String NULL_MARKER_SUFFIX = ":null";
+    // 空值标记存活时间（分钟）
+    private static final long NULL_MARKER_EXPIRE_MINUTES = 5;
+    // 逻辑过期时间标记键后缀
+    private static final String LOGICAL_EXPIRE_SUFFIX = ":logical_expire";
+    // 缓存重建分布式锁前缀
+    private static final String REBUILD_LOCK_PREFIX = "lock:cache_rebuild:";
+    // 列表缓存增量更新锁前缀，提前刷新写回时也持有该锁
+    private static final String LIST_UPDATE_LOCK_PREFIX = "lock:list_update:";
+    // 列表缓存版本键前缀，每次增量更新加1，提前刷新据此判断查询期间列表是否被修改
+    private static final String LIST_VERSION_PREFIX = "list_version:";
+    // 列表缓存版本键存活时间（毫秒），远长于一次提前刷新的耗时
+    private static final long LIST_VERSION_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+    // 等待其他节点重建缓存的最长时间（毫秒）
+    private static final long REBUILD_LOCK_WAIT_MILLIS = 200;
+    // 缓存重建锁持有时间（毫秒），防止节点宕机后锁无法释放
+    private static final long REBUILD_LOCK_LEASE_MILLIS = 5000;
+    // 等待本节点其他线程回源结果的最长时间（毫秒）
+    private static final long SINGLE_FLIGHT_WAIT_MILLIS = 3000;
+    // 逻辑过期后允许继续返回旧值的最长时间（毫秒）
+    private static final long STALE_WINDOW_MAX_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // 过期时间随机抖动比例
+    private static final double TTL_JITTER_RATIO = 0.1;
+    // 缓存标签集合键前缀，集合成员为登记在该标签下的缓存键
+    private static final String TAG_KEY_PREFIX = "cache_tag::";
+    // SCAN每批返回的键数量
+    private static final int SCAN_BATCH_SIZE = 500;
+    // 熔断期间最多暂存的待补删除键和标签数量，超出后不再暂存
+    private static final int MAX_DEFERRED_INVALIDATIONS = 10000;
+    // Lua脚本整数结果的序列化器
+    private static final GenericToStringSerializer<Long> LONG_RESULT_SERIALIZER = new GenericToStringSerializer<>(Long.class);
 
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
@@ -30,6 +92,112 @@ public class RedisUtil {
     @Autowired
     private RedissonClient redissonClient;
 
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private HotKeyTracker hotKeyTracker;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    /**
+     * 热点键剩余存活时间低于总存活时间的该比例时提前刷新
+     */
+    @Value("${cache.refresh-ahead.ratio:0.2}")
+    private double refreshAheadRatio;
+
+    /**
+     * 本地副本的有效期，到期后向Redis校验版本，也是其他节点修改后本节点读到旧值的最长时间
+     */
+    @Value("${cache.hot-key.replica-ttl-millis:1000}")
+    private long replicaTtlMillis;
+
+    @Value("${cache.hot-key.max-replicas:64}")
+    private int maxReplicas;
+
+    @Value("${cache.degraded.local-max-size:10000}")
+    private int degradedMaxSize;
+
+    /**
+     * 降级缓存的过期时间，也是熔断期间读到其他节点修改前旧值的最长时间
+     */
+    @Value("${cache.degraded.local-ttl-seconds:60}")
+    private long degradedTtlSeconds;
+
+    /**
+     * Redis熔断期间的进程内降级缓存，只在熔断打开时读写
+     */
+    private LocalCache<String, Object> degradedCache;
+
+    /**
+     * 熔断期间未能执行的删除和标签失效，恢复后补执行，避免Redis中留下修改前的旧值
+     */
+    private final Set<String> deferredKeys = ConcurrentHashMap.newKeySet();
+    private final Set<String> deferredTags = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder degradedHits = new LongAdder();
+    private final LongAdder degradedLoads = new LongAdder();
+    private final LongAdder deferredDropped = new LongAdder();
+
+    /**
+     * 热点键的本地副本
+     */
+    private final ConcurrentHashMap<String, HotReplica> hotReplicas = new ConcurrentHashMap<>();
+
+    private final LongAdder replicaPromotions = new LongAdder();
+    private final LongAdder replicaDemotions = new LongAdder();
+    private final LongAdder replicaHits = new LongAdder();
+    private final LongAdder replicaVersionUnchanged = new LongAdder();
+    private final LongAdder replicaVersionChanged = new LongAdder();
+
+    /**
+     * 列表缓存增量更新统计
+     */
+    private final LongAdder listMemberUpdates = new LongAdder();
+    private final LongAdder listMemberSkipped = new LongAdder();
+    private final LongAdder listMemberFallbacks = new LongAdder();
+    private final LongAdder listRefreshSkipped = new LongAdder();
+    private final LongAdder listFillSkipped = new LongAdder();
+
+    /**
+     * 最近的升级记录
+     */
+    private final Deque<Map<String, Object>> recentPromotions = new ArrayDeque<>();
+
+    /**
+     * 本节点正在回源的缓存键，同一键的并发请求共享一次数据库查询
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点正在后台刷新的缓存键
+     */
+    private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 逻辑过期后台刷新线程池，队列有界，满时放弃本次刷新（旧值仍可用）
+     */
+    private final ThreadPoolExecutor cacheRefreshExecutor = new ThreadPoolExecutor(
+            1, 4, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256),
+            new ThreadFactory() {
+                private final AtomicInteger index = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "cache-refresh-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
 
     // 删除列表中指定元素的Lua脚本
     private static final String REMOVE_LIST_ELEMENT_SCRIPT =
@@ -68,14 +236,84 @@ public class RedisUtil {
                     "end\n" +
                     "\n" +
                     "return 1  -- 操作成功";
+    // 登记缓存键到标签集合的Lua脚本，标签集合的过期时间不短于其中任一缓存键
+    private static final DefaultRedisScript<Long> TAG_KEYS_SCRIPT = new DefaultRedisScript<>(
+            "local ttl = tonumber(ARGV[2])\n" +
+                    "for i, tagKey in ipairs(KEYS) do\n" +
+                    "    redis.call('SADD', tagKey, ARGV[1])\n" +
+                    "    if redis.call('PTTL', tagKey) < ttl then\n" +
+                    "        redis.call('PEXPIRE', tagKey, ttl)\n" +
+                    "    end\n" +
+                    "end\n" +
+                    "return 1", Long.class);
+    // 按标签删除缓存键的Lua脚本，分批UNLINK避免unpack参数过多
+    private static final DefaultRedisScript<Long> INVALIDATE_TAGS_SCRIPT = new DefaultRedisScript<>(
+            "local removed = 0\n" +
+                    "for i, tagKey in ipairs(KEYS) do\n" +
+                    "    local members = redis.call('SMEMBERS', tagKey)\n" +
+                    "    for j = 1, #members, 500 do\n" +
+                    "        removed = removed + redis.call('UNLINK', unpack(members, j, math.min(j + 499, #members)))\n" +
+                    "    end\n" +
+                    "    redis.call('DEL', tagKey)\n" +
+                    "end\n" +
+                    "return removed", Long.class);
+    // 读取列表缓存版本，不存在时为0
+    private static final DefaultRedisScript<Long> LIST_VERSION_SCRIPT = new DefaultRedisScript<>(
+            "return tonumber(redis.call('GET', KEYS[1]) or '0')", Long.class);
+    // 列表缓存版本加1并续期
+    private static final DefaultRedisScript<Long> BUMP_LIST_VERSION_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('INCR', KEYS[1])\n" +
+                    "redis.call('PEXPIRE', KEYS[1], ARGV[1])\n" +
+                    "return version", Long.class);
+    // 热点键本地副本的版本校验脚本：摘要未变时只返回摘要和剩余存活时间，变化时才返回完整值
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> HOT_REPLICA_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('GET', KEYS[1])\n" +
+                    "if not value then return {} end\n" +
+                    "local digest = redis.sha1hex(value)\n" +
+                    "local ttl = redis.call('PTTL', KEYS[1])\n" +
+                    "if digest == ARGV[1] then return {digest, ttl} end\n" +
+                    "return {digest, ttl, value}", List.class);
+
+    // 令牌桶限流脚本：按Redis服务器时间补充令牌，一次最多取出ARGV[3]个；不足一个时返回距下一个令牌的毫秒数的相反数
+    private static final DefaultRedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+            "local rate = tonumber(ARGV[1])\n" +
+                    "local burst = tonumber(ARGV[2])\n" +
+                    "local requested = tonumber(ARGV[3])\n" +
+                    "local time = redis.call('TIME')\n" +
+                    "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+                    "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+                    "local tokens = tonumber(state[1]) or burst\n" +
+                    "local ts = tonumber(state[2]) or now\n" +
+                    "tokens = math.min(burst, tokens + math.max(0, now - ts) * rate / 1000)\n" +
+                    "local granted = math.min(requested, math.floor(tokens))\n" +
+                    "tokens = tokens - granted\n" +
+                    "redis.call('HMSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)\n" +
+                    "redis.call('PEXPIRE', KEYS[1], math.ceil(burst * 1000 / rate) + 1000)\n" +
+                    "if granted > 0 then return granted end\n" +
+                    "return -math.ceil((1 - tokens) * 1000 / rate)", Long.class);
+
+    @PostConstruct
+    public void init() {
+        degradedCache = new LocalCache<>(degradedMaxSize, degradedTtlSeconds, TimeUnit.SECONDS);
+        redisCircuitBreaker.addListener(state -> {
+            if (state == RedisCircuitBreaker.State.OPEN) {
+                // 熔断期间无法向Redis校验版本，副本全部作废
+                hotReplicas.clear();
+            } else if (state == RedisCircuitBreaker.State.CLOSED) {
+                degradedCache.invalidateAll();
+            }
+        });
+    }
+
     /**
      * 检查Redis连接是否正常
      * @return 连接状态
      */
     public boolean isConnected() {
         try {
-            // 尝试执行简单的ping命令来检测连接
-            String result = redisTemplate.getConnectionFactory().getConnection().ping();
+            // 尝试执行简单的ping命令来检测连接，由模板负责归还连接
+            String result = redisTemplate.execute((RedisCallback<String>) connection -> connection.ping());
             return result != null && "PONG".equals(result);
         } catch (Exception e) {
             return false;
@@ -109,8 +347,10 @@ public class RedisUtil {
             if (key == null || value == null) {
                 return false;
             }
-            redisTemplate.opsForValue().set(key, value);
-            return true;
+            return redisCircuitBreaker.execute(() -> {
+                redisTemplate.opsForValue().set(key, value);
+                return true;
+            }, () -> false);
         } catch (Exception e) {
             return false;
         }
@@ -125,22 +365,60 @@ public class RedisUtil {
      * @return 存储结果
      */
     public boolean set(String key, Object value, long time, TimeUnit timeUnit) {
+        if (key == null || value == null) {
+            return false;
+        }
+        CacheStats loaded = cacheMetrics.completeLoad(key);
+        CacheStats previous = loaded != null ? cacheMetrics.enterRegion(loaded) : null;
         try {
-            if (key == null || value == null) {
+            if (time <= 0) {
+                return set(key, value);
+            }
+            if (!redisCircuitBreaker.allowRequest()) {
+                // 熔断期间回填的值写入降级缓存，同一节点后续读取不再查询数据库
+                degradedCache.put(key, value);
                 return false;
             }
-
-            if (time > 0) {
+            redisCircuitBreaker.call(() -> {
                 redisTemplate.opsForValue().set(key, value, time, timeUnit);
-            } else {
-                return set(key, value);
-            }
+                return null;
+            });
             return true;
         } catch (Exception e) {
             return false;
+        } finally {
+            if (loaded != null) {
+                cacheMetrics.exitRegion(previous);
+            }
         }
     }
 
+    /**
+     * 过期时间加随机抖动后存入缓存，避免同一批写入的键同时过期
+     * @param key 键
+     * @param value 值
+     * @param time 基准存活时间
+     * @param timeUnit 时间单位
+     * @return 存储结果
+     */
+    public boolean setWithJitter(String key, Object value, long time, TimeUnit timeUnit) {
+        long millis = jitter(timeUnit.toMillis(time));
+        return set(key, value, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 为过期时间增加0~10%的随机抖动
+     * @param millis 基准过期时间（毫秒）
+     * @return 抖动后的过期时间（毫秒）
+     */
+    public long jitter(long millis) {
+        if (millis <= 0) {
+            return millis;
+        }
+        long bound = Math.max(1, (long) (millis * TTL_JITTER_RATIO));
+        return millis + ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
     /**
      * 带默认值的获取缓存数据方法
      * @param key 键
@@ -164,7 +442,8 @@ public class RedisUtil {
             if (key == null) {
                 return null;
             }
-            return (T) redisTemplate.opsForValue().get(key);
+            return (T) redisCircuitBreaker.execute(() -> redisTemplate.opsForValue().get(key),
+                    () -> degradedCache.get(key));
         } catch (Exception e) {
             return null;
         }
@@ -183,23 +462,34 @@ public class RedisUtil {
                 return null;
             }
 
-            Object obj = redisTemplate.opsForValue().get(key);
-            if (obj == null) {
-                return null;
-            }
-
-            // 如果已经是目标类型，直接返回
-            if (clazz.isInstance(obj)) {
-                return clazz.cast(obj);
-            }
-
-            // 使用ObjectMapper进行类型转换
-            return objectMapper.convertValue(obj, clazz);
+            return convertValue(redisCircuitBreaker.execute(() -> redisTemplate.opsForValue().get(key),
+                    () -> degradedCache.get(key)), clazz);
         } catch (Exception e) {
             return null;
         }
     }
 
+    /**
+     * 将缓存中读取的对象转换为目标类型
+     * @param obj 缓存对象
+     * @param clazz 目标类型
+     * @return 转换结果
+     * @param <T> 泛型
+     */
+    private <T> T convertValue(Object obj, Class<T> clazz) {
+        if (obj == null) {
+            return null;
+        }
+
+        // 如果已经是目标类型，直接返回
+        if (clazz.isInstance(obj)) {
+            return clazz.cast(obj);
+        }
+
+        // 使用ObjectMapper进行类型转换
+        return objectMapper.convertValue(obj, clazz);
+    }
+
     /**
      * 类型安全的获取List缓存数据方法
      * @param key 键
@@ -208,35 +498,430 @@ public class RedisUtil {
      * @param <T> 泛型
      */
     public <T> List<T> getList(String key, Class<T> elementType) {
+        if (key == null || elementType == null) {
+            return null;
+        }
+        CacheStats stats = cacheMetrics.statsOfKey(key);
+        CacheStats previous = cacheMetrics.enterRegion(stats);
         try {
-            if (key == null || elementType == null) {
-                return null;
-            }
-
-            Object obj = redisTemplate.opsForValue().get(key);
+            Object obj = redisCircuitBreaker.execute(() -> redisTemplate.opsForValue().get(key),
+                    () -> degradedCache.get(key));
             if (obj == null) {
+                // 调用方回源后以同一个键回填时计入回源耗时
+                cacheMetrics.recordMiss(stats, key);
                 return null;
             }
+            stats.recordHit();
+            return convertList(obj, elementType);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+    }
 
-            // 如果已经是List且元素类型匹配，直接返回
-            if (obj instanceof List) {
-                List<?> list = (List<?>) obj;
-                if (list.isEmpty()) {
-                    return (List<T>) list;
+    /**
+     * 带提前刷新的列表缓存读取
+     * 热点键剩余存活时间低于总存活时间的一定比例时，先返回当前值，再由后台重新查询并续期，
+     * 热点键因此不会真正过期，读请求不承担回源耗时；未命中时同步查询并写入缓存。
+     * 空列表不写入缓存，与原有的手写列表缓存保持一致。
+     * 访问极高的键会升级为本地副本，此时返回多个请求共享的只读列表，修改会抛出UnsupportedOperationException
+     * @param key 键
+     * @param elementType 元素类型
+     * @param loader 数据库查询
+     * @param tagsOf 根据查询结果生成失效标签，为null时不登记标签
+     * @param time 存活时间
+     * @param timeUnit 时间单位
+     * @return 缓存或数据库中的列表
+     * @param <T> 泛型
+     */
+    public <T> List<T> getListWithRefreshAhead(String key, Class<T> elementType, Supplier<List<T>> loader,
+                                               Function<List<T>, String[]> tagsOf, long time, TimeUnit timeUnit) {
+        long ttlMillis = timeUnit.toMillis(time);
+        long estimate = hotKeyTracker.recordAccess(key);
+        boolean hot = hotKeyTracker.isHot(estimate);
+        CacheStats stats = cacheMetrics.statsOfKey(key);
+        CacheStats previous = cacheMetrics.enterRegion(stats);
+        try {
+            if (!redisCircuitBreaker.allowRequest()) {
+                return loadDegraded(key, stats, loader);
+            }
+            // 读取值和剩余存活时间，访问极高的键走本地副本
+            List<Object> cached = Collections.emptyList();
+            try {
+                if (hotKeyTracker.isReplicaHot(estimate)) {
+                    cached = redisCircuitBreaker.call(() -> readThroughReplica(key, estimate));
+                } else {
+                    demoteReplica(key);
+                    cached = redisCircuitBreaker.call(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                            RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                            ops.opsForValue().get(key);
+                            ops.getExpire(key, TimeUnit.MILLISECONDS);
+                            return null;
+                        }
+                    }));
                 }
-
-                Object firstElement = list.get(0);
-                if (elementType.isInstance(firstElement)) {
-                    return (List<T>) list;
+            } catch (Exception e) {
+                log.warn("读取列表缓存失败，直接查询数据库，key: {}, 错误: {}", key, e.getMessage());
+            }
+            List<T> list = null;
+            try {
+                list = cached.isEmpty() || cached.get(0) == null ? null : convertList(cached.get(0), elementType);
+            } catch (Exception e) {
+                log.warn("列表缓存类型转换失败，key: {}, 错误: {}", key, e.getMessage());
+            }
+            if (list != null && !list.isEmpty()) {
+                stats.recordHit();
+                Object remainingMillis = cached.size() > 1 ? cached.get(1) : null;
+                if (hot && remainingMillis instanceof Number
+                        && ((Number) remainingMillis).longValue() >= 0
+                        && ((Number) remainingMillis).longValue() <= ttlMillis * refreshAheadRatio) {
+                    // 只覆盖仍然存在且查询期间未被增量更新的键，旧数据不会复活或覆盖新修改
+                    submitRefresh(key, () -> refreshList(key, loader, tagsOf, ttlMillis));
                 }
+                return list;
+            }
+
+            stats.recordMiss();
+            // 与提前刷新相同，查询前记下版本，查询期间被增量更新过时不写入，避免旧快照覆盖整个存活时间
+            String versionKey = LIST_VERSION_PREFIX + key;
+            Long version = null;
+            try {
+                version = readListVersion(versionKey);
+            } catch (Exception e) {
+                log.warn("读取列表缓存版本失败，本次不写入缓存，key: {}, 错误: {}", key, e.getMessage());
             }
+            List<T> loaded = timedLoad(key, loader);
+            if (version != null && !writeListIfUnchanged(key, versionKey, version, loaded, tagsOf, ttlMillis,
+                    0, false)) {
+                listFillSkipped.increment();
+            }
+            return loaded;
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+    }
+
+    /**
+     * 通过本地副本读取热点键
+     * 副本有效期内直接返回本地值，不访问Redis；到期后用摘要向Redis校验版本，
+     * 未变化时只续期，变化时才传输完整值，热点键的读流量因此不再集中在单个Redis连接上
+     * @return 值和剩余存活时间，键不存在时返回空列表
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Object> readThroughReplica(String key, long estimate) {
+        long now = System.currentTimeMillis();
+        HotReplica replica = hotReplicas.get(key);
+        if (replica != null && now < replica.validUntil) {
+            replicaHits.increment();
+            return Arrays.asList(replica.value, replica.expireAt < 0 ? -1L : Math.max(0L, replica.expireAt - now));
+        }
+
+        // 结果元素保持原始字节，值按需再用缓存序列化器反序列化
+        List<Object> result = redisTemplate.execute(HOT_REPLICA_SCRIPT, StringRedisSerializer.UTF_8,
+                (RedisSerializer) RedisSerializer.byteArray(), Collections.singletonList(key),
+                replica != null ? replica.digest : "");
+        if (result == null || result.isEmpty()) {
+            hotReplicas.remove(key);
+            return Collections.emptyList();
+        }
+        String digest = new String((byte[]) result.get(0), StandardCharsets.UTF_8);
+        long remainingMillis = ((Number) result.get(1)).longValue();
+        long expireAt = remainingMillis < 0 ? -1L : now + remainingMillis;
+        if (result.size() < 3 && replica != null) {
+            replicaVersionUnchanged.increment();
+            replica.renew(now + replicaTtlMillis, expireAt);
+            return Arrays.asList(replica.value, remainingMillis);
+        }
+
+        Object value = sharedView(redisTemplate.getValueSerializer().deserialize((byte[]) result.get(2)));
+        if (replica != null) {
+            replicaVersionChanged.increment();
+        }
+        if (replica != null || hotReplicas.size() < maxReplicas || sweepIdleReplicas(now)) {
+            hotReplicas.put(key, new HotReplica(value, digest, now + replicaTtlMillis, expireAt,
+                    replica != null ? replica.promotedAt : now));
+            if (replica == null) {
+                recordPromotion(key, estimate, now);
+            }
+        }
+        return Arrays.asList(value, remainingMillis);
+    }
+
+    /**
+     * 副本值会被多个线程同时返回，列表复制为只读列表，避免调用方原地排序或过滤破坏共享副本
+     */
+    private static Object sharedView(Object value) {
+        if (value instanceof List) {
+            return Collections.unmodifiableList(new ArrayList<>((List<?>) value));
+        }
+        return value;
+    }
+
+    private void recordPromotion(String key, long estimate, long now) {
+        replicaPromotions.increment();
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("key", key);
+        event.put("estimate", estimate);
+        event.put("time", now);
+        synchronized (recentPromotions) {
+            if (recentPromotions.size() >= 20) {
+                recentPromotions.removeFirst();
+            }
+            recentPromotions.addLast(event);
+        }
+        log.info("热点键升级为本地副本，key: {}, 窗口访问次数估算: {}", key, estimate);
+    }
+
+    /**
+     * 清理长时间没有访问的副本，腾出位置
+     * @return 是否有空位
+     */
+    private boolean sweepIdleReplicas(long now) {
+        hotReplicas.entrySet().removeIf(entry -> {
+            boolean idle = now - entry.getValue().validUntil > TimeUnit.MINUTES.toMillis(1);
+            if (idle) {
+                replicaDemotions.increment();
+            }
+            return idle;
+        });
+        return hotReplicas.size() < maxReplicas;
+    }
+
+    private void demoteReplica(String key) {
+        if (!hotReplicas.isEmpty() && hotReplicas.remove(key) != null) {
+            replicaDemotions.increment();
+        }
+    }
+
+    /**
+     * 热点键本地副本统计
+     * @return 升级、降级、副本命中和版本校验次数，以及当前副本和最近的升级记录
+     */
+    public Map<String, Object> getHotReplicaStatistics() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicaThreshold", hotKeyTracker.getReplicaThreshold());
+        stats.put("promotions", replicaPromotions.sum());
+        stats.put("demotions", replicaDemotions.sum());
+        stats.put("replicaHits", replicaHits.sum());
+        stats.put("versionUnchanged", replicaVersionUnchanged.sum());
+        stats.put("versionChanged", replicaVersionChanged.sum());
+        Map<String, Object> replicas = new TreeMap<>();
+        hotReplicas.forEach((key, replica) -> replicas.put(key, "age=" + (now - replica.promotedAt) + "ms"));
+        stats.put("replicas", replicas);
+        synchronized (recentPromotions) {
+            stats.put("recentPromotions", new ArrayList<>(recentPromotions));
+        }
+        return stats;
+    }
+
+    /**
+     * 提前刷新列表缓存
+     * 查询数据库前记下列表版本，写回时持有增量更新锁并比较版本：查询期间列表被增量更新过，
+     * 说明查询结果可能早于那次修改的事务提交，放弃本次写回，列表按原有存活时间过期后再整体回源。
+     * 被删除的键由SET XX保证不被复活
+     */
+    private <T> void refreshList(String key, Supplier<List<T>> loader, Function<List<T>, String[]> tagsOf,
+                                 long ttlMillis) {
+        String versionKey = LIST_VERSION_PREFIX + key;
+        long version = readListVersion(versionKey);
+        List<T> loaded = timedLoad(key, loader);
+        if (!writeListIfUnchanged(key, versionKey, version, loaded, tagsOf, ttlMillis, 2000, true)) {
+            listRefreshSkipped.increment();
+        }
+    }
 
-            // 使用ObjectMapper进行集合类型转换
-            return objectMapper.convertValue(obj,
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, elementType));
+    /**
+     * 持有增量更新锁并确认列表版本未变后写入查询结果
+     * @param version 查询数据库前读到的版本
+     * @param lockWaitMillis 等待增量更新锁的时间，为0时锁被占用即放弃，此时版本必然会变化
+     * @param onlyIfPresent 是否只覆盖仍然存在的键
+     * @return 是否写入，加锁失败或版本已变化时返回false
+     */
+    private <T> boolean writeListIfUnchanged(String key, String versionKey, long version, List<T> loaded,
+                                             Function<List<T>, String[]> tagsOf, long ttlMillis,
+                                             long lockWaitMillis, boolean onlyIfPresent) {
+        String lockKey = LIST_UPDATE_LOCK_PREFIX + key;
+        if (!tryLock(lockKey, lockWaitMillis, 5000, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        try {
+            if (readListVersion(versionKey) != version) {
+                log.debug("查询期间列表已被增量更新，放弃写入，key: {}", key);
+                return false;
+            }
+            writeList(key, loaded, tagsOf, ttlMillis, onlyIfPresent);
+            return true;
         } catch (Exception e) {
-            return null;
+            log.warn("写入列表缓存失败，key: {}, 错误: {}", key, e.getMessage());
+            return false;
+        } finally {
+            unlock(lockKey);
+        }
+    }
+
+    private long readListVersion(String versionKey) {
+        Long version = redisCircuitBreaker.call(() -> redisTemplate.execute(LIST_VERSION_SCRIPT,
+                StringRedisSerializer.UTF_8, LONG_RESULT_SERIALIZER, Collections.singletonList(versionKey)));
+        return version != null ? version : 0L;
+    }
+
+    private <T> void writeList(String key, List<T> list, Function<List<T>, String[]> tagsOf,
+                               long ttlMillis, boolean onlyIfPresent) {
+        if (list == null || list.isEmpty()) {
+            return;
         }
+        String[] tags = tagsOf != null ? tagsOf.apply(list) : new String[0];
+        writeWithTags(key, list, jitter(ttlMillis), onlyIfPresent, tags);
+    }
+
+    /**
+     * 事务提交后在列表缓存中新增或替换一个成员，成员按ID升序排列，与数据库默认查询顺序一致
+     * 列表缓存不存在时不处理，下次读取时整体回源；更新失败时删除整个列表
+     * @param key 列表缓存键
+     * @param elementType 元素类型
+     * @param idOf 元素ID读取方法
+     * @param member 新的成员
+     * @param <T> 泛型
+     */
+    public <T> void upsertListMemberAfterCommit(String key, Class<T> elementType, Function<T, Long> idOf, T member) {
+        Long id = idOf.apply(member);
+        runAfterCommit(() -> updateList(key, elementType, list -> {
+            list.removeIf(item -> Objects.equals(idOf.apply(item), id));
+            int index = 0;
+            while (index < list.size() && compareIds(idOf.apply(list.get(index)), id) < 0) {
+                index++;
+            }
+            list.add(index, member);
+            return list;
+        }));
+    }
+
+    /**
+     * 事务提交后从列表缓存中移除一个成员，规则同upsertListMemberAfterCommit
+     * @param key 列表缓存键
+     * @param elementType 元素类型
+     * @param idOf 元素ID读取方法
+     * @param id 要移除的成员ID
+     * @param <T> 泛型
+     */
+    public <T> void removeListMemberAfterCommit(String key, Class<T> elementType, Function<T, Long> idOf, Long id) {
+        runAfterCommit(() -> updateList(key, elementType, list -> {
+            list.removeIf(item -> Objects.equals(idOf.apply(item), id));
+            return list;
+        }));
+    }
+
+    /**
+     * 加锁读取、修改并写回列表缓存，保留原有剩余存活时间
+     * 同一列表的并发修改由锁串行化，不会互相覆盖；列表变为空时删除，空列表不缓存。
+     * 持锁后先把列表版本加1，同时进行的提前刷新据此放弃写回查询到的旧列表
+     */
+    private <T> void updateList(String key, Class<T> elementType, Function<List<T>, List<T>> mutation) {
+        if (!redisCircuitBreaker.isClosed()) {
+            // 降级期间无法可靠地读改写，删除操作会暂存到恢复后补执行
+            listMemberFallbacks.increment();
+            remove(key);
+            return;
+        }
+        String lockKey = LIST_UPDATE_LOCK_PREFIX + key;
+        if (!tryLock(lockKey, 2, 5, TimeUnit.SECONDS)) {
+            log.warn("列表缓存加锁失败，删除整个列表，key: {}", key);
+            listMemberFallbacks.increment();
+            remove(key);
+            return;
+        }
+        try {
+            redisCircuitBreaker.call(() -> redisTemplate.execute(BUMP_LIST_VERSION_SCRIPT, StringRedisSerializer.UTF_8,
+                    LONG_RESULT_SERIALIZER, Collections.singletonList(LIST_VERSION_PREFIX + key),
+                    String.valueOf(LIST_VERSION_TTL_MILLIS)));
+            List<Object> current = redisCircuitBreaker.call(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.opsForValue().get(key);
+                    ops.getExpire(key, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            }));
+            Object remaining = current.size() > 1 ? current.get(1) : null;
+            long remainingMillis = remaining instanceof Number ? ((Number) remaining).longValue() : -2L;
+            if (current.isEmpty() || current.get(0) == null || remainingMillis == -2L || remainingMillis == 0L) {
+                listMemberSkipped.increment();
+                return;
+            }
+            List<T> updated = mutation.apply(new ArrayList<>(convertList(current.get(0), elementType)));
+            demoteReplica(key);
+            if (updated.isEmpty()) {
+                redisCircuitBreaker.call(() -> redisTemplate.delete(key));
+            } else if (remainingMillis > 0) {
+                redisCircuitBreaker.call(() -> {
+                    redisTemplate.opsForValue().set(key, updated, remainingMillis, TimeUnit.MILLISECONDS);
+                    return null;
+                });
+            } else {
+                redisCircuitBreaker.call(() -> {
+                    redisTemplate.opsForValue().set(key, updated);
+                    return null;
+                });
+            }
+            listMemberUpdates.increment();
+        } catch (Exception e) {
+            log.warn("增量更新列表缓存失败，删除整个列表，key: {}, 错误: {}", key, e.getMessage());
+            listMemberFallbacks.increment();
+            remove(key);
+        } finally {
+            unlock(lockKey);
+        }
+    }
+
+    private static int compareIds(Long a, Long b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return Long.compare(a, b);
+    }
+
+    /**
+     * 列表缓存增量更新统计
+     * @return 增量更新、因列表不存在跳过、退化为整体删除、提前刷新放弃写回和未命中回源放弃写入的次数
+     */
+    public Map<String, Object> getListMemberStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("updates", listMemberUpdates.sum());
+        stats.put("skipped", listMemberSkipped.sum());
+        stats.put("fallbacks", listMemberFallbacks.sum());
+        stats.put("refreshSkipped", listRefreshSkipped.sum());
+        stats.put("fillSkipped", listFillSkipped.sum());
+        return stats;
+    }
+
+    /**
+     * 缓存值转换为指定元素类型的列表
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> convertList(Object obj, Class<T> elementType) {
+        // 如果已经是List且元素类型匹配，直接返回
+        if (obj instanceof List) {
+            List<?> list = (List<?>) obj;
+            if (list.isEmpty()) {
+                return (List<T>) list;
+            }
+
+            Object firstElement = list.get(0);
+            if (elementType.isInstance(firstElement)) {
+                return (List<T>) list;
+            }
+        }
+
+        // 使用ObjectMapper进行集合类型转换
+        return objectMapper.convertValue(obj,
+                objectMapper.getTypeFactory().constructCollectionType(List.class, elementType));
     }
 
 // 在 RedisUtil 类中添加这个方法
@@ -282,12 +967,33 @@ public class RedisUtil {
             if (keys == null || keys.isEmpty()) {
                 return new ArrayList<>();
             }
-            return redisTemplate.opsForValue().multiGet(keys);
+            return redisCircuitBreaker.execute(() -> redisTemplate.opsForValue().multiGet(keys), () -> {
+                List<Object> values = new ArrayList<>(keys.size());
+                keys.forEach(key -> values.add(degradedCache.get(key)));
+                return values;
+            });
         } catch (Exception e) {
             return new ArrayList<>();
         }
     }
 
+    /**
+     * 以管道方式执行一组命令，整批一次往返；熔断时不执行并返回空列表
+     * 回调中的命令只是排队，返回值均为null，执行结果按命令顺序在本方法的返回值中
+     * @param commands 要执行的命令
+     * @return 各命令的执行结果
+     */
+    public List<Object> pipelined(Consumer<RedisOperations<String, Object>> commands) {
+        return redisCircuitBreaker.execute(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                commands.accept((RedisOperations<String, Object>) operations);
+                return null;
+            }
+        }), Collections::emptyList);
+    }
+
     /**
      * 批量设置缓存数据
      * @param map 键值对映射
@@ -306,80 +1012,389 @@ public class RedisUtil {
     }
 
     /**
-     * 带过期时间的批量设置
-     * @param map 键值对映射
-     * @param timeout 过期时间
-     * @param unit 时间单位
-     * @return 操作结果
+     * 带过期时间的批量设置
+     * @param map 键值对映射
+     * @param timeout 过期时间
+     * @param unit 时间单位
+     * @return 操作结果
+     */
+    public boolean multiSetWithExpire(java.util.Map<String, Object> map, long timeout, TimeUnit unit) {
+        try {
+            if (map == null || map.isEmpty()) {
+                return false;
+            }
+
+            // 每个键一条带过期时间的SET，整批一次往返，不再先MSET再逐个EXPIRE
+            pipelined(ops -> map.forEach((key, value) -> ops.opsForValue().set(key, value, timeout, unit)));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 删除缓存数据
+     * @param key 键
+     * @return 删除结果
+     */
+    public boolean remove(String key) {
+        try {
+            if (key == null) {
+                return false;
+            }
+            hotReplicas.remove(key);
+            degradedCache.invalidate(key);
+            if (!redisCircuitBreaker.allowRequest()) {
+                deferInvalidation(deferredKeys, Collections.singletonList(key));
+                return false;
+            }
+            Boolean delete = redisCircuitBreaker.call(() -> redisTemplate.delete(key));
+            return delete != null && delete;
+        } catch (Exception e) {
+            deferInvalidation(deferredKeys, Collections.singletonList(key));
+            return false;
+        }
+    }
+
+    /**
+     * 批量删除缓存数据
+     * @param keys 键列表
+     * @return 删除的键数量
+     */
+    public long removeBatch(List<String> keys) {
+        try {
+            if (keys == null || keys.isEmpty()) {
+                return 0L;
+            }
+            keys.forEach(degradedCache::invalidate);
+            if (!redisCircuitBreaker.allowRequest()) {
+                deferInvalidation(deferredKeys, keys);
+                return 0L;
+            }
+            Long deleted = redisCircuitBreaker.call(() -> redisTemplate.delete(keys));
+            return deleted != null ? deleted : 0L;
+        } catch (Exception e) {
+            deferInvalidation(deferredKeys, keys);
+            return 0L;
+        }
+    }
+
+    /**
+     * 模糊删除（根据模式删除）
+     * 使用SCAN增量遍历，避免KEYS阻塞Redis；每批键经熔断器UNLINK，熔断或失败时暂存到恢复后补执行。
+     * 熔断期间无法遍历，匹配的键依靠自身过期时间失效
+     * @param pattern 模式
+     * @return 删除的键数量
+     */
+    public long removeByPattern(String pattern) {
+        if (pattern == null) {
+            return 0L;
+        }
+        if (!redisCircuitBreaker.isClosed()) {
+            log.warn("Redis熔断中，无法按模式删除，pattern: {}", pattern);
+            return 0L;
+        }
+        long[] deleted = new long[1];
+        scanKeys(pattern, batch -> deleted[0] += unlinkBatch(batch));
+        return deleted[0];
+    }
+
+    private long unlinkBatch(List<String> keys) {
+        keys.forEach(degradedCache::invalidate);
+        try {
+            Long count = redisCircuitBreaker.execute(() -> redisTemplate.unlink(keys), () -> {
+                deferInvalidation(deferredKeys, keys);
+                return 0L;
+            });
+            return count != null ? count : 0L;
+        } catch (Exception e) {
+            deferInvalidation(deferredKeys, keys);
+            return 0L;
+        }
+    }
+
+    /**
+     * 使用SCAN增量遍历匹配的键，按批回调
+     * @param pattern 匹配模式
+     * @param batchConsumer 每批键的处理逻辑
+     * @return 是否遍历完成，Redis异常中断时为false，此时已遍历但未满一批的键不再回调
+     */
+    public boolean scanKeys(String pattern, Consumer<List<String>> batchConsumer) {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SCAN_BATCH_SIZE).build();
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        boolean completed = true;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(SCAN_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+        } catch (Exception e) {
+            log.warn("SCAN遍历键失败，pattern: {}, 错误: {}", pattern, e.getMessage());
+            completed = false;
+        }
+        return completed;
+    }
+
+    /**
+     * 写入缓存并登记到标签下，标签失效时该键会被一并删除
+     * @param key 键
+     * @param value 值
+     * @param time 存活时间
+     * @param timeUnit 时间单位
+     * @param tags 依赖的标签，见CacheTags
+     * @return 存储结果
+     */
+    public boolean setWithTags(String key, Object value, long time, TimeUnit timeUnit, String... tags) {
+        if (key == null || value == null || time <= 0) {
+            return false;
+        }
+        CacheStats loaded = cacheMetrics.completeLoad(key);
+        CacheStats previous = loaded != null ? cacheMetrics.enterRegion(loaded) : null;
+        try {
+            return writeWithTags(key, value, timeUnit.toMillis(time), false, tags);
+        } finally {
+            if (loaded != null) {
+                cacheMetrics.exitRegion(previous);
+            }
+        }
+    }
+
+    /**
+     * 登记标签并写入缓存
+     * @param onlyIfPresent 是否只覆盖已存在的键
+     */
+    private boolean writeWithTags(String key, Object value, long ttlMillis, boolean onlyIfPresent, String... tags) {
+        List<String> tagKeys = toTagKeys(tags);
+        hotReplicas.remove(key);
+        if (!redisCircuitBreaker.allowRequest()) {
+            // Redis中可能还是修改前的值，恢复后删除，由下次读取重新加载
+            degradedCache.put(key, value);
+            deferInvalidation(deferredKeys, Collections.singletonList(key));
+            return false;
+        }
+        try {
+            redisCircuitBreaker.call(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    // 先登记标签再写值，失效时不会漏掉已写入的键
+                    if (!tagKeys.isEmpty()) {
+                        ops.execute(TAG_KEYS_SCRIPT, StringRedisSerializer.UTF_8, LONG_RESULT_SERIALIZER, tagKeys,
+                                key, String.valueOf(ttlMillis));
+                    }
+                    if (onlyIfPresent) {
+                        ops.opsForValue().setIfPresent(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+                    } else {
+                        ops.opsForValue().set(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+                    }
+                    return null;
+                }
+            }));
+            return true;
+        } catch (Exception e) {
+            deferInvalidation(deferredKeys, Collections.singletonList(key));
+            log.warn("写入带标签的缓存失败，key: {}, 错误: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 删除登记在指定标签下的全部缓存键
+     * @param tags 标签
+     * @return 删除的键数量
      */
-    public boolean multiSetWithExpire(java.util.Map<String, Object> map, long timeout, TimeUnit unit) {
+    public long invalidateTags(String... tags) {
+        List<String> tagKeys = toTagKeys(tags);
+        if (tagKeys.isEmpty()) {
+            return 0L;
+        }
+        // 标签下的键在本地无法逐个对应，直接丢弃全部副本和降级缓存
+        hotReplicas.clear();
+        degradedCache.invalidateAll();
+        if (!redisCircuitBreaker.allowRequest()) {
+            deferInvalidation(deferredTags, Arrays.asList(tags));
+            return 0L;
+        }
         try {
-            if (map == null || map.isEmpty()) {
-                return false;
-            }
-
-            redisTemplate.opsForValue().multiSet(map);
-            map.keySet().forEach(key -> redisTemplate.expire(key, timeout, unit));
-            return true;
+            Long removed = redisCircuitBreaker.call(() -> redisTemplate.execute(INVALIDATE_TAGS_SCRIPT,
+                    StringRedisSerializer.UTF_8, LONG_RESULT_SERIALIZER, tagKeys));
+            long count = removed != null ? removed : 0L;
+            cacheMetrics.stats(CacheMetrics.regionOf(TAG_KEY_PREFIX)).recordEvictions(count);
+            return count;
         } catch (Exception e) {
-            return false;
+            deferInvalidation(deferredTags, Arrays.asList(tags));
+            log.warn("按标签失效缓存失败，tags: {}, 错误: {}", Arrays.toString(tags), e.getMessage());
+            return 0L;
         }
     }
 
     /**
-     * 删除缓存数据
-     * @param key 键
-     * @return 删除结果
+     * 事务提交后按标签失效缓存，避免提交前被其他请求用旧数据重新填充；无事务时立即执行
+     * @param tags 标签
      */
-    public boolean remove(String key) {
-        try {
-            if (key == null) {
-                return false;
-            }
-            Boolean delete = redisTemplate.delete(key);
-            return delete != null && delete;
-        } catch (Exception e) {
-            return false;
+    public void invalidateTagsAfterCommit(String... tags) {
+        runAfterCommit(() -> invalidateTags(tags));
+    }
+
+    /**
+     * 在当前事务提交后执行，无事务时立即执行
+     * @param action 要执行的操作
+     */
+    public void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 
     /**
-     * 批量删除缓存数据
-     * @param keys 键列表
-     * @return 删除的键数量
+     * 以管道方式批量写入缓存，一次往返完成整批写入
+     * @param writes 写入项
+     * @return 提交的写入项数量，失败时返回0
      */
-    public long removeBatch(List<String> keys) {
+    public int pipelineWrite(List<CacheWrite> writes) {
+        if (writes == null || writes.isEmpty()) {
+            return 0;
+        }
+        if (!redisCircuitBreaker.allowRequest()) {
+            return 0;
+        }
         try {
-            if (keys == null || keys.isEmpty()) {
-                return 0L;
-            }
-            Long deleted = redisTemplate.delete(keys);
-            return deleted != null ? deleted : 0L;
+            redisCircuitBreaker.call(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (CacheWrite write : writes) {
+                        List<String> tagKeys = toTagKeys(write.tags);
+                        if (!tagKeys.isEmpty()) {
+                            ops.execute(TAG_KEYS_SCRIPT, StringRedisSerializer.UTF_8, LONG_RESULT_SERIALIZER, tagKeys,
+                                    write.key, String.valueOf(write.ttlMillis));
+                        }
+                        if (write.delete) {
+                            ops.delete(write.key);
+                        } else if (write.hashFields != null) {
+                            writeHash(ops, write.key, write.hashFields, write.ttlMillis);
+                        } else if (write.onlyIfAbsent) {
+                            ops.opsForValue().setIfAbsent(write.key, write.value, write.ttlMillis, TimeUnit.MILLISECONDS);
+                        } else {
+                            ops.opsForValue().set(write.key, write.value, write.ttlMillis, TimeUnit.MILLISECONDS);
+                        }
+                    }
+                    return null;
+                }
+            }));
+            return writes.size();
         } catch (Exception e) {
-            return 0L;
+            log.warn("管道批量写入缓存失败，数量: {}, 错误: {}", writes.size(), e.getMessage());
+            return 0;
         }
     }
 
     /**
-     * 模糊删除（根据模式删除）
-     * @param pattern 模式
-     * @return 删除的键数量
+     * 整体替换哈希：先删除再写入，避免残留已变为null的旧字段
      */
-    public long removeByPattern(String pattern) {
-        try {
-            if (pattern == null) {
-                return 0L;
+    private static void writeHash(RedisOperations<String, Object> ops, String key, Map<String, String> fields,
+                                  long ttlMillis) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        Map<byte[], byte[]> rawFields = new LinkedHashMap<>();
+        fields.forEach((field, value) ->
+                rawFields.put(field.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8)));
+        ops.execute((RedisCallback<Object>) connection -> {
+            connection.keyCommands().del(rawKey);
+            connection.hashCommands().hMSet(rawKey, rawFields);
+            connection.keyCommands().pExpire(rawKey, ttlMillis);
+            return null;
+        });
+    }
+
+    /**
+     * 批量读取多个哈希的部分字段，一次往返完成
+     * @param keys 哈希键
+     * @param fields 字段名
+     * @return 与键一一对应的字段值列表，字段不存在时对应位置为null
+     */
+    public List<List<String>> hashMultiGet(List<String> keys, List<String> fields) {
+        if (keys == null || keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+        byte[][] rawFields = new byte[fields.size()][];
+        for (int i = 0; i < fields.size(); i++) {
+            rawFields[i] = fields.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        // 熔断时返回空结果，调用方按全部未命中查询数据库
+        List<Object> results = redisCircuitBreaker.execute(() -> redisTemplate.executePipelined(
+                (RedisCallback<Object>) connection -> {
+                    for (String key : keys) {
+                        connection.hashCommands().hMGet(key.getBytes(StandardCharsets.UTF_8), rawFields);
+                    }
+                    return null;
+                }, RedisSerializer.byteArray()), Collections::emptyList);
+
+        // 哈希不经过值序列化器，读取字节数在这里计入当前登记的缓存区域
+        CacheStats region = cacheMetrics.currentRegion();
+        List<List<String>> values = new ArrayList<>(results.size());
+        for (Object result : results) {
+            List<?> raw = result instanceof List ? (List<?>) result : Collections.emptyList();
+            List<String> row = new ArrayList<>(raw.size());
+            int bytes = 0;
+            for (Object value : raw) {
+                if (value instanceof byte[]) {
+                    byte[] valueBytes = (byte[]) value;
+                    bytes += valueBytes.length;
+                    row.add(new String(valueBytes, StandardCharsets.UTF_8));
+                } else {
+                    row.add(null);
+                }
             }
+            if (region != null && bytes > 0) {
+                region.recordRead(bytes);
+            }
+            values.add(row);
+        }
+        return values;
+    }
 
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (keys == null || keys.isEmpty()) {
-                return 0L;
+    private static List<String> toTagKeys(String... tags) {
+        if (tags == null || tags.length == 0) {
+            return Collections.emptyList();
+        }
+        List<String> tagKeys = new ArrayList<>(tags.length);
+        for (String tag : tags) {
+            if (tag != null) {
+                tagKeys.add(TAG_KEY_PREFIX + tag);
             }
+        }
+        return tagKeys;
+    }
 
-            Long deleted = redisTemplate.delete(keys);
-            return deleted != null ? deleted : 0L;
+    /**
+     * 查询键占用的内存（MEMORY USAGE），用于估算缓存容量
+     * @param key 键
+     * @return 占用字节数，键不存在或命令不可用时返回null
+     */
+    public Long memoryUsage(String key) {
+        try {
+            Object result = redisTemplate.execute((RedisCallback<Object>) connection ->
+                    connection.execute("MEMORY", "USAGE".getBytes(StandardCharsets.UTF_8),
+                            key.getBytes(StandardCharsets.UTF_8)));
+            return result instanceof Number ? ((Number) result).longValue() : null;
         } catch (Exception e) {
-            return 0L;
+            log.debug("查询键内存占用失败，key: {}, 错误: {}", key, e.getMessage());
+            return null;
         }
     }
 
@@ -472,7 +1487,7 @@ public class RedisUtil {
             if (key == null) {
                 return null;
             }
-            return redisTemplate.opsForValue().increment(key);
+            return redisCircuitBreaker.execute(() -> redisTemplate.opsForValue().increment(key), () -> null);
         } catch (Exception e) {
             System.err.println("Redis直接自增操作失败，key: " + key + ", error: " + e.getMessage());
             return null;
@@ -489,7 +1504,7 @@ public class RedisUtil {
             if (key == null) {
                 return null;
             }
-            return redisTemplate.opsForValue().decrement(key);
+            return redisCircuitBreaker.execute(() -> redisTemplate.opsForValue().decrement(key), () -> null);
         } catch (Exception e) {
             System.err.println("Redis直接自减操作失败，key: " + key + ", error: " + e.getMessage());
             return null;
@@ -753,10 +1768,25 @@ public class RedisUtil {
      * @return 是否获取成功
      */
     public boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit unit) {
+        // 熔断时立即失败，不等待Redisson超时；号源预订和取消改用数据库行锁，见SlotServiceImpl
+        if (!redisCircuitBreaker.allowRequest()) {
+            return false;
+        }
         try {
             RLock lock = redissonClient.getLock(lockKey);
-            return lock.tryLock(waitTime, leaseTime, unit);
-        }catch (Exception e){
+            long start = System.nanoTime();
+            boolean locked = lock.tryLock(waitTime, leaseTime, unit);
+            // 等锁耗时取决于锁竞争，不计入Redis慢调用，单独按锁族统计
+            long waited = System.nanoTime() - start;
+            redisMetrics.recordLockWait(lockKey, waited, locked);
+            Tracer.record(Tracer.LOCK, lockKey, start, waited, locked ? null : "timeout");
+            redisCircuitBreaker.record(0, true);
+            return locked;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            redisCircuitBreaker.record(0, false);
             return false;
         }
     }
@@ -775,14 +1805,19 @@ public class RedisUtil {
                 // 如果是当前线程持有，则释放
                 if (lock.isHeldByCurrentThread()) {
                     lock.unlock();
+                    redisMetrics.recordLockRelease(lockKey);
                     return true;
                 } else {
+                    // 本线程的租期已到、锁被其他线程或节点持有，本节点其他线程的持锁记录会覆盖同名记录，其余由过期清理兜底
                     return false;
                 }
             } else {
+                // 租期已到自动释放，实际释放时间未知
+                redisMetrics.discardLockHold(lockKey);
                 return true; // 锁已不存在，视为释放成功
             }
         } catch (Exception e) {
+            redisMetrics.discardLockHold(lockKey);
             // 尝试强制释放（防止死锁）
             try {
                 RLock lock = redissonClient.getLock(lockKey);
@@ -893,42 +1928,425 @@ public class RedisUtil {
 
     /**
      * 通用的实体缓存获取方法
+     * 布隆过滤器判定一定不存在的ID直接返回null，不产生任何IO；命中空值标记时不再查询数据库。
+     * 缓存未命中时同一键只允许一个调用方回源（本节点内合并请求，跨节点通过分布式锁），
+     * 缓存逻辑过期后先返回旧值，由一个调用方在后台刷新
      * @param prefix 缓存键前缀
      * @param id 实体ID
      * @param clazz 实体类型
      * @param queryFunction 数据库查询函数
-     * @param expireTime 过期时间
+     * @param expireTime 过期时间（逻辑过期时间，实际存活时间会更长以便返回旧值）
      * @param timeUnit 时间单位
      * @param <T> 实体类型
      * @return 实体对象
      */
     public <T> T getEntityWithCache(String prefix, Long id, Class<T> clazz,
-                                    java.util.function.Function<Long, T> queryFunction,
+                                    Function<Long, T> queryFunction,
                                     long expireTime, TimeUnit timeUnit) {
         if (id == null || prefix == null || clazz == null || queryFunction == null) {
             return null;
         }
 
+        CacheStats stats = cacheMetrics.statsOfKey(prefix);
+        if (!entityIdFilter.mightExist(EntityIdFilter.typeOf(prefix), id)) {
+            stats.recordNegativeHit();
+            return null;
+        }
+
         String cacheKey = prefix + id;
-        String nullKey = cacheKey + ":null";
 
-        // 先从Redis缓存查询
-        T entity = get(cacheKey, clazz);
-        if (entity != null) {
+        // 读写的字节数计入该区域，包含逻辑过期时间和空值标记两个辅助键
+        CacheStats previous = cacheMetrics.enterRegion(stats);
+        try {
+            if (!redisCircuitBreaker.allowRequest()) {
+                return loadDegraded(cacheKey, stats, () -> queryFunction.apply(id));
+            }
+            // 一次往返同时读取缓存值、逻辑过期时间和空值标记
+            List<Object> cached;
+            try {
+                List<String> keys = Arrays.asList(cacheKey, cacheKey + LOGICAL_EXPIRE_SUFFIX,
+                        cacheKey + NULL_MARKER_SUFFIX);
+                cached = redisCircuitBreaker.call(() -> redisTemplate.opsForValue().multiGet(keys));
+            } catch (Exception e) {
+                log.warn("读取实体缓存失败，直接查询数据库，key: {}, 错误: {}", cacheKey, e.getMessage());
+                return loadDegraded(cacheKey, stats, () -> queryFunction.apply(id));
+            }
+            if (cached == null) {
+                cached = Collections.emptyList();
+            }
+            T entity = null;
+            try {
+                entity = cached.isEmpty() ? null : convertValue(cached.get(0), clazz);
+            } catch (Exception e) {
+                log.warn("缓存值类型转换失败，key: {}, 错误: {}", cacheKey, e.getMessage());
+            }
+            if (entity != null) {
+                stats.recordHit();
+                Object logicalExpireAt = cached.size() > 1 ? cached.get(1) : null;
+                if (logicalExpireAt instanceof Number
+                        && ((Number) logicalExpireAt).longValue() <= System.currentTimeMillis()) {
+                    refreshInBackground(cacheKey, id, queryFunction, expireTime, timeUnit);
+                }
+                return entity;
+            }
+            if (cached.size() > 2 && cached.get(2) != null) {
+                stats.recordNegativeHit();
+                return null;
+            }
+
+            stats.recordMiss();
+            return loadWithSingleFlight(cacheKey, id, clazz, queryFunction, expireTime, timeUnit);
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+    }
+
+    /**
+     * 缓存未命中时回源，本节点内同一键的并发请求等待同一次查询结果
+     */
+    private <T> T loadWithSingleFlight(String cacheKey, Long id, Class<T> clazz,
+                                       Function<Long, T> queryFunction,
+                                       long expireTime, TimeUnit timeUnit) {
+        CompletableFuture<Object> loading = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlightLoads.putIfAbsent(cacheKey, loading);
+        if (existing != null) {
+            try {
+                return clazz.cast(existing.get(SINGLE_FLIGHT_WAIT_MILLIS, TimeUnit.MILLISECONDS));
+            } catch (TimeoutException e) {
+                log.warn("等待缓存回源超时，直接查询数据库，key: {}", cacheKey);
+                return queryFunction.apply(id);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        try {
+            T entity = rebuildCache(cacheKey, id, clazz, queryFunction, expireTime, timeUnit);
+            loading.complete(entity);
             return entity;
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(cacheKey, loading);
         }
+    }
 
-        // 缓存中没有，执行查询函数查询数据库
-        entity = queryFunction.apply(id);
-        if (entity != null) {
-            // 将查询结果存入Redis缓存
-            set(cacheKey, entity, expireTime, timeUnit);
-        } else {
-            // 数据库中也不存在，缓存空值防止穿透（短时间过期）
-            set(nullKey, "NULL", 5, TimeUnit.MINUTES);
+    /**
+     * 跨节点互斥地重建缓存；短时间内拿不到锁说明其他节点正在重建，
+     * 此时再读一次缓存，仍未命中才自行查询数据库，保证请求不会因等待而失败
+     */
+    private <T> T rebuildCache(String cacheKey, Long id, Class<T> clazz,
+                               Function<Long, T> queryFunction,
+                               long expireTime, TimeUnit timeUnit) {
+        RLock lock = null;
+        boolean locked = false;
+        try {
+            lock = redissonClient.getLock(REBUILD_LOCK_PREFIX + cacheKey);
+            long start = System.nanoTime();
+            locked = lock.tryLock(REBUILD_LOCK_WAIT_MILLIS, REBUILD_LOCK_LEASE_MILLIS, TimeUnit.MILLISECONDS);
+            long waited = System.nanoTime() - start;
+            redisMetrics.recordLockWait(REBUILD_LOCK_PREFIX + cacheKey, waited, locked);
+            Tracer.record(Tracer.LOCK, REBUILD_LOCK_PREFIX + cacheKey, start, waited, locked ? null : "timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("获取缓存重建锁失败，直接回源，key: {}, 错误: {}", cacheKey, e.getMessage());
+        }
+
+        try {
+            // 双重检查：等待锁期间其他节点可能已经写入缓存
+            T cached = get(cacheKey, clazz);
+            if (cached != null) {
+                return cached;
+            }
+
+            T entity = timedLoad(cacheKey, id, queryFunction);
+            if (entity != null) {
+                setWithLogicalExpire(cacheKey, entity, expireTime, timeUnit);
+            } else {
+                // 数据库中也不存在，缓存空值防止穿透（短时间过期）
+                set(cacheKey + NULL_MARKER_SUFFIX, "NULL", NULL_MARKER_EXPIRE_MINUTES, TimeUnit.MINUTES);
+            }
+            return entity;
+        } finally {
+            if (locked) {
+                releaseQuietly(lock);
+            }
+        }
+    }
+
+    /**
+     * Redis熔断期间的读取：先查进程内降级缓存，未命中时查询数据库并写入降级缓存，不访问Redis
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T loadDegraded(String cacheKey, CacheStats stats, Supplier<T> loader) {
+        Object local = degradedCache.get(cacheKey);
+        if (local != null) {
+            degradedHits.increment();
+            stats.recordHit();
+            return (T) local;
+        }
+        stats.recordMiss();
+        degradedLoads.increment();
+        T value = timedLoad(cacheKey, loader);
+        if (value != null) {
+            degradedCache.put(cacheKey, value);
+        }
+        return value;
+    }
+
+    /**
+     * 暂存熔断期间未能执行的删除，超出上限时丢弃并计数，这部分键只能依靠自身过期时间
+     */
+    private void deferInvalidation(Set<String> target, Collection<String> items) {
+        for (String item : items) {
+            if (deferredKeys.size() + deferredTags.size() >= MAX_DEFERRED_INVALIDATIONS) {
+                deferredDropped.increment();
+                continue;
+            }
+            target.add(item);
+        }
+    }
+
+    /**
+     * Redis恢复后补执行熔断期间暂存的删除和标签失效，执行失败的会重新暂存
+     * @return 补执行的键和标签数量
+     */
+    public int replayDeferredInvalidations() {
+        List<String> keys = new ArrayList<>(deferredKeys);
+        List<String> tags = new ArrayList<>(deferredTags);
+        deferredKeys.removeAll(keys);
+        deferredTags.removeAll(tags);
+        for (int i = 0; i < keys.size(); i += SCAN_BATCH_SIZE) {
+            removeBatch(keys.subList(i, Math.min(i + SCAN_BATCH_SIZE, keys.size())));
+        }
+        if (!tags.isEmpty()) {
+            invalidateTags(tags.toArray(new String[0]));
+        }
+        long dropped = deferredDropped.sumThenReset();
+        if (dropped > 0) {
+            log.warn("熔断期间有{}个缓存删除超出暂存上限未能补执行，依靠过期时间失效", dropped);
+        }
+        return keys.size() + tags.size();
+    }
+
+    /**
+     * 是否还有待补执行的删除
+     */
+    public boolean hasDeferredInvalidations() {
+        return !deferredKeys.isEmpty() || !deferredTags.isEmpty();
+    }
+
+    /**
+     * 降级缓存和待补删除的统计
+     * @return 统计快照
+     */
+    public Map<String, Object> getDegradedStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("localSize", degradedCache.size());
+        stats.put("localHits", degradedHits.sum());
+        stats.put("databaseLoads", degradedLoads.sum());
+        stats.put("deferredKeys", deferredKeys.size());
+        stats.put("deferredTags", deferredTags.size());
+        stats.put("deferredDropped", deferredDropped.sum());
+        return stats;
+    }
+
+    /**
+     * 查询数据库并记录回源耗时
+     */
+    private <T> T timedLoad(String cacheKey, Long id, Function<Long, T> queryFunction) {
+        return timedLoad(cacheKey, () -> queryFunction.apply(id));
+    }
+
+    private <T> T timedLoad(String cacheKey, Supplier<T> loader) {
+        CacheStats stats = cacheMetrics.statsOfKey(cacheKey);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T value = loader.get();
+            success = true;
+            return value;
+        } finally {
+            stats.recordLoad(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * 后台刷新逻辑过期的缓存，本节点和集群内同一时间只有一个刷新任务
+     */
+    private <T> void refreshInBackground(String cacheKey, Long id, Function<Long, T> queryFunction,
+                                         long expireTime, TimeUnit timeUnit) {
+        submitRefresh(cacheKey, () -> {
+            T entity = timedLoad(cacheKey, id, queryFunction);
+            if (entity != null) {
+                setWithLogicalExpire(cacheKey, entity, expireTime, timeUnit);
+            } else {
+                remove(cacheKey);
+                set(cacheKey + NULL_MARKER_SUFFIX, "NULL", NULL_MARKER_EXPIRE_MINUTES, TimeUnit.MINUTES);
+            }
+        });
+    }
+
+    /**
+     * 提交后台刷新任务，本节点和集群内同一键同一时间只有一个刷新任务；线程池满时放弃本次刷新
+     * @param cacheKey 缓存键
+     * @param reload 重新查询并写入缓存
+     */
+    private void submitRefresh(String cacheKey, Runnable reload) {
+        if (!refreshingKeys.add(cacheKey)) {
+            return;
+        }
+        try {
+            cacheRefreshExecutor.execute(() -> {
+                RLock lock = null;
+                boolean locked = false;
+                CacheStats previous = cacheMetrics.enterRegion(cacheMetrics.statsOfKey(cacheKey));
+                try {
+                    lock = redissonClient.getLock(REBUILD_LOCK_PREFIX + cacheKey);
+                    // 不等待：拿不到锁说明其他节点正在刷新
+                    locked = lock.tryLock(0, REBUILD_LOCK_LEASE_MILLIS, TimeUnit.MILLISECONDS);
+                    if (!locked) {
+                        return;
+                    }
+                    reload.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.warn("后台刷新缓存失败，key: {}, 错误: {}", cacheKey, e.getMessage());
+                } finally {
+                    if (locked) {
+                        releaseQuietly(lock);
+                    }
+                    refreshingKeys.remove(cacheKey);
+                    cacheMetrics.exitRegion(previous);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshingKeys.remove(cacheKey);
+        }
+    }
+
+    /**
+     * 记录新增实体：加入本节点ID过滤器、清除可能存在的空值标记，并广播给其他节点；
+     * 在事务提交后执行，提交前并发读取在数据库中查不到新实体，会重新写入空值标记，提交前清除无效
+     * @param prefix 缓存键前缀，如"patient::"
+     * @param id 新增实体ID
+     */
+    public void markEntityCreated(String prefix, Long id) {
+        if (prefix == null || id == null) {
+            return;
+        }
+        String type = EntityIdFilter.typeOf(prefix);
+        runAfterCommit(() -> announceEntityCreated(type, id));
+    }
+
+    private void announceEntityCreated(String type, Long id) {
+        entityIdFilter.put(type, id);
+        try {
+            // 历史代码中同时存在"type::"和"type:"两种前缀
+            removeBatch(Arrays.asList(type + "::" + id + NULL_MARKER_SUFFIX, type + ":" + id + NULL_MARKER_SUFFIX));
+            byte[] channel = EntityIdFilter.CREATED_CHANNEL.getBytes(StandardCharsets.UTF_8);
+            byte[] body = (type + "|" + id).getBytes(StandardCharsets.UTF_8);
+            redisCircuitBreaker.execute(() -> redisTemplate.execute(
+                    (RedisCallback<Long>) connection -> connection.publish(channel, body)), () -> null);
+        } catch (Exception e) {
+            log.warn("广播新增实体失败，类型: {}, ID: {}, 错误: {}", type, id, e.getMessage());
+        }
+    }
+
+    /**
+     * 发布广播消息，熔断时不发送
+     * @param channel 频道
+     * @param message 消息内容
+     * @return 是否已发送
+     */
+    public boolean publish(String channel, String message) {
+        try {
+            byte[] channelBytes = channel.getBytes(StandardCharsets.UTF_8);
+            byte[] body = message.getBytes(StandardCharsets.UTF_8);
+            Long receivers = redisCircuitBreaker.execute(() -> redisTemplate.execute(
+                    (RedisCallback<Long>) connection -> connection.publish(channelBytes, body)), () -> null);
+            return receivers != null;
+        } catch (Exception e) {
+            log.warn("广播消息失败，频道: {}, 错误: {}", channel, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 从Redis共享令牌桶中一次取出多个令牌，供各节点本地分批消耗，减少往返次数
+     * @param key 令牌桶键
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param burst 桶容量
+     * @param requested 希望取出的令牌数
+     * @return 取出的令牌数；没有令牌时返回距下一个令牌的毫秒数的相反数；熔断或Redis异常时返回null
+     */
+    public Long acquirePermits(String key, double ratePerSecond, int burst, int requested) {
+        if (!redisCircuitBreaker.allowRequest()) {
+            return null;
+        }
+        try {
+            return redisCircuitBreaker.call(() -> redisTemplate.execute(TOKEN_BUCKET_SCRIPT,
+                    StringRedisSerializer.UTF_8, LONG_RESULT_SERIALIZER, Collections.singletonList(key),
+                    String.valueOf(ratePerSecond), String.valueOf(burst), String.valueOf(requested)));
+        } catch (Exception e) {
+            log.warn("获取限流令牌失败，key: {}, 错误: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 写入带逻辑过期时间的缓存：实际存活时间比逻辑过期时间长，逻辑过期后仍可返回旧值
+     * @param cacheKey 缓存键
+     * @param value 缓存值
+     * @param expireTime 逻辑过期时间
+     * @param timeUnit 时间单位
+     */
+    public void setWithLogicalExpire(String cacheKey, Object value, long expireTime, TimeUnit timeUnit) {
+        long logicalMillis = jitter(timeUnit.toMillis(expireTime));
+        long physicalMillis = logicalMillis + Math.min(logicalMillis, STALE_WINDOW_MAX_MILLIS);
+        long logicalExpireAt = System.currentTimeMillis() + logicalMillis;
+        if (!redisCircuitBreaker.allowRequest()) {
+            degradedCache.put(cacheKey, value);
+            return;
+        }
+        try {
+            redisCircuitBreaker.call(() -> redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    ops.opsForValue().set(cacheKey, value, physicalMillis, TimeUnit.MILLISECONDS);
+                    ops.opsForValue().set(cacheKey + LOGICAL_EXPIRE_SUFFIX, logicalExpireAt,
+                            physicalMillis, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            }));
+        } catch (Exception e) {
+            log.warn("写入逻辑过期缓存失败，key: {}, 错误: {}", cacheKey, e.getMessage());
         }
+    }
 
-        return entity;
+    private void releaseQuietly(RLock lock) {
+        try {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+                redisMetrics.recordLockRelease(lock.getName());
+            } else {
+                redisMetrics.discardLockHold(lock.getName());
+            }
+        } catch (Exception e) {
+            redisMetrics.discardLockHold(lock.getName());
+            log.warn("释放缓存重建锁失败: {}", e.getMessage());
+        }
     }
 
     /**
@@ -941,7 +2359,7 @@ public class RedisUtil {
      * @return 实体对象
      */
     public <T> T getEntityWithCache(String prefix, Long id, Class<T> clazz,
-                                    java.util.function.Function<Long, T> queryFunction) {
+                                    Function<Long, T> queryFunction) {
         return getEntityWithCache(prefix, id, clazz, queryFunction, CACHE_EXPIRE_TIME, TimeUnit.MINUTES);
     }
 
@@ -998,4 +2416,106 @@ public class RedisUtil {
         }
     }
 
+    /**
+     * 关闭后台刷新线程池
+     */
+    @PreDestroy
+    public void shutdown() {
+        cacheRefreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 管道批量写入的单个写入项
+     */
+    public static final class CacheWrite {
+
+        private final String key;
+        private final Object value;
+        private final long ttlMillis;
+        private final boolean onlyIfAbsent;
+        private final String[] tags;
+        private final Map<String, String> hashFields;
+        private final boolean delete;
+
+        private CacheWrite(String key, Object value, long ttlMillis, boolean onlyIfAbsent, String[] tags,
+                           Map<String, String> hashFields, boolean delete) {
+            this.key = key;
+            this.value = value;
+            this.ttlMillis = ttlMillis;
+            this.onlyIfAbsent = onlyIfAbsent;
+            this.tags = tags;
+            this.hashFields = hashFields;
+            this.delete = delete;
+        }
+
+        /**
+         * 覆盖写入
+         * @param key 键
+         * @param value 值
+         * @param ttlMillis 存活时间（毫秒）
+         * @param tags 依赖的标签，见CacheTags
+         * @return 写入项
+         */
+        public static CacheWrite set(String key, Object value, long ttlMillis, String... tags) {
+            return new CacheWrite(key, value, ttlMillis, false, tags, null, false);
+        }
+
+        /**
+         * 键不存在时才写入，用于不能覆盖Redis中实时数据的场景，如号源库存计数
+         * @param key 键
+         * @param value 值
+         * @param ttlMillis 存活时间（毫秒）
+         * @return 写入项
+         */
+        public static CacheWrite setIfAbsent(String key, Object value, long ttlMillis) {
+            return new CacheWrite(key, value, ttlMillis, true, null, null, false);
+        }
+
+        /**
+         * 以哈希结构整体写入，字段值为文本
+         * @param key 键
+         * @param fields 字段名到文本的映射
+         * @param ttlMillis 存活时间（毫秒）
+         * @param tags 依赖的标签，见CacheTags
+         * @return 写入项
+         */
+        public static CacheWrite hash(String key, Map<String, String> fields, long ttlMillis, String... tags) {
+            return new CacheWrite(key, null, ttlMillis, false, tags, fields, false);
+        }
+
+        /**
+         * 删除键，用于重建后已为空的列表
+         * @param key 键
+         * @return 写入项
+         */
+        public static CacheWrite delete(String key) {
+            return new CacheWrite(key, null, 0, false, null, null, true);
+        }
+    }
+
+
+    /**
+     * 热点键本地副本
+     */
+    private static final class HotReplica {
+
+        private final Object value;
+        private final String digest;
+        private final long promotedAt;
+        private volatile long validUntil;
+        private volatile long expireAt;
+
+        private HotReplica(Object value, String digest, long validUntil, long expireAt, long promotedAt) {
+            this.value = value;
+            this.digest = digest;
+            this.validUntil = validUntil;
+            this.expireAt = expireAt;
+            this.promotedAt = promotedAt;
+        }
+
+        private void renew(long validUntil, long expireAt) {
+            this.validUntil = validUntil;
+            this.expireAt = expireAt;
+        }
+    }
 }
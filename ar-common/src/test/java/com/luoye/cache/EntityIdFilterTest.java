@@ -0,0 +1,66 @@
+package com.luoye.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 实体ID过滤器的重建：数据源中的ID、重建前后新增的ID都不能被拒绝
+ */
+class EntityIdFilterTest {
+
+    @Test
+    void passesEverythingBeforeFirstRebuild() {
+        EntityIdFilter filter = new EntityIdFilter();
+        assertTrue(filter.mightExist("doctor", 12345L));
+        assertFalse(filter.mightExist("doctor", 0L));
+        assertFalse(filter.mightExist("doctor", null));
+    }
+
+    @Test
+    void rebuildContainsAllSourceIds() {
+        EntityIdFilter filter = new EntityIdFilter();
+        filter.rebuild("doctor", 20_000, consumer -> LongStream.rangeClosed(1, 40_000)
+                .filter(id -> id % 2 == 0)
+                .forEach(consumer));
+
+        for (long id = 2; id <= 40_000; id += 2) {
+            assertTrue(filter.mightExist("doctor", id), "重建后ID误判为不存在: " + id);
+        }
+        // 大于已知最大ID的请求一律放行
+        assertTrue(filter.mightExist("doctor", 40_001L));
+    }
+
+    @Test
+    void rebuildKeepsIdsCreatedDuringScan() {
+        EntityIdFilter filter = new EntityIdFilter();
+        filter.rebuild("patient", 100, consumer -> LongStream.rangeClosed(1, 100).forEach(consumer));
+        // 重建扫描期间其他事务提交的新增，扫描时尚未读到
+        filter.rebuild("patient", 100, consumer -> {
+            LongStream.rangeClosed(1, 50).forEach(consumer);
+            filter.put("patient", 500);
+            LongStream.rangeClosed(51, 100).forEach(consumer);
+        });
+        filter.rebuild("patient", 100, consumer -> LongStream.rangeClosed(1, 100).forEach(consumer));
+
+        assertTrue(filter.mightExist("patient", 500L));
+        for (long id = 1; id <= 100; id++) {
+            assertTrue(filter.mightExist("patient", id));
+        }
+    }
+
+    @Test
+    void putAfterRebuildIsVisible() {
+        EntityIdFilter filter = new EntityIdFilter();
+        filter.rebuild("slot", 1000, consumer -> LongStream.rangeClosed(1, 1000).forEach(consumer));
+
+        filter.put("slot", 1500);
+        filter.put("slot", 2000);
+
+        assertTrue(filter.mightExist("slot", 1500L));
+        assertTrue(filter.mightExist("slot", 2000L));
+    }
+}
@@ -0,0 +1,105 @@
+package com.luoye.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 热点键的阈值判定、本地副本升级和滑动窗口衰减
+ */
+class HotKeyTrackerTest {
+
+    /**
+     * 60秒窗口切分为6个子窗口，每个子窗口10秒
+     */
+    private static final long SUB_WINDOW_MILLIS = 10_000L;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private HotKeyTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new HotKeyTracker();
+        ReflectionTestUtils.setField(tracker, "hotThreshold", 20L);
+        ReflectionTestUtils.setField(tracker, "replicaThreshold", 50L);
+        ReflectionTestUtils.setField(tracker, "windowSeconds", 60L);
+        tracker.setClock(now::get);
+    }
+
+    @Test
+    void becomesHotAtThreshold() {
+        long estimate = record("dept_list::enabled", 19);
+        assertEquals(19, estimate);
+        assertFalse(tracker.isHot(estimate));
+        assertTrue(tracker.getHotKeys(10).isEmpty());
+
+        estimate = tracker.recordAccess("dept_list::enabled");
+        assertEquals(20, estimate);
+        assertTrue(tracker.isHot(estimate));
+        assertFalse(tracker.isReplicaHot(estimate));
+        assertEquals(20L, tracker.getHotKeys(10).get("dept_list::enabled"));
+    }
+
+    @Test
+    void promotesToReplicaAtReplicaThreshold() {
+        long estimate = record("doctor_dept::1", 49);
+        assertFalse(tracker.isReplicaHot(estimate));
+
+        estimate = tracker.recordAccess("doctor_dept::1");
+        assertTrue(tracker.isReplicaHot(estimate));
+        // 其他键不受影响
+        assertEquals(1, tracker.recordAccess("doctor_dept::2"));
+    }
+
+    @Test
+    void countsAccumulateAcrossSubWindows() {
+        record("k", 10);
+        now.addAndGet(SUB_WINDOW_MILLIS);
+        record("k", 5);
+        now.addAndGet(SUB_WINDOW_MILLIS * 4);
+        assertEquals(16, tracker.recordAccess("k"));
+    }
+
+    @Test
+    void expiredSubWindowsNoLongerCount() {
+        record("k", 10);
+        now.addAndGet(SUB_WINDOW_MILLIS * 3);
+        record("k", 15);
+
+        // 第一个子窗口滑出窗口，只剩后来的15次
+        now.addAndGet(SUB_WINDOW_MILLIS * 3);
+        assertEquals(16, tracker.recordAccess("k"));
+
+        // 整个窗口都过去后，计数从头开始
+        now.addAndGet(SUB_WINDOW_MILLIS * 6);
+        long estimate = tracker.recordAccess("k");
+        assertEquals(1, estimate);
+        assertFalse(tracker.isHot(estimate));
+    }
+
+    @Test
+    void cooledKeysLeaveHotKeyRanking() {
+        record("hot", 30);
+        assertTrue(tracker.getHotKeys(10).containsKey("hot"));
+
+        now.addAndGet(SUB_WINDOW_MILLIS * 6);
+        tracker.recordAccess("other");
+
+        assertFalse(tracker.getHotKeys(10).containsKey("hot"));
+    }
+
+    private long record(String key, int times) {
+        long estimate = 0;
+        for (int i = 0; i < times; i++) {
+            estimate = tracker.recordAccess(key);
+        }
+        return estimate;
+    }
+}
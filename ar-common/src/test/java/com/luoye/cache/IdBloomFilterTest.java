@@ -0,0 +1,64 @@
+package com.luoye.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 布隆过滤器：已添加的ID必须全部判定为存在，误判率接近配置值
+ */
+class IdBloomFilterTest {
+
+    @Test
+    void neverReportsAddedIdAsAbsent() {
+        IdBloomFilter filter = new IdBloomFilter(100_000, 0.01);
+        long base = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE / 2);
+        for (long id = 1; id <= 100_000; id++) {
+            filter.put(id);
+            filter.put(base + id * 7919);
+        }
+        for (long id = 1; id <= 100_000; id++) {
+            assertTrue(filter.mightContain(id), "自增ID误判为不存在: " + id);
+            assertTrue(filter.mightContain(base + id * 7919), "随机ID误判为不存在: " + (base + id * 7919));
+        }
+    }
+
+    @Test
+    void concurrentPutsAreNotLost() throws InterruptedException {
+        IdBloomFilter filter = new IdBloomFilter(80_000, 0.01);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (long id = offset; id < 80_000; id += threads.length) {
+                    filter.put(id + 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (long id = 1; id <= 80_000; id++) {
+            assertTrue(filter.mightContain(id), "并发写入的ID丢失: " + id);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearConfiguredRate() {
+        IdBloomFilter filter = new IdBloomFilter(50_000, 0.01);
+        for (long id = 1; id <= 50_000; id++) {
+            filter.put(id);
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (long id = 1_000_000; id < 1_000_000 + probes; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probes * 0.02, "误判率过高: " + falsePositives + "/" + probes);
+    }
+}
@@ -0,0 +1,156 @@
+package com.luoye.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地缓存的过期、容量淘汰和条件移除
+ */
+class LocalCacheTest {
+
+    @Test
+    void expiresEntriesAfterTtl() throws InterruptedException {
+        LocalCache<String, String> cache = new LocalCache<>(10, 1, TimeUnit.MINUTES);
+        cache.put("short", "a", 50, TimeUnit.MILLISECONDS);
+        cache.put("long", "b");
+        assertEquals("a", cache.get("short"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get("short"));
+        assertEquals("b", cache.get("long"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void putNullRemovesEntry() {
+        LocalCache<String, String> cache = new LocalCache<>(10, 1, TimeUnit.MINUTES);
+        cache.put("k", "v");
+        cache.put("k", null);
+        assertNull(cache.get("k"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictsLeastRecentlyAccessedWhenOverCapacity() throws InterruptedException {
+        LocalCache<Integer, Integer> cache = new LocalCache<>(10, 1, TimeUnit.MINUTES);
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+            Thread.sleep(1);
+        }
+        // 0最早写入，但最近被访问过，不应被淘汰
+        assertEquals(0, cache.get(0));
+        Thread.sleep(1);
+
+        cache.put(10, 10);
+
+        // 超出1条，另外按容量的10%多淘汰1条：淘汰最久未访问的1和2
+        assertEquals(9, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(0, cache.get(0));
+        assertNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(3, cache.get(3));
+        assertEquals(10, cache.get(10));
+    }
+
+    @Test
+    void evictsExpiredEntriesBeforeLiveOnes() throws InterruptedException {
+        LocalCache<Integer, Integer> cache = new LocalCache<>(5, 1, TimeUnit.MINUTES);
+        cache.put(0, 0, 10, TimeUnit.MILLISECONDS);
+        for (int i = 1; i < 5; i++) {
+            cache.put(i, i);
+        }
+        Thread.sleep(50);
+
+        cache.put(5, 5);
+
+        // 过期条目清理后已不超出容量，存活条目全部保留
+        assertEquals(5, cache.size());
+        assertNull(cache.get(0));
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i, cache.get(i));
+        }
+    }
+
+    @Test
+    void removeIfRemovesOnlyMatchingEntries() {
+        LocalCache<String, Integer> cache = new LocalCache<>(100, 1, TimeUnit.MINUTES);
+        for (int i = 0; i < 10; i++) {
+            cache.put("doctor::" + i, i);
+            cache.put("dept::" + i, i);
+        }
+
+        int removed = cache.removeIf((key, value) -> key.startsWith("doctor::") && value % 2 == 0);
+
+        assertEquals(5, removed);
+        assertEquals(15, cache.size());
+        assertNull(cache.get("doctor::0"));
+        assertEquals(1, cache.get("doctor::1"));
+        assertEquals(0, cache.get("dept::0"));
+    }
+
+    @Test
+    void computeIfAbsentCreatesOnceUnderContention() throws InterruptedException {
+        LocalCache<String, Object> cache = new LocalCache<>(10, 1, TimeUnit.MINUTES);
+        AtomicInteger created = new AtomicInteger();
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 1000; j++) {
+                    seen.add(cache.computeIfAbsent("k", key -> {
+                        created.incrementAndGet();
+                        return new Object();
+                    }));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, created.get());
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    void computeIfAbsentReplacesExpiredEntry() throws InterruptedException {
+        LocalCache<String, String> cache = new LocalCache<>(10, 1, TimeUnit.MINUTES);
+        cache.put("k", "old", 10, TimeUnit.MILLISECONDS);
+        assertEquals("old", cache.computeIfAbsent("k", key -> "new"));
+        Thread.sleep(50);
+
+        assertEquals("new", cache.computeIfAbsent("k", key -> "new"));
+        assertNull(cache.computeIfAbsent("absent", key -> null));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void rejectsInvalidSpec() {
+        assertThrows(IllegalArgumentException.class, () -> new LocalCache<>(0, 1, TimeUnit.MINUTES));
+        assertThrows(IllegalArgumentException.class, () -> new LocalCache<>(10, 0, TimeUnit.MINUTES));
+        assertTrue(new LocalCache<>(1, 1, TimeUnit.MINUTES).getMaximumSize() > 0);
+    }
+}
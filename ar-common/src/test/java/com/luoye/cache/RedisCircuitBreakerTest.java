@@ -0,0 +1,181 @@
+package com.luoye.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 熔断器状态机：关闭 -> 打开 -> 半开探测 -> 关闭/重新打开
+ */
+class RedisCircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(300);
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private final List<RedisCircuitBreaker.State> transitions = new CopyOnWriteArrayList<>();
+
+    private RedisCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "windowSeconds", 10);
+        ReflectionTestUtils.setField(breaker, "minimumCalls", 20);
+        ReflectionTestUtils.setField(breaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(breaker, "slowCallMillis", 200L);
+        ReflectionTestUtils.setField(breaker, "slowCallRateThreshold", 80);
+        ReflectionTestUtils.setField(breaker, "openSeconds", 10L);
+        ReflectionTestUtils.setField(breaker, "halfOpenCalls", 5);
+        breaker.setClock(now::get);
+        breaker.init();
+        breaker.addListener(transitions::add);
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        record(19, FAST, false);
+        assertTrue(breaker.isClosed());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        record(10, FAST, true);
+        record(9, FAST, false);
+        assertTrue(breaker.isClosed());
+
+        record(1, FAST, false);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1L, breaker.getStatistics().get("rejectedCalls"));
+        assertEquals(List.of(RedisCircuitBreaker.State.OPEN), transitions);
+    }
+
+    @Test
+    void opensWhenSlowCallRateReachesThreshold() {
+        record(4, FAST, true);
+        record(15, SLOW, true);
+        assertTrue(breaker.isClosed());
+
+        record(1, SLOW, true);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void failuresOutsideWindowAreIgnored() {
+        record(15, FAST, false);
+        now.addAndGet(TimeUnit.SECONDS.toMillis(11));
+        record(10, FAST, false);
+        assertTrue(breaker.isClosed());
+        assertEquals(10L, breaker.getStatistics().get("windowCalls"));
+    }
+
+    @Test
+    void halfOpenProbesCloseBreakerWhenAllSucceed() {
+        tripOpen();
+        now.addAndGet(TimeUnit.SECONDS.toMillis(9));
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(1));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.allowRequest());
+        }
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        record(4, FAST, true);
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        record(1, FAST, true);
+        assertTrue(breaker.isClosed());
+        assertEquals(List.of(RedisCircuitBreaker.State.OPEN, RedisCircuitBreaker.State.HALF_OPEN,
+                RedisCircuitBreaker.State.CLOSED), transitions);
+
+        // 关闭时窗口已清空，打开前的失败不会再次触发熔断
+        record(1, FAST, false);
+        assertTrue(breaker.isClosed());
+        assertEquals(1L, breaker.getStatistics().get("windowCalls"));
+    }
+
+    @Test
+    void failedProbeReopensForAnotherCooldown() {
+        tripOpen();
+        now.addAndGet(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(breaker.allowRequest());
+        record(1, FAST, false);
+
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2L, breaker.getStatistics().get("openCount"));
+        now.addAndGet(TimeUnit.SECONDS.toMillis(9));
+        assertFalse(breaker.allowRequest());
+        now.addAndGet(TimeUnit.SECONDS.toMillis(1));
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void slowProbeReopens() {
+        tripOpen();
+        now.addAndGet(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(breaker.allowRequest());
+        record(1, SLOW, true);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenReissuesPermitsWhenProbesNeverReport() {
+        tripOpen();
+        now.addAndGet(TimeUnit.SECONDS.toMillis(10));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(breaker.allowRequest());
+        }
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(breaker.allowRequest());
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void executeUsesFallbackWhileOpen() {
+        tripOpen();
+        AtomicBoolean invoked = new AtomicBoolean();
+        String result = breaker.execute(() -> {
+            invoked.set(true);
+            return "redis";
+        }, () -> "fallback");
+        assertEquals("fallback", result);
+        assertFalse(invoked.get());
+    }
+
+    @Test
+    void resultsReturningAfterOpenAreIgnored() {
+        tripOpen();
+        record(20, FAST, true);
+        now.addAndGet(TimeUnit.SECONDS.toMillis(10));
+        assertTrue(breaker.allowRequest());
+        assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private void tripOpen() {
+        record(20, FAST, false);
+        assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void record(int times, long nanos, boolean success) {
+        for (int i = 0; i < times; i++) {
+            breaker.record(nanos, success);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.luoye.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 耗时直方图的分桶边界和分位数精度
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndNarrow() {
+        int previous = -1;
+        for (long micros = 0; micros < 1 << 20; micros++) {
+            int index = LatencyHistogram.indexOf(micros);
+            assertTrue(index == previous || index == previous + 1, "桶编号不连续: " + micros);
+            if (index != previous) {
+                assertEquals(micros, LatencyHistogram.lowerBoundOf(index));
+            }
+            previous = index;
+        }
+        for (int index = 16; index < 200; index++) {
+            long lower = LatencyHistogram.lowerBoundOf(index);
+            long width = LatencyHistogram.lowerBoundOf(index + 1) - lower;
+            assertTrue(width * 8 <= lower, "桶宽超过下界的1/8: " + index);
+        }
+    }
+
+    @Test
+    void percentilesStayCloseToExactValues() {
+        Random random = new Random(42);
+        long[] samples = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < samples.length; i++) {
+            // 对数均匀分布在100微秒到2秒之间，覆盖原来相差2~2.5倍的桶
+            samples[i] = TimeUnit.MICROSECONDS.toNanos((long) Math.exp(Math.log(100) + random.nextDouble() * Math.log(20_000)));
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+        Map<String, Object> snapshot = histogram.snapshot();
+        assertEquals(100_000L, snapshot.get("count"));
+        assertClose(samples, 0.50, (double) snapshot.get("p50Ms"));
+        assertClose(samples, 0.90, (double) snapshot.get("p90Ms"));
+        assertClose(samples, 0.95, (double) snapshot.get("p95Ms"));
+        assertClose(samples, 0.99, (double) snapshot.get("p99Ms"));
+        assertEquals(samples[samples.length - 1] / 1_000 / 1_000.0, (double) snapshot.get("maxMs"), 0.001);
+    }
+
+    @Test
+    void singleValueIsNotRoundedUpToBucketBound() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(260));
+        }
+        Map<String, Object> snapshot = histogram.snapshot();
+        // 原来的刻度会报告为500微秒
+        assertTrue((double) snapshot.get("p99Ms") <= 0.260);
+        assertTrue((double) snapshot.get("p50Ms") >= 0.256);
+    }
+
+    @Test
+    void valuesBeyondRangeReportMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.HOURS.toNanos(1));
+        histogram.record(-1);
+        Map<String, Object> snapshot = histogram.snapshot();
+        assertEquals(1L, snapshot.get("count"));
+        assertEquals(3_600_000.0, (double) snapshot.get("p99Ms"), 0.001);
+        assertEquals(0.0, (double) new LatencyHistogram().snapshot().get("p99Ms"));
+    }
+
+    private static void assertClose(long[] sorted, double ratio, double reportedMillis) {
+        double exactMillis = sorted[(int) Math.ceil(sorted.length * ratio) - 1] / 1_000_000.0;
+        double error = Math.abs(reportedMillis - exactMillis) / exactMillis;
+        assertTrue(error <= 0.05, "P" + (int) (ratio * 100) + " 误差过大: " + reportedMillis + " vs " + exactMillis);
+    }
+}
@@ -0,0 +1,82 @@
+package com.luoye.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 持锁记录：正常释放计入持锁耗时，过期或强制释放时丢弃，超过最长租期的记录在采样时清理
+ */
+class RedisMetricsTest {
+
+    private static final String LOCK_KEY = "lock:slot_operation:1001";
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    private RedisMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new RedisMetrics();
+        ReflectionTestUtils.setField(metrics, "contentionThresholdMillis", 5L);
+        ReflectionTestUtils.setField(metrics, "contentionWindowSeconds", 60L);
+        ReflectionTestUtils.setField(metrics, "maxLockHoldSeconds", 60L);
+        metrics.setClock(now::get);
+    }
+
+    @Test
+    void releaseRecordsHoldTime() {
+        metrics.recordLockWait(LOCK_KEY, 0, true);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.recordLockRelease(LOCK_KEY);
+
+        Map<String, Object> stats = metrics.getStatistics(10);
+        assertEquals(0, stats.get("heldLocks"));
+        assertEquals(20.0, (double) holdOf(stats).get("maxMs"), 0.001);
+    }
+
+    @Test
+    void discardedHoldIsNotRecorded() {
+        metrics.recordLockWait(LOCK_KEY, 0, true);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        metrics.discardLockHold(LOCK_KEY);
+        // 之后的释放找不到记录，不会把租期到期后的时间计入持锁耗时
+        metrics.recordLockRelease(LOCK_KEY);
+
+        Map<String, Object> stats = metrics.getStatistics(10);
+        assertEquals(0, stats.get("heldLocks"));
+        assertEquals(0L, holdOf(stats).get("count"));
+    }
+
+    @Test
+    void staleHoldsAreEvictedOnSample() {
+        metrics.recordLockWait(LOCK_KEY, 0, true);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        metrics.recordLockWait("lock:slot_operation:1002", 0, true);
+        assertEquals(2, metrics.getStatistics(10).get("heldLocks"));
+
+        // 第一把锁超过最长租期，第二把尚未超过
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        Map<String, Object> stats = metrics.getStatistics(10);
+        assertEquals(1, stats.get("heldLocks"));
+        assertEquals(1L, stats.get("heldLocksEvicted"));
+
+        // 清理在加锁时同样进行，腾出的位置可以继续跟踪新的锁
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        metrics.recordLockWait("lock:slot_operation:1003", 0, true);
+        assertEquals(1, metrics.getStatistics(10).get("heldLocks"));
+        assertEquals(2L, metrics.getStatistics(10).get("heldLocksEvicted"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> holdOf(Map<String, Object> stats) {
+        Map<String, Object> locks = (Map<String, Object>) stats.get("locks");
+        return (Map<String, Object>) ((Map<String, Object>) locks.get("lock:slot_operation")).get("hold");
+    }
+}
@@ -0,0 +1,14 @@
+package com.luoye.dto.admin;
+
+import lombok.Data;
+
+/**
+ * 令牌吊销数据传输对象
+ * 提供token时只吊销该令牌，否则吊销identity和userId对应用户已签发的全部令牌
+ */
+@Data
+public class TokenRevokeDTO {
+    private String token;
+    private String identity;
+    private Long userId;
+}
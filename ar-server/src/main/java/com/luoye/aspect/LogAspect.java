@@ -3,7 +3,7 @@ package com.luoye.aspect;
 import com.luoye.annotation.OperationLogger;
 import com.luoye.context.BaseContext;
 import com.luoye.entity.Log;
-import com.luoye.service.LogService;
+import com.luoye.task.AuditLogWriter;
 import jakarta.servlet.http.HttpServletRequest;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -22,7 +22,7 @@ import java.util.Optional;
 public class LogAspect {
 
     @Autowired
-    private LogService logService;
+    private AuditLogWriter auditLogWriter;
 
     @Autowired
     private HttpServletRequest request;
@@ -53,14 +53,8 @@ public class LogAspect {
             // 获取 IP 地址
             log.setIpAddress(getIpAddress());
             
-            // 异步保存日志，避免阻塞主流程和影响事务
-            try{
-                logService.save(log);
-            }catch (Exception e){
-                // 日志保存失败只打印错误，不影响主业务
-                System.err.println("【日志保存失败】" + e.getMessage());
-                e.printStackTrace();
-            }
+            // 异步保存日志，只放入缓冲区，由写入线程批量入库，不阻塞主流程也不参与事务
+            auditLogWriter.submit(log);
         }
         
         return result;
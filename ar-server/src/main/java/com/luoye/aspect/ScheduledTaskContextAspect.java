@@ -0,0 +1,30 @@
+package com.luoye.aspect;
+
+import com.luoye.context.BaseContext;
+import com.luoye.context.RequestContext;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定时任务上下文切面
+ * 每次执行定时任务时设置SYSTEM身份的上下文，任务内的日志和缓存统计可以按请求ID关联，
+ * 执行完毕后清除，调度线程不会残留上下文
+ */
+@Aspect
+@Component
+public class ScheduledTaskContextAspect {
+
+    @Around("@annotation(org.springframework.scheduling.annotation.Scheduled)")
+    public Object withTaskContext(ProceedingJoinPoint joinPoint) throws Throwable {
+        RequestContext previous = BaseContext.get();
+        BaseContext.set(RequestContext.system(joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName()));
+        try {
+            return joinPoint.proceed();
+        } finally {
+            BaseContext.set(previous);
+        }
+    }
+}
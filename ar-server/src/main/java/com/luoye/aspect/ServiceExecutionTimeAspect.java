@@ -1,35 +1,155 @@
 package com.luoye.aspect;
 
+import com.luoye.context.BaseContext;
+import com.luoye.metrics.LatencyHistogram;
+import com.luoye.trace.Span;
+import com.luoye.trace.Tracer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service层方法耗时统计
+ * 每个方法一个无锁直方图，按纳秒计时，记录调用次数、异常次数和耗时分位数，通过运行指标接口查询，
+ * 同时在当前请求的链路中记为SERVICE类型的Span；
+ * 不再逐次打印日志，只有耗时超过阈值的调用输出一条告警，参数只打印类型和长度，不打印内容
+ */
 @Aspect
 @Component
 @Slf4j
 public class ServiceExecutionTimeAspect {
 
+    /**
+     * 慢调用阈值（毫秒），小于等于0时不输出慢调用日志
+     */
+    @Value("${metrics.service.slow-call-millis:500}")
+    private long slowCallMillis;
+
+    private final ConcurrentHashMap<Method, MethodStats> stats = new ConcurrentHashMap<>();
+
     // 监控Service层的所有方法
     @Around("execution(* com.luoye.service..*(..))")
     public Object monitorServiceExecution(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
-
-        String className = joinPoint.getTarget().getClass().getSimpleName();
-        String methodName = joinPoint.getSignature().getName();
-
+        MethodStats methodStats = statsOf(joinPoint);
+        Span span = Tracer.start(Tracer.SERVICE, methodStats.name);
+        long startTime = System.nanoTime();
+        boolean success = false;
         try {
             Object result = joinPoint.proceed();
-            long executionTime = System.currentTimeMillis() - startTime;
-
-            log.info("[服务执行] {}.{} 执行时间: {}ms", className, methodName, executionTime);
+            success = true;
             return result;
-        } catch (Exception e) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            log.error("[服务异常] {}.{} 执行时间: {}ms, 异常: {}",
-                    className, methodName, executionTime, e.getMessage());
+        } catch (Throwable e) {
+            Tracer.error(span, e);
             throw e;
+        } finally {
+            long elapsed = System.nanoTime() - startTime;
+            Tracer.end(span);
+            methodStats.histogram.record(elapsed);
+            if (!success) {
+                methodStats.errors.increment();
+            }
+            if (slowCallMillis > 0 && elapsed >= TimeUnit.MILLISECONDS.toNanos(slowCallMillis)) {
+                methodStats.slowCalls.increment();
+                log.warn("[慢调用] {} 执行时间: {}ms, 结果: {}, 请求ID: {}, 参数: {}", methodStats.name,
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), success ? "成功" : "异常",
+                        BaseContext.getRequestId(), redact(joinPoint.getArgs()));
+            }
+        }
+    }
+
+    /**
+     * 各方法耗时统计，按累计耗时从高到低排列
+     * @return 方法名到调用次数、异常次数、慢调用次数和耗时分位数的映射
+     */
+    public Map<String, Object> getStatistics() {
+        List<Map<String, Object>> snapshots = new ArrayList<>(stats.size());
+        for (MethodStats methodStats : stats.values()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("method", methodStats.name);
+            item.putAll(methodStats.histogram.snapshot());
+            item.put("errors", methodStats.errors.sum());
+            item.put("slowCalls", methodStats.slowCalls.sum());
+            snapshots.add(item);
+        }
+        snapshots.sort((a, b) -> Double.compare(totalMillis(b), totalMillis(a)));
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map<String, Object> item : snapshots) {
+            result.put((String) item.remove("method"), item);
+        }
+        return result;
+    }
+
+    public long getSlowCallMillis() {
+        return slowCallMillis;
+    }
+
+    private MethodStats statsOf(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodStats methodStats = stats.get(method);
+        if (methodStats == null) {
+            String name = joinPoint.getTarget().getClass().getSimpleName() + "." + method.getName();
+            methodStats = stats.computeIfAbsent(method, key -> new MethodStats(name));
+        }
+        return methodStats;
+    }
+
+    private static double totalMillis(Map<String, Object> snapshot) {
+        return ((Number) snapshot.get("meanMs")).doubleValue() * ((Number) snapshot.get("count")).longValue();
+    }
+
+    /**
+     * 参数脱敏：只保留类型，字符串和集合附带长度
+     */
+    private static String redact(Object[] args) {
+        if (args == null || args.length == 0) {
+            return "[]";
+        }
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            Object arg = args[i];
+            if (arg == null) {
+                builder.append("null");
+            } else if (arg instanceof CharSequence) {
+                builder.append("String(len=").append(((CharSequence) arg).length()).append(')');
+            } else if (arg instanceof Collection) {
+                builder.append(arg.getClass().getSimpleName()).append("(size=").append(((Collection<?>) arg).size()).append(')');
+            } else if (arg instanceof Map) {
+                builder.append(arg.getClass().getSimpleName()).append("(size=").append(((Map<?, ?>) arg).size()).append(')');
+            } else {
+                builder.append(arg.getClass().getSimpleName());
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * 单个方法的统计
+     */
+    private static final class MethodStats {
+        private final String name;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder slowCalls = new LongAdder();
+
+        private MethodStats(String name) {
+            this.name = name;
         }
     }
 }
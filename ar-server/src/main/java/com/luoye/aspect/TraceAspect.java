@@ -0,0 +1,31 @@
+package com.luoye.aspect;
+
+import com.luoye.trace.Span;
+import com.luoye.trace.Tracer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Controller层链路切面
+ * 每个Controller方法在当前请求的链路中记为CONTROLLER类型的Span，Service、SQL和Redis的Span挂在其下
+ */
+@Aspect
+@Component
+public class TraceAspect {
+
+    @Around("execution(* com.luoye.controller..*(..))")
+    public Object traceController(ProceedingJoinPoint joinPoint) throws Throwable {
+        Span span = Tracer.start(Tracer.CONTROLLER, joinPoint.getSignature().getDeclaringType().getSimpleName()
+                + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            Tracer.error(span, e);
+            throw e;
+        } finally {
+            Tracer.end(span);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.luoye.cache;
+
+import com.luoye.entity.Slot;
+import com.luoye.mapper.SlotMapper;
+import com.luoye.util.RedisUtil;
+import com.luoye.util.RedisUtil.CacheWrite;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis降级模式协调
+ * 熔断打开时号源库存切换为数据库行锁模式，并记录期间库存变化的号源；
+ * 熔断关闭后补执行暂存的缓存失效，把这些号源的库存计数从数据库同步回Redis，全部完成后才切回Redis库存
+ */
+@Slf4j
+@Component
+public class DegradedModeCoordinator {
+
+    /**
+     * 与预热写入的库存计数保持相同的存活时间
+     */
+    private static final long INVENTORY_TTL_MILLIS = TimeUnit.HOURS.toMillis(25);
+
+    private static final int RESYNC_BATCH_SIZE = 500;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    @Autowired
+    private SlotMapper slotMapper;
+
+    /**
+     * 号源库存是否使用数据库行锁模式；熔断打开时置位，恢复同步完成后才清除
+     */
+    private volatile boolean inventoryDegraded;
+
+    /**
+     * 熔断已关闭、等待恢复同步
+     */
+    private volatile boolean recoveryPending;
+
+    private volatile long degradedSince;
+
+    private volatile long lastRecoveredAt;
+
+    /**
+     * 行锁模式下库存发生变化的号源，恢复时同步到Redis
+     */
+    private final Set<Long> dirtySlotIds = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder resyncedSlots = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        redisCircuitBreaker.addListener(this::onStateChange);
+    }
+
+    private void onStateChange(RedisCircuitBreaker.State state) {
+        if (state == RedisCircuitBreaker.State.OPEN) {
+            recoveryPending = false;
+            if (!inventoryDegraded) {
+                degradedSince = System.currentTimeMillis();
+                inventoryDegraded = true;
+                log.warn("Redis不可用，号源库存切换为数据库行锁模式");
+            }
+        } else if (state == RedisCircuitBreaker.State.CLOSED && inventoryDegraded) {
+            recoveryPending = true;
+        }
+    }
+
+    /**
+     * 号源预订和取消是否应使用数据库行锁
+     */
+    public boolean isInventoryDegraded() {
+        return inventoryDegraded;
+    }
+
+    /**
+     * 记录行锁模式下库存发生变化的号源，须在事务提交后调用
+     * @param slotId 号源ID
+     */
+    public void markSlotDirty(Long slotId) {
+        dirtySlotIds.add(slotId);
+    }
+
+    /**
+     * 熔断关闭后执行恢复同步，失败时保持降级模式，下次继续
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void recover() {
+        if (!redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        if (!recoveryPending && dirtySlotIds.isEmpty()
+                && !redisUtil.hasDeferredInvalidations() && !cacheManager.hasDeferredEvictions()) {
+            return;
+        }
+        try {
+            int invalidations = redisUtil.replayDeferredInvalidations() + cacheManager.replayDeferredEvictions();
+            int resynced = resyncInventory();
+            if (recoveryPending && redisCircuitBreaker.isClosed()) {
+                inventoryDegraded = false;
+                recoveryPending = false;
+                lastRecoveredAt = System.currentTimeMillis();
+                // 切换前已开始的行锁预订可能在切换后才提交，再同步一次，之后提交的由下一轮处理
+                resynced += resyncInventory();
+                log.info("Redis已恢复，号源库存切回Redis模式，降级持续{}秒，补执行缓存失效{}项，同步号源库存{}个",
+                        (lastRecoveredAt - degradedSince) / 1000, invalidations, resynced);
+            } else if (resynced > 0 || invalidations > 0) {
+                log.info("补执行缓存失效{}项，同步号源库存{}个", invalidations, resynced);
+            }
+        } catch (Exception e) {
+            log.warn("Redis恢复同步失败，保持数据库行锁模式，稍后重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 把行锁模式下变化的号源库存计数从数据库写回Redis
+     * @return 同步的号源数量
+     */
+    private int resyncInventory() {
+        List<Long> ids = new ArrayList<>(dirtySlotIds);
+        int resynced = 0;
+        for (int i = 0; i < ids.size(); i += RESYNC_BATCH_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + RESYNC_BATCH_SIZE, ids.size()));
+            // 先移出再查询，查询之后提交的变化会重新登记，不会被本次覆盖
+            batch.forEach(dirtySlotIds::remove);
+            try {
+                List<Slot> slots = slotMapper.selectBatchIds(batch);
+                List<CacheWrite> writes = new ArrayList<>(slots.size() * 2);
+                for (Slot slot : slots) {
+                    long ttl = redisUtil.jitter(INVENTORY_TTL_MILLIS);
+                    writes.add(CacheWrite.set("slot_inventory::bookedCount::" + slot.getId(), slot.getBookedCount(), ttl));
+                    writes.add(CacheWrite.set("slot_inventory::totalCount::" + slot.getId(), slot.getTotalCount(), ttl));
+                }
+                if (!writes.isEmpty() && redisUtil.pipelineWrite(writes) == 0) {
+                    throw new IllegalStateException("写入号源库存计数失败");
+                }
+                resynced += slots.size();
+            } catch (RuntimeException e) {
+                dirtySlotIds.addAll(batch);
+                throw e;
+            }
+        }
+        resyncedSlots.add(resynced);
+        return resynced;
+    }
+
+    /**
+     * 降级模式状态
+     * @return 状态快照
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("inventoryDegraded", inventoryDegraded);
+        stats.put("recoveryPending", recoveryPending);
+        stats.put("degradedSince", degradedSince);
+        stats.put("lastRecoveredAt", lastRecoveredAt);
+        stats.put("dirtySlots", dirtySlotIds.size());
+        stats.put("resyncedSlots", resyncedSlots.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,119 @@
+package com.luoye.cache;
+
+import com.luoye.cache.codec.EntityHashType;
+import com.luoye.util.RedisUtil;
+import com.luoye.util.RedisUtil.CacheWrite;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 哈希结构的实体缓存
+ * 列表页补充关联实体的少量字段（如医生姓名、职称）时，用HMGET一次往返批量读取所需字段，
+ * 不再读取和反序列化完整实体（医生简介、密码等大字段）；未命中的实体一次批量查询数据库后整体写入哈希
+ */
+@Slf4j
+@Component
+public class EntityHashCache {
+
+    private static final long CACHE_EXPIRE_HOURS = 2;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    /**
+     * 批量读取实体的部分字段
+     * @param type 哈希缓存结构
+     * @param ids 实体ID，可包含重复和null
+     * @param loader 按ID批量查询数据库，如mapper::selectBatchIds
+     * @param fields 需要读取的字段
+     * @return ID到实体的映射；缓存命中的实体只填充了所读字段，不存在的ID不在结果中
+     * @param <T> 实体类型
+     */
+    public <T> Map<Long, T> getFields(EntityHashType<T> type, Collection<Long> ids,
+                                      Function<Collection<Long>, List<T>> loader, String... fields) {
+        Set<Long> uniqueIds = new LinkedHashSet<>();
+        ids.stream().filter(Objects::nonNull).forEach(uniqueIds::add);
+        Map<Long, T> result = new HashMap<>();
+        if (uniqueIds.isEmpty()) {
+            return result;
+        }
+
+        List<String> readFields = type.readFields(fields);
+        List<Long> idList = new ArrayList<>(uniqueIds);
+        List<String> keys = new ArrayList<>(idList.size());
+        idList.forEach(id -> keys.add(type.key(id)));
+
+        CacheStats stats = cacheMetrics.statsOfKey(keys.get(0));
+        CacheStats previous = cacheMetrics.enterRegion(stats);
+        List<Long> missingIds = new ArrayList<>();
+        try {
+            List<List<String>> values = redisUtil.hashMultiGet(keys, readFields);
+            for (int i = 0; i < idList.size(); i++) {
+                T entity = i < values.size() ? type.fromFields(readFields, values.get(i)) : null;
+                if (entity != null) {
+                    stats.recordHit();
+                    result.put(idList.get(i), entity);
+                } else {
+                    stats.recordMiss();
+                    missingIds.add(idList.get(i));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("批量读取哈希缓存失败，直接查询数据库，类型: {}, 错误: {}", keys.get(0), e.getMessage());
+            missingIds = idList;
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+
+        if (!missingIds.isEmpty()) {
+            loadMissing(type, missingIds, loader, stats, result);
+        }
+        return result;
+    }
+
+    /**
+     * 批量回源并整体写入哈希，返回值使用数据库中的完整实体
+     */
+    private <T> void loadMissing(EntityHashType<T> type, List<Long> missingIds,
+                                 Function<Collection<Long>, List<T>> loader, CacheStats stats, Map<Long, T> result) {
+        long start = System.nanoTime();
+        boolean success = false;
+        List<T> loaded;
+        try {
+            loaded = loader.apply(missingIds);
+            success = true;
+        } finally {
+            stats.recordLoad(System.nanoTime() - start, success);
+        }
+        if (loaded == null || loaded.isEmpty()) {
+            return;
+        }
+
+        List<CacheWrite> writes = new ArrayList<>(loaded.size());
+        for (T entity : loaded) {
+            Long id = type.idOf(entity);
+            if (id == null) {
+                continue;
+            }
+            result.put(id, entity);
+            writes.add(CacheWrite.hash(type.key(id), type.toHash(entity),
+                    redisUtil.jitter(TimeUnit.HOURS.toMillis(CACHE_EXPIRE_HOURS)), type.tag(id)));
+        }
+        redisUtil.pipelineWrite(writes);
+    }
+}
@@ -0,0 +1,127 @@
+package com.luoye.cache;
+
+import com.luoye.metrics.RedisMetrics;
+import com.luoye.trace.Span;
+import com.luoye.trace.Tracer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+
+/**
+ * 统计Redis命令耗时的连接工厂
+ * 返回的连接是动态代理，按方法名（即命令名）记录每次调用的耗时和异常，并在当前请求的链路中记为REDIS类型的Span；
+ * 管道和事务中的命令只是入队，不单独计时，整批耗时记在closePipeline或exec上。
+ * RedisTemplate、缓存管理器和消息监听容器都经过这里，Redisson锁等直接使用RedissonClient的操作不经过
+ */
+public class MeteredRedisConnectionFactory implements RedisConnectionFactory {
+
+    /**
+     * 不访问Redis的连接管理方法，不计时
+     */
+    private static final Set<String> UNTIMED_METHODS = Set.of(
+            "close", "isClosed", "getNativeConnection", "isQueueing", "isPipelined", "openPipeline",
+            "isSubscribed", "getSubscription", "getSentinelConnection", "toString", "hashCode", "equals");
+
+    private final RedisConnectionFactory delegate;
+
+    private final RedisMetrics redisMetrics;
+
+    /**
+     * @param delegate 实际的连接工厂
+     * @param redisMetrics Redis统计注册表
+     */
+    public MeteredRedisConnectionFactory(RedisConnectionFactory delegate, RedisMetrics redisMetrics) {
+        this.delegate = delegate;
+        this.redisMetrics = redisMetrics;
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        RedisConnection connection = delegate.getConnection();
+        return (RedisConnection) Proxy.newProxyInstance(RedisConnection.class.getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, new TimingHandler(connection, connection));
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        return delegate.getClusterConnection();
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return delegate.getConvertPipelineAndTxResults();
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        return delegate.getSentinelConnection();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return delegate.translateExceptionIfPossible(ex);
+    }
+
+    /**
+     * 计时代理，连接的子命令接口（stringCommands()等）同样包装
+     */
+    private final class TimingHandler implements InvocationHandler {
+
+        private final Object target;
+
+        private final RedisConnection connection;
+
+        private TimingHandler(Object target, RedisConnection connection) {
+            this.target = target;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (UNTIMED_METHODS.contains(name) || method.getDeclaringClass() == Object.class) {
+                return call(method, args);
+            }
+            if (name.endsWith("Commands") && method.getParameterCount() == 0 && method.getReturnType().isInterface()) {
+                Object commands = call(method, args);
+                return commands == null ? null : Proxy.newProxyInstance(method.getReturnType().getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new TimingHandler(commands, connection));
+            }
+            if (connection.isPipelined() || connection.isQueueing()) {
+                if (!"closePipeline".equals(name) && !"exec".equals(name)) {
+                    return call(method, args);
+                }
+            }
+            Span span = Tracer.start(Tracer.REDIS, name);
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = call(method, args);
+                success = true;
+                return result;
+            } catch (Throwable e) {
+                Tracer.error(span, e);
+                throw e;
+            } finally {
+                redisMetrics.recordCommand(name, System.nanoTime() - start, success);
+                Tracer.end(span);
+            }
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
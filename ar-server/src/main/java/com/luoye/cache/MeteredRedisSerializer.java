@@ -0,0 +1,43 @@
+package com.luoye.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 统计序列化字节数的Redis值序列化器
+ * 只统计当前线程登记了缓存区域的读写，计数器、锁、队列等非缓存数据不计入
+ */
+public class MeteredRedisSerializer implements RedisSerializer<Object> {
+
+    private final RedisSerializer<Object> delegate;
+
+    private final CacheMetrics cacheMetrics;
+
+    /**
+     * @param delegate 实际的序列化器
+     * @param cacheMetrics 缓存统计注册表
+     */
+    public MeteredRedisSerializer(RedisSerializer<Object> delegate, CacheMetrics cacheMetrics) {
+        this.delegate = delegate;
+        this.cacheMetrics = cacheMetrics;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] bytes = delegate.serialize(value);
+        CacheStats stats = cacheMetrics.currentRegion();
+        if (stats != null && bytes != null) {
+            stats.recordWrite(bytes.length);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        CacheStats stats = cacheMetrics.currentRegion();
+        if (stats != null && bytes != null) {
+            stats.recordRead(bytes.length);
+        }
+        return delegate.deserialize(bytes);
+    }
+}
@@ -0,0 +1,247 @@
+package com.luoye.cache;
+
+import com.luoye.util.RedisUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * 令牌吊销列表
+ * 支持两种吊销：按令牌ID（jti）吊销单个令牌，按用户设置生效时间吊销该时间之前签发的全部令牌（包括没有jti的旧令牌）。
+ * 吊销记录写入Redis，存活时间等于令牌剩余有效期；每个节点在内存中保存一份副本，
+ * 通过发布订阅即时同步、定期全量校对，拦截器每次请求只做内存哈希查找，不访问Redis。
+ * 副本在Web服务器启动前加载，加载成功前就绪探测返回503
+ */
+@Slf4j
+@Component
+public class TokenRevocationList implements MessageListener, SmartInitializingSingleton {
+
+    /**
+     * 吊销广播频道
+     */
+    public static final String REVOKED_CHANNEL = "token:revoked";
+
+    private static final String TOKEN_KEY_PREFIX = "token_revoked::";
+
+    private static final String PRINCIPAL_KEY_PREFIX = "token_not_before::";
+
+    @Value("${jwt.ttl:604800000}")
+    private long jwtTtl;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    /**
+     * 已吊销的令牌ID到令牌过期时间
+     */
+    private final ConcurrentHashMap<String, Long> revokedTokenIds = new ConcurrentHashMap<>();
+
+    /**
+     * 身份类型到（用户ID到生效时间）的映射，签发时间早于生效时间的令牌视为已吊销
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, Long>> notBefore = new ConcurrentHashMap<>();
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile long lastSyncTime;
+
+    /**
+     * 是否已从Redis完整加载过一次吊销记录
+     */
+    private volatile boolean loaded;
+
+    /**
+     * 判断令牌是否已吊销，只读取内存
+     * @param tokenId 令牌ID，旧令牌没有时为null
+     * @param identity 身份类型
+     * @param userId 用户ID
+     * @param issuedAt 签发时间（毫秒），没有签发时间的旧令牌为0
+     * @return 是否已吊销
+     */
+    public boolean isRevoked(String tokenId, String identity, Long userId, long issuedAt) {
+        if (tokenId != null && !revokedTokenIds.isEmpty() && revokedTokenIds.containsKey(tokenId)) {
+            rejected.increment();
+            return true;
+        }
+        Map<Long, Long> principals = identity != null ? notBefore.get(identity) : null;
+        if (principals != null) {
+            Long since = principals.get(userId);
+            if (since != null && issuedAt < since) {
+                rejected.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 吊销单个令牌
+     * @param tokenId 令牌ID
+     * @param expiresAt 令牌过期时间（毫秒）
+     * @return 是否已写入Redis；写入失败时仅本节点生效，其他节点最迟在下次校对时生效
+     */
+    public boolean revokeToken(String tokenId, long expiresAt) {
+        long remainingMillis = expiresAt - System.currentTimeMillis();
+        if (tokenId == null || remainingMillis <= 0) {
+            return true;
+        }
+        revokedTokenIds.put(tokenId, expiresAt);
+        boolean stored = redisUtil.set(TOKEN_KEY_PREFIX + tokenId, expiresAt, remainingMillis, TimeUnit.MILLISECONDS);
+        redisUtil.publish(REVOKED_CHANNEL, "jti|" + tokenId + "|" + expiresAt);
+        if (!stored) {
+            log.error("令牌吊销记录写入Redis失败，仅本节点生效，令牌ID: {}", tokenId);
+        }
+        return stored;
+    }
+
+    /**
+     * 吊销用户当前已签发的全部令牌，用于注销账户、离职和重置密码
+     * @param identity 身份类型
+     * @param userId 用户ID
+     * @return 是否已写入Redis
+     */
+    public boolean revokePrincipal(String identity, Long userId) {
+        if (identity == null || userId == null) {
+            return true;
+        }
+        // 签发时间只精确到秒，取整后同一秒内签发的令牌不受影响，避免重置密码后立即登录的新令牌被误拒
+        long since = System.currentTimeMillis() / 1000 * 1000;
+        applyNotBefore(identity, userId, since);
+        boolean stored = redisUtil.set(PRINCIPAL_KEY_PREFIX + identity + ":" + userId, since, jwtTtl, TimeUnit.MILLISECONDS);
+        redisUtil.publish(REVOKED_CHANNEL, "nbf|" + identity + "|" + userId + "|" + since);
+        if (!stored) {
+            log.error("用户令牌吊销记录写入Redis失败，仅本节点生效，身份: {}, 用户ID: {}", identity, userId);
+        }
+        return stored;
+    }
+
+    /**
+     * 接收其他节点的吊销广播，消息格式为 jti|令牌ID|过期时间 或 nbf|身份|用户ID|生效时间
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        try {
+            if (parts.length == 3 && "jti".equals(parts[0])) {
+                revokedTokenIds.put(parts[1], Long.parseLong(parts[2]));
+            } else if (parts.length == 4 && "nbf".equals(parts[0])) {
+                applyNotBefore(parts[1], Long.parseLong(parts[2]), Long.parseLong(parts[3]));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无法解析令牌吊销广播: {}", String.join("|", parts));
+        }
+    }
+
+    /**
+     * 启动时从Redis加载吊销记录
+     * 在全部单例创建后、Web服务器启动前执行，不受ApplicationReadyEvent监听器（如缓存预热）的顺序和耗时影响
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        synchronize();
+        if (!loaded) {
+            log.error("启动时加载令牌吊销记录失败，加载成功前就绪探测返回503");
+        }
+    }
+
+    /**
+     * 启动加载失败时短间隔重试，不等待全量校对周期
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void retryInitialLoad() {
+        if (!loaded) {
+            synchronize();
+            if (loaded) {
+                log.info("令牌吊销记录加载完成");
+            }
+        }
+    }
+
+    /**
+     * 定期与Redis全量校对，补上广播丢失（如节点重连期间）的吊销记录，并清理已过期的记录
+     */
+    @Scheduled(fixedDelay = 300000, initialDelay = 300000)
+    public void synchronize() {
+        long now = System.currentTimeMillis();
+        revokedTokenIds.values().removeIf(expiresAt -> expiresAt <= now);
+        notBefore.values().forEach(principals -> principals.values().removeIf(since -> since + jwtTtl <= now));
+
+        boolean tokens = loadFromRedis(TOKEN_KEY_PREFIX, (suffix, value) -> revokedTokenIds.put(suffix, value));
+        boolean principals = loadFromRedis(PRINCIPAL_KEY_PREFIX, (suffix, value) -> {
+            int separator = suffix.lastIndexOf(':');
+            if (separator > 0) {
+                applyNotBefore(suffix.substring(0, separator), Long.parseLong(suffix.substring(separator + 1)), value);
+            }
+        });
+        if (tokens && principals) {
+            lastSyncTime = now;
+            loaded = true;
+        }
+    }
+
+    /**
+     * 是否已从Redis完整加载过吊销记录，未加载时可能接受已吊销的令牌
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 吊销列表统计
+     * @return 令牌和用户吊销记录数、拒绝次数和最近校对时间
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revokedTokens", revokedTokenIds.size());
+        stats.put("revokedPrincipals", notBefore.values().stream().mapToInt(Map::size).sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("lastSyncTime", lastSyncTime);
+        stats.put("loaded", loaded);
+        return stats;
+    }
+
+    private void applyNotBefore(String identity, Long userId, long since) {
+        ConcurrentHashMap<Long, Long> principals = notBefore.computeIfAbsent(identity, key -> new ConcurrentHashMap<>());
+        Long previous = principals.get(userId);
+        principals.merge(userId, since, Math::max);
+        if (previous == null || previous < since) {
+            // 只是释放内存，吊销检查不依赖令牌缓存
+            verifiedTokenCache.invalidatePrincipal(identity, userId);
+        }
+    }
+
+    /**
+     * @return 是否遍历完成
+     */
+    private boolean loadFromRedis(String prefix, BiConsumer<String, Long> consumer) {
+        return redisUtil.scanKeys(prefix + "*", keys -> {
+            List<Object> values = redisUtil.multiGet(keys);
+            for (int i = 0; i < keys.size() && i < values.size(); i++) {
+                if (values.get(i) instanceof Number) {
+                    try {
+                        consumer.accept(keys.get(i).substring(prefix.length()), ((Number) values.get(i)).longValue());
+                    } catch (NumberFormatException e) {
+                        log.warn("忽略无法解析的令牌吊销记录: {}", keys.get(i));
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,450 @@
+package com.luoye.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 二级缓存
+ * L1为进程内本地缓存，L2为Redis缓存；写入和失效先作用于L2，再同步L1并广播给其他节点。
+ * L2调用经过Redis熔断器，熔断或调用失败时按未命中处理，写入只保留在本地，失效暂存到恢复后补执行。
+ * L1和降级缓存保存序列化后的字节，每次命中都反序列化出新对象，调用方修改返回值不会影响缓存和其他请求
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final Cache redisCache;
+    private final LocalCache<String, byte[]> localCache;
+    private final RedisSerializer<Object> localSerializer;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheMetrics cacheMetrics;
+    private final RedisCircuitBreaker circuitBreaker;
+
+    /**
+     * 本缓存的命中、回源和读写字节统计，分级命中数见下方计数器
+     */
+    private final CacheStats stats;
+
+    /**
+     * 失效代数：每次本地或远程失效都会递增，
+     * 用于丢弃失效发生前从L2读到、但在失效之后才准备写入L1的旧值
+     */
+    private final AtomicLong invalidationGeneration = new AtomicLong();
+
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l1Misses = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder l2Misses = new LongAdder();
+    private final LongAdder l2Unavailable = new LongAdder();
+
+    /**
+     * L2不可用时get返回的标记，与未命中区分
+     */
+    private static final ValueWrapper UNAVAILABLE = new SimpleValueWrapper(null);
+
+    /**
+     * @param name 缓存名称
+     * @param redisCache L2 Redis缓存
+     * @param localCache L1本地缓存，为null时不启用L1
+     * @param localSerializer L1和降级缓存的值序列化器
+     * @param cacheManager 所属缓存管理器，用于广播失效消息
+     * @param cacheMetrics 缓存统计注册表
+     * @param circuitBreaker Redis熔断器
+     */
+    TwoLevelCache(String name, Cache redisCache, LocalCache<String, byte[]> localCache,
+                  RedisSerializer<Object> localSerializer, TwoLevelCacheManager cacheManager,
+                  CacheMetrics cacheMetrics, RedisCircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.redisCache = redisCache;
+        this.localCache = localCache;
+        this.localSerializer = localSerializer;
+        this.cacheManager = cacheManager;
+        this.cacheMetrics = cacheMetrics;
+        this.circuitBreaker = circuitBreaker;
+        this.stats = cacheMetrics.stats(name);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = null;
+        long generation = 0;
+        if (localCache != null) {
+            localKey = toLocalKey(key);
+            Object value = readLocal(localCache, localKey);
+            if (value != null) {
+                l1Hits.increment();
+                stats.recordHit();
+                return new SimpleValueWrapper(value);
+            }
+            l1Misses.increment();
+            generation = invalidationGeneration.get();
+        }
+
+        ValueWrapper wrapper;
+        CacheStats previous = cacheMetrics.enterRegion(stats);
+        try {
+            wrapper = circuitBreaker.execute(() -> redisCache.get(key), () -> UNAVAILABLE);
+        } catch (RuntimeException e) {
+            wrapper = UNAVAILABLE;
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+        if (wrapper == UNAVAILABLE) {
+            return getDegraded(key);
+        }
+        if (wrapper == null) {
+            l2Misses.increment();
+            // @Cacheable未命中后执行目标方法，再以同一个键put，两者之间即为回源耗时
+            cacheMetrics.recordMiss(stats, toLocalKey(key));
+            return null;
+        }
+        l2Hits.increment();
+        stats.recordHit();
+        if (localCache != null) {
+            fillLocal(localKey, wrapper.get(), generation);
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("缓存值类型不匹配，期望类型 [" + type.getName() + "]，实际值: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        long generation = invalidationGeneration.get();
+        if (!circuitBreaker.isClosed()) {
+            T value = timedLoadUnchecked(key, valueLoader);
+            putLocalOnly(key, value);
+            return value;
+        }
+        // RedisCache内部会加锁并再次检查，避免同一节点并发回源
+        T value;
+        CacheStats previous = cacheMetrics.enterRegion(stats);
+        try {
+            value = redisCache.get(key, () -> timedLoad(valueLoader));
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+        if (localCache != null) {
+            fillLocal(toLocalKey(key), value, generation);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        cacheMetrics.completeLoad(toLocalKey(key));
+        if (!writeRemote(() -> redisCache.put(key, value))) {
+            // L2中可能还是修改前的值，恢复后失效
+            cacheManager.deferEvict(name, key);
+            putLocalOnly(key, value);
+            return;
+        }
+        if (localCache != null) {
+            String localKey = toLocalKey(key);
+            invalidationGeneration.incrementAndGet();
+            writeLocal(localCache, localKey, value);
+            cacheManager.publishEvict(name, localKey);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing;
+        CacheStats previous = cacheMetrics.enterRegion(stats);
+        try {
+            existing = circuitBreaker.execute(() -> redisCache.putIfAbsent(key, value), () -> UNAVAILABLE);
+        } catch (RuntimeException e) {
+            existing = UNAVAILABLE;
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+        if (existing == UNAVAILABLE) {
+            cacheManager.deferEvict(name, key);
+            putLocalOnly(key, value);
+            return null;
+        }
+        if (localCache != null) {
+            // 与put相同：先递增失效代数，使并发读取中从L2读到的旧值不再回填L1
+            String localKey = toLocalKey(key);
+            invalidationGeneration.incrementAndGet();
+            writeLocal(localCache, localKey, existing != null ? existing.get() : value);
+            if (existing == null) {
+                // 写入了新值，其他节点L1中可能还有旧值
+                cacheManager.publishEvict(name, localKey);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        stats.recordEvictions(1);
+        if (!writeRemote(() -> redisCache.evict(key))) {
+            cacheManager.deferEvict(name, key);
+            evictLocalOnly(key);
+            return;
+        }
+        evictLocalAndPublish(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean[] present = new boolean[1];
+        if (!writeRemote(() -> present[0] = redisCache.evictIfPresent(key))) {
+            cacheManager.deferEvict(name, key);
+            evictLocalOnly(key);
+            return false;
+        }
+        if (present[0]) {
+            stats.recordEvictions(1);
+        }
+        evictLocalAndPublish(key);
+        return present[0];
+    }
+
+    @Override
+    public void clear() {
+        if (!writeRemote(redisCache::clear)) {
+            cacheManager.deferClear(name);
+            clearLocalOnly();
+            return;
+        }
+        clearLocalAndPublish();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean[] present = new boolean[1];
+        if (!writeRemote(() -> present[0] = redisCache.invalidate())) {
+            cacheManager.deferClear(name);
+            clearLocalOnly();
+            return false;
+        }
+        clearLocalAndPublish();
+        return present[0];
+    }
+
+    /**
+     * 处理其他节点广播的单键失效
+     * @param localKey L1中的键
+     */
+    void evictLocal(String localKey) {
+        if (localCache != null) {
+            invalidationGeneration.incrementAndGet();
+            localCache.invalidate(localKey);
+        }
+    }
+
+    /**
+     * 处理其他节点广播的整体清空
+     */
+    void clearLocal() {
+        if (localCache != null) {
+            invalidationGeneration.incrementAndGet();
+            localCache.invalidateAll();
+        }
+    }
+
+    boolean isLocalEnabled() {
+        return localCache != null;
+    }
+
+    /**
+     * 各级命中统计
+     * @return 统计快照
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("l1Enabled", localCache != null);
+        stats.put("l1Hits", l1Hits.sum());
+        stats.put("l1Misses", l1Misses.sum());
+        stats.put("l2Hits", l2Hits.sum());
+        stats.put("l2Misses", l2Misses.sum());
+        stats.put("l2Unavailable", l2Unavailable.sum());
+        if (localCache != null) {
+            stats.put("l1Size", localCache.size());
+            stats.put("l1MaximumSize", localCache.getMaximumSize());
+            stats.put("l1Evictions", localCache.getEvictionCount());
+        }
+        return stats;
+    }
+
+    private <T> T timedLoad(Callable<T> valueLoader) throws Exception {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T value = valueLoader.call();
+            success = true;
+            return value;
+        } finally {
+            stats.recordLoad(System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * L2不可用时的读取：L1已经未命中，未配置L1的缓存查共享降级缓存
+     */
+    private ValueWrapper getDegraded(Object key) {
+        l2Unavailable.increment();
+        if (localCache == null) {
+            Object value = readLocal(cacheManager.getDegradedCache(), degradedKey(key));
+            if (value != null) {
+                stats.recordHit();
+                return new SimpleValueWrapper(value);
+            }
+        }
+        cacheMetrics.recordMiss(stats, toLocalKey(key));
+        return null;
+    }
+
+    /**
+     * 经熔断器执行L2写操作
+     * @return false表示熔断或调用失败，操作未生效
+     */
+    private boolean writeRemote(Runnable action) {
+        CacheStats previous = cacheMetrics.enterRegion(stats);
+        try {
+            return circuitBreaker.execute(() -> {
+                action.run();
+                return true;
+            }, () -> false);
+        } catch (RuntimeException e) {
+            return false;
+        } finally {
+            cacheMetrics.exitRegion(previous);
+        }
+    }
+
+    /**
+     * L2不可用时只写本地：有L1写L1，否则写共享降级缓存；不广播，其他节点的L1由恢复后的补失效处理
+     */
+    private void putLocalOnly(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (localCache != null) {
+            invalidationGeneration.incrementAndGet();
+            writeLocal(localCache, toLocalKey(key), value);
+        } else {
+            writeLocal(cacheManager.getDegradedCache(), degradedKey(key), value);
+        }
+    }
+
+    private void evictLocalOnly(Object key) {
+        evictLocal(toLocalKey(key));
+        cacheManager.getDegradedCache().invalidate(degradedKey(key));
+    }
+
+    private void clearLocalOnly() {
+        clearLocal();
+        // 降级缓存中的键无法按缓存名称筛选，整体清空
+        cacheManager.getDegradedCache().invalidateAll();
+    }
+
+    private <T> T timedLoadUnchecked(Object key, Callable<T> valueLoader) {
+        try {
+            return timedLoad(valueLoader);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private String degradedKey(Object key) {
+        return name + "::" + key;
+    }
+
+    private void fillLocal(String localKey, Object value, long generation) {
+        // 读取L2期间发生过失效时不回填，避免把旧值写回L1
+        if (value != null && invalidationGeneration.get() == generation) {
+            writeLocal(localCache, localKey, value);
+        }
+    }
+
+    /**
+     * 序列化后写入本地缓存，之后调用方再修改该对象也不会影响缓存；无法序列化时移除旧值，按未命中处理
+     */
+    private void writeLocal(LocalCache<String, byte[]> target, String localKey, Object value) {
+        byte[] bytes;
+        try {
+            bytes = localSerializer.serialize(value);
+        } catch (SerializationException e) {
+            bytes = null;
+        }
+        if (bytes != null) {
+            target.put(localKey, bytes);
+        } else {
+            target.invalidate(localKey);
+        }
+    }
+
+    /**
+     * 从本地缓存读取并反序列化出新对象，无法反序列化时移除并按未命中处理
+     */
+    private Object readLocal(LocalCache<String, byte[]> source, String localKey) {
+        byte[] bytes = source.get(localKey);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return localSerializer.deserialize(bytes);
+        } catch (SerializationException e) {
+            source.invalidate(localKey);
+            return null;
+        }
+    }
+
+    private void evictLocalAndPublish(Object key) {
+        if (localCache != null) {
+            String localKey = toLocalKey(key);
+            evictLocal(localKey);
+            cacheManager.publishEvict(name, localKey);
+        }
+    }
+
+    private void clearLocalAndPublish() {
+        if (localCache != null) {
+            clearLocal();
+            cacheManager.publishClear(name);
+        }
+    }
+
+    /**
+     * L1统一使用字符串键，保证与广播消息中的键一致（如Long类型的ID）
+     */
+    private static String toLocalKey(Object key) {
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,290 @@
+package com.luoye.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 二级缓存管理器
+ * 以RedisCacheManager作为L2，为配置了本地缓存规格的缓存名称增加进程内L1，
+ * 并通过Redis发布订阅在节点间同步L1失效。
+ * Redis熔断期间不访问L2：读写只使用L1，未配置L1的缓存使用共享的降级缓存；
+ * 未能执行的L2失效暂存下来，恢复后补执行
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager implements MessageListener {
+
+    /**
+     * L1失效广播频道
+     */
+    public static final String INVALIDATION_CHANNEL = "cache:l1_invalidation";
+
+    private static final String OP_EVICT = "E";
+    private static final String OP_CLEAR = "C";
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 熔断期间最多暂存的待补失效键数量，超出后改为恢复时清空整个缓存
+     */
+    private static final int MAX_DEFERRED_EVICTIONS = 10000;
+
+    private final RedisCacheManager redisCacheManager;
+    private final Map<String, LocalCacheSpec> localCacheSpecs;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final CacheMetrics cacheMetrics;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final RedisSerializer<Object> localSerializer;
+    private final Map<String, TwoLevelCache> twoLevelCaches = new ConcurrentHashMap<>();
+
+    /**
+     * 熔断期间未配置L1的缓存共用的降级缓存，键为"缓存名称::键"
+     */
+    private final LocalCache<String, byte[]> degradedCache;
+
+    /**
+     * 熔断期间未能执行的L2单键失效和整体清空
+     */
+    private final Map<String, Set<Object>> deferredEvictions = new ConcurrentHashMap<>();
+    private final Set<String> deferredClears = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger deferredCount = new AtomicInteger();
+
+    /**
+     * 当前节点标识，用于忽略自己发出的广播
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * @param redisCacheManager L2缓存管理器（不开启事务感知，由本管理器统一包装）
+     * @param localCacheSpecs 各缓存名称的L1规格，未配置的缓存只使用L2
+     * @param redisTemplate 用于发布失效消息
+     * @param cacheMetrics 缓存统计注册表
+     * @param circuitBreaker Redis熔断器
+     * @param degradedSpec 熔断期间降级缓存的规格
+     * @param localSerializer L1和降级缓存的值序列化器，本地只保存序列化后的副本
+     */
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager,
+                                Map<String, LocalCacheSpec> localCacheSpecs,
+                                RedisTemplate<String, Object> redisTemplate,
+                                CacheMetrics cacheMetrics,
+                                RedisCircuitBreaker circuitBreaker,
+                                LocalCacheSpec degradedSpec,
+                                RedisSerializer<Object> localSerializer) {
+        this.redisCacheManager = redisCacheManager;
+        this.localCacheSpecs = localCacheSpecs;
+        this.redisTemplate = redisTemplate;
+        this.cacheMetrics = cacheMetrics;
+        this.circuitBreaker = circuitBreaker;
+        this.localSerializer = localSerializer;
+        this.degradedCache = new LocalCache<>(degradedSpec.getMaximumSize(), degradedSpec.getTtl().toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        List<Cache> caches = new ArrayList<>();
+        for (String cacheName : redisCacheManager.getCacheNames()) {
+            Cache cache = createTwoLevelCache(cacheName);
+            if (cache != null) {
+                caches.add(cache);
+            }
+        }
+        return caches;
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        return createTwoLevelCache(name);
+    }
+
+    private Cache createTwoLevelCache(String name) {
+        Cache redisCache = redisCacheManager.getCache(name);
+        if (redisCache == null) {
+            return null;
+        }
+        LocalCacheSpec spec = localCacheSpecs.get(name);
+        LocalCache<String, byte[]> localCache = spec != null
+                ? new LocalCache<>(spec.getMaximumSize(), spec.getTtl().toMillis(), TimeUnit.MILLISECONDS)
+                : null;
+        return twoLevelCaches.computeIfAbsent(name, n -> new TwoLevelCache(n, redisCache, localCache, localSerializer,
+                this, cacheMetrics, circuitBreaker));
+    }
+
+    LocalCache<String, byte[]> getDegradedCache() {
+        return degradedCache;
+    }
+
+    /**
+     * 暂存熔断期间未能执行的L2单键失效
+     * @param cacheName 缓存名称
+     * @param key 缓存键
+     */
+    void deferEvict(String cacheName, Object key) {
+        if (deferredClears.contains(cacheName)) {
+            return;
+        }
+        if (deferredCount.incrementAndGet() > MAX_DEFERRED_EVICTIONS) {
+            deferredClears.add(cacheName);
+            return;
+        }
+        deferredEvictions.computeIfAbsent(cacheName, n -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /**
+     * 暂存熔断期间未能执行的L2整体清空
+     * @param cacheName 缓存名称
+     */
+    void deferClear(String cacheName) {
+        deferredClears.add(cacheName);
+    }
+
+    /**
+     * Redis恢复后补执行熔断期间暂存的L2失效并广播给其他节点，同时清空降级缓存；执行失败的会重新暂存
+     * @return 补执行的失效数量
+     */
+    public int replayDeferredEvictions() {
+        int replayed = 0;
+        for (String cacheName : new ArrayList<>(deferredClears)) {
+            deferredClears.remove(cacheName);
+            deferredEvictions.remove(cacheName);
+            TwoLevelCache cache = twoLevelCaches.get(cacheName);
+            if (cache != null) {
+                cache.clear();
+                replayed++;
+            }
+        }
+        for (String cacheName : new ArrayList<>(deferredEvictions.keySet())) {
+            Set<Object> keys = deferredEvictions.remove(cacheName);
+            TwoLevelCache cache = twoLevelCaches.get(cacheName);
+            if (keys == null || cache == null) {
+                continue;
+            }
+            for (Object key : keys) {
+                cache.evict(key);
+                replayed++;
+            }
+        }
+        deferredCount.set(0);
+        degradedCache.invalidateAll();
+        return replayed;
+    }
+
+    /**
+     * 是否还有待补执行的L2失效
+     */
+    public boolean hasDeferredEvictions() {
+        return !deferredClears.isEmpty() || !deferredEvictions.isEmpty();
+    }
+
+    /**
+     * 降级缓存和待补失效的统计
+     * @return 统计快照
+     */
+    public Map<String, Object> getDegradedStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("localSize", degradedCache.size());
+        stats.put("deferredEvictions", deferredEvictions.values().stream().mapToInt(Set::size).sum());
+        stats.put("deferredClears", new ArrayList<>(deferredClears));
+        return stats;
+    }
+
+    /**
+     * 广播单键失效
+     * @param cacheName 缓存名称
+     * @param localKey L1中的键
+     */
+    void publishEvict(String cacheName, String localKey) {
+        publish(OP_EVICT + SEPARATOR + nodeId + SEPARATOR + cacheName + SEPARATOR + localKey);
+    }
+
+    /**
+     * 广播整体清空
+     * @param cacheName 缓存名称
+     */
+    void publishClear(String cacheName) {
+        publish(OP_CLEAR + SEPARATOR + nodeId + SEPARATOR + cacheName + SEPARATOR);
+    }
+
+    private void publish(String message) {
+        try {
+            byte[] channel = INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8);
+            byte[] body = message.getBytes(StandardCharsets.UTF_8);
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+        } catch (Exception e) {
+            // 广播失败时其他节点的L1依靠自身过期时间兜底
+            log.warn("广播本地缓存失效消息失败: {}, 错误: {}", message, e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他节点的失效广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|", 4);
+        if (parts.length < 4 || nodeId.equals(parts[1])) {
+            return;
+        }
+        TwoLevelCache cache = twoLevelCaches.get(parts[2]);
+        if (cache == null || !cache.isLocalEnabled()) {
+            return;
+        }
+        if (OP_CLEAR.equals(parts[0])) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(parts[3]);
+        }
+        log.debug("收到本地缓存失效广播，缓存: {}, 键: {}", parts[2], parts[3]);
+    }
+
+    /**
+     * 各缓存的分级命中统计
+     * @return 缓存名称到统计数据的映射
+     */
+    public Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        twoLevelCaches.forEach((name, cache) -> result.put(name, cache.getStatistics()));
+        return result;
+    }
+
+    /**
+     * L1本地缓存规格
+     */
+    public static class LocalCacheSpec {
+        private final int maximumSize;
+        private final Duration ttl;
+
+        public LocalCacheSpec(int maximumSize, Duration ttl) {
+            this.maximumSize = maximumSize;
+            this.ttl = ttl;
+        }
+
+        public int getMaximumSize() {
+            return maximumSize;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+    }
+}
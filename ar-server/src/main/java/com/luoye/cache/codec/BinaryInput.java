@@ -0,0 +1,50 @@
+package com.luoye.cache.codec;
+
+/**
+ * 字节输入游标，与BinaryOutput对应
+ */
+final class BinaryInput {
+
+    private final byte[] buffer;
+    private int position;
+
+    BinaryInput(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.position = offset;
+    }
+
+    byte readByte() {
+        checkRemaining(1);
+        return buffer[position++];
+    }
+
+    byte[] readBytes(int length) {
+        checkRemaining(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("变长整数格式错误");
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private void checkRemaining(int length) {
+        if (length < 0 || position + length > buffer.length) {
+            throw new IllegalStateException("缓存数据不完整");
+        }
+    }
+}
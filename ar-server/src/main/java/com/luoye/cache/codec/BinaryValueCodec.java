@@ -0,0 +1,176 @@
+package com.luoye.cache.codec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存值的紧凑二进制编解码器
+ * 数据格式：魔数 | 格式版本 | 单个/列表 | 类型编号 | [列表长度] | 记录...
+ * 只处理已注册结构的实体及同类实体组成的非空列表，其余值由调用方回退为JSON
+ */
+public class BinaryValueCodec {
+
+    /**
+     * 魔数，不是合法UTF-8文本的首字节，可与JSON数据可靠区分
+     */
+    static final byte MAGIC = (byte) 0xAC;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final byte KIND_SINGLE = 0;
+
+    private static final byte KIND_LIST = 1;
+
+    private final Map<Class<?>, EntitySchema<?>> schemasByType = new LinkedHashMap<>();
+
+    private final EntitySchema<?>[] schemasById = new EntitySchema<?>[128];
+
+    private final LongAdder binaryWrites = new LongAdder();
+    private final LongAdder jsonWrites = new LongAdder();
+    private final LongAdder binaryReads = new LongAdder();
+    private final LongAdder jsonReads = new LongAdder();
+
+    /**
+     * 注册实体结构
+     * @param schema 实体结构
+     * @return 当前编解码器
+     */
+    public BinaryValueCodec register(EntitySchema<?> schema) {
+        if (schemasById[schema.getTypeId()] != null) {
+            throw new IllegalArgumentException("类型编号重复: " + schema.getTypeId());
+        }
+        schemasById[schema.getTypeId()] = schema;
+        schemasByType.put(schema.getType(), schema);
+        return this;
+    }
+
+    /**
+     * 已注册的实体结构
+     * @return 按注册顺序排列的实体结构
+     */
+    public Collection<EntitySchema<?>> getSchemas() {
+        return Collections.unmodifiableCollection(schemasByType.values());
+    }
+
+    /**
+     * 判断数据是否为二进制格式
+     * @param bytes 缓存数据
+     * @return 是否为二进制格式
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == MAGIC;
+    }
+
+    /**
+     * 编码
+     * @param value 缓存值
+     * @return 编码结果，不支持的值返回null
+     */
+    public byte[] encode(Object value) {
+        if (value instanceof List<?> list) {
+            return encodeList(list);
+        }
+        EntitySchema<?> schema = value == null ? null : schemasByType.get(value.getClass());
+        if (schema == null) {
+            return null;
+        }
+        BinaryOutput out = new BinaryOutput(64);
+        writeHeader(out, KIND_SINGLE, schema);
+        schema.write(out, value);
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码
+     * @param bytes 二进制数据
+     * @return 实体或实体列表
+     */
+    public Object decode(byte[] bytes) {
+        BinaryInput in = new BinaryInput(bytes, 0);
+        if (in.readByte() != MAGIC) {
+            throw new IllegalStateException("不是二进制缓存数据");
+        }
+        byte formatVersion = in.readByte();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IllegalStateException("不支持的二进制缓存格式版本: " + formatVersion);
+        }
+        byte kind = in.readByte();
+        int typeId = in.readByte();
+        EntitySchema<?> schema = typeId > 0 ? schemasById[typeId] : null;
+        if (schema == null) {
+            throw new IllegalStateException("未注册的缓存类型编号: " + typeId);
+        }
+        if (kind == KIND_SINGLE) {
+            return schema.read(in);
+        }
+        int size = (int) in.readVarLong();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(schema.read(in));
+        }
+        return list;
+    }
+
+    /**
+     * 读写格式统计，双读迁移期间JSON读取降为0后即可下线JSON兼容
+     * @return 统计快照
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("binaryWrites", binaryWrites.sum());
+        stats.put("jsonWrites", jsonWrites.sum());
+        stats.put("binaryReads", binaryReads.sum());
+        stats.put("jsonReads", jsonReads.sum());
+        Map<String, Object> schemas = new LinkedHashMap<>();
+        schemasByType.values().forEach(schema ->
+                schemas.put(schema.getType().getSimpleName(), "typeId=" + schema.getTypeId() + ", version=" + schema.getVersion()));
+        stats.put("schemas", schemas);
+        return stats;
+    }
+
+    void recordWrite(boolean binary) {
+        (binary ? binaryWrites : jsonWrites).increment();
+    }
+
+    void recordRead(boolean binary) {
+        (binary ? binaryReads : jsonReads).increment();
+    }
+
+    /**
+     * 列表中所有元素必须为同一已注册类型，空列表无法确定类型，交给JSON
+     */
+    private byte[] encodeList(List<?> list) {
+        if (list.isEmpty() || list.get(0) == null) {
+            return null;
+        }
+        Class<?> elementType = list.get(0).getClass();
+        EntitySchema<?> schema = schemasByType.get(elementType);
+        if (schema == null) {
+            return null;
+        }
+        for (Object element : list) {
+            if (element == null || element.getClass() != elementType) {
+                return null;
+            }
+        }
+        BinaryOutput out = new BinaryOutput(16 + list.size() * 64);
+        writeHeader(out, KIND_LIST, schema);
+        out.writeVarLong(list.size());
+        for (Object element : list) {
+            schema.write(out, element);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeHeader(BinaryOutput out, byte kind, EntitySchema<?> schema) {
+        out.writeByte(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(kind);
+        out.writeByte(schema.getTypeId());
+    }
+}
@@ -0,0 +1,90 @@
+package com.luoye.cache.codec;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 支持二进制与JSON双读的Redis值序列化器
+ * 读取时按首字节判断格式，两种格式始终都能读取；写入格式由配置决定。
+ * 迁移步骤：先以json写入格式上线全部节点，再切换为binary，旧JSON数据随过期自然淘汰
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private final BinaryValueCodec codec;
+
+    private final RedisSerializer<Object> jsonSerializer;
+
+    private final boolean writeBinary;
+
+    /**
+     * 是否计入编解码器的读写格式统计
+     */
+    private final boolean recordStats;
+
+    /**
+     * @param codec 二进制编解码器
+     * @param jsonSerializer 原有的JSON序列化器，用于非实体值和旧数据
+     * @param writeBinary 是否以二进制格式写入
+     */
+    public CompactRedisSerializer(BinaryValueCodec codec, RedisSerializer<Object> jsonSerializer, boolean writeBinary) {
+        this(codec, jsonSerializer, writeBinary, true);
+    }
+
+    private CompactRedisSerializer(BinaryValueCodec codec, RedisSerializer<Object> jsonSerializer,
+                                   boolean writeBinary, boolean recordStats) {
+        this.codec = codec;
+        this.jsonSerializer = jsonSerializer;
+        this.writeBinary = writeBinary;
+        this.recordStats = recordStats;
+    }
+
+    /**
+     * 本地缓存保存值副本用的序列化器：只在进程内使用，实体始终写为二进制，不计入Redis读写格式统计
+     * @param codec 二进制编解码器
+     * @param jsonSerializer JSON序列化器，用于非实体值
+     * @return 序列化器
+     */
+    public static CompactRedisSerializer forLocalCopies(BinaryValueCodec codec, RedisSerializer<Object> jsonSerializer) {
+        return new CompactRedisSerializer(codec, jsonSerializer, true, false);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (writeBinary && value != null) {
+            byte[] bytes;
+            try {
+                bytes = codec.encode(value);
+            } catch (RuntimeException e) {
+                throw new SerializationException("二进制缓存编码失败: " + value.getClass().getName(), e);
+            }
+            if (bytes != null) {
+                if (recordStats) {
+                    codec.recordWrite(true);
+                }
+                return bytes;
+            }
+        }
+        if (recordStats) {
+            codec.recordWrite(false);
+        }
+        return jsonSerializer.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (BinaryValueCodec.isBinary(bytes)) {
+            if (recordStats) {
+                codec.recordRead(true);
+            }
+            try {
+                return codec.decode(bytes);
+            } catch (RuntimeException e) {
+                throw new SerializationException("二进制缓存解码失败", e);
+            }
+        }
+        if (recordStats && bytes != null && bytes.length > 0) {
+            codec.recordRead(false);
+        }
+        return jsonSerializer.deserialize(bytes);
+    }
+}
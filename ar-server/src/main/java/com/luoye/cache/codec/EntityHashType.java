@@ -0,0 +1,124 @@
+package com.luoye.cache.codec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 以Redis哈希存储的实体缓存结构
+ * 每个字段对应哈希中的一个字段，值为文本，读取时可以只取需要的字段。
+ * 字段定义复用二进制编码的实体结构；另有版本字段，与结构版本不一致的哈希视为未命中
+ * @param <T> 实体类型
+ */
+public final class EntityHashType<T> {
+
+    /**
+     * 版本字段名，哈希存在时一定有该字段，用于区分"哈希不存在"和"字段值为null"
+     */
+    public static final String VERSION_FIELD = "_v";
+
+    private final String keyPrefix;
+    private final EntitySchema<T> schema;
+    private final Function<T, Long> idGetter;
+    private final Function<Long, String> tagOf;
+    private final Set<String> excludedFields;
+    private final List<String> storedFields;
+
+    /**
+     * @param keyPrefix 缓存键前缀，如"doctor_hash::"
+     * @param schema 实体结构
+     * @param idGetter 实体ID读取方法
+     * @param tagOf 实体对应的缓存标签，实体修改时按标签失效
+     * @param excludedFields 不写入缓存的字段，如密码
+     */
+    public EntityHashType(String keyPrefix, EntitySchema<T> schema, Function<T, Long> idGetter,
+                          Function<Long, String> tagOf, String... excludedFields) {
+        this.keyPrefix = keyPrefix;
+        this.schema = schema;
+        this.idGetter = idGetter;
+        this.tagOf = tagOf;
+        this.excludedFields = Set.of(excludedFields);
+        List<String> stored = new ArrayList<>();
+        for (String name : schema.getFieldNames()) {
+            if (!this.excludedFields.contains(name)) {
+                stored.add(name);
+            }
+        }
+        this.storedFields = Collections.unmodifiableList(stored);
+    }
+
+    public String key(Long id) {
+        return keyPrefix + id;
+    }
+
+    public String tag(Long id) {
+        return tagOf.apply(id);
+    }
+
+    public Long idOf(T entity) {
+        return idGetter.apply(entity);
+    }
+
+    public String version() {
+        return String.valueOf(schema.getVersion());
+    }
+
+    /**
+     * 校验字段名并生成HMGET的字段列表，版本字段在第一个
+     * @param fields 需要读取的字段
+     * @return 字段列表
+     */
+    public List<String> readFields(String... fields) {
+        List<String> names = new ArrayList<>(fields.length + 1);
+        names.add(VERSION_FIELD);
+        for (String field : fields) {
+            if (!schema.hasField(field) || excludedFields.contains(field)) {
+                throw new IllegalArgumentException("哈希缓存中没有字段: " + schema.getType().getSimpleName() + "." + field
+                        + "，可用字段: " + storedFields);
+            }
+            names.add(field);
+        }
+        return names;
+    }
+
+    /**
+     * 实体转为哈希字段，null值不写入
+     * @param entity 实体
+     * @return 字段名到文本的映射
+     */
+    public Map<String, String> toHash(T entity) {
+        Map<String, String> hash = new LinkedHashMap<>();
+        hash.put(VERSION_FIELD, version());
+        for (String name : storedFields) {
+            String text = schema.formatField(entity, name);
+            if (text != null) {
+                hash.put(name, text);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 由HMGET结果构造只填充了所读字段的实体
+     * @param fields readFields返回的字段列表
+     * @param values 与字段一一对应的值
+     * @return 实体，哈希不存在或版本不一致时返回null
+     */
+    public T fromFields(List<String> fields, List<String> values) {
+        if (values == null || values.isEmpty() || !version().equals(values.get(0))) {
+            return null;
+        }
+        T entity = schema.newInstance();
+        for (int i = 1; i < fields.size() && i < values.size(); i++) {
+            String text = values.get(i);
+            if (text != null) {
+                schema.parseField(entity, fields.get(i), text);
+            }
+        }
+        return entity;
+    }
+}
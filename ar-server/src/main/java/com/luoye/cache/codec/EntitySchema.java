@@ -0,0 +1,165 @@
+package com.luoye.cache.codec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 实体的二进制编码结构
+ * 字段按声明顺序编码，不写字段名；字段数量即结构版本。
+ * 演进规则：只能在末尾追加字段，不能删除或调整顺序（废弃字段保留位置、写入null）。
+ * 旧版本数据缺少的新字段保持默认值，新版本数据多出的字段按类型标记跳过
+ * @param <T> 实体类型
+ */
+public final class EntitySchema<T> {
+
+    private final int typeId;
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final List<Field<T>> fields = new ArrayList<>();
+    private final Map<String, Field<T>> fieldsByName = new HashMap<>();
+
+    private EntitySchema(int typeId, Class<T> type, Supplier<T> factory) {
+        if (typeId <= 0 || typeId > 0x7F) {
+            throw new IllegalArgumentException("类型编号必须在1到127之间: " + typeId);
+        }
+        this.typeId = typeId;
+        this.type = type;
+        this.factory = factory;
+    }
+
+    /**
+     * 创建实体结构
+     * @param typeId 类型编号，写入数据中，分配后不能修改
+     * @param type 实体类
+     * @param factory 实体构造方法
+     * @return 实体结构
+     * @param <T> 实体类型
+     */
+    public static <T> EntitySchema<T> of(int typeId, Class<T> type, Supplier<T> factory) {
+        return new EntitySchema<>(typeId, type, factory);
+    }
+
+    /**
+     * 追加字段
+     * @param name 字段名，仅用于排查问题
+     * @param fieldType 字段类型
+     * @param getter 读取方法
+     * @param setter 写入方法
+     * @return 当前结构
+     * @param <V> 字段值类型
+     */
+    @SuppressWarnings("unchecked")
+    public <V> EntitySchema<T> field(String name, FieldType fieldType,
+                                     Function<T, V> getter, BiConsumer<T, V> setter) {
+        Field<T> field = new Field<>(name, fieldType, (Function<T, Object>) getter, (BiConsumer<T, Object>) setter);
+        if (fieldsByName.putIfAbsent(name, field) != null) {
+            throw new IllegalArgumentException("字段名重复: " + type.getSimpleName() + "." + name);
+        }
+        fields.add(field);
+        return this;
+    }
+
+    public int getTypeId() {
+        return typeId;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * 结构版本，等于字段数量
+     */
+    public int getVersion() {
+        return fields.size();
+    }
+
+    public List<String> getFieldNames() {
+        List<String> names = new ArrayList<>(fields.size());
+        for (Field<T> field : fields) {
+            names.add(field.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    boolean hasField(String name) {
+        return fieldsByName.containsKey(name);
+    }
+
+    /**
+     * 读取字段并转为哈希字段文本
+     * @return 文本，字段值为null时返回null
+     */
+    String formatField(T entity, String name) {
+        Field<T> field = fieldsByName.get(name);
+        Object fieldValue = field.getter.apply(entity);
+        return fieldValue == null ? null : field.fieldType.format(fieldValue);
+    }
+
+    /**
+     * 解析哈希字段文本并写入实体
+     */
+    void parseField(T entity, String name, String text) {
+        Field<T> field = fieldsByName.get(name);
+        field.setter.accept(entity, field.fieldType.parse(text));
+    }
+
+    T newInstance() {
+        return factory.get();
+    }
+
+    void write(BinaryOutput out, Object value) {
+        T entity = type.cast(value);
+        out.writeVarLong(fields.size());
+        for (Field<T> field : fields) {
+            Object fieldValue = field.getter.apply(entity);
+            if (fieldValue == null) {
+                out.writeByte(FieldType.NULL_TAG);
+            } else {
+                out.writeByte(field.fieldType.tag());
+                field.fieldType.write(out, fieldValue);
+            }
+        }
+    }
+
+    T read(BinaryInput in) {
+        T entity = factory.get();
+        int fieldCount = (int) in.readVarLong();
+        for (int i = 0; i < fieldCount; i++) {
+            byte tag = in.readByte();
+            if (tag == FieldType.NULL_TAG) {
+                continue;
+            }
+            FieldType encodedType = FieldType.ofTag(tag);
+            Object fieldValue = encodedType.read(in);
+            if (i < fields.size()) {
+                Field<T> field = fields.get(i);
+                if (field.fieldType != encodedType) {
+                    throw new IllegalStateException("字段类型不匹配: " + type.getSimpleName() + "." + field.name);
+                }
+                field.setter.accept(entity, fieldValue);
+            }
+        }
+        return entity;
+    }
+
+    private static final class Field<T> {
+        private final String name;
+        private final FieldType fieldType;
+        private final Function<T, Object> getter;
+        private final BiConsumer<T, Object> setter;
+
+        private Field(String name, FieldType fieldType, Function<T, Object> getter, BiConsumer<T, Object> setter) {
+            this.name = name;
+            this.fieldType = fieldType;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
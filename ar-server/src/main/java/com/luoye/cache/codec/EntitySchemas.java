@@ -0,0 +1,132 @@
+package com.luoye.cache.codec;
+
+import com.luoye.cache.CacheTags;
+import com.luoye.entity.*;
+import com.luoye.vo.SlotVO;
+
+/**
+ * 缓存实体的二进制结构定义
+ * 类型编号和字段顺序一经上线不可修改，新增字段只能追加在末尾
+ */
+public final class EntitySchemas {
+
+    public static final EntitySchema<Admin> ADMIN = EntitySchema.of(1, Admin.class, Admin::new)
+            .field("id", FieldType.LONG, Admin::getId, Admin::setId)
+            .field("name", FieldType.STRING, Admin::getName, Admin::setName)
+            .field("password", FieldType.STRING, Admin::getPassword, Admin::setPassword)
+            .field("gender", FieldType.INT, Admin::getGender, Admin::setGender)
+            .field("card", FieldType.STRING, Admin::getCard, Admin::setCard)
+            .field("phone", FieldType.STRING, Admin::getPhone, Admin::setPhone)
+            .field("createTime", FieldType.LOCAL_DATE_TIME, Admin::getCreateTime, Admin::setCreateTime)
+            .field("updateTime", FieldType.LOCAL_DATE_TIME, Admin::getUpdateTime, Admin::setUpdateTime);
+
+    public static final EntitySchema<Dept> DEPT = EntitySchema.of(2, Dept.class, Dept::new)
+            .field("id", FieldType.LONG, Dept::getId, Dept::setId)
+            .field("name", FieldType.STRING, Dept::getName, Dept::setName)
+            .field("type", FieldType.INT, Dept::getType, Dept::setType)
+            .field("location", FieldType.STRING, Dept::getLocation, Dept::setLocation)
+            .field("status", FieldType.INT, Dept::getStatus, Dept::setStatus)
+            .field("description", FieldType.STRING, Dept::getDescription, Dept::setDescription)
+            .field("directorId", FieldType.LONG, Dept::getDirectorId, Dept::setDirectorId)
+            .field("createTime", FieldType.LOCAL_DATE_TIME, Dept::getCreateTime, Dept::setCreateTime)
+            .field("updateTime", FieldType.LOCAL_DATE_TIME, Dept::getUpdateTime, Dept::setUpdateTime);
+
+    public static final EntitySchema<Doctor> DOCTOR = EntitySchema.of(3, Doctor.class, Doctor::new)
+            .field("id", FieldType.LONG, Doctor::getId, Doctor::setId)
+            .field("name", FieldType.STRING, Doctor::getName, Doctor::setName)
+            .field("phone", FieldType.STRING, Doctor::getPhone, Doctor::setPhone)
+            .field("password", FieldType.STRING, Doctor::getPassword, Doctor::setPassword)
+            .field("gender", FieldType.INT, Doctor::getGender, Doctor::setGender)
+            .field("card", FieldType.STRING, Doctor::getCard, Doctor::setCard)
+            .field("status", FieldType.INT, Doctor::getStatus, Doctor::setStatus)
+            .field("post", FieldType.INT, Doctor::getPost, Doctor::setPost)
+            .field("introduction", FieldType.STRING, Doctor::getIntroduction, Doctor::setIntroduction)
+            .field("deptId", FieldType.LONG, Doctor::getDeptId, Doctor::setDeptId)
+            .field("createTime", FieldType.LOCAL_DATE_TIME, Doctor::getCreateTime, Doctor::setCreateTime)
+            .field("updateTime", FieldType.LOCAL_DATE_TIME, Doctor::getUpdateTime, Doctor::setUpdateTime);
+
+    public static final EntitySchema<Patient> PATIENT = EntitySchema.of(4, Patient.class, Patient::new)
+            .field("id", FieldType.LONG, Patient::getId, Patient::setId)
+            .field("name", FieldType.STRING, Patient::getName, Patient::setName)
+            .field("password", FieldType.STRING, Patient::getPassword, Patient::setPassword)
+            .field("gender", FieldType.INT, Patient::getGender, Patient::setGender)
+            .field("card", FieldType.STRING, Patient::getCard, Patient::setCard)
+            .field("phone", FieldType.STRING, Patient::getPhone, Patient::setPhone)
+            .field("email", FieldType.STRING, Patient::getEmail, Patient::setEmail)
+            .field("address", FieldType.STRING, Patient::getAddress, Patient::setAddress)
+            .field("createTime", FieldType.LOCAL_DATE_TIME, Patient::getCreateTime, Patient::setCreateTime)
+            .field("updateTime", FieldType.LOCAL_DATE_TIME, Patient::getUpdateTime, Patient::setUpdateTime);
+
+    public static final EntitySchema<Slot> SLOT = EntitySchema.of(5, Slot.class, Slot::new)
+            .field("id", FieldType.LONG, Slot::getId, Slot::setId)
+            .field("deptId", FieldType.LONG, Slot::getDeptId, Slot::setDeptId)
+            .field("doctorId", FieldType.LONG, Slot::getDoctorId, Slot::setDoctorId)
+            .field("scheduleDate", FieldType.LOCAL_DATE, Slot::getScheduleDate, Slot::setScheduleDate)
+            .field("timePeriod", FieldType.STRING, Slot::getTimePeriod, Slot::setTimePeriod)
+            .field("feeAmount", FieldType.INT, Slot::getFeeAmount, Slot::setFeeAmount)
+            .field("totalCount", FieldType.INT, Slot::getTotalCount, Slot::setTotalCount)
+            .field("bookedCount", FieldType.INT, Slot::getBookedCount, Slot::setBookedCount)
+            .field("status", FieldType.INT, Slot::getStatus, Slot::setStatus)
+            .field("createTime", FieldType.LOCAL_DATE_TIME, Slot::getCreateTime, Slot::setCreateTime)
+            .field("updateTime", FieldType.LOCAL_DATE_TIME, Slot::getUpdateTime, Slot::setUpdateTime);
+
+    public static final EntitySchema<Order> ORDER = EntitySchema.of(6, Order.class, Order::new)
+            .field("id", FieldType.LONG, Order::getId, Order::setId)
+            .field("orderNo", FieldType.STRING, Order::getOrderNo, Order::setOrderNo)
+            .field("patientId", FieldType.LONG, Order::getPatientId, Order::setPatientId)
+            .field("slotId", FieldType.LONG, Order::getSlotId, Order::setSlotId)
+            .field("doctorId", FieldType.LONG, Order::getDoctorId, Order::setDoctorId)
+            .field("deptId", FieldType.LONG, Order::getDeptId, Order::setDeptId)
+            .field("feeAmount", FieldType.INT, Order::getFeeAmount, Order::setFeeAmount)
+            .field("orderStatus", FieldType.INT, Order::getOrderStatus, Order::setOrderStatus)
+            .field("paymentTime", FieldType.LOCAL_DATE_TIME, Order::getPaymentTime, Order::setPaymentTime)
+            .field("checkInTime", FieldType.LOCAL_DATE_TIME, Order::getCheckInTime, Order::setCheckInTime)
+            .field("cancelTime", FieldType.LOCAL_DATE_TIME, Order::getCancelTime, Order::setCancelTime)
+            .field("isEmergency", FieldType.INT, Order::getIsEmergency, Order::setIsEmergency)
+            .field("cancelReason", FieldType.STRING, Order::getCancelReason, Order::setCancelReason)
+            .field("createTime", FieldType.LOCAL_DATE_TIME, Order::getCreateTime, Order::setCreateTime)
+            .field("updateTime", FieldType.LOCAL_DATE_TIME, Order::getUpdateTime, Order::setUpdateTime);
+
+    public static final EntitySchema<SlotVO> SLOT_VO = EntitySchema.of(7, SlotVO.class, SlotVO::new)
+            .field("id", FieldType.LONG, SlotVO::getId, SlotVO::setId)
+            .field("deptId", FieldType.LONG, SlotVO::getDeptId, SlotVO::setDeptId)
+            .field("doctorId", FieldType.LONG, SlotVO::getDoctorId, SlotVO::setDoctorId)
+            .field("doctorName", FieldType.STRING, SlotVO::getDoctorName, SlotVO::setDoctorName)
+            .field("doctorPost", FieldType.INT, SlotVO::getDoctorPost, SlotVO::setDoctorPost)
+            .field("feeAmount", FieldType.INT, SlotVO::getFeeAmount, SlotVO::setFeeAmount)
+            .field("deptName", FieldType.STRING, SlotVO::getDeptName, SlotVO::setDeptName)
+            .field("scheduleDate", FieldType.LOCAL_DATE, SlotVO::getScheduleDate, SlotVO::setScheduleDate)
+            .field("timePeriod", FieldType.STRING, SlotVO::getTimePeriod, SlotVO::setTimePeriod)
+            .field("status", FieldType.INT, SlotVO::getStatus, SlotVO::setStatus)
+            .field("doctorIntroduction", FieldType.STRING, SlotVO::getDoctorIntroduction, SlotVO::setDoctorIntroduction);
+
+    private EntitySchemas() {
+    }
+
+    /**
+     * 医生哈希缓存，用于只读取姓名、职称等少量字段的场景；不缓存密码
+     */
+    public static final EntityHashType<Doctor> DOCTOR_HASH = new EntityHashType<>("doctor_hash::", DOCTOR,
+            Doctor::getId, CacheTags::doctor, "password");
+
+    /**
+     * 科室哈希缓存
+     */
+    public static final EntityHashType<Dept> DEPT_HASH = new EntityHashType<>("dept_hash::", DEPT,
+            Dept::getId, CacheTags::dept);
+
+    /**
+     * 创建注册了全部缓存实体结构的编解码器
+     * @return 编解码器
+     */
+    public static BinaryValueCodec defaultCodec() {
+        return new BinaryValueCodec()
+                .register(ADMIN)
+                .register(DEPT)
+                .register(DOCTOR)
+                .register(PATIENT)
+                .register(SLOT)
+                .register(ORDER)
+                .register(SLOT_VO);
+    }
+}
@@ -0,0 +1,147 @@
+package com.luoye.cache.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * 二进制编码支持的字段类型
+ * 每个字段值前写一个类型标记字节，0表示null；解码端遇到未知的新字段可按标记跳过
+ */
+public enum FieldType {
+
+    LONG(1) {
+        @Override
+        void write(BinaryOutput out, Object value) {
+            out.writeVarLong(BinaryOutput.zigZag((Long) value));
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            return BinaryInput.unZigZag(in.readVarLong());
+        }
+    },
+
+    INT(2) {
+        @Override
+        void write(BinaryOutput out, Object value) {
+            out.writeVarLong(BinaryOutput.zigZag((Integer) value));
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            return (int) BinaryInput.unZigZag(in.readVarLong());
+        }
+    },
+
+    STRING(3) {
+        @Override
+        void write(BinaryOutput out, Object value) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            int length = (int) in.readVarLong();
+            return new String(in.readBytes(length), StandardCharsets.UTF_8);
+        }
+    },
+
+    /**
+     * 以纪元日存储
+     */
+    LOCAL_DATE(4) {
+        @Override
+        void write(BinaryOutput out, Object value) {
+            out.writeVarLong(BinaryOutput.zigZag(((LocalDate) value).toEpochDay()));
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            return LocalDate.ofEpochDay(BinaryInput.unZigZag(in.readVarLong()));
+        }
+    },
+
+    /**
+     * 以纪元日加当日纳秒存储，不丢失精度
+     */
+    LOCAL_DATE_TIME(5) {
+        @Override
+        void write(BinaryOutput out, Object value) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            out.writeVarLong(BinaryOutput.zigZag(dateTime.toLocalDate().toEpochDay()));
+            out.writeVarLong(dateTime.toLocalTime().toNanoOfDay());
+        }
+
+        @Override
+        Object read(BinaryInput in) {
+            LocalDate date = LocalDate.ofEpochDay(BinaryInput.unZigZag(in.readVarLong()));
+            return LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.readVarLong()));
+        }
+    };
+
+    /**
+     * null值的类型标记
+     */
+    static final byte NULL_TAG = 0;
+
+    private final byte tag;
+
+    FieldType(int tag) {
+        this.tag = (byte) tag;
+    }
+
+    byte tag() {
+        return tag;
+    }
+
+    abstract void write(BinaryOutput out, Object value);
+
+    abstract Object read(BinaryInput in);
+
+    /**
+     * 转为Redis哈希字段的文本，日期时间使用ISO格式
+     * @param value 字段值
+     * @return 文本
+     */
+    String format(Object value) {
+        return value.toString();
+    }
+
+    /**
+     * 解析Redis哈希字段的文本
+     * @param text 文本
+     * @return 字段值
+     */
+    Object parse(String text) {
+        switch (this) {
+            case LONG:
+                return Long.valueOf(text);
+            case INT:
+                return Integer.valueOf(text);
+            case LOCAL_DATE:
+                return LocalDate.parse(text);
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(text);
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * 根据类型标记查找字段类型
+     * @param tag 类型标记
+     * @return 字段类型
+     */
+    static FieldType ofTag(byte tag) {
+        for (FieldType type : values()) {
+            if (type.tag == tag) {
+                return type;
+            }
+        }
+        throw new IllegalStateException("未知的字段类型标记: " + tag);
+    }
+}
@@ -1,6 +1,7 @@
 package com.luoye.config;
 
 import com.luoye.interceptor.JwtInterceptor;
+import com.luoye.interceptor.RateLimitInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -15,6 +16,9 @@ public class JwtInterceptorConfig implements WebMvcConfigurer {
     @Autowired
     private JwtInterceptor jwtInterceptor;
 
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         // 添加JWT拦截器，指定需要验证的路径
@@ -31,6 +35,8 @@ public class JwtInterceptorConfig implements WebMvcConfigurer {
                 .addPathPatterns("/dept/**")
                 // 订单相关路径
                 .addPathPatterns("/order/**")
+                // 运行指标路径
+                .addPathPatterns("/metrics/**")
                 // 完整排除所有Swagger/Knife4j相关路径
                 .excludePathPatterns("/v3/api-docs/**")
                 .excludePathPatterns("/swagger-ui/**")
@@ -50,5 +56,15 @@ public class JwtInterceptorConfig implements WebMvcConfigurer {
                 .excludePathPatterns("/doctor/forgot-password")
                 .excludePathPatterns("/admin/register")
                 .excludePathPatterns("/admin/login");
+
+        // 限流拦截器在JWT拦截器之后注册，按已验证的身份限流；登录和注册也要经过，未登录时按IP限流
+        registry.addInterceptor(rateLimitInterceptor)
+                .addPathPatterns("/**")
+                .excludePathPatterns("/v3/api-docs/**")
+                .excludePathPatterns("/swagger-ui/**")
+                .excludePathPatterns("/doc.html")
+                .excludePathPatterns("/webjars/**")
+                .excludePathPatterns("/swagger-resources/**")
+                .excludePathPatterns("/health/**");
     }
 }
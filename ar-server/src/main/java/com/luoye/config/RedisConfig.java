@@ -1,7 +1,18 @@
 package com.luoye.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luoye.cache.CacheMetrics;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.cache.MeteredRedisSerializer;
+import com.luoye.cache.RedisCircuitBreaker;
+import com.luoye.cache.TokenRevocationList;
+import com.luoye.cache.TwoLevelCacheManager;
+import com.luoye.cache.TwoLevelCacheManager.LocalCacheSpec;
+import com.luoye.cache.codec.BinaryValueCodec;
+import com.luoye.cache.codec.CompactRedisSerializer;
+import com.luoye.cache.codec.EntitySchemas;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,6 +21,8 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
@@ -24,18 +37,57 @@ import java.util.HashMap;
 @EnableCaching//启用缓存
 public class RedisConfig {
 
+    /**
+     * 是否启用进程内L1缓存
+     */
+    @Value("${cache.local.enabled:true}")
+    private boolean localCacheEnabled;
+
+    /**
+     * 缓存值写入格式：json或binary，两种格式始终都可读取
+     */
+    @Value("${cache.codec.write-format:json}")
+    private String codecWriteFormat;
+
+    /**
+     * Redis熔断期间进程内降级缓存的容量和过期时间
+     */
+    @Value("${cache.degraded.local-max-size:10000}")
+    private int degradedMaxSize;
+
+    @Value("${cache.degraded.local-ttl-seconds:60}")
+    private long degradedTtlSeconds;
+
+    /**
+     * 创建缓存值二进制编解码器
+     * @return BinaryValueCodec对象
+     */
+    @Bean
+    public BinaryValueCodec binaryValueCodec() {
+        return EntitySchemas.defaultCodec();
+    }
 
     /**
-     * 创建RedisCacheManager对象
+     * 创建二级缓存管理器，L1为进程内缓存，L2为Redis
      * @param factory Redis连接工厂
      * @param  redisObjectMapper 专门用于Redis的ObjectMapper
-     * @return RedisCacheManager对象
+     * @param redisTemplate 用于广播L1失效消息
+     * @param binaryValueCodec 缓存值二进制编解码器
+     * @param cacheMetrics 缓存统计注册表
+     * @param redisCircuitBreaker Redis熔断器
+     * @return TwoLevelCacheManager对象
      */
     @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory factory, @Qualifier("redisObjectMapper") ObjectMapper redisObjectMapper) {
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory factory,
+                                             @Qualifier("redisObjectMapper") ObjectMapper redisObjectMapper,
+                                             RedisTemplate<String, Object> redisTemplate,
+                                             BinaryValueCodec binaryValueCodec,
+                                             CacheMetrics cacheMetrics,
+                                             RedisCircuitBreaker redisCircuitBreaker) {
 
-        // 使用配置好的ObjectMapper创建序列化器
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(redisObjectMapper);
+        // 使用配置好的ObjectMapper创建JSON序列化器，作为非实体值和旧数据的兼容格式；外层统计各缓存的读写字节数
+        MeteredRedisSerializer serializer = new MeteredRedisSerializer(new CompactRedisSerializer(binaryValueCodec,
+                new GenericJackson2JsonRedisSerializer(redisObjectMapper), isBinaryWriteFormat()), cacheMetrics);
 
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofHours(2))//过期时间为2小时
@@ -70,30 +122,75 @@ public class RedisConfig {
         //排队信息
         configMap.put("queue_doctor",defaultConfig.entryTtl(Duration.ofMinutes(10)));//缓存时间为10分钟
 
-        return RedisCacheManager.builder(factory)
+        // L2不单独开启事务感知，由二级缓存管理器统一包装，保证L1、L2和失效广播都在事务提交后执行
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(factory)
                 .cacheDefaults(defaultConfig)//设置默认缓存配置
                 .withInitialCacheConfigurations(configMap)//设置特殊缓存配置
-                .transactionAware()//添加事务感知功能
-                .build();//创建RedisCacheManager对象并返回
+                .build();
+        redisCacheManager.initializeCaches();
+
+        //L1本地缓存配置，只用于读多写少的缓存；号源变化较频繁，本地只保留很短时间
+        HashMap<String, LocalCacheSpec> localSpecMap = new HashMap<>();
+        if (localCacheEnabled) {
+            localSpecMap.put("admin", new LocalCacheSpec(1000, Duration.ofMinutes(5)));
+            localSpecMap.put("dept", new LocalCacheSpec(500, Duration.ofMinutes(10)));
+            localSpecMap.put("dept_list", new LocalCacheSpec(16, Duration.ofMinutes(10)));
+            localSpecMap.put("doctor", new LocalCacheSpec(2000, Duration.ofMinutes(10)));
+            localSpecMap.put("patient", new LocalCacheSpec(5000, Duration.ofMinutes(2)));
+            localSpecMap.put("slot", new LocalCacheSpec(5000, Duration.ofSeconds(30)));
+        }
+
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(redisCacheManager, localSpecMap, redisTemplate,
+                cacheMetrics, redisCircuitBreaker,
+                new LocalCacheSpec(degradedMaxSize, Duration.ofSeconds(degradedTtlSeconds)),
+                CompactRedisSerializer.forLocalCopies(binaryValueCodec,
+                        new GenericJackson2JsonRedisSerializer(redisObjectMapper)));
+        cacheManager.setTransactionAware(true);//添加事务感知功能
+        return cacheManager;
+    }
+
+    /**
+     * 创建Redis消息监听容器，订阅L1缓存失效广播、新增实体广播和令牌吊销广播
+     * @param factory Redis连接工厂
+     * @param cacheManager 二级缓存管理器
+     * @param entityIdFilter 实体ID过滤器
+     * @param tokenRevocationList 令牌吊销列表
+     * @return RedisMessageListenerContainer对象
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       EntityIdFilter entityIdFilter,
+                                                                       TokenRevocationList tokenRevocationList) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        container.addMessageListener(entityIdFilter, new ChannelTopic(EntityIdFilter.CREATED_CHANNEL));
+        container.addMessageListener(tokenRevocationList, new ChannelTopic(TokenRevocationList.REVOKED_CHANNEL));
+        return container;
     }
 
     /**
      * 创建RedisTemplate对象
      * @param factory Redis连接工厂
      * @param objectMapper ObjectMapper对象
+     * @param binaryValueCodec 缓存值二进制编解码器
+     * @param cacheMetrics 缓存统计注册表
      * @return RedisTemplate对象
      */
     @Bean
     public RedisTemplate<String, Object> redisTemplate(
             RedisConnectionFactory factory,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            BinaryValueCodec binaryValueCodec,
+            CacheMetrics cacheMetrics) {
 
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(factory);
 
-        // 使用配置好的ObjectMapper
-        GenericJackson2JsonRedisSerializer serializer =
-                new GenericJackson2JsonRedisSerializer(objectMapper);
+        // 使用配置好的ObjectMapper，实体值按配置写为二进制；RedisUtil手写缓存的读写字节数按登记的区域统计
+        MeteredRedisSerializer serializer = new MeteredRedisSerializer(new CompactRedisSerializer(binaryValueCodec,
+                new GenericJackson2JsonRedisSerializer(objectMapper), isBinaryWriteFormat()), cacheMetrics);
 
         // 设置序列化方式
         template.setKeySerializer(new StringRedisSerializer());
@@ -104,4 +201,8 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    private boolean isBinaryWriteFormat() {
+        return "binary".equalsIgnoreCase(codecWriteFormat);
+    }
 }
@@ -1,15 +1,23 @@
 package com.luoye.config;
 
+import com.luoye.cache.MeteredRedisConnectionFactory;
+import com.luoye.metrics.RedisMetrics;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
+import org.redisson.spring.data.connection.RedissonConnectionFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
-
-import java.io.IOException;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 
+/**
+ * Redis客户端配置
+ * 全应用只使用一个Redisson客户端：分布式锁直接使用RedissonClient，
+ * RedisTemplate、缓存管理器和消息监听容器通过RedissonConnectionFactory共用同一组连接和Netty线程，
+ * 不再另外创建Lettuce连接池
+ */
 @Configuration
 public class RedissonConfig {
     @Value("${spring.data.redis.host:localhost}")
@@ -24,21 +32,76 @@ public class RedissonConfig {
     @Value("${spring.data.redis.database:0}")
     private int redisDatabase;
 
+    /**
+     * 命令连接池大小；Redisson在单个连接上异步发送多个命令，连接数不必与业务线程数相当
+     */
+    @Value("${redisson.single-server.connection-pool-size:24}")
+    private int connectionPoolSize;
+
+    @Value("${redisson.single-server.connection-minimum-idle-size:8}")
+    private int connectionMinimumIdleSize;
+
+    /**
+     * 发布订阅连接池大小，只有L1失效、新增实体和令牌吊销三个频道
+     */
+    @Value("${redisson.single-server.subscription-connection-pool-size:4}")
+    private int subscriptionConnectionPoolSize;
+
+    @Value("${redisson.single-server.idle-connection-timeout:10000}")
+    private int idleConnectionTimeout;
+
+    @Value("${redisson.single-server.connect-timeout:10000}")
+    private int connectTimeout;
+
+    @Value("${redisson.single-server.timeout:3000}")
+    private int timeout;
+
+    /**
+     * 空闲连接心跳间隔，及时发现被网络设备断开的连接
+     */
+    @Value("${redisson.single-server.ping-connection-interval:30000}")
+    private int pingConnectionInterval;
+
+    @Value("${redisson.threads:4}")
+    private int threads;
+
+    @Value("${redisson.netty-threads:8}")
+    private int nettyThreads;
+
     @Bean(destroyMethod = "shutdown")
     public RedissonClient redissonClient() {
         Config config = new Config();
         String address = "redis://" + redisHost + ":" + redisPort;
 
+        config.setThreads(threads)
+                .setNettyThreads(nettyThreads);
         config.useSingleServer()
                 .setAddress(address)
                 .setPassword(redisPassword.isEmpty() ? null : redisPassword)
                 .setDatabase(redisDatabase)
-                .setConnectionPoolSize(10)
-                .setConnectionMinimumIdleSize(2)
-                .setIdleConnectionTimeout(10000)
-                .setConnectTimeout(10000)
-                .setTimeout(3000);
+                .setConnectionPoolSize(connectionPoolSize)
+                .setConnectionMinimumIdleSize(connectionMinimumIdleSize)
+                .setSubscriptionConnectionPoolSize(subscriptionConnectionPoolSize)
+                .setSubscriptionConnectionMinimumIdleSize(1)
+                .setIdleConnectionTimeout(idleConnectionTimeout)
+                .setConnectTimeout(connectTimeout)
+                .setTimeout(timeout)
+                .setPingConnectionInterval(pingConnectionInterval)
+                .setKeepAlive(true)
+                .setTcpNoDelay(true);
 
         return Redisson.create(config);
     }
+
+    /**
+     * 基于Redisson的连接工厂，RedisTemplate的管道操作由Redisson批量发送；外层按命令统计耗时
+     * @param redissonClient Redisson客户端
+     * @param redisMetrics Redis统计注册表
+     * @return RedisConnectionFactory对象
+     */
+    @Bean
+    @Primary
+    public RedisConnectionFactory redisConnectionFactory(RedissonClient redissonClient, RedisMetrics redisMetrics) {
+        return new MeteredRedisConnectionFactory(new RedissonConnectionFactory(redissonClient), redisMetrics);
+    }
 }
@@ -1,9 +1,21 @@
 package com.luoye.config;
 
+import com.luoye.context.BaseContext;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Configuration
 @EnableScheduling
 public class ScheduleConfig {
+
+    /**
+     * 异步任务携带提交时的请求上下文，Spring Boot自动配置的任务线程池会使用该装饰器
+     * @return 任务装饰器
+     */
+    @Bean
+    public TaskDecorator requestContextTaskDecorator() {
+        return BaseContext::wrap;
+    }
 }
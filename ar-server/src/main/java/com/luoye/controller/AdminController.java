@@ -2,14 +2,19 @@ package com.luoye.controller;
 
 import com.luoye.Result;
 import com.luoye.annotation.OperationLogger;
+import com.luoye.cache.TokenRevocationList;
 import com.luoye.constant.MessageConstant;
 import com.luoye.context.BaseContext;
 import com.luoye.dto.admin.AdminForgotPasswordDTO;
 import com.luoye.dto.admin.AdminLoginDTO;
 import com.luoye.dto.admin.AdminRegisterDTO;
 import com.luoye.dto.admin.AdminUpdateDTO;
+import com.luoye.dto.admin.TokenRevokeDTO;
 import com.luoye.entity.Admin;
+import com.luoye.exception.BaseException;
 import com.luoye.service.AdminService;
+import com.luoye.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -32,6 +37,9 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     /**
      * 管理员注册
      * @param adminRegisterDTO 管理员注册数据传输对象
@@ -138,4 +146,38 @@ public class AdminController {
         return Result.success(admin);
     }
 
+    /**
+     * 吊销令牌
+     * @param tokenRevokeDTO 令牌吊销数据传输对象
+     * @return 吊销结果
+     */
+    @PostMapping("/revoke-token")
+    @Operation(summary = "吊销令牌", description = "提供token时吊销该令牌（如令牌泄露），否则按身份类型和用户ID吊销该用户已签发的全部令牌")
+    @ApiResponse(responseCode = "200", description = "吊销成功")
+    @OperationLogger(operationType = "UPDATE", targetType = "ADMIN")
+    public Result<String> revokeToken(@RequestBody TokenRevokeDTO tokenRevokeDTO) {
+        if (!"ADMIN".equals(BaseContext.getCurrentIdentity())) {
+            throw new BaseException(MessageConstant.NO_PERMISSION);
+        }
+        String token = tokenRevokeDTO.getToken();
+        if (token != null && !token.isEmpty()) {
+            Claims claims = JwtUtil.parseToken(token.startsWith("Bearer ") ? token.substring(7) : token);
+            if (claims == null || claims.getExpiration() == null) {
+                throw new BaseException(MessageConstant.TOKEN_PARSE_FAILED);
+            }
+            if (claims.getId() == null) {
+                throw new BaseException(MessageConstant.TOKEN_ID_MISSING);
+            }
+            tokenRevocationList.revokeToken(claims.getId(), claims.getExpiration().getTime());
+        } else {
+            if (tokenRevokeDTO.getIdentity() == null || tokenRevokeDTO.getUserId() == null) {
+                throw new BaseException(MessageConstant.PARAMETER_EMPTY);
+            }
+            tokenRevocationList.revokePrincipal(tokenRevokeDTO.getIdentity().toUpperCase(), tokenRevokeDTO.getUserId());
+        }
+        logger.info("管理员 {} 吊销令牌，用户: {}:{}", BaseContext.getCurrentId(),
+                tokenRevokeDTO.getIdentity(), tokenRevokeDTO.getUserId());
+        return Result.success(MessageConstant.TOKEN_REVOKE_SUCCESS);
+    }
+
 }
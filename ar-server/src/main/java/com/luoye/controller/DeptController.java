@@ -138,20 +138,9 @@ public class DeptController {
         // 手动处理缓存，避免Spring Cache的序列化问题
         String cacheKey = "dept_list::enabled";
 
-        // 先尝试从缓存获取
-        List<Dept> cachedDepts = redisUtil.getList(cacheKey, Dept.class);
-        if (cachedDepts != null && !cachedDepts.isEmpty()) {
-            return Result.success(cachedDepts);
-        }
-
-        // 缓存未命中，查询数据库
-        List<Dept> depts = deptService.getAllEnabledDepts();
-
-        // 将结果存入缓存
-        if (depts != null && !depts.isEmpty()) {
-            // 缓存2小时
-            redisUtil.set(cacheKey, depts, 2, TimeUnit.HOURS);
-        }
+        // 先尝试从缓存获取，未命中时查询数据库并缓存2小时，临近过期时由后台提前刷新
+        List<Dept> depts = redisUtil.getListWithRefreshAhead(cacheKey, Dept.class,
+                deptService::getAllEnabledDepts, null, 2, TimeUnit.HOURS);
 
         return Result.success(depts);
     }
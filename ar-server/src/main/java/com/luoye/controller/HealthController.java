@@ -0,0 +1,59 @@
+package com.luoye.controller;
+
+import com.luoye.Result;
+import com.luoye.cache.TokenRevocationList;
+import com.luoye.task.CacheWarmupTask;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 健康检查控制层，供负载均衡探测，无需登录
+ */
+@RestController
+@RequestMapping("/health")
+@Slf4j
+@Tag(name = "健康检查", description = "负载均衡就绪探测接口")
+public class HealthController {
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Autowired
+    private CacheWarmupTask cacheWarmupTask;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    /**
+     * 就绪探测，关键缓存预热完成前、令牌吊销记录加载成功前返回503
+     * @param response HTTP响应
+     * @return 就绪状态和各预热阶段进度
+     */
+    @GetMapping("/readiness")
+    @Operation(summary = "就绪探测", description = "关键缓存（科室、医生、今明两天号源和库存）预热完成前、令牌吊销记录加载成功前返回503")
+    @ApiResponse(responseCode = "200", description = "节点已就绪")
+    @ApiResponse(responseCode = "503", description = "节点未就绪")
+    public Result<Map<String, Object>> readiness(HttpServletResponse response) {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("state", state);
+        data.put("warmup", cacheWarmupTask.getProgress());
+        data.put("revocationListLoaded", tokenRevocationList.isLoaded());
+        if (state != ReadinessState.ACCEPTING_TRAFFIC || !tokenRevocationList.isLoaded()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        return Result.success(data);
+    }
+}
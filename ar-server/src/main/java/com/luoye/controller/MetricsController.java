@@ -0,0 +1,337 @@
+package com.luoye.controller;
+
+import com.luoye.Result;
+import com.luoye.aspect.ServiceExecutionTimeAspect;
+import com.luoye.cache.CacheMetrics;
+import com.luoye.cache.DegradedModeCoordinator;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.cache.HotKeyTracker;
+import com.luoye.cache.RedisCircuitBreaker;
+import com.luoye.cache.TokenRevocationList;
+import com.luoye.cache.TwoLevelCacheManager;
+import com.luoye.cache.VerifiedTokenCache;
+import com.luoye.cache.codec.BinaryValueCodec;
+import com.luoye.constant.MessageConstant;
+import com.luoye.context.BaseContext;
+import com.luoye.exception.BaseException;
+import com.luoye.filter.AdaptiveConcurrencyFilter;
+import com.luoye.interceptor.DatabaseBulkheadInterceptor;
+import com.luoye.interceptor.RateLimitInterceptor;
+import com.luoye.interceptor.SqlMetricsInterceptor;
+import com.luoye.metrics.RedisMetrics;
+import com.luoye.task.AuditLogWriter;
+import com.luoye.task.CachePreloadEngine;
+import com.luoye.task.PreloadReport;
+import com.luoye.trace.TraceCollector;
+import com.luoye.util.RedisUtil;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行指标控制层，仅管理员可访问
+ */
+@RestController
+@RequestMapping("/metrics")
+@Slf4j
+@Tag(name = "运行指标", description = "缓存等运行时指标查询接口")
+public class MetricsController {
+
+    @Autowired
+    private TwoLevelCacheManager cacheManager;
+
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private HotKeyTracker hotKeyTracker;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
+    @Autowired
+    private BinaryValueCodec binaryValueCodec;
+
+    @Autowired
+    private CachePreloadEngine cachePreloadEngine;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private DegradedModeCoordinator degradedModeCoordinator;
+
+    @Autowired
+    private DatabaseBulkheadInterceptor databaseBulkheadInterceptor;
+
+    @Autowired
+    private RateLimitInterceptor rateLimitInterceptor;
+
+    @Autowired
+    private AdaptiveConcurrencyFilter adaptiveConcurrencyFilter;
+
+    @Autowired
+    private AuditLogWriter auditLogWriter;
+
+    @Autowired
+    private ServiceExecutionTimeAspect serviceExecutionTimeAspect;
+
+    @Autowired
+    private SqlMetricsInterceptor sqlMetricsInterceptor;
+
+    @Autowired
+    private RedisMetrics redisMetrics;
+
+    @Autowired
+    private TraceCollector traceCollector;
+
+    /**
+     * 查询缓存统计，包括Spring Cache和RedisUtil中手写的缓存
+     * @return 缓存区域到统计数据的映射，二级缓存附带L1/L2分级命中数
+     */
+    @GetMapping("/cache")
+    @Operation(summary = "查询缓存统计", description = "按缓存区域返回命中率、回源耗时分布、失效次数和平均读写字节数，二级缓存附带L1/L2分级命中数")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Map<String, Object>>> cacheStatistics() {
+        checkAdmin();
+        Map<String, Map<String, Object>> result = cacheMetrics.getSnapshot();
+        cacheManager.getStatistics().forEach((name, tiers) ->
+                result.computeIfAbsent(name, n -> new LinkedHashMap<>()).put("tiers", tiers));
+        return Result.success(result);
+    }
+
+    /**
+     * 查询访问最频繁的缓存键及本地副本状态
+     * @return 热点阈值、访问次数最高的键和本地副本统计
+     */
+    @GetMapping("/hot-keys")
+    @Operation(summary = "查询热点缓存键", description = "返回滑动窗口内访问次数估算最高的50个键，以及热点键本地副本的升级、降级和版本校验统计")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> hotKeys() {
+        checkAdmin();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hotThreshold", hotKeyTracker.getHotThreshold());
+        result.put("keys", hotKeyTracker.getHotKeys(50));
+        result.put("replica", redisUtil.getHotReplicaStatistics());
+        return Result.success(result);
+    }
+
+    /**
+     * 查询实体ID过滤器状态
+     * @return 实体类型到过滤器状态的映射
+     */
+    @GetMapping("/id-filter")
+    @Operation(summary = "查询实体ID过滤器状态", description = "按实体类型返回布隆过滤器的加载数量、最大ID和内存占用")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Map<String, Object>>> idFilterStatistics() {
+        checkAdmin();
+        return Result.success(entityIdFilter.getStatistics());
+    }
+
+    /**
+     * 查询缓存值编码格式统计
+     * @return 二进制与JSON的读写次数及实体结构版本
+     */
+    @GetMapping("/codec")
+    @Operation(summary = "查询缓存编码统计", description = "返回二进制与JSON格式的读写次数，用于判断双读迁移是否完成")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> codecStatistics() {
+        checkAdmin();
+        return Result.success(binaryValueCodec.getStatistics());
+    }
+
+    /**
+     * 查询最近一次缓存预热报告
+     * @return 各阶段的行数、写入数量和耗时
+     */
+    @GetMapping("/preload")
+    @Operation(summary = "查询缓存预热报告", description = "返回最近一次全量或增量预热各阶段的行数、写入数量和耗时")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<PreloadReport> preloadReport() {
+        checkAdmin();
+        return Result.success(cachePreloadEngine.getLastReport());
+    }
+
+    /**
+     * 查询列表缓存增量更新统计
+     * @return 增量更新、跳过和退化为整体删除的次数
+     */
+    @GetMapping("/list-members")
+    @Operation(summary = "查询列表缓存增量更新统计", description = "返回科室医生列表、启用科室列表等派生列表缓存的增量更新次数、因列表未缓存跳过的次数和退化为整体删除的次数")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> listMemberStatistics() {
+        checkAdmin();
+        return Result.success(redisUtil.getListMemberStatistics());
+    }
+
+    /**
+     * 查询已验证令牌缓存和令牌吊销列表统计
+     * @return 令牌缓存和吊销列表统计
+     */
+    @GetMapping("/token-cache")
+    @Operation(summary = "查询令牌缓存统计", description = "返回JWT拦截器已验证令牌缓存的条目数、命中数、未命中数、命中率和清除次数，以及令牌吊销列表的记录数和拒绝次数")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> tokenCacheStatistics() {
+        checkAdmin();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("verified", verifiedTokenCache.getStatistics());
+        result.put("revocation", tokenRevocationList.getStatistics());
+        return Result.success(result);
+    }
+
+    /**
+     * 查询Redis熔断和降级模式状态
+     * @return 熔断器状态、降级缓存、待补失效、库存模式和数据库舱壁统计
+     */
+    @GetMapping("/redis-degradation")
+    @Operation(summary = "查询Redis降级状态", description = "返回Redis熔断器状态和窗口错误率、降级缓存命中、待补执行的缓存失效、号源库存模式和数据库并发舱壁统计")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> redisDegradation() {
+        checkAdmin();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("breaker", redisCircuitBreaker.getStatistics());
+        result.put("inventory", degradedModeCoordinator.getStatistics());
+        result.put("redisUtil", redisUtil.getDegradedStatistics());
+        result.put("springCache", cacheManager.getDegradedStatistics());
+        result.put("databaseBulkhead", databaseBulkheadInterceptor.getStatistics());
+        return Result.success(result);
+    }
+
+    /**
+     * 查询限流统计
+     * @return 各分组的放行和拒绝次数、Redis调用次数和本地降级次数
+     */
+    @GetMapping("/rate-limit")
+    @Operation(summary = "查询限流统计", description = "返回各接口分组的放行和拒绝次数、向Redis申请令牌的次数、Redis不可用时的本地限流次数和本地令牌桶数量")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> rateLimitStatistics() {
+        checkAdmin();
+        return Result.success(rateLimitInterceptor.getStatistics());
+    }
+
+    /**
+     * 查询自适应并发限制统计
+     * @return 各分组的并发上限、在途数、耗时基线和拒绝次数
+     */
+    @GetMapping("/load-shedding")
+    @Operation(summary = "查询并发限制统计", description = "返回各接口分组的优先级、当前并发上限、在途请求数、拥塞状态、短期耗时和长期基线、放行和拒绝次数及耗时分布")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> loadSheddingStatistics() {
+        checkAdmin();
+        return Result.success(adaptiveConcurrencyFilter.getStatistics());
+    }
+
+    /**
+     * 查询审计日志写入统计
+     * @return 积压、丢弃、写入、转存和回放数量以及写入延迟
+     */
+    @GetMapping("/audit-log")
+    @Operation(summary = "查询审计日志写入统计", description = "返回操作日志缓冲区容量和积压数量、丢弃数、批量写入数、转存本地文件和回放数、失败批次数以及日志从产生到入库的延迟")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> auditLogStatistics() {
+        checkAdmin();
+        return Result.success(auditLogWriter.getStatistics());
+    }
+
+    /**
+     * 查询Service方法耗时统计
+     * @return 慢调用阈值和各方法的调用次数、异常次数和耗时分位数
+     */
+    @GetMapping("/service-methods")
+    @Operation(summary = "查询Service方法耗时统计", description = "返回各Service方法的调用次数、异常次数、慢调用次数和耗时P50/P90/P95/P99/最大值，按累计耗时从高到低排列")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> serviceMethodStatistics() {
+        checkAdmin();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("slowCallMillis", serviceExecutionTimeAspect.getSlowCallMillis());
+        result.put("methods", serviceExecutionTimeAspect.getStatistics());
+        return Result.success(result);
+    }
+
+    /**
+     * 查询SQL执行统计
+     * @return 各Mapper方法的耗时分布和行数，以及慢SQL列表
+     */
+    @GetMapping("/sql")
+    @Operation(summary = "查询SQL执行统计", description = "返回各Mapper方法的执行次数、耗时分位数、返回或影响的行数和异常次数，以及按最大耗时排列的慢SQL（归一化SQL和可选的执行计划）")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> sqlStatistics() {
+        checkAdmin();
+        return Result.success(sqlMetricsInterceptor.getStatistics());
+    }
+
+    /**
+     * 查询Redis命令和分布式锁统计
+     * @param top 返回竞争最多的锁键数量
+     * @return 各命令耗时分布、各锁族等锁和持锁耗时、超时次数和竞争最多的锁键
+     */
+    @GetMapping("/redis")
+    @Operation(summary = "查询Redis命令和锁统计", description = "返回各Redis命令的耗时分位数和异常次数，各锁族（如lock:slot_operation）的等锁耗时、持锁耗时、超时和竞争次数，以及最近窗口内竞争最多的锁键")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> redisStatistics(@RequestParam(defaultValue = "20") int top) {
+        checkAdmin();
+        return Result.success(redisMetrics.getStatistics(top));
+    }
+
+    /**
+     * 查询链路采集统计和保留的链路
+     * @param minMillis 最小耗时（毫秒）
+     * @param limit 返回数量
+     * @return 采集统计和按耗时从高到低排列的链路摘要
+     */
+    @GetMapping("/traces")
+    @Operation(summary = "查询保留的请求链路", description = "返回链路采集统计，以及因失败、慢请求或抽样而保留的链路摘要（各类型Span的次数和累计耗时）")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> traces(@RequestParam(defaultValue = "0") long minMillis,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        checkAdmin();
+        Map<String, Object> result = new LinkedHashMap<>(traceCollector.getStatistics());
+        result.put("traces", traceCollector.listTraces(minMillis, limit));
+        return Result.success(result);
+    }
+
+    /**
+     * 按请求ID查询完整链路
+     * @param traceId 请求ID（响应头X-Request-Id）
+     * @return 链路及其全部Span
+     */
+    @GetMapping("/traces/{traceId}")
+    @Operation(summary = "查询请求链路明细", description = "按请求ID返回保留的链路，包含Controller、Service、SQL、Redis命令和分布式锁的Span")
+    @ApiResponse(responseCode = "200", description = "查询成功")
+    public Result<Map<String, Object>> trace(@PathVariable String traceId) {
+        checkAdmin();
+        Map<String, Object> trace = traceCollector.getTrace(traceId);
+        if (trace == null) {
+            throw new BaseException(MessageConstant.TRACE_NOT_FOUND);
+        }
+        return Result.success(trace);
+    }
+
+    /**
+     * 校验当前用户是否为管理员
+     */
+    private void checkAdmin() {
+        if (!"ADMIN".equals(BaseContext.getCurrentIdentity())) {
+            throw new BaseException(MessageConstant.NO_PERMISSION);
+        }
+    }
+}
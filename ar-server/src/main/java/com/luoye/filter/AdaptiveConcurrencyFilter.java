@@ -0,0 +1,300 @@
+package com.luoye.filter;
+
+import com.luoye.metrics.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限制过滤器
+ * 按接口分组统计请求耗时，每个采样窗口比较短期平均耗时和长期基线（梯度算法）：
+ * 耗时上升时按比例缩小该分组允许的在途请求数，耗时恢复后逐步放大，
+ * 超出上限的请求在进入JWT校验和业务层之前直接返回503，不再占用Tomcat线程等待锁和数据库连接。
+ * 分组分三个优先级：医生叫号等队列操作只统计不拒绝；普通业务按上限拒绝；
+ * 列表和分页查询除按上限拒绝外，其他任一分组出现拥塞时也先行拒绝
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class AdaptiveConcurrencyFilter extends OncePerRequestFilter {
+
+    /**
+     * 接口优先级
+     */
+    public enum Priority {
+        CRITICAL, NORMAL, LOW
+    }
+
+    private static final String[] EXCLUDED_PATTERNS = {
+            "/v3/api-docs/**", "/swagger-ui/**", "/doc.html", "/webjars/**", "/swagger-resources/**"
+    };
+
+    @Value("${load-shedding.enabled:true}")
+    private boolean enabled;
+
+    @Value("${load-shedding.initial-limit:50}")
+    private int initialLimit;
+
+    @Value("${load-shedding.min-limit:5}")
+    private int minLimit;
+
+    /**
+     * 在途请求数上限，不超过Tomcat工作线程数
+     */
+    @Value("${load-shedding.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${load-shedding.window-millis:500}")
+    private long windowMillis;
+
+    @Value("${load-shedding.min-samples:10}")
+    private int minSamples;
+
+    /**
+     * 短期耗时超过长期基线的倍数达到该值时才开始缩小上限
+     */
+    @Value("${load-shedding.rtt-tolerance:1.5}")
+    private double rttTolerance;
+
+    /**
+     * 每个窗口向新上限靠拢的比例
+     */
+    @Value("${load-shedding.smoothing:0.2}")
+    private double smoothing;
+
+    /**
+     * 长期基线覆盖的窗口数
+     */
+    @Value("${load-shedding.long-window-count:60}")
+    private int longWindowCount;
+
+    @Value("${load-shedding.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final List<Group> groups = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        // 按顺序匹配，第一个匹配的分组生效
+        groups.add(new Group("doctor-queue", Priority.CRITICAL,
+                "/doctor/current-queue", "/doctor/call-next", "/doctor/start-treatment/**",
+                "/doctor/complete-treatment/**", "/doctor/handle-missed/**", "/health/**", "/metrics/**"));
+        groups.add(new Group("listing", Priority.LOW,
+                "/*/page", "/order/patient/orders", "/doctor/getDoctorsByDeptId/**",
+                "/dept/getAllEnabled", "/dept/getAllIdAndName"));
+        groups.add(new Group("default", Priority.NORMAL, "/**"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String requestUri = request.getRequestURI();
+        for (String pattern : EXCLUDED_PATTERNS) {
+            if (pathMatcher.match(pattern, requestUri)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Group group = enabled ? match(request.getRequestURI()) : null;
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!group.tryAcquire()) {
+            group.rejected.increment();
+            log.warn("系统繁忙，拒绝请求: {}, 分组: {}, 在途: {}, 上限: {}", request.getRequestURI(), group.name,
+                    group.inFlight.get(), group.getLimit());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().write("{\"code\": 503, \"msg\": \"Service Unavailable: Server busy\", \"data\": null}");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            group.release(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 并发限制统计
+     * @return 各分组的优先级、当前上限、在途数、拥塞状态、耗时基线、放行和拒绝次数以及耗时分布
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        Map<String, Object> groupStats = new LinkedHashMap<>();
+        for (Group group : groups) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("priority", group.priority);
+            item.put("limit", group.getLimit());
+            item.put("inFlight", group.inFlight.get());
+            item.put("congested", group.isCongested());
+            item.put("longRttMs", group.longRttNanos / 1_000_000.0);
+            item.put("shortRttMs", group.shortRttNanos / 1_000_000.0);
+            item.put("admitted", group.admitted.sum());
+            item.put("rejected", group.rejected.sum());
+            item.put("latency", group.histogram.snapshot());
+            groupStats.put(group.name, item);
+        }
+        stats.put("groups", groupStats);
+        return stats;
+    }
+
+    private Group match(String requestUri) {
+        for (Group group : groups) {
+            for (String pattern : group.patterns) {
+                if (pathMatcher.match(pattern, requestUri)) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 除指定分组外是否有其他高优先级分组处于拥塞
+     */
+    private boolean anyCongested(Group except) {
+        for (Group group : groups) {
+            if (group != except && group.priority != Priority.LOW && group.isCongested()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 接口分组，持有该分组的在途数、当前上限和耗时窗口
+     */
+    private final class Group {
+        private final String name;
+        private final Priority priority;
+        private final String[] patterns;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+        private final LongAdder windowNanos = new LongAdder();
+        private final LongAdder windowCount = new LongAdder();
+        private final AtomicBoolean updating = new AtomicBoolean();
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private volatile double limit;
+        private volatile double lastGradient = 1.0;
+        private volatile double longRttNanos;
+        private volatile double shortRttNanos;
+        private volatile long windowEnd;
+
+        private Group(String name, Priority priority, String... patterns) {
+            this.name = name;
+            this.priority = priority;
+            this.patterns = patterns;
+            this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+            this.windowEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        }
+
+        private int getLimit() {
+            return (int) limit;
+        }
+
+        /**
+         * 最近一个窗口耗时明显高于基线，或在途数已达上限
+         */
+        private boolean isCongested() {
+            return lastGradient < 1.0 || inFlight.get() >= getLimit();
+        }
+
+        private boolean tryAcquire() {
+            if (priority == Priority.LOW && anyCongested(this)) {
+                return false;
+            }
+            int current = inFlight.incrementAndGet();
+            if (priority != Priority.CRITICAL && current > getLimit()) {
+                inFlight.decrementAndGet();
+                return false;
+            }
+            peakInFlight.accumulateAndGet(current, Math::max);
+            admitted.increment();
+            return true;
+        }
+
+        private void release(long rttNanos) {
+            inFlight.decrementAndGet();
+            histogram.record(rttNanos);
+            windowNanos.add(rttNanos);
+            windowCount.increment();
+            long now = System.nanoTime();
+            if (now - windowEnd >= 0 && windowCount.sum() >= minSamples && updating.compareAndSet(false, true)) {
+                try {
+                    updateLimit(now);
+                } finally {
+                    updating.set(false);
+                }
+            }
+        }
+
+        /**
+         * 梯度算法：上限 = 当前上限 × 梯度 + 排队余量，梯度 = 容忍倍数 × 长期基线 / 短期耗时，限制在[0.5, 1]
+         */
+        private void updateLimit(long now) {
+            long count = windowCount.sumThenReset();
+            long total = windowNanos.sumThenReset();
+            int peak = peakInFlight.getAndSet(inFlight.get());
+            windowEnd = now + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+            if (count == 0) {
+                return;
+            }
+            double shortRtt = (double) total / count;
+            double longRtt = longRttNanos == 0 ? shortRtt : longRttNanos + (shortRtt - longRttNanos) / longWindowCount;
+            // 持续低于基线说明高耗时已经过去，基线加快回落
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+            double current = limit;
+            double newLimit = current * gradient + Math.sqrt(current);
+            // 流量不足上限的一半时不放大，避免空闲期上限无限膨胀
+            if (peak < current / 2) {
+                newLimit = Math.min(newLimit, current);
+            }
+            newLimit = current * (1 - smoothing) + newLimit * smoothing;
+            newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            if ((int) newLimit < (int) current && gradient < 1.0) {
+                log.warn("接口耗时上升，缩小并发上限，分组: {}, 上限: {} -> {}, 短期耗时: {}ms, 基线: {}ms", name,
+                        (int) current, (int) newLimit, String.format("%.1f", shortRtt / 1_000_000),
+                        String.format("%.1f", longRtt / 1_000_000));
+            }
+            shortRttNanos = shortRtt;
+            longRttNanos = longRtt;
+            lastGradient = gradient;
+            limit = newLimit;
+        }
+    }
+}
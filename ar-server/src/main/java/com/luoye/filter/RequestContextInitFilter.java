@@ -0,0 +1,62 @@
+package com.luoye.filter;
+
+import com.luoye.context.BaseContext;
+import com.luoye.context.RequestContext;
+import com.luoye.trace.Trace;
+import com.luoye.trace.TraceCollector;
+import com.luoye.trace.Tracer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 请求上下文过滤器
+ * 每个请求进入时创建请求上下文（请求ID、开始时间和以请求ID为链路ID的调用链路），JWT拦截器随后补充用户信息；
+ * 请求结束时无论成功与否都清除上下文，避免线程复用时残留上一个请求的用户
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestContextInitFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    /**
+     * 调用方传入的请求ID最大长度，超出时重新生成
+     */
+    private static final int MAX_REQUEST_ID_LENGTH = 64;
+
+    @Autowired
+    private TraceCollector traceCollector;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId != null && requestId.length() > MAX_REQUEST_ID_LENGTH) {
+            requestId = null;
+        }
+        RequestContext context = RequestContext.start(requestId);
+        Trace trace = traceCollector.begin(context.getRequestId(), request.getMethod() + " " + request.getRequestURI());
+        BaseContext.set(context.withTrace(trace));
+        response.setHeader(REQUEST_ID_HEADER, context.getRequestId());
+        Throwable error = null;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            traceCollector.finish(trace, response.getStatus(), error);
+            Tracer.clear();
+            BaseContext.clear();
+        }
+    }
+}
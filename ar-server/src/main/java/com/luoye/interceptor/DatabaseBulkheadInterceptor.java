@@ -0,0 +1,105 @@
+package com.luoye.interceptor;
+
+import com.luoye.cache.RedisCircuitBreaker;
+import com.luoye.constant.MessageConstant;
+import com.luoye.exception.BaseException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 数据库并发舱壁
+ * Redis熔断期间缓存读取全部回落到MySQL，此时限制同时执行的SQL数量，
+ * 等待超时的请求直接返回系统繁忙，避免数据库被压垮；熔断关闭时不做限制
+ */
+@Slf4j
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class DatabaseBulkheadInterceptor implements Interceptor {
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    /**
+     * 降级期间允许同时执行的SQL数量，应小于连接池大小
+     */
+    @Value("${cache.degraded.db-max-concurrency:20}")
+    private int maxConcurrency;
+
+    @Value("${cache.degraded.db-acquire-timeout-millis:500}")
+    private long acquireTimeoutMillis;
+
+    private Semaphore permits;
+
+    private final LongAdder admitted = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxConcurrency);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (redisCircuitBreaker.isClosed()) {
+            return invocation.proceed();
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.increment();
+            log.warn("Redis降级期间数据库并发已满，拒绝执行: {}",
+                    ((MappedStatement) invocation.getArgs()[0]).getId());
+            throw new BaseException(MessageConstant.SYSTEM_BUSY);
+        }
+        admitted.increment();
+        try {
+            return invocation.proceed();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 舱壁统计
+     * @return 统计快照
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrency", maxConcurrency);
+        stats.put("inUse", maxConcurrency - permits.availablePermits());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+}
@@ -1,5 +1,7 @@
 package com.luoye.interceptor;
 
+import com.luoye.cache.TokenRevocationList;
+import com.luoye.cache.VerifiedTokenCache;
 import com.luoye.context.BaseContext;
 import com.luoye.util.JwtUtil;
 import io.jsonwebtoken.Claims;
@@ -8,10 +10,13 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.io.IOException;
+
 /**
  * JWT拦截器
  */
@@ -21,6 +26,12 @@ public class JwtInterceptor implements HandlerInterceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtInterceptor.class);
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     /**
      * 拦截请求，验证JWT令牌
      * @param request
@@ -31,16 +42,16 @@ public class JwtInterceptor implements HandlerInterceptor {
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        log.info("JWT拦截器开始处理请求: {}", request.getRequestURI());
+        log.debug("JWT拦截器开始处理请求: {}", request.getRequestURI());
 
         // 从请求头中获取JWT令牌
         String token = request.getHeader("Authorization");
-        log.info("从Authorization头获取token: {}", token != null ? "存在" : "不存在");
+        log.debug("从Authorization头获取token: {}", token != null ? "存在" : "不存在");
 
         // 如果Authorization头为空，尝试从token头获取
         if (token == null || token.isEmpty()) {
             token = request.getHeader("token");
-            log.info("从token头获取token: {}", token != null ? "存在" : "不存在");
+            log.debug("从token头获取token: {}", token != null ? "存在" : "不存在");
         }
 
         // 如果是登录或注册请求，直接放行
@@ -52,14 +63,14 @@ public class JwtInterceptor implements HandlerInterceptor {
                 "/doctor/register".equals(requestUri) ||
                 "/admin/login".equals(requestUri) ||
                 "/admin/register".equals(requestUri)) {
-            logger.info("登录或注册请求，直接放行: {}", requestUri);
+            logger.debug("登录或注册请求，直接放行: {}", requestUri);
             return true;
         }
 
         // 检查令牌是否带有"Bearer "前缀，如果有则移除
         if (token != null && token.startsWith("Bearer ")) {
             token = token.substring(7);
-            log.info("从Bearer头获取token: {}", token != null ? "存在" : "不存在");
+            log.debug("从Bearer头获取token: {}", token != null ? "存在" : "不存在");
         }
 
         // 验证令牌是否存在
@@ -71,6 +82,17 @@ public class JwtInterceptor implements HandlerInterceptor {
             return false;
         }
 
+        // 同一令牌验签通过后按摘要缓存身份，命中时不再做格式校验和验签
+        VerifiedTokenCache.VerifiedToken verified = verifiedTokenCache.get(token);
+        if (verified != null) {
+            if (isRevoked(verified, requestUri, response)) {
+                return false;
+            }
+            BaseContext.setCurrentId(verified.getId(), verified.getIdentity());
+            log.debug("JWT验证成功（缓存）: {}", requestUri);
+            return true;
+        }
+
         // 验证 token 格式
         if (!JwtUtil.isValidTokenFormat(token)) {
             log.warn("JWT token格式无效: {}", request.getRequestURI());
@@ -91,41 +113,23 @@ public class JwtInterceptor implements HandlerInterceptor {
                 return false;
             }
 
-            log.info("JWT claims解析结果: {}", claims);
-            // 设置用户信息
-            Object patientIdObj = claims.get("patientId");
-            Object doctorIdObj = claims.get("doctorId");
-            Object adminIdObj = claims.get("adminId");
-
-
-            // 添加调试信息
-            log.info("JWT claims解析结果 - patientIdObj: {}, 类型: {}, 值: {}",
-                    patientIdObj,
-                    patientIdObj != null ? patientIdObj.getClass().getSimpleName() : "null",
-                    patientIdObj);
-            log.info("JWT claims解析结果 - doctorIdObj: {}, 类型: {}, 值: {}",
-                    doctorIdObj,
-                    doctorIdObj != null ? doctorIdObj.getClass().getSimpleName() : "null",
-                    doctorIdObj);
-            log.info("JWT claims解析结果 - adminIdObj: {}, 类型: {}, 值: {}",
-                    adminIdObj,
-                    adminIdObj != null ? adminIdObj.getClass().getSimpleName() : "null",
-                    adminIdObj);
-
+            log.debug("JWT claims解析结果: {}", claims);
             // 安全地转换ID类型
-            Long patientId = convertToLong(patientIdObj);
-            Long doctorId = convertToLong(doctorIdObj);
-            Long adminId = convertToLong(adminIdObj);
+            Long patientId = convertToLong(claims.get("patientId"));
+            Long doctorId = convertToLong(claims.get("doctorId"));
+            Long adminId = convertToLong(claims.get("adminId"));
 
+            Long id;
+            String identity;
             if (patientId != null) {
-                BaseContext.setCurrentId(patientId, "PATIENT");
-                log.info("设置患者上下文: id={}, identity=PATIENT", patientId);
+                id = patientId;
+                identity = "PATIENT";
             } else if (doctorId != null) {
-                BaseContext.setCurrentId(doctorId, "DOCTOR");
-                log.info("设置医生上下文: id={}, identity=DOCTOR", doctorId);
+                id = doctorId;
+                identity = "DOCTOR";
             } else if (adminId != null) {
-                BaseContext.setCurrentId(adminId, "ADMIN");
-                log.info("设置管理员上下文: id={}, identity=ADMIN", adminId);
+                id = adminId;
+                identity = "ADMIN";
             } else {
                 log.warn("JWT claims中未找到有效的用户信息: {}", request.getRequestURI());
                 log.warn("claims内容: {}", claims);
@@ -133,7 +137,14 @@ public class JwtInterceptor implements HandlerInterceptor {
                 response.getWriter().write("{\"code\": 401, \"msg\": \"Unauthorized: No valid user info\", \"data\": null}");
                 return false;
             }
-            log.info("JWT验证成功: {}", request.getRequestURI());
+            long issuedAt = claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0L;
+            long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : 0L;
+            verified = verifiedTokenCache.put(token, id, identity, claims.getId(), issuedAt, expiresAt);
+            if (isRevoked(verified, requestUri, response)) {
+                return false;
+            }
+            BaseContext.setCurrentId(id, identity);
+            log.debug("JWT验证成功: {}, id={}, identity={}", requestUri, id, identity);
             return true;
         } catch (Exception e) {
             log.error("JWT验证过程异常: {}", e.getMessage());
@@ -182,6 +193,23 @@ public class JwtInterceptor implements HandlerInterceptor {
         }
     }
 
+    /**
+     * 检查令牌是否已吊销，已吊销时写入401响应
+     * @return 是否已吊销
+     */
+    private boolean isRevoked(VerifiedTokenCache.VerifiedToken verified, String requestUri,
+                              HttpServletResponse response) throws IOException {
+        if (!tokenRevocationList.isRevoked(verified.getTokenId(), verified.getIdentity(), verified.getId(),
+                verified.getIssuedAt())) {
+            return false;
+        }
+        log.warn("JWT token已吊销: {}, id={}, identity={}", requestUri, verified.getId(), verified.getIdentity());
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"code\": 401, \"msg\": \"Unauthorized: Token revoked\", \"data\": null}");
+        return true;
+    }
+
     /**
      * 安全地将Object转换为Long类型
      */
@@ -0,0 +1,443 @@
+package com.luoye.interceptor;
+
+import com.luoye.cache.LocalCache;
+import com.luoye.context.BaseContext;
+import com.luoye.util.RedisUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * 限流拦截器
+ * 按接口分组和身份类型（PATIENT/DOCTOR/ADMIN）对每个用户限流，未登录的请求按客户端IP限流；
+ * 连接来自受信任的代理时，从X-Forwarded-For中由右向左取第一个不受信任的地址作为客户端IP。
+ * 限额保存在Redis共享令牌桶中，各节点一次取出一批令牌在本地消耗；批量大小随该用户在本节点的请求速率倍增或减半，
+ * 上限按分组速率计算，低速率的分组（如登录）每次都向Redis申请，保证跨节点精确；Redis熔断或异常时退化为按节点的本地令牌桶。
+ * 在JWT拦截器之后执行，以便读取当前身份
+ */
+@Slf4j
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final String KEY_PREFIX = "rate_limit::";
+
+    private static final String ANONYMOUS = "ANONYMOUS";
+
+    private static final Pattern IPV4_LITERAL = Pattern.compile("[0-9]{1,3}(\\.[0-9]{1,3}){3}");
+
+    /**
+     * IPv6字面量，含冒号的字符串InetAddress只按字面量解析，不会触发DNS查询
+     */
+    private static final Pattern IPV6_LITERAL = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    @Value("${rate-limit.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每批令牌的最长使用时间（毫秒），过期未用完的令牌作废，限制节点间的超发
+     */
+    @Value("${rate-limit.lease-millis:1000}")
+    private long leaseMillis;
+
+    @Value("${rate-limit.max-lease-size:20}")
+    private int maxLeaseSize;
+
+    @Value("${rate-limit.local-max-size:20000}")
+    private int localMaxSize;
+
+    /**
+     * 受信任的反向代理和负载均衡地址，CIDR格式，多个以逗号分隔；
+     * 为空时不读取X-Forwarded-For，部署在负载均衡之后时全部匿名请求会共用负载均衡地址的令牌桶
+     */
+    @Value("${rate-limit.trusted-proxies:}")
+    private String trustedProxies;
+
+    /**
+     * 各分组的限额，格式为 身份=每秒令牌数/桶容量，多个身份以逗号分隔，未列出的身份不限流
+     */
+    @Value("${rate-limit.groups.auth:ANONYMOUS=0.2/10}")
+    private String authLimits;
+
+    @Value("${rate-limit.groups.order-register:PATIENT=1/5,ADMIN=5/20}")
+    private String orderRegisterLimits;
+
+    @Value("${rate-limit.groups.slot-query:PATIENT=10/20,DOCTOR=20/40,ANONYMOUS=5/10}")
+    private String slotQueryLimits;
+
+    @Value("${rate-limit.groups.default:PATIENT=20/40,DOCTOR=30/60,ADMIN=50/100,ANONYMOUS=10/20}")
+    private String defaultLimits;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final List<Group> groups = new ArrayList<>();
+
+    private LocalCache<String, Bucket> buckets;
+
+    private final List<IpRange> trustedProxyRanges = new ArrayList<>();
+
+    private final AtomicBoolean untrustedForwardWarned = new AtomicBoolean();
+
+    private final LongAdder redisCalls = new LongAdder();
+    private final LongAdder localFallbacks = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        buckets = new LocalCache<>(localMaxSize, Math.max(leaseMillis, 60000), TimeUnit.MILLISECONDS);
+        for (String cidr : trustedProxies.split(",")) {
+            if (!cidr.isBlank()) {
+                trustedProxyRanges.add(IpRange.parse(cidr.trim()));
+            }
+        }
+        if (enabled && trustedProxyRanges.isEmpty()) {
+            log.warn("未配置rate-limit.trusted-proxies，匿名请求按连接来源地址限流；"
+                    + "部署在负载均衡之后时全部客户端将共用同一个令牌桶，登录等接口会被整体限流");
+        }
+        // 按顺序匹配，第一个匹配的分组生效；登录、注册和找回密码不论是否携带令牌都按IP限流，防止撞库
+        groups.add(new Group("order-register", orderRegisterLimits, false, "/order/register"));
+        groups.add(new Group("auth", authLimits, true,
+                "/*/login", "/*/register", "/*/forgot-password"));
+        groups.add(new Group("slot-query", slotQueryLimits, false, "/slot/**"));
+        groups.add(new Group("default", defaultLimits, false, "/**"));
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!enabled) {
+            return true;
+        }
+        String requestUri = request.getRequestURI();
+        Group group = match(requestUri);
+        if (group == null) {
+            return true;
+        }
+        String identity = group.byIp ? null : BaseContext.getCurrentIdentity();
+        Long userId = identity != null ? BaseContext.getCurrentId() : null;
+        if (identity == null || userId == null) {
+            identity = ANONYMOUS;
+        }
+        Limit limit = group.limits.get(identity);
+        if (limit == null) {
+            return true;
+        }
+        String principal = ANONYMOUS.equals(identity) ? "ip:" + clientIp(request) : identity + ":" + userId;
+        long waitMillis = acquire(group.name + ":" + principal, limit);
+        if (waitMillis == 0) {
+            group.allowed.increment();
+            return true;
+        }
+        group.rejected.increment();
+        log.warn("请求过于频繁: {}, 分组: {}, 来源: {}", requestUri, group.name, principal);
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, (waitMillis + 999) / 1000)));
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"code\": 429, \"msg\": \"Too Many Requests\", \"data\": null}");
+        return false;
+    }
+
+    /**
+     * 限流统计
+     * @return 各分组的放行和拒绝次数、Redis调用次数、本地降级次数和本地令牌桶数量
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        Map<String, Object> groupStats = new LinkedHashMap<>();
+        for (Group group : groups) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("allowed", group.allowed.sum());
+            item.put("rejected", group.rejected.sum());
+            groupStats.put(group.name, item);
+        }
+        stats.put("groups", groupStats);
+        stats.put("redisCalls", redisCalls.sum());
+        stats.put("localFallbacks", localFallbacks.sum());
+        stats.put("localBuckets", buckets.size());
+        return stats;
+    }
+
+    /**
+     * 取一个令牌
+     * @return 0表示放行，否则为建议的等待毫秒数
+     */
+    private long acquire(String key, Limit limit) {
+        long now = System.currentTimeMillis();
+        Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(limit.burst, now));
+        if (bucket.tryLeased(now)) {
+            return 0;
+        }
+        redisCalls.increment();
+        Long result = redisUtil.acquirePermits(KEY_PREFIX + key, limit.rate, limit.burst, bucket.nextLeaseSize(limit, now));
+        if (result == null) {
+            localFallbacks.increment();
+            return bucket.tryLocal(limit, now);
+        }
+        if (result > 0) {
+            bucket.lease(result - 1, now + leaseMillis);
+            return 0;
+        }
+        return -result;
+    }
+
+    private Group match(String requestUri) {
+        for (Group group : groups) {
+            for (String pattern : group.patterns) {
+                if (pathMatcher.match(pattern, requestUri)) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 解析客户端IP
+     * 只有连接来自受信任的代理时才读取X-Forwarded-For，并由右向左跳过受信任的代理，
+     * 客户端自行伪造的左侧地址不会被采用；全部为受信任代理时取最左侧的地址
+     */
+    String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || forwarded.isBlank()) {
+            return remoteAddr;
+        }
+        if (trustedProxyRanges.isEmpty()) {
+            if (untrustedForwardWarned.compareAndSet(false, true)) {
+                log.warn("收到X-Forwarded-For请求头但未配置rate-limit.trusted-proxies，按连接来源地址{}限流", remoteAddr);
+            }
+            return remoteAddr;
+        }
+        if (!isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        String[] hops = forwarded.split(",");
+        String client = remoteAddr;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                continue;
+            }
+            client = hop;
+            if (!isTrustedProxy(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        InetAddress parsed = parseIp(address);
+        if (parsed == null) {
+            return false;
+        }
+        for (IpRange range : trustedProxyRanges) {
+            if (range.contains(parsed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 只解析IP字面量，其他字符串返回null
+     */
+    private static InetAddress parseIp(String address) {
+        if (address == null) {
+            return null;
+        }
+        try {
+            if (IPV4_LITERAL.matcher(address).matches()) {
+                String[] octets = address.split("\\.");
+                byte[] bytes = new byte[4];
+                for (int i = 0; i < 4; i++) {
+                    int octet = Integer.parseInt(octets[i]);
+                    if (octet > 255) {
+                        return null;
+                    }
+                    bytes[i] = (byte) octet;
+                }
+                return InetAddress.getByAddress(bytes);
+            }
+            if (IPV6_LITERAL.matcher(address).matches()) {
+                return InetAddress.getByName(address);
+            }
+        } catch (UnknownHostException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * CIDR地址段，不带前缀长度时只匹配单个地址
+     */
+    private static final class IpRange {
+        private final byte[] network;
+        private final int prefixLength;
+
+        private IpRange(byte[] network, int prefixLength) {
+            this.network = network;
+            this.prefixLength = prefixLength;
+        }
+
+        private static IpRange parse(String cidr) {
+            int slash = cidr.indexOf('/');
+            InetAddress address = parseIp(slash > 0 ? cidr.substring(0, slash) : cidr);
+            if (address == null) {
+                throw new IllegalArgumentException("无法解析受信任代理地址: " + cidr);
+            }
+            byte[] bytes = address.getAddress();
+            int prefixLength = slash > 0 ? Integer.parseInt(cidr.substring(slash + 1)) : bytes.length * 8;
+            if (prefixLength < 0 || prefixLength > bytes.length * 8) {
+                throw new IllegalArgumentException("受信任代理地址前缀长度无效: " + cidr);
+            }
+            return new IpRange(bytes, prefixLength);
+        }
+
+        private boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (bytes[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remainingBits)) & 0xFF;
+            return (bytes[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+
+    /**
+     * 接口分组
+     */
+    private final class Group {
+        private final String name;
+        private final String[] patterns;
+        private final boolean byIp;
+        private final Map<String, Limit> limits = new HashMap<>();
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        private Group(String name, String spec, boolean byIp, String... patterns) {
+            this.name = name;
+            this.patterns = patterns;
+            this.byIp = byIp;
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.trim().split("[=/]");
+                if (parts.length != 3) {
+                    if (!entry.isBlank()) {
+                        log.warn("忽略无法解析的限流配置，分组: {}, 配置: {}", name, entry);
+                    }
+                    continue;
+                }
+                double rate = Double.parseDouble(parts[1]);
+                int burst = Integer.parseInt(parts[2]);
+                if (rate > 0 && burst > 0) {
+                    limits.put(parts[0].trim().toUpperCase(), new Limit(rate, burst, leaseSize(rate, burst)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 一批令牌的数量上限：不超过一个租期内补充的令牌数，也不超过桶容量的一半，低速率时为1
+     */
+    private int leaseSize(double rate, int burst) {
+        int size = (int) Math.min(rate * leaseMillis / 1000, burst / 2.0);
+        return Math.max(1, Math.min(size, maxLeaseSize));
+    }
+
+    /**
+     * 限额
+     */
+    private static final class Limit {
+        private final double rate;
+        private final int burst;
+        private final int leaseSize;
+
+        private Limit(double rate, int burst, int leaseSize) {
+            this.rate = rate;
+            this.burst = burst;
+            this.leaseSize = leaseSize;
+        }
+    }
+
+    /**
+     * 本地令牌桶：正常时保存从Redis取出的令牌，降级时按本节点独立计算
+     */
+    private static final class Bucket {
+        private long leased;
+        private long leaseExpiresAt;
+        private int leaseSize = 1;
+        private double tokens;
+        private long refilledAt;
+
+        private Bucket(int burst, long now) {
+            this.tokens = burst;
+            this.refilledAt = now;
+        }
+
+        private synchronized boolean tryLeased(long now) {
+            if (leased > 0 && now < leaseExpiresAt) {
+                leased--;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 上一批在租期内用完说明请求密集，下一批加倍；租期到了还有剩余说明取多了，下一批减半，避免浪费共享限额
+         */
+        private synchronized int nextLeaseSize(Limit limit, long now) {
+            if (leaseExpiresAt > 0) {
+                if (leased == 0 && now < leaseExpiresAt) {
+                    leaseSize = Math.min(leaseSize * 2, limit.leaseSize);
+                } else if (leased > 0) {
+                    leaseSize = Math.max(1, leaseSize / 2);
+                }
+            }
+            return Math.min(leaseSize, limit.leaseSize);
+        }
+
+        private synchronized void lease(long permits, long expiresAt) {
+            leased = permits;
+            leaseExpiresAt = expiresAt;
+        }
+
+        private synchronized long tryLocal(Limit limit, long now) {
+            tokens = Math.min(limit.burst, tokens + (now - refilledAt) * limit.rate / 1000);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * 1000 / limit.rate);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.luoye.interceptor;
+
+import com.luoye.metrics.LatencyHistogram;
+import com.luoye.trace.Span;
+import com.luoye.trace.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * SQL执行统计
+ * 按Mapper方法（MappedStatement ID）记录每条语句的耗时分布、返回或影响的行数和异常次数，并在当前请求的链路中记为SQL类型的Span；
+ * 超过慢查询阈值的语句按归一化SQL保存在有界的Top-N表中，可选地在后台线程执行EXPLAIN，
+ * 发现全表扫描或未使用索引时输出告警
+ */
+@Slf4j
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class})
+})
+public class SqlMetricsInterceptor implements Interceptor {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+
+    /**
+     * 同一条SQL再次执行EXPLAIN的最短间隔
+     */
+    private static final long EXPLAIN_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Value("${metrics.sql.slow-query-millis:200}")
+    private long slowQueryMillis;
+
+    @Value("${metrics.sql.top-n:50}")
+    private int topN;
+
+    @Value("${metrics.sql.explain-enabled:false}")
+    private boolean explainEnabled;
+
+    @Value("${metrics.sql.explain-threshold-millis:1000}")
+    private long explainThresholdMillis;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, SlowStatement> slowStatements = new ConcurrentHashMap<>();
+
+    private final LongAdder explainRuns = new LongAdder();
+    private final LongAdder explainSkipped = new LongAdder();
+
+    private ThreadPoolExecutor explainExecutor;
+
+    @PostConstruct
+    public void init() {
+        // 单线程、小队列，EXPLAIN积压时直接放弃，不占用业务连接
+        explainExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(16), runnable -> {
+                    Thread thread = new Thread(runnable, "sql-explain");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, executor) -> explainSkipped.increment());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        explainExecutor.shutdownNow();
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        Span span = Tracer.start(Tracer.SQL, ms.getId());
+        long start = System.nanoTime();
+        Object result = null;
+        boolean success = false;
+        try {
+            result = invocation.proceed();
+            success = true;
+            return result;
+        } catch (Throwable e) {
+            Tracer.error(span, e);
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Tracer.end(span);
+            long rows = rowsOf(result);
+            StatementStats stats = statements.get(ms.getId());
+            if (stats == null) {
+                stats = statements.computeIfAbsent(ms.getId(), key -> new StatementStats());
+            }
+            stats.histogram.record(elapsed);
+            if (rows >= 0) {
+                stats.rows.add(rows);
+                stats.maxRows.accumulate(rows);
+            }
+            if (!success) {
+                stats.errors.increment();
+            }
+            if (elapsed >= TimeUnit.MILLISECONDS.toNanos(slowQueryMillis)) {
+                recordSlow(ms, args, elapsed, rows);
+            }
+        }
+    }
+
+    /**
+     * SQL执行统计
+     * @return 各Mapper方法的耗时分布和行数，以及按最大耗时排列的慢SQL
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("slowQueryMillis", slowQueryMillis);
+        Map<String, Object> statementStats = new LinkedHashMap<>();
+        statements.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> {
+                    StatementStats stats = entry.getValue();
+                    Map<String, Object> item = new LinkedHashMap<>(stats.histogram.snapshot());
+                    item.put("rows", stats.rows.sum());
+                    item.put("maxRows", stats.maxRows.get());
+                    item.put("errors", stats.errors.sum());
+                    statementStats.put(entry.getKey(), item);
+                });
+        result.put("statements", statementStats);
+        List<SlowStatement> slow = new ArrayList<>(slowStatements.values());
+        slow.sort(Comparator.comparingLong((SlowStatement s) -> s.maxNanos).reversed());
+        List<Map<String, Object>> slowList = new ArrayList<>(slow.size());
+        for (SlowStatement statement : slow) {
+            slowList.add(statement.toMap());
+        }
+        result.put("slowStatements", slowList);
+        result.put("explainRuns", explainRuns.sum());
+        result.put("explainSkipped", explainSkipped.sum());
+        return result;
+    }
+
+    private void recordSlow(MappedStatement ms, Object[] args, long elapsed, long rows) {
+        BoundSql boundSql = args.length == 6 ? (BoundSql) args[5] : ms.getBoundSql(args[1]);
+        String sql = normalize(boundSql.getSql());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        log.warn("[慢SQL] {} 执行时间: {}ms, 行数: {}", ms.getId(), elapsedMillis, rows);
+
+        SlowStatement statement = slowStatements.get(sql);
+        if (statement == null) {
+            synchronized (slowStatements) {
+                statement = slowStatements.get(sql);
+                if (statement == null) {
+                    if (slowStatements.size() >= topN && !evictFastest(elapsed)) {
+                        return;
+                    }
+                    statement = new SlowStatement(ms.getId(), sql);
+                    slowStatements.put(sql, statement);
+                }
+            }
+        }
+        statement.record(elapsed, rows);
+        if (explainEnabled && ms.getSqlCommandType() == SqlCommandType.SELECT
+                && elapsedMillis >= explainThresholdMillis && statement.claimExplain()) {
+            Object parameter = args[1];
+            SlowStatement target = statement;
+            explainExecutor.execute(() -> explain(ms, parameter, boundSql, target));
+        }
+    }
+
+    /**
+     * 表已满时淘汰最大耗时最小的一条，新语句不比它慢时不入表
+     */
+    private boolean evictFastest(long elapsed) {
+        SlowStatement fastest = null;
+        for (SlowStatement statement : slowStatements.values()) {
+            if (fastest == null || statement.maxNanos < fastest.maxNanos) {
+                fastest = statement;
+            }
+        }
+        if (fastest == null || fastest.maxNanos >= elapsed) {
+            return false;
+        }
+        slowStatements.remove(fastest.sql);
+        return true;
+    }
+
+    /**
+     * 使用原语句的参数执行EXPLAIN，记录访问类型和使用的索引
+     */
+    private void explain(MappedStatement ms, Object parameter, BoundSql boundSql, SlowStatement statement) {
+        explainRuns.increment();
+        List<Map<String, Object>> plan = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("EXPLAIN " + boundSql.getSql())) {
+            new DefaultParameterHandler(ms, parameter, boundSql).setParameters(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                while (rs.next()) {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                        row.put(metaData.getColumnLabel(i), rs.getObject(i));
+                    }
+                    plan.add(row);
+                }
+            }
+        } catch (Exception e) {
+            log.debug("EXPLAIN执行失败: {}, {}", ms.getId(), e.getMessage());
+            return;
+        }
+        statement.plan = plan;
+        for (Map<String, Object> row : plan) {
+            if ("ALL".equals(row.get("type")) || row.get("key") == null) {
+                log.warn("[慢SQL] {} 可能缺少索引，表: {}, 访问类型: {}, 扫描行数: {}", ms.getId(),
+                        row.get("table"), row.get("type"), row.get("rows"));
+            }
+        }
+    }
+
+    /**
+     * 归一化SQL：合并空白，IN列表中的多个占位符合并为一个，使参数个数不同的同一语句归为一条
+     */
+    private static String normalize(String sql) {
+        String normalized = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return PLACEHOLDER_LIST.matcher(normalized).replaceAll("(?...)");
+    }
+
+    private static long rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        // 流式查询通过ResultHandler逐行返回，行数未知
+        return -1L;
+    }
+
+    /**
+     * 单条Mapper方法的统计
+     */
+    private static final class StatementStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAccumulator maxRows = new LongAccumulator(Math::max, 0);
+        private final LongAdder errors = new LongAdder();
+    }
+
+    /**
+     * 慢SQL记录
+     */
+    private static final class SlowStatement {
+        private final String statementId;
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private volatile long maxNanos;
+        private volatile long lastRows;
+        private volatile long lastSeen;
+        private volatile long lastExplain;
+        private volatile List<Map<String, Object>> plan;
+
+        private SlowStatement(String statementId, String sql) {
+            this.statementId = statementId;
+            this.sql = sql;
+        }
+
+        private void record(long elapsed, long rows) {
+            count.increment();
+            totalNanos.add(elapsed);
+            if (elapsed > maxNanos) {
+                maxNanos = elapsed;
+            }
+            lastRows = rows;
+            lastSeen = System.currentTimeMillis();
+        }
+
+        private synchronized boolean claimExplain() {
+            long now = System.currentTimeMillis();
+            if (now - lastExplain < EXPLAIN_INTERVAL_MILLIS) {
+                return false;
+            }
+            lastExplain = now;
+            return true;
+        }
+
+        private Map<String, Object> toMap() {
+            long executions = count.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("statementId", statementId);
+            map.put("sql", sql);
+            map.put("count", executions);
+            map.put("meanMs", executions == 0 ? 0.0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / executions) / 1000.0);
+            map.put("maxMs", TimeUnit.NANOSECONDS.toMicros(maxNanos) / 1000.0);
+            map.put("lastRows", lastRows);
+            map.put("lastSeen", lastSeen);
+            map.put("plan", plan);
+            return map;
+        }
+    }
+}
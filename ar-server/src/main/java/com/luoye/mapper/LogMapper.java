@@ -2,8 +2,27 @@ package com.luoye.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.luoye.entity.Log;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface LogMapper extends BaseMapper<Log> {
+
+    /**
+     * 一条多行INSERT批量写入日志
+     * @param logs 日志列表，不能为空
+     * @return 写入行数
+     */
+    @Insert("<script>" +
+            "insert into log (log_type, operator_type, operator_id, operator_name, target_type, target_id," +
+            " operation_detail, ip_address, success_flag, error_message, create_time) values " +
+            "<foreach collection='logs' item='l' separator=','>" +
+            "(#{l.logType}, #{l.operatorType}, #{l.operatorId}, #{l.operatorName}, #{l.targetType}, #{l.targetId}," +
+            " #{l.operationDetail}, #{l.ipAddress}, #{l.successFlag}, #{l.errorMessage}, #{l.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("logs") List<Log> logs);
 }
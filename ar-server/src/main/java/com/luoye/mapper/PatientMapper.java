@@ -1,10 +1,59 @@
 package com.luoye.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.luoye.entity.Patient;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Mapper
 public interface PatientMapper extends BaseMapper<Patient> {
 
+    /**
+     * 流式查询，MySQL驱动逐行返回结果，不会把整张表加载到内存
+     * @param wrapper 查询条件
+     * @param handler 逐行处理结果
+     */
+    @Select("select * from patient ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Patient.class)
+    void streamByWrapper(@Param(Constants.WRAPPER) Wrapper<Patient> wrapper, ResultHandler<Patient> handler);
+
+    /**
+     * 流式查询近期有就诊活动的患者：出诊日期在窗口内的待支付、已支付、已取号订单，或未结束的排队记录。
+     * 依赖索引 idx_slot_schedule_date、idx_order_slot_status、idx_queue_status_patient
+     * @param startDate 窗口开始日期
+     * @param endDate 窗口结束日期
+     * @param since 增量起点，为null时返回窗口内全部患者；否则只返回患者信息或就诊活动在此之后变化的患者
+     * @param handler 逐行处理结果
+     */
+    @Select("<script>" +
+            "select p.* from patient p join (" +
+            "  select t.patient_id, max(t.activity_time) activity_time from (" +
+            "    select o.patient_id, o.update_time activity_time from `order` o" +
+            "      join slot s on s.id = o.slot_id" +
+            "     where s.schedule_date between #{startDate} and #{endDate}" +
+            "       and o.order_status in (1, 2, 5)" +
+            "    union all" +
+            "    select q.patient_id, q.update_time activity_time from queue q" +
+            "     where q.queue_status in (1, 2, 3)" +
+            "  ) t group by t.patient_id" +
+            ") a on a.patient_id = p.id" +
+            "<if test='since != null'> where p.update_time &gt;= #{since} or a.activity_time &gt;= #{since}</if>" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Patient.class)
+    void streamActivePatients(@Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate,
+                              @Param("since") LocalDateTime since,
+                              ResultHandler<Patient> handler);
 }
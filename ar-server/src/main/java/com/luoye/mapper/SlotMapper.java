@@ -1,9 +1,49 @@
 package com.luoye.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.luoye.entity.Slot;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 @Mapper
 public interface SlotMapper extends BaseMapper<Slot> {
+
+    /**
+     * 流式查询，MySQL驱动逐行返回结果，不会把整张表加载到内存
+     * @param wrapper 查询条件
+     * @param handler 逐行处理结果
+     */
+    @Select("select * from slot ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Slot.class)
+    void streamByWrapper(@Param(Constants.WRAPPER) Wrapper<Slot> wrapper, ResultHandler<Slot> handler);
+
+    /**
+     * 条件增加已预订数，库存以数据库为准，Redis计数只用于预先过滤
+     * MySQL按顺序执行赋值，status判断的是加1之后的已预订数，约满时置为已约满(2)
+     * @param id 号源ID
+     * @return 影响行数，为0表示号源不可预约或已约满
+     */
+    @Update("update slot set booked_count = booked_count + 1, "
+            + "status = case when booked_count >= total_count then 2 else status end, update_time = now() "
+            + "where id = #{id} and status = 1 and booked_count < total_count")
+    int incrementBookedCount(@Param("id") Long id);
+
+    /**
+     * 条件减少已预订数，已约满(2)的号源恢复为可预约(1)
+     * @param id 号源ID
+     * @return 影响行数，为0表示号源不存在或已预订数为0
+     */
+    @Update("update slot set booked_count = booked_count - 1, "
+            + "status = case when status = 2 then 1 else status end, update_time = now() "
+            + "where id = #{id} and booked_count > 0")
+    int decrementBookedCount(@Param("id") Long id);
 }
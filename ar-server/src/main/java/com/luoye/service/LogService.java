@@ -2,10 +2,18 @@ package com.luoye.service;
 
 import com.luoye.entity.Log;
 
+import java.util.List;
+
 public interface LogService {
     /**
      * 保存日志
      * @param log 日志信息
      */
     void save(Log log);
+
+    /**
+     * 批量保存日志，一条INSERT写入整批
+     * @param logs 日志列表
+     */
+    void saveBatch(List<Log> logs);
 }
@@ -2,6 +2,8 @@ package com.luoye.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.cache.TokenRevocationList;
 import com.luoye.constant.MessageConstant;
 import com.luoye.context.BaseContext;
 import com.luoye.dto.admin.AdminLoginDTO;
@@ -41,6 +43,15 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
     @Autowired
     private AdminMapper adminMapper;
 
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     @Autowired
     @Lazy
     private  AdminService adminService;
@@ -95,6 +106,7 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
             log.error("管理员插入失败，result={}, admin={}", result, admin);
             throw new BaseException(MessageConstant.ADMIN_REGISTER_FAILED);
         }
+        redisUtil.markEntityCreated("admin::", admin.getId());
 
         log.info("管理员注册成功，手机号："+ adminRegisterDTO.getPhone());
     }
@@ -149,12 +161,17 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
      * @return 管理员实体
      */
     @Override
-    @Cacheable(value = "admin", key = "#id",unless = "#result ==null")
+    @Cacheable(value = "admin", key = "#id",unless = "#result ==null",
+            condition = "@entityIdFilter.mightExist('admin', #id)")
     public Admin getById(Long id) {
         // 验证参数是否为空
         if (id == null) {
             throw new BaseException(MessageConstant.PARAMETER_EMPTY);
         }
+        // 一定不存在的ID直接返回，不访问缓存和数据库
+        if (!entityIdFilter.mightExist("admin", id)) {
+            return null;
+        }
 
         //查询缓存
         return adminMapper.selectById(id);
@@ -278,6 +295,8 @@ public class AdminServiceImpl extends ServiceImpl<AdminMapper, Admin> implements
             throw new BaseException(MessageConstant.UPDATE_FAILED);
         }
         logger.info("管理员 {} 密码重置成功", phone);
+        // 重置密码后旧密码登录得到的令牌全部失效
+        redisUtil.runAfterCommit(() -> tokenRevocationList.revokePrincipal("ADMIN", admin.getId()));
 
         return admin.getId();
     }
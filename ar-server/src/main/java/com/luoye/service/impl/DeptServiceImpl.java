@@ -3,6 +3,8 @@ package com.luoye.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.luoye.cache.CacheTags;
+import com.luoye.cache.EntityIdFilter;
 import com.luoye.dto.dept.DeptCreateDTO;
 import com.luoye.dto.dept.DeptPageQueryDTO;
 import com.luoye.dto.dept.DeptStatusUpdateDTO;
@@ -16,7 +18,6 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -34,6 +35,11 @@ import java.util.Set;
 @EnableCaching
 public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements DeptService {
 
+    /**
+     * 启用科室列表缓存键
+     */
+    private static final String ENABLED_DEPT_LIST_KEY = "dept_list::enabled";
+
     @Autowired
     private DeptMapper deptMapper;
 
@@ -44,6 +50,9 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
     @Autowired
     private RedisUtil redisUtil;
 
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
 
     /**
      * 分页查询科室信息
@@ -155,12 +164,7 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "dept", key = "#deptUpdateDTO.id"),
-                    @CacheEvict(value = "dept_list", key = "'enabled'")
-            }
-    )
+    @CacheEvict(value = "dept", key = "#deptUpdateDTO.id")
     public void update(DeptUpdateDTO deptUpdateDTO) {
         // 验证参数是否为空
         if (deptUpdateDTO.getId() == null) {
@@ -220,6 +224,9 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
 
         // 更新数据库
         deptMapper.updateById(existingDept);
+        // 号源列表中冗余了科室名称，按标签失效
+        redisUtil.invalidateTagsAfterCommit(CacheTags.dept(existingDept.getId()));
+        syncEnabledDeptList(existingDept);
     }
 
     /**
@@ -228,12 +235,7 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "dept", key = "#id"),
-                    @CacheEvict(value = "dept_list", key = "'enabled'")
-            }
-    )
+    @CacheEvict(value = "dept", key = "#id")
     public void delete(Long id) {
 
         // 验证参数是否为空
@@ -249,6 +251,8 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
 
         // 执行删除
         deptMapper.deleteById(id);
+        redisUtil.invalidateTagsAfterCommit(CacheTags.dept(id));
+        redisUtil.removeListMemberAfterCommit(ENABLED_DEPT_LIST_KEY, Dept.class, Dept::getId, id);
     }
 
     /**
@@ -257,12 +261,7 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "dept", key = "#statusUpdateDTO.id"),
-                    @CacheEvict(value = "dept_list", key = "'enabled'")
-            }
-    )
+    @CacheEvict(value = "dept", key = "#statusUpdateDTO.id")
     public void updateStatus(DeptStatusUpdateDTO statusUpdateDTO) {
 
         // 参数验证 - 确保ID和状态不为null
@@ -291,6 +290,8 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
 
         // 将更新后的数据保存到数据库
         deptMapper.updateById(existingDept);
+        redisUtil.invalidateTagsAfterCommit(CacheTags.dept(id));
+        syncEnabledDeptList(existingDept);
 
     }
 
@@ -300,12 +301,17 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
      * @return 科室实体
      */
     @Override
-    @Cacheable(value = "dept",key ="#id",unless = "#result == null")
+    @Cacheable(value = "dept",key ="#id",unless = "#result == null",
+            condition = "@entityIdFilter.mightExist('dept', #id)")
     public Dept getById(Long id) {
         // 验证参数是否为空
         if (id == null) {
             throw new BaseException(MessageConstant.PARAMETER_EMPTY);
         }
+        // 一定不存在的ID直接返回，不访问缓存和数据库
+        if (!entityIdFilter.mightExist("dept", id)) {
+            return null;
+        }
 
         return deptMapper.selectById(id);
     }
@@ -326,7 +332,6 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "dept_list",allEntries = true)
     public Dept create(DeptCreateDTO deptCreateDTO) {
 
         //科室名称不能为空
@@ -381,6 +386,8 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
 
         // 保存到数据库
         deptMapper.insert(dept);
+        redisUtil.markEntityCreated("dept::", dept.getId());
+        syncEnabledDeptList(dept);
 
         return dept;
     }
@@ -409,4 +416,16 @@ public class DeptServiceImpl extends ServiceImpl<DeptMapper, Dept> implements De
         return result;
     }
 
+    /**
+     * 事务提交后增量同步启用科室列表缓存：启用的科室替换或加入列表，停用的从列表移除
+     * @param dept 修改后的科室
+     */
+    private void syncEnabledDeptList(Dept dept) {
+        if (Integer.valueOf(1).equals(dept.getStatus())) {
+            redisUtil.upsertListMemberAfterCommit(ENABLED_DEPT_LIST_KEY, Dept.class, Dept::getId, dept);
+        } else {
+            redisUtil.removeListMemberAfterCommit(ENABLED_DEPT_LIST_KEY, Dept.class, Dept::getId, dept.getId());
+        }
+    }
+
 }
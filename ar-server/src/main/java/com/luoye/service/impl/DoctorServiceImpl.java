@@ -3,6 +3,9 @@ package com.luoye.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.luoye.cache.CacheTags;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.cache.TokenRevocationList;
 import com.luoye.constant.MessageConstant;
 import com.luoye.dto.doctor.*;
 import com.luoye.entity.Doctor;
@@ -19,7 +22,6 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -38,6 +40,11 @@ import java.util.concurrent.TimeUnit;
 @Slf4j
 public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> implements DoctorService {
 
+    /**
+     * 科室在职医生列表缓存键前缀
+     */
+    private static final String DOCTOR_DEPT_KEY = "doctor_dept::";
+
     @Autowired
     private DoctorMapper doctorMapper;
 
@@ -48,6 +55,12 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
     @Autowired
     private RedisUtil redisUtil;
 
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
 
     /**
      * 医生注册
@@ -84,6 +97,8 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
         if(insert <= 0){
             throw new BaseException(MessageConstant.REGISTER_ERROR);
         }
+        redisUtil.markEntityCreated("doctor::", doctor.getId());
+        syncDeptDoctorList(null, doctor);
     }
 
     /**
@@ -301,13 +316,7 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "doctor", key = "#doctorUpdateDTO.id"),
-                    @CacheEvict(value = "doctor_dept", key = "#doctorUpdateDTO.deptId",
-                            condition = "#doctorUpdateDTO.deptId != null")
-            }
-    )
+    @CacheEvict(value = "doctor", key = "#doctorUpdateDTO.id")
     public void update(DoctorUpdateDTO doctorUpdateDTO) {
         //检查必要参数
         if (doctorUpdateDTO.getId() == null) {
@@ -355,7 +364,8 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
             }
         }
 
-        // 复制属性到现有医生对象
+        // 复制属性到现有医生对象，先记下原科室用于同步科室医生列表
+        Long previousDeptId = existingDoctor.getDeptId();
         BeanUtils.copyProperties(doctorUpdateDTO, existingDoctor, "password", "createTime");
 
 
@@ -368,6 +378,9 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
 
         // 更新数据库
         doctorMapper.updateById(existingDoctor);
+        // 号源列表中冗余了医生信息，按标签失效
+        redisUtil.invalidateTagsAfterCommit(CacheTags.doctor(existingDoctor.getId()));
+        syncDeptDoctorList(previousDeptId, existingDoctor);
 
     }
 
@@ -377,13 +390,7 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "doctor", key = "#id"),
-                    @CacheEvict(value = "doctor_dept", key = "#result.deptId",
-                                condition = "result != null")
-            }
-    )
+    @CacheEvict(value = "doctor", key = "#id")
     public Doctor delete(Long id) {
         //检查必要参数
         if (id == null) {
@@ -401,6 +408,12 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
         if(result <= 0){
             throw new BaseException(MessageConstant.DELETE_FAILED);
         }
+        redisUtil.invalidateTagsAfterCommit(CacheTags.doctor(id));
+        redisUtil.runAfterCommit(() -> tokenRevocationList.revokePrincipal("DOCTOR", id));
+        if (existingDoctor.getDeptId() != null) {
+            redisUtil.removeListMemberAfterCommit(DOCTOR_DEPT_KEY + existingDoctor.getDeptId(), Doctor.class,
+                    Doctor::getId, id);
+        }
 
         return existingDoctor;
 
@@ -412,12 +425,7 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "doctor", key = "#doctorStatusUpdateDTO.id"),
-                    @CacheEvict(value = "doctor_dept", key = "#result.deptId")
-            }
-    )
+    @CacheEvict(value = "doctor", key = "#doctorStatusUpdateDTO.id")
     public Doctor updateStatus(DoctorStatusUpdateDTO doctorStatusUpdateDTO) {
         //检查必要参数
         if(doctorStatusUpdateDTO.getStatus() == null || doctorStatusUpdateDTO.getId() == null){
@@ -442,6 +450,12 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
         existingDoctor.setStatus(status);
         existingDoctor.setUpdateTime(LocalDateTime.now());
         doctorMapper.updateById(existingDoctor);
+        redisUtil.invalidateTagsAfterCommit(CacheTags.doctor(existingDoctor.getId()));
+        syncDeptDoctorList(null, existingDoctor);
+        if (status == 2) {
+            // 离职后已签发的令牌全部吊销
+            redisUtil.runAfterCommit(() -> tokenRevocationList.revokePrincipal("DOCTOR", existingDoctor.getId()));
+        }
 
         log.info("医生状态更新成功 - 医生ID: {}, 新状态: {}",
                 doctorStatusUpdateDTO.getId(), status);
@@ -454,12 +468,17 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
      * @return 医生实体
      */
     @Override
-    @Cacheable(value = "doctor" ,key = "#id",unless = "#result == null")
+    @Cacheable(value = "doctor" ,key = "#id",unless = "#result == null",
+            condition = "@entityIdFilter.mightExist('doctor', #id)")
     public Doctor getById(Long id) {
         // 检查参数是否为空
         if (id == null) {
             throw new BaseException(MessageConstant.PARAMETER_EMPTY);
         }
+        // 一定不存在的ID直接返回，不访问缓存和数据库
+        if (!entityIdFilter.mightExist("doctor", id)) {
+            return null;
+        }
         return doctorMapper.selectById(id);
     }
 
@@ -470,18 +489,15 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
      */
     @Override
     public List<Doctor> getDoctorsByDeptId(Long deptId) {
-        // 读取时使用类型安全的方法
-        List<Doctor> doctorsInDept = redisUtil.getList("doctor_dept::" + deptId, Doctor.class);
-
-        if(doctorsInDept == null) {
-            // 从数据库查询（缓存未命中时）
+        // 读取时使用类型安全的方法，热点科室在过期前由后台提前刷新
+        return redisUtil.getListWithRefreshAhead(DOCTOR_DEPT_KEY + deptId, Doctor.class, () -> {
+            // 从数据库查询（缓存未命中或提前刷新时）
             QueryWrapper<Doctor> wrapper = new QueryWrapper<>();
             wrapper.eq("dept_id", deptId);
             // 只查询在职医生
             wrapper.eq("status", 1);
-            doctorsInDept = doctorMapper.selectList(wrapper);
-        }
-        return doctorsInDept;
+            return doctorMapper.selectList(wrapper);
+        }, null, 2, TimeUnit.HOURS);
     }
 
     /**
@@ -491,12 +507,7 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
      */
     @Override
     @Transactional(rollbackFor = Exception.class)
-    @Caching(
-            evict = {
-                    @CacheEvict(value = "doctor", key = "#result.id"),
-                    @CacheEvict(value = "doctor_dept", key = "#result.deptId")
-            }
-    )
+    @CacheEvict(value = "doctor", key = "#result.id")
     public Doctor forgotPassword(String phone, String newPassword) {
         // 验证手机号和新密码
         if (phone == null || phone.trim().isEmpty()) {
@@ -534,7 +545,36 @@ public class DoctorServiceImpl extends ServiceImpl<DoctorMapper, Doctor> impleme
         if(result <= 0){
             throw new BaseException(MessageConstant.UPDATE_FAILED);
         }
+        // 科室医生列表中的医生与数据库保持一致
+        doctor.setPassword(doctorToUpdate.getPassword());
+        doctor.setUpdateTime(doctorToUpdate.getUpdateTime());
+        syncDeptDoctorList(null, doctor);
+        // 重置密码后旧密码登录得到的令牌全部失效
+        redisUtil.runAfterCommit(() -> tokenRevocationList.revokePrincipal("DOCTOR", doctor.getId()));
 
         return doctorToUpdate;
     }
+
+    /**
+     * 事务提交后增量同步科室医生列表缓存：在职医生替换或加入所在科室列表，其他状态从列表移除，
+     * 科室变化时同时从原科室列表移除
+     * @param previousDeptId 修改前的科室ID，科室未变化时传null
+     * @param doctor 修改后的医生
+     */
+    private void syncDeptDoctorList(Long previousDeptId, Doctor doctor) {
+        if (previousDeptId != null && !previousDeptId.equals(doctor.getDeptId())) {
+            redisUtil.removeListMemberAfterCommit(DOCTOR_DEPT_KEY + previousDeptId, Doctor.class,
+                    Doctor::getId, doctor.getId());
+        }
+        if (doctor.getDeptId() == null) {
+            return;
+        }
+        if (Integer.valueOf(1).equals(doctor.getStatus())) {
+            redisUtil.upsertListMemberAfterCommit(DOCTOR_DEPT_KEY + doctor.getDeptId(), Doctor.class,
+                    Doctor::getId, doctor);
+        } else {
+            redisUtil.removeListMemberAfterCommit(DOCTOR_DEPT_KEY + doctor.getDeptId(), Doctor.class,
+                    Doctor::getId, doctor.getId());
+        }
+    }
 }
@@ -10,6 +10,8 @@ import com.luoye.entity.Log;
 import com.luoye.mapper.LogMapper;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.List;
+
 @Service
 @Slf4j
 public class LogServiceImpl  implements LogService {
@@ -25,13 +27,7 @@ public class LogServiceImpl  implements LogService {
     @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
     public void save(Log entity) {
         try{
-            // 确保必要字段不为 null
-            if (entity.getOperatorType() == null) {
-                entity.setOperatorType("ANONYMOUS");
-            }
-            if (entity.getSuccessFlag() == null) {
-                entity.setSuccessFlag(1);
-            }
+            applyDefaults(entity);
 
             logMapper.insert(entity);
             log.debug("日志保存成功：{}", entity.getOperationDetail());
@@ -42,4 +38,32 @@ public class LogServiceImpl  implements LogService {
             throw e;
         }
     }
+
+    /**
+     * 批量保存日志，由审计日志写入线程调用，不在业务事务中执行；失败时抛出异常，由调用方转存本地文件
+     * @param logs 日志列表
+     */
+    @Override
+    public void saveBatch(List<Log> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        for (Log entity : logs) {
+            applyDefaults(entity);
+        }
+        logMapper.insertBatch(logs);
+        log.debug("批量保存日志成功：{}条", logs.size());
+    }
+
+    /**
+     * 确保必要字段不为 null
+     */
+    private void applyDefaults(Log entity) {
+        if (entity.getOperatorType() == null) {
+            entity.setOperatorType("ANONYMOUS");
+        }
+        if (entity.getSuccessFlag() == null) {
+            entity.setSuccessFlag(1);
+        }
+    }
 }
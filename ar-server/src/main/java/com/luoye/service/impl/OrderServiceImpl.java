@@ -3,6 +3,9 @@ package com.luoye.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.luoye.cache.DegradedModeCoordinator;
+import com.luoye.cache.EntityHashCache;
+import com.luoye.cache.codec.EntitySchemas;
 import com.luoye.context.BaseContext;
 import com.luoye.dto.RegisterDTO;
 import com.luoye.constant.MessageConstant;
@@ -29,7 +32,9 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -60,6 +65,9 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
     @Autowired
     private RedisUtil redisUtil;
 
+    @Autowired
+    private DegradedModeCoordinator degradedModeCoordinator;
+
     @Autowired
     private PatientMapper patientMapper;
 
@@ -69,6 +77,9 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
     @Autowired
     private DeptMapper deptMapper;
 
+    @Autowired
+    private EntityHashCache entityHashCache;
+
     @Autowired
     private QueueService queueService;
 
@@ -126,9 +137,10 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
         if(slot == null){
             throw new BaseException(MessageConstant.SLOT_NOT_EXIST);
         }
-        //获取锁
+        //获取锁；Redis不可用时由bookSlot在事务中对号源行加锁
         String lockKey = "lock:slot_operation:" + slot.getId();
-        boolean locked = redisUtil.tryLock(lockKey, 3000, 15000, TimeUnit.MILLISECONDS);
+        boolean degraded = degradedModeCoordinator.isInventoryDegraded();
+        boolean locked = degraded || redisUtil.tryLock(lockKey, 3000, 15000, TimeUnit.MILLISECONDS);
         if (!locked) {
             throw new BaseException(MessageConstant.SYSTEM_BUSY);
         }
@@ -143,8 +155,9 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
             String bookedCountKey = "slot_inventory::bookedCount::" + registerDTO.getSlotId();
             String totalCountKey = "slot_inventory::totalCount::" + registerDTO.getSlotId();
 
-            Integer currentBooked = redisUtil.get(bookedCountKey, Integer.class);
-            Integer totalCount = redisUtil.get(totalCountKey, Integer.class);
+            // 降级模式下Redis计数可能落后于数据库，直接以数据库为准
+            Integer currentBooked = degraded ? null : redisUtil.get(bookedCountKey, Integer.class);
+            Integer totalCount = degraded ? null : redisUtil.get(totalCountKey, Integer.class);
 
             if (currentBooked == null){
                 currentBooked = slotMapper.selectById(registerDTO.getSlotId()).getBookedCount();
@@ -182,11 +195,14 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
             if (insert <= 0) {
                 throw new BaseException(MessageConstant.ORDER_CREATE_FAILED);
             }
+            redisUtil.markEntityCreated("order::", order.getId());
 
             return order.getId();
 
         } finally {
-            redisUtil.unlock(lockKey);
+            if (!degraded) {
+                redisUtil.unlock(lockKey);
+            }
         }
     }
 
@@ -266,9 +282,7 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
         List<Order> orderList = orderMapper.selectList(queryWrapper);
 
         // 转换为OrderDetailVO列表
-        List<OrderDetailVO> orderDetailVOList = orderList.stream()
-                .map(this::convertToOrderDetailVO)
-                .collect(Collectors.toList());
+        List<OrderDetailVO> orderDetailVOList = convertToOrderDetailVOs(orderList);
 
         log.info("查询到 {} 条订单记录", orderDetailVOList.size());
         return orderDetailVOList;
@@ -499,9 +513,10 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
         if (!order.getPatientId().equals(patientId)) {
             throw new BaseException(MessageConstant.NO_PERMISSION);
         }
-        // 使用号源锁
+        // 使用号源锁；Redis不可用时由cancelSlot在事务中对号源行加锁
         String lockKey = "lock:slot_operation:" + order.getSlotId();
-        boolean locked = redisUtil.tryLock(lockKey, 3000, 15000, TimeUnit.MILLISECONDS);
+        boolean degraded = degradedModeCoordinator.isInventoryDegraded();
+        boolean locked = degraded || redisUtil.tryLock(lockKey, 3000, 15000, TimeUnit.MILLISECONDS);
         if (!locked) {
             throw new BaseException("操作处理中，请稍后再试");
         }
@@ -554,7 +569,9 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
             return true;
 
         } finally {
-            redisUtil.unlock(lockKey);
+            if (!degraded) {
+                redisUtil.unlock(lockKey);
+            }
         }
     }
 
@@ -625,9 +642,7 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
         Page<Order> orderPage = orderMapper.selectPage(page, queryWrapper);
 
         // 转换为OrderDetailVO
-        List<OrderDetailVO> orderDetailVOList = orderPage.getRecords().stream()
-                .map(this::convertToOrderDetailVO)
-                .collect(Collectors.toList());
+        List<OrderDetailVO> orderDetailVOList = convertToOrderDetailVOs(orderPage.getRecords());
 
         // 构建分页结果
         PageResult<OrderDetailVO> pageResult = new PageResult<>();
@@ -640,32 +655,52 @@ public class OrderServiceImpl  extends ServiceImpl<OrderMapper, Order> implement
         return pageResult;
     }
 
+    /**
+     * 批量将Order实体转换为OrderDetailVO，医生和科室只批量读取名称字段
+     * @param orders 订单实体列表
+     * @return 订单详情VO列表
+     */
+    private List<OrderDetailVO> convertToOrderDetailVOs(List<Order> orders) {
+        Map<Long, Doctor> doctors = entityHashCache.getFields(EntitySchemas.DOCTOR_HASH,
+                orders.stream().map(Order::getDoctorId).collect(Collectors.toList()),
+                doctorMapper::selectBatchIds, "name");
+        Map<Long, Dept> depts = entityHashCache.getFields(EntitySchemas.DEPT_HASH,
+                orders.stream().map(Order::getDeptId).collect(Collectors.toList()),
+                deptMapper::selectBatchIds, "name");
+        // 同一批订单常属于同一患者，每个患者只读取一次
+        Map<Long, Patient> patients = new HashMap<>();
+        return orders.stream()
+                .map(order -> convertToOrderDetailVO(order,
+                        patients.computeIfAbsent(order.getPatientId(), patientId ->
+                                redisUtil.getEntityWithCache("patient::", patientId, Patient.class,
+                                        id -> patientMapper.selectById(id))),
+                        doctors.get(order.getDoctorId()), depts.get(order.getDeptId())))
+                .collect(Collectors.toList());
+    }
+
     /**
      * 将Order实体转换为OrderDetailVO
      * @param order 订单实体
+     * @param patient 患者
+     * @param doctor 医生，只需包含姓名
+     * @param dept 科室，只需包含名称
      * @return 订单详情VO
      */
-    private OrderDetailVO convertToOrderDetailVO(Order order) {
+    private OrderDetailVO convertToOrderDetailVO(Order order, Patient patient, Doctor doctor, Dept dept) {
         OrderDetailVO orderDetailVO = new OrderDetailVO();
         BeanUtils.copyProperties(order, orderDetailVO);
 
-        // 获取关联的患者信息
-        Patient patient = redisUtil.getEntityWithCache("patient::", order.getPatientId(), Patient.class,
-                patientId -> patientMapper.selectById(patientId));
+        // 设置关联的患者信息
         if (patient != null) {
             orderDetailVO.setPatientName(patient.getName());
         }
 
-        // 获取关联的医生信息
-        Doctor doctor = redisUtil.getEntityWithCache("doctor::", order.getDoctorId(), Doctor.class,
-                doctorId -> doctorMapper.selectById(doctorId));
+        // 设置关联的医生信息
         if (doctor != null) {
             orderDetailVO.setDoctorName(doctor.getName());
         }
 
-        // 获取关联的科室信息
-        Dept dept = redisUtil.getEntityWithCache("dept::", order.getDeptId(), Dept.class,
-                deptId -> deptMapper.selectById(deptId));
+        // 设置关联的科室信息
         if (dept != null) {
             orderDetailVO.setDeptName(dept.getName());
         }
@@ -2,6 +2,8 @@ package com.luoye.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.cache.TokenRevocationList;
 import com.luoye.constant.MessageConstant;
 import com.luoye.context.BaseContext;
 import com.luoye.dto.patient.PatientLoginDTO;
@@ -46,6 +48,12 @@ public class PatientServiceImpl extends ServiceImpl<PatientMapper, Patient> impl
     @Autowired
     private RedisUtil redisUtil;
 
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
     /**
      * 患者注册
      * @param patientRegisterDTO 患者注册数据传输对象
@@ -108,6 +116,7 @@ public class PatientServiceImpl extends ServiceImpl<PatientMapper, Patient> impl
         if(insert != 1) {
             throw new BaseException(MessageConstant.REGISTER_ERROR);
         }
+        redisUtil.markEntityCreated("patient::", patient.getId());
 
     }
 
@@ -240,6 +249,8 @@ public class PatientServiceImpl extends ServiceImpl<PatientMapper, Patient> impl
 
         // 执行物理删除
         patientMapper.deleteById(id);
+        // 账户已删除，已签发的令牌全部吊销
+        redisUtil.runAfterCommit(() -> tokenRevocationList.revokePrincipal("PATIENT", id));
     }
 
     /**
@@ -248,12 +259,17 @@ public class PatientServiceImpl extends ServiceImpl<PatientMapper, Patient> impl
      * @return 患者实体
      */
     @Override
-    @Cacheable(value = "patient", key = "#id", unless = "#result == null")
+    @Cacheable(value = "patient", key = "#id", unless = "#result == null",
+            condition = "@entityIdFilter.mightExist('patient', #id)")
     public Patient getById(Long id) {
         // 验证输入参数
         if (id == null) {
             throw new BaseException(MessageConstant.PARAMETER_EMPTY);
         }
+        // 一定不存在的ID直接拒绝，不访问缓存和数据库
+        if (!entityIdFilter.mightExist("patient", id)) {
+            throw new BaseException(MessageConstant.PATIENT_NOT_FOUND);
+        }
 
         //自动处理缓存和数据库查询
         Patient patient = patientMapper.selectById(id);
@@ -310,6 +326,8 @@ public class PatientServiceImpl extends ServiceImpl<PatientMapper, Patient> impl
         if (result <= 0) {
             throw new RuntimeException(MessageConstant.UPDATE_FAILED);
         }
+        // 重置密码后旧密码登录得到的令牌全部失效
+        redisUtil.runAfterCommit(() -> tokenRevocationList.revokePrincipal("PATIENT", patient.getId()));
 
         return patient.getId();
     }
@@ -4,6 +4,11 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.luoye.cache.CacheTags;
+import com.luoye.cache.DegradedModeCoordinator;
+import com.luoye.cache.EntityHashCache;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.cache.codec.EntitySchemas;
 import com.luoye.constant.MessageConstant;
 import com.luoye.context.BaseContext;
 import com.luoye.dto.slot.SlotInventoryInfo;
@@ -29,6 +34,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -52,9 +58,18 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
     @Autowired
     private RedisUtil redisUtil;
 
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
+    @Autowired
+    private EntityHashCache entityHashCache;
+
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private DegradedModeCoordinator degradedModeCoordinator;
+
     /**
      * 放号
      * @param slotReleaseDTO 号源信息
@@ -156,6 +171,7 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
 
         // 保存号源
         int result = slotMapper.insert(slot);
+        redisUtil.markEntityCreated("slot::", slot.getId());
 
         return slot;
     }
@@ -190,14 +206,26 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
             scheduleDate = LocalDate.now();
         }
 
-        // 先从Redis缓存查询
-        String cacheKey = "slot_doctor_date::" + doctorId + "::" + scheduleDate;
-        List<SlotVO> cachedSlots = redisUtil.getList(cacheKey, SlotVO.class);
-        if (cachedSlots != null && !cachedSlots.isEmpty()) {
-            return cachedSlots;
-        }
+        // 先从Redis缓存查询，热点键在过期前由后台提前刷新
+        Long queryDoctorId = doctorId;
+        LocalDate queryDate = scheduleDate;
+        String cacheKey = "slot_doctor_date::" + queryDoctorId + "::" + queryDate;
+        // 缓存结果登记到医生、日期、科室和各号源标签下
+        return redisUtil.getListWithRefreshAhead(cacheKey, SlotVO.class,
+                () -> querySlotVOs(queryDoctorId, queryDate),
+                slotVOs -> CacheTags.slotList(queryDoctorId, queryDate,
+                        slotVOs.stream().map(SlotVO::getDeptId).collect(Collectors.toSet()),
+                        slotVOs.stream().map(SlotVO::getId).collect(Collectors.toList())),
+                2, TimeUnit.HOURS);
+    }
 
-        // 缓存未命中，查询数据库
+    /**
+     * 从数据库查询医生某日的号源
+     * @param doctorId 医生ID
+     * @param scheduleDate 日期
+     * @return 号源VO列表
+     */
+    private List<SlotVO> querySlotVOs(Long doctorId, LocalDate scheduleDate) {
         LambdaQueryWrapper<Slot> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(Slot::getDoctorId, doctorId)
                 .eq(Slot::getScheduleDate, scheduleDate)
@@ -205,29 +233,39 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
         List<Slot> slots = slotMapper.selectList(queryWrapper);
 
         // 转换为VO对象
-        List<SlotVO> slotVOs = slots.stream().map(this::convertToVO).collect(Collectors.toList());
-
-        // 将结果缓存到Redis
-        if (!slotVOs.isEmpty()) {
-            redisUtil.set(cacheKey, slotVOs, 2, TimeUnit.HOURS);
-        }
+        return convertToVOs(slots);
+    }
 
-        return slotVOs;
+    /**
+     * 批量将Slot实体转换为SlotVO，医生和科室只批量读取展示需要的字段
+     * @param slots Slot实体列表
+     * @return SlotVO列表
+     */
+    private List<SlotVO> convertToVOs(List<Slot> slots) {
+        Map<Long, Doctor> doctors = entityHashCache.getFields(EntitySchemas.DOCTOR_HASH,
+                slots.stream().map(Slot::getDoctorId).collect(Collectors.toList()),
+                doctorMapper::selectBatchIds, "name", "post", "introduction");
+        Map<Long, Dept> depts = entityHashCache.getFields(EntitySchemas.DEPT_HASH,
+                slots.stream().map(Slot::getDeptId).collect(Collectors.toList()),
+                deptMapper::selectBatchIds, "name");
+        return slots.stream()
+                .map(slot -> convertToVO(slot, doctors.get(slot.getDoctorId()), depts.get(slot.getDeptId())))
+                .collect(Collectors.toList());
     }
 
     /**
      * 将Slot实体转换为SlotVO
      * @param slot Slot实体
+     * @param doctor 医生，只需包含姓名、职称和简介
+     * @param dept 科室，只需包含名称
      * @return SlotVO
      */
-    private SlotVO convertToVO(Slot slot) {
+    private SlotVO convertToVO(Slot slot, Doctor doctor, Dept dept) {
         SlotVO vo = new SlotVO();
         //批量属性复制
         BeanUtils.copyProperties(slot, vo);
 
         // 设置医生信息
-        Doctor doctor = redisUtil.getEntityWithCache("doctor::", slot.getDoctorId(), Doctor.class,
-                doctorId -> doctorMapper.selectById(doctorId));
         if (doctor != null) {
             vo.setDoctorName(doctor.getName());
             vo.setDoctorPost(doctor.getPost());
@@ -235,12 +273,8 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
         }
 
         // 设置科室信息
-        if (slot.getDeptId() != null) {
-            Dept dept = redisUtil.getEntityWithCache("dept::", slot.getDeptId(), Dept.class,
-                    deptId -> deptMapper.selectById(deptId));
-            if (dept != null) {
-                vo.setDeptName(dept.getName());
-            }
+        if (dept != null) {
+            vo.setDeptName(dept.getName());
         }
 
         return vo;
@@ -252,8 +286,13 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
      * @return 号源
      */
     @Override
-    @Cacheable(value = "slot", key = "#slotId", unless = "#result == null")
+    @Cacheable(value = "slot", key = "#slotId", unless = "#result == null",
+            condition = "@entityIdFilter.mightExist('slot', #slotId)")
     public Slot getSlotById(Long slotId) {
+        // 一定不存在的ID直接拒绝，不访问缓存和数据库
+        if (!entityIdFilter.mightExist("slot", slotId)) {
+            throw new BaseException(MessageConstant.SLOT_NOT_EXIST);
+        }
         Slot slot = slotMapper.selectById(slotId);
         if (slot == null) {
             throw new BaseException(MessageConstant.SLOT_NOT_EXIST);
@@ -312,7 +351,6 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
     @Caching(
             evict = {
                     @CacheEvict(value = "slot", key = "#slotId"),
-                    @CacheEvict(value = "slot_doctor_date", allEntries = true),
                     @CacheEvict(value = "slot_inventory", key = "'bookedCount::' + #slotId"),
                     @CacheEvict(value = "slot_inventory", key = "'totalCount::' + #slotId")
             }
@@ -335,6 +373,9 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
 
         int result = slotMapper.updateById(updateSlot);
 
+        // 只失效包含该号源的每日号源列表
+        redisUtil.invalidateTagsAfterCommit(CacheTags.slot(slotId));
+
         return result > 0;
     }
 
@@ -461,11 +502,15 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
 
     /**
      * 号源预订取消
+     * 以数据库条件更新为准，Redis计数同步减少；Redis不可用时只更新数据库，恢复后再同步计数
      */
     @Override
     @Transactional
     @CachePut(value = "slot", key = "#slotId", condition = "#result == true")
     public boolean cancelSlot(Long slotId, Long orderId) {
+        if (degradedModeCoordinator.isInventoryDegraded()) {
+            return cancelSlotInDatabase(slotId);
+        }
         try {
             //获取当前号源信息
             Slot slot = slotService.getSlotById(slotId);
@@ -473,31 +518,23 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
                 return false;
             }
 
-            // 检查并更新Redis库存
+            // 更新Redis库存
             String bookedCountKey = "slot_inventory::bookedCount::" + slotId ;
             Long newBookedCount = redisUtil.decrementDirect(bookedCountKey);
 
-            // 更新数据库
-            Slot updateSlot = new Slot();
-            updateSlot.setId(slotId);
-            updateSlot.setBookedCount(newBookedCount.intValue());
-            updateSlot.setUpdateTime(LocalDateTime.now());
-
-            // 如果之前是已约满状态，恢复为可用
-            if (Objects.equals(slot.getStatus(), Slot.STATUS_FULL)) {
-                updateSlot.setStatus(Slot.STATUS_AVAILABLE);
-            }
-
-            int updateResult = slotMapper.updateById(updateSlot);
-
-            if (updateResult > 0) {
+            // 更新数据库，已预订数为0时不会减成负数
+            if (slotMapper.decrementBookedCount(slotId) > 0) {
+                if (newBookedCount == null) {
+                    redisUtil.runAfterCommit(() -> degradedModeCoordinator.markSlotDirty(slotId));
+                }
                 return true;
-            } else {
-                log.error("数据库更新失败，slotId: {}" + slotId);
-                // 回滚Redis操作
+            }
+            log.error("数据库更新失败，slotId: {}", slotId);
+            // 回滚Redis操作
+            if (newBookedCount != null) {
                 redisUtil.incrementDirect(bookedCountKey);
-                return false;
             }
+            return false;
 
         } catch (Exception e) {
             return false;
@@ -511,6 +548,9 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
     @Transactional
     @CachePut(value = "slot", key = "#slotId", condition = "#result == true")
     public boolean bookSlot(Long slotId) {
+        if (degradedModeCoordinator.isInventoryDegraded()) {
+            return bookSlotInDatabase(slotId);
+        }
         try {
             // 一步到位：获取号源并直接预订
             Slot slot = slotService.getSlotById(slotId);
@@ -519,12 +559,10 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
             }
 
             //获取号源库存
-            String bookedCountKey = "slot_inventory::bookedCount::" + slotId ;
             String totalCountKey = "slot_inventory::totalCount::" + slotId ;
-            Integer bookedCount = redisUtil.get(bookedCountKey,Integer.class);
             Integer totalCount  = redisUtil.get(totalCountKey,Integer.class);
 
-            return executeBooking(slotId, bookedCount, totalCount);
+            return executeBooking(slotId, totalCount);
 
         } catch (Exception e) {
             log.error("预订号源失败，slotId: " + slotId, e);
@@ -534,33 +572,63 @@ public class SlotServiceImpl extends ServiceImpl<SlotMapper, Slot>  implements S
 
     /**
      * 尝试执行预订
+     * Redis计数只用于预先过滤，已经超出总数的请求不再访问数据库；
+     * 是否预订成功以数据库条件更新的影响行数为准，各节点无论是否处于降级模式都不会超卖
      * @param slotId 号源ID
-     * @param currentBooked 当前已预订数量
-     * @param totalCount 总数量
+     * @param totalCount 总数量，Redis中没有时为null
      * @return 是否成功
      */
-    private boolean executeBooking(Long slotId, Integer currentBooked, Integer totalCount) {
+    private boolean executeBooking(Long slotId, Integer totalCount) {
         // 更新Redis库存
         String bookedCountKey = "slot_inventory::bookedCount::" + slotId ;
         Long newBooked = redisUtil.incrementDirect(bookedCountKey);
 
-        if (newBooked != null && newBooked <= totalCount) {
-            // 一次性更新数据库和缓存
-            Slot updateSlot = new Slot();
-            updateSlot.setId(slotId);
-            updateSlot.setBookedCount(newBooked.intValue());
-            updateSlot.setStatus(newBooked >= totalCount ? Slot.STATUS_FULL : Slot.STATUS_AVAILABLE);
-            updateSlot.setUpdateTime(LocalDateTime.now());
-
-            if (slotMapper.updateById(updateSlot) > 0) {
-                return true;
+        if (newBooked != null && totalCount != null && newBooked > totalCount) {
+            redisUtil.decrementDirect(bookedCountKey);
+            return false;
+        }
+        if (slotMapper.incrementBookedCount(slotId) > 0) {
+            if (newBooked == null) {
+                // Redis计数未更新，提交后登记，恢复时从数据库同步
+                redisUtil.runAfterCommit(() -> degradedModeCoordinator.markSlotDirty(slotId));
             }
-            // 失败回滚
+            return true;
+        }
+        // 失败回滚
+        if (newBooked != null) {
             redisUtil.decrementDirect(bookedCountKey);
         }
         return false;
     }
 
+    /**
+     * Redis不可用时的预订：只做数据库条件更新，与正常模式使用同一条语句，
+     * 更新持有的行锁到订单创建的事务提交，同一号源的并发预订在数据库上排队
+     * @param slotId 号源ID
+     * @return 是否成功
+     */
+    private boolean bookSlotInDatabase(Long slotId) {
+        if (slotMapper.incrementBookedCount(slotId) <= 0) {
+            return false;
+        }
+        // 提交后登记，Redis恢复时把该号源的库存计数同步回去
+        redisUtil.runAfterCommit(() -> degradedModeCoordinator.markSlotDirty(slotId));
+        return true;
+    }
+
+    /**
+     * Redis不可用时的取消：只做数据库条件更新
+     * @param slotId 号源ID
+     * @return 是否成功
+     */
+    private boolean cancelSlotInDatabase(Long slotId) {
+        if (slotMapper.decrementBookedCount(slotId) <= 0) {
+            return false;
+        }
+        redisUtil.runAfterCommit(() -> degradedModeCoordinator.markSlotDirty(slotId));
+        return true;
+    }
+
     /**
      * 获取号源实时库存信息
      * @param slotId 号源ID
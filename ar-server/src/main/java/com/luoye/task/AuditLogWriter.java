@@ -0,0 +1,396 @@
+package com.luoye.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luoye.entity.Log;
+import com.luoye.service.LogService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 审计日志异步写入器
+ * 请求线程只把日志放入有界无锁环形缓冲区（多生产者单消费者），满时丢弃并计数，不阻塞业务；
+ * 专用写入线程按批一条多行INSERT写入log表，不在业务事务中执行。
+ * 数据库不可用时整批追加到本地文件，退避一段时间后再试数据库，恢复后先回放本地文件；应用关闭时写完缓冲区再退出
+ */
+@Slf4j
+@Component
+public class AuditLogWriter {
+
+    @Value("${audit-log.buffer-size:8192}")
+    private int bufferSize;
+
+    @Value("${audit-log.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * 缓冲区未满一批时的最长等待时间
+     */
+    @Value("${audit-log.flush-interval-millis:500}")
+    private long flushIntervalMillis;
+
+    /**
+     * 数据库写入失败后改写本地文件的时长，到期后再尝试数据库
+     */
+    @Value("${audit-log.retry-interval-millis:10000}")
+    private long retryIntervalMillis;
+
+    @Value("${audit-log.spill-file:logs/audit-spill.log}")
+    private String spillFile;
+
+    @Value("${audit-log.shutdown-timeout-millis:10000}")
+    private long shutdownTimeoutMillis;
+
+    @Autowired
+    private LogService logService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private AtomicReferenceArray<Log> ring;
+
+    private int mask;
+
+    /**
+     * 生产者已申请的位置
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 消费者已读取的位置，只由写入线程推进
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    /**
+     * 数据库恢复重试时间，之前的批次直接写本地文件
+     */
+    private volatile long spillUntil;
+
+    /**
+     * 本地文件中是否有待回放的日志，包括上次运行遗留的文件
+     */
+    private boolean spillPending;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder lost = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+
+    /**
+     * 最近一批中最早一条日志从产生到写入的毫秒数
+     */
+    private volatile long lastLagMillis;
+
+    private volatile long maxLagMillis;
+
+    private long reportedDropped;
+
+    @PostConstruct
+    public void init() {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize) * 2 - 1);
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+        // 上次回放中途退出时，整个回放文件写回本地文件，已回放的部分可能重复入库
+        Path replaying = Paths.get(spillFile + ".replaying");
+        if (Files.exists(replaying)) {
+            requeueRemaining(replaying, 0);
+        }
+        spillPending = Files.exists(Paths.get(spillFile));
+        running = true;
+        writerThread = new Thread(this::runWriter, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 提交日志，不阻塞；缓冲区已满或写入器已关闭时丢弃
+     * @param entry 日志
+     * @return 是否已放入缓冲区
+     */
+    public boolean submit(Log entry) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        while (true) {
+            long position = tail.get();
+            long depth = position - head.get();
+            if (depth >= ring.length()) {
+                dropped.increment();
+                return false;
+            }
+            if (tail.compareAndSet(position, position + 1)) {
+                ring.lazySet((int) (position & mask), entry);
+                enqueued.increment();
+                // 积压满一批时提前唤醒写入线程，否则等待刷新间隔
+                if (depth + 1 == batchSize) {
+                    LockSupport.unpark(writerThread);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 写入统计
+     * @return 入队、丢弃、写入、转存、回放次数，积压数量和写入延迟
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", ring.length());
+        stats.put("pending", tail.get() - head.get());
+        stats.put("enqueued", enqueued.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("written", written.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("lost", lost.sum());
+        stats.put("failedBatches", failedBatches.sum());
+        stats.put("lastLagMillis", lastLagMillis);
+        stats.put("maxLagMillis", maxLagMillis);
+        stats.put("spillFileBytes", spillFileSize());
+        stats.put("spilling", System.currentTimeMillis() < spillUntil);
+        return stats;
+    }
+
+    /**
+     * 关闭时停止接收新日志，等待写入线程写完缓冲区
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(shutdownTimeoutMillis);
+        if (writerThread.isAlive()) {
+            log.error("审计日志写入线程未在{}ms内结束，剩余{}条未写入", shutdownTimeoutMillis, tail.get() - head.get());
+        }
+    }
+
+    private void runWriter() {
+        List<Log> batch = new ArrayList<>(batchSize);
+        while (true) {
+            // 先读取running再排空，关闭后最后一轮一定能看到关闭前入队的日志
+            boolean stopping = !running;
+            drain(batch);
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+                continue;
+            }
+            if (stopping) {
+                break;
+            }
+            reportDropped();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis));
+        }
+        log.info("审计日志写入线程已结束，累计写入{}条，转存{}条，丢弃{}条", written.sum(), spilled.sum(), dropped.sum());
+    }
+
+    /**
+     * 从缓冲区取出最多一批日志；生产者已申请位置但尚未放入时等待其完成
+     */
+    private void drain(List<Log> batch) {
+        long position = head.get();
+        long limit = Math.min(tail.get(), position + batchSize);
+        while (position < limit) {
+            int index = (int) (position & mask);
+            Log entry = ring.get(index);
+            if (entry == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            ring.lazySet(index, null);
+            batch.add(entry);
+            position++;
+            head.lazySet(position);
+        }
+    }
+
+    private void write(List<Log> batch) {
+        long now = System.currentTimeMillis();
+        if (now >= spillUntil) {
+            try {
+                logService.saveBatch(batch);
+                written.add(batch.size());
+                recordLag(batch);
+                if (spillPending) {
+                    replaySpillFile();
+                }
+                return;
+            } catch (Exception e) {
+                failedBatches.increment();
+                spillUntil = now + retryIntervalMillis;
+                log.error("审计日志批量写入数据库失败，{}ms内改写本地文件: {}", retryIntervalMillis, e.getMessage());
+            }
+        }
+        spill(batch);
+    }
+
+    private void recordLag(List<Log> batch) {
+        LocalDateTime first = batch.get(0).getCreateTime();
+        if (first != null) {
+            long lag = Math.max(0, Duration.between(first, LocalDateTime.now()).toMillis());
+            lastLagMillis = lag;
+            if (lag > maxLagMillis) {
+                maxLagMillis = lag;
+            }
+        }
+    }
+
+    /**
+     * 以每行一条JSON的格式追加到本地文件
+     */
+    private void spill(List<Log> batch) {
+        Path path = Paths.get(spillFile);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Log entry : batch) {
+                    writer.write(objectMapper.writeValueAsString(entry));
+                    writer.newLine();
+                }
+            }
+            spilled.add(batch.size());
+            spillPending = true;
+        } catch (IOException e) {
+            lost.add(batch.size());
+            log.error("审计日志写入本地文件失败，丢失{}条: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 数据库恢复后回放本地文件；先改名再读取，回放中途失败时剩余部分重新追加到文件
+     */
+    private void replaySpillFile() {
+        Path path = Paths.get(spillFile);
+        spillPending = false;
+        if (!Files.exists(path)) {
+            return;
+        }
+        Path replaying = Paths.get(spillFile + ".replaying");
+        try {
+            Files.move(path, replaying, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            spillPending = true;
+            log.warn("无法回放审计日志本地文件: {}", e.getMessage());
+            return;
+        }
+        // 已写入数据库的批次覆盖到的行数，回放失败时从这里继续
+        long committedLines = 0;
+        long readLines = 0;
+        List<Log> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(replaying, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                readLines++;
+                try {
+                    batch.add(objectMapper.readValue(line, Log.class));
+                } catch (IOException e) {
+                    lost.increment();
+                    log.warn("跳过无法解析的审计日志行: {}", e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    replayBatch(batch);
+                    committedLines = readLines;
+                }
+            }
+            replayBatch(batch);
+            Files.delete(replaying);
+            log.info("审计日志本地文件回放完成，共{}行", readLines);
+        } catch (Exception e) {
+            // 已回放的批次不会重复，未回放的部分在下次恢复时处理
+            failedBatches.increment();
+            spillUntil = System.currentTimeMillis() + retryIntervalMillis;
+            log.error("审计日志本地文件回放失败，已回放{}行: {}", committedLines, e.getMessage());
+            requeueRemaining(replaying, committedLines);
+            spillPending = true;
+        }
+    }
+
+    private void replayBatch(List<Log> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        logService.saveBatch(batch);
+        replayed.add(batch.size());
+        batch.clear();
+    }
+
+    /**
+     * 跳过已回放的行，剩余的行重新追加到本地文件
+     */
+    private void requeueRemaining(Path replaying, long skip) {
+        try (BufferedReader reader = Files.newBufferedReader(replaying, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(Paths.get(spillFile), StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            String line;
+            long index = 0;
+            while ((line = reader.readLine()) != null) {
+                if (index++ < skip) {
+                    continue;
+                }
+                writer.write(line);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            log.error("审计日志回放剩余部分写回本地文件失败，请手动处理: {}", replaying, e);
+            return;
+        }
+        try {
+            Files.delete(replaying);
+        } catch (IOException e) {
+            log.warn("删除审计日志回放文件失败: {}", e.getMessage());
+        }
+    }
+
+    private long spillFileSize() {
+        try {
+            Path path = Paths.get(spillFile);
+            return Files.exists(path) ? Files.size(path) : 0L;
+        } catch (IOException e) {
+            return -1L;
+        }
+    }
+
+    private void reportDropped() {
+        long current = dropped.sum();
+        if (current > reportedDropped) {
+            log.warn("审计日志缓冲区已满，累计丢弃{}条", current);
+            reportedDropped = current;
+        }
+    }
+}
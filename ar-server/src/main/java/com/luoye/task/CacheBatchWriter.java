@@ -0,0 +1,67 @@
+package com.luoye.task;
+
+import com.luoye.util.RedisUtil;
+import com.luoye.util.RedisUtil.CacheWrite;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 累积写入项，满一批后以管道提交；每个预热阶段单独使用，不需要线程安全
+ */
+class CacheBatchWriter {
+
+    /**
+     * 每个管道提交的写入数量
+     */
+    static final int PIPELINE_BATCH_SIZE = 500;
+
+    private final RedisUtil redisUtil;
+
+    private final List<CacheWrite> buffer = new ArrayList<>(PIPELINE_BATCH_SIZE);
+
+    private long written;
+
+    /**
+     * 阶段补充说明，写入预热报告
+     */
+    private String detail;
+
+    CacheBatchWriter(RedisUtil redisUtil) {
+        this.redisUtil = redisUtil;
+    }
+
+    void add(CacheWrite write) {
+        buffer.add(write);
+        if (buffer.size() >= PIPELINE_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * 提交缓冲区中的写入项，失败时抛出异常，调用方不能推进水位线或检查点
+     */
+    void flush() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        int count = redisUtil.pipelineWrite(buffer);
+        if (count == 0) {
+            throw new IllegalStateException("Redis管道批量写入失败");
+        }
+        written += count;
+        buffer.clear();
+    }
+
+    long getWritten() {
+        return written;
+    }
+
+    String getDetail() {
+        return detail;
+    }
+
+    void setDetail(String detail) {
+        this.detail = detail;
+    }
+}
@@ -0,0 +1,490 @@
+package com.luoye.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.luoye.cache.CacheTags;
+import com.luoye.context.BaseContext;
+import com.luoye.entity.*;
+import com.luoye.mapper.AdminMapper;
+import com.luoye.mapper.DeptMapper;
+import com.luoye.mapper.DoctorMapper;
+import com.luoye.mapper.PatientMapper;
+import com.luoye.mapper.SlotMapper;
+import com.luoye.util.RedisUtil;
+import com.luoye.util.RedisUtil.CacheWrite;
+import com.luoye.vo.SlotVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 缓存预热引擎
+ * 各实体的预热阶段互不依赖，在有界线程池中并行执行；每个阶段以管道批量写入Redis，
+ * 大表流式读取。增量模式只加载上次成功水位线之后更新过的行，没有水位线的阶段退化为全量
+ */
+@Component
+@Slf4j
+public class CachePreloadEngine {
+
+    /**
+     * 各阶段水位线的键前缀，值为上次成功执行的开始时间（毫秒时间戳）
+     */
+    private static final String WATERMARK_PREFIX = "cache_preload:watermark:";
+
+    /**
+     * 水位线回退的时间，覆盖执行期间尚未提交的事务
+     */
+    private static final long WATERMARK_OVERLAP_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 预热数据的基础存活时间，写入时加随机抖动
+     */
+    private static final long CACHE_TTL_MILLIS = TimeUnit.HOURS.toMillis(25);
+
+    /**
+     * 号源预热的天数
+     */
+    private static final int SLOT_PRELOAD_DAYS = 7;
+
+    /**
+     * 估算单个患者缓存内存占用时采样的键数量
+     */
+    private static final int MEMORY_SAMPLE_SIZE = 32;
+
+    /**
+     * 患者预热策略：active只预热近期有就诊活动的患者，all预热全部患者
+     */
+    @Value("${cache.preload.patient.policy:active}")
+    private String patientPolicy;
+
+    /**
+     * active策略下的出诊日期窗口天数（含当天）
+     */
+    @Value("${cache.preload.patient.window-days:3}")
+    private int patientWindowDays;
+
+    /**
+     * 并行执行的阶段数
+     */
+    @Value("${cache.preload.parallelism:3}")
+    private int parallelism;
+
+    @Autowired
+    private AdminMapper adminMapper;
+
+    @Autowired
+    private DeptMapper deptMapper;
+
+    @Autowired
+    private DoctorMapper doctorMapper;
+
+    @Autowired
+    private PatientMapper patientMapper;
+
+    @Autowired
+    private SlotMapper slotMapper;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    private ThreadPoolExecutor executor;
+
+    private volatile PreloadReport lastReport;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, parallelism);
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(16),
+                r -> {
+                    Thread thread = new Thread(r, "cache-preload-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 执行一次预热
+     * @param incremental 是否增量执行
+     * @return 预热报告
+     */
+    public PreloadReport run(boolean incremental) {
+        PreloadReport report = new PreloadReport();
+        report.setMode(incremental ? "INCREMENTAL" : "FULL");
+        report.setStartTime(LocalDateTime.now());
+        long start = System.currentTimeMillis();
+
+        Map<String, StageLoader> loaders = new LinkedHashMap<>();
+        loaders.put("admin", this::preloadAdmins);
+        loaders.put("dept", this::preloadDepts);
+        loaders.put("doctor", this::preloadDoctors);
+        loaders.put("slot", this::preloadSlots);
+        loaders.put("patient", this::preloadPatients);
+
+        // 各阶段沿用触发预热的定时任务上下文
+        List<Future<PreloadReport.Stage>> futures = new ArrayList<>();
+        loaders.forEach((name, loader) -> futures.add(executor.submit(
+                BaseContext.wrap((Callable<PreloadReport.Stage>) () -> runStage(name, incremental, loader)))));
+        for (Future<PreloadReport.Stage> future : futures) {
+            try {
+                report.getStages().add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("缓存预热被中断", e);
+            } catch (ExecutionException e) {
+                // runStage已捕获阶段内异常，这里只可能是线程池自身的问题
+                throw new IllegalStateException("缓存预热阶段执行异常", e.getCause());
+            }
+        }
+
+        report.setTotalMillis(System.currentTimeMillis() - start);
+        lastReport = report;
+        log.info("缓存预热报告: {}", report.summary());
+        return report;
+    }
+
+    /**
+     * 最近一次预热报告
+     * @return 预热报告，尚未执行时为null
+     */
+    public PreloadReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * 执行单个阶段，成功后推进水位线；失败时保留旧水位线，下次增量会重新覆盖
+     */
+    private PreloadReport.Stage runStage(String name, boolean incremental, StageLoader loader) {
+        PreloadReport.Stage stage = new PreloadReport.Stage();
+        stage.setName(name);
+        LocalDateTime since = incremental ? readWatermark(name) : null;
+        stage.setIncremental(since != null);
+
+        long start = System.currentTimeMillis();
+        long nextWatermark = start - WATERMARK_OVERLAP_MILLIS;
+        CacheBatchWriter writer = new CacheBatchWriter(redisUtil);
+        try {
+            stage.setRows(loader.load(since, writer));
+            writer.flush();
+            redisUtil.set(WATERMARK_PREFIX + name, nextWatermark);
+            stage.setSuccess(true);
+        } catch (Exception e) {
+            log.error("缓存预热阶段失败: {}", name, e);
+            stage.setSuccess(false);
+            stage.setError(e.getMessage());
+        }
+        stage.setWrites(writer.getWritten());
+        stage.setDetail(writer.getDetail());
+        stage.setMillis(System.currentTimeMillis() - start);
+        return stage;
+    }
+
+    private LocalDateTime readWatermark(String name) {
+        Long millis = redisUtil.get(WATERMARK_PREFIX + name, Long.class);
+        if (millis == null) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 预加载管理员数据
+     */
+    private long preloadAdmins(LocalDateTime since, CacheBatchWriter writer) {
+        QueryWrapper<Admin> wrapper = new QueryWrapper<>();
+        if (since != null) {
+            wrapper.ge("update_time", since);
+        }
+        List<Admin> admins = adminMapper.selectList(wrapper);
+        for (Admin admin : admins) {
+            writer.add(CacheWrite.set("admin::" + admin.getId(), admin, ttl()));
+        }
+        return admins.size();
+    }
+
+    /**
+     * 预加载启用的科室及启用科室列表，增量模式下有科室变化时才重写列表
+     */
+    private long preloadDepts(LocalDateTime since, CacheBatchWriter writer) {
+        if (since != null) {
+            Long changed = deptMapper.selectCount(new QueryWrapper<Dept>().ge("update_time", since));
+            if (changed == null || changed == 0) {
+                return 0;
+            }
+        }
+        List<Dept> enabledDepts = deptMapper.selectList(new QueryWrapper<Dept>().eq("status", 1));
+        writer.add(CacheWrite.set("dept_list::enabled", enabledDepts, ttl()));
+        for (Dept dept : enabledDepts) {
+            if (since == null || (dept.getUpdateTime() != null && !dept.getUpdateTime().isBefore(since))) {
+                writer.add(CacheWrite.set("dept::" + dept.getId(), dept, ttl()));
+            }
+        }
+        return enabledDepts.size();
+    }
+
+    /**
+     * 预加载医生及各启用科室下的在职医生列表，增量模式下只重写涉及的科室：
+     * 变更医生的当前科室，以及缓存列表中仍包含这些医生的原科室（医生调科室或停用）；
+     * 重建后没有在职医生的科室删除列表，不再保留旧数据
+     */
+    private long preloadDoctors(LocalDateTime since, CacheBatchWriter writer) {
+        QueryWrapper<Doctor> wrapper = new QueryWrapper<>();
+        if (since != null) {
+            wrapper.ge("update_time", since);
+        }
+        List<Doctor> doctors = doctorMapper.selectList(wrapper);
+        if (doctors.isEmpty()) {
+            return 0;
+        }
+        for (Doctor doctor : doctors) {
+            writer.add(CacheWrite.set("doctor::" + doctor.getId(), doctor, ttl()));
+        }
+
+        QueryWrapper<Dept> deptWrapper = new QueryWrapper<Dept>().select("id").eq("status", 1);
+        List<Doctor> activeDoctors;
+        Set<Long> affectedDeptIds = null;
+        if (since == null) {
+            activeDoctors = doctors.stream()
+                    .filter(doctor -> Integer.valueOf(1).equals(doctor.getStatus()))
+                    .collect(Collectors.toList());
+        } else {
+            affectedDeptIds = doctors.stream()
+                    .map(Doctor::getDeptId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(HashSet::new));
+            affectedDeptIds.addAll(cachedDeptListsContaining(doctors));
+            if (affectedDeptIds.isEmpty()) {
+                return doctors.size();
+            }
+            deptWrapper.in("id", affectedDeptIds);
+            activeDoctors = doctorMapper.selectList(new QueryWrapper<Doctor>()
+                    .in("dept_id", affectedDeptIds).eq("status", 1));
+        }
+
+        Map<Long, List<Doctor>> doctorsByDept = activeDoctors.stream()
+                .filter(doctor -> doctor.getDeptId() != null)
+                .collect(Collectors.groupingBy(Doctor::getDeptId));
+        Set<Long> enabledDeptIds = new HashSet<>();
+        for (Object deptId : deptMapper.selectObjs(deptWrapper)) {
+            enabledDeptIds.add(((Number) deptId).longValue());
+        }
+        for (Long deptId : affectedDeptIds != null ? affectedDeptIds : enabledDeptIds) {
+            List<Doctor> doctorsInDept = enabledDeptIds.contains(deptId) ? doctorsByDept.get(deptId) : null;
+            if (doctorsInDept != null && !doctorsInDept.isEmpty()) {
+                writer.add(CacheWrite.set("doctor_dept::" + deptId, doctorsInDept, ttl()));
+            } else {
+                writer.add(CacheWrite.delete("doctor_dept::" + deptId));
+            }
+        }
+        return doctors.size();
+    }
+
+    /**
+     * 缓存中仍包含指定医生的科室列表，即这些医生变更前所在的科室
+     */
+    private Set<Long> cachedDeptListsContaining(List<Doctor> doctors) {
+        Set<Long> doctorIds = doctors.stream().map(Doctor::getId).collect(Collectors.toSet());
+        Set<Long> deptIds = new HashSet<>();
+        redisUtil.scanKeys("doctor_dept::*", keys -> {
+            List<Object> lists = redisUtil.multiGet(keys);
+            for (int i = 0; i < keys.size() && i < lists.size(); i++) {
+                if (!(lists.get(i) instanceof List<?> list)) {
+                    continue;
+                }
+                for (Object element : list) {
+                    if (element instanceof Doctor doctor && doctorIds.contains(doctor.getId())) {
+                        try {
+                            deptIds.add(Long.parseLong(keys.get(i).substring("doctor_dept::".length())));
+                        } catch (NumberFormatException e) {
+                            log.warn("忽略无法解析的科室医生列表键: {}", keys.get(i));
+                        }
+                        break;
+                    }
+                }
+            }
+        });
+        return deptIds;
+    }
+
+    /**
+     * 预加载未来几天的号源、号源库存和医生每日号源列表
+     * 全量模式覆盖库存计数；增量模式只补齐缺失的计数，避免覆盖Redis中正在扣减的库存
+     */
+    private long preloadSlots(LocalDateTime since, CacheBatchWriter writer) {
+        LocalDate today = LocalDate.now();
+        LocalDate endDate = today.plusDays(SLOT_PRELOAD_DAYS);
+        QueryWrapper<Slot> wrapper = new QueryWrapper<Slot>()
+                .ge("schedule_date", today).le("schedule_date", endDate);
+        if (since != null) {
+            wrapper.ge("update_time", since);
+        }
+
+        // 医生ID -> 日期 -> 号源
+        Map<Long, Map<LocalDate, List<Slot>>> slotsByDoctorDate = new HashMap<>();
+        long[] rows = new long[1];
+        slotMapper.streamByWrapper(wrapper, context -> {
+            Slot slot = context.getResultObject();
+            rows[0]++;
+            writer.add(CacheWrite.set("slot::" + slot.getId(), slot, ttl()));
+            // 已预订数和总数使用同一个过期时间，避免只剩其中一个键
+            long inventoryTtl = ttl();
+            String bookedCountKey = "slot_inventory::bookedCount::" + slot.getId();
+            String totalCountKey = "slot_inventory::totalCount::" + slot.getId();
+            if (since == null) {
+                writer.add(CacheWrite.set(bookedCountKey, slot.getBookedCount(), inventoryTtl));
+                writer.add(CacheWrite.set(totalCountKey, slot.getTotalCount(), inventoryTtl));
+            } else {
+                writer.add(CacheWrite.setIfAbsent(bookedCountKey, slot.getBookedCount(), inventoryTtl));
+                writer.add(CacheWrite.setIfAbsent(totalCountKey, slot.getTotalCount(), inventoryTtl));
+            }
+            slotsByDoctorDate.computeIfAbsent(slot.getDoctorId(), id -> new HashMap<>())
+                    .computeIfAbsent(slot.getScheduleDate(), date -> new ArrayList<>())
+                    .add(slot);
+        });
+
+        if (since != null && !slotsByDoctorDate.isEmpty()) {
+            // 增量模式下列表要包含同一医生同一天未变化的号源，按涉及的医生和日期重新查询
+            Set<LocalDate> affectedDates = slotsByDoctorDate.values().stream()
+                    .flatMap(byDate -> byDate.keySet().stream())
+                    .collect(Collectors.toSet());
+            List<Slot> affectedSlots = slotMapper.selectList(new QueryWrapper<Slot>()
+                    .in("doctor_id", slotsByDoctorDate.keySet())
+                    .in("schedule_date", affectedDates));
+            Map<Long, Map<LocalDate, List<Slot>>> rebuilt = new HashMap<>();
+            for (Slot slot : affectedSlots) {
+                Map<LocalDate, List<Slot>> changedDates = slotsByDoctorDate.get(slot.getDoctorId());
+                if (changedDates != null && changedDates.containsKey(slot.getScheduleDate())) {
+                    rebuilt.computeIfAbsent(slot.getDoctorId(), id -> new HashMap<>())
+                            .computeIfAbsent(slot.getScheduleDate(), date -> new ArrayList<>())
+                            .add(slot);
+                }
+            }
+            writeSlotLists(rebuilt, writer);
+        } else {
+            writeSlotLists(slotsByDoctorDate, writer);
+        }
+        return rows[0];
+    }
+
+    /**
+     * 写入医生每日号源列表，并登记到所依赖的标签下
+     * @param slotsByDoctorDate 医生ID -> 日期 -> 号源
+     * @param writer 批量写入器
+     */
+    void writeSlotLists(Map<Long, Map<LocalDate, List<Slot>>> slotsByDoctorDate, CacheBatchWriter writer) {
+        slotsByDoctorDate.forEach((doctorId, slotsByDate) -> slotsByDate.forEach((scheduleDate, slots) -> {
+            List<SlotVO> dailySlots = slots.stream().map(slot -> {
+                SlotVO slotVO = new SlotVO();
+                BeanUtils.copyProperties(slot, slotVO);
+                return slotVO;
+            }).collect(Collectors.toList());
+            String cacheKey = "slot_doctor_date::" + doctorId + "::" + scheduleDate;
+            writer.add(CacheWrite.set(cacheKey, dailySlots, ttl(),
+                    CacheTags.slotList(doctorId, scheduleDate,
+                            slots.stream().map(Slot::getDeptId).collect(Collectors.toSet()),
+                            slots.stream().map(Slot::getId).collect(Collectors.toList()))));
+        }));
+    }
+
+    /**
+     * 流式预加载患者数据，不使用分页查询，避免大偏移量和每页的COUNT查询。
+     * 默认只预热近期有待支付、已支付、已取号订单或未结束排队的患者，其余患者访问时按需加载
+     */
+    private long preloadPatients(LocalDateTime since, CacheBatchWriter writer) {
+        boolean activeOnly = !"all".equalsIgnoreCase(patientPolicy);
+        long[] rows = new long[1];
+        List<String> sampleKeys = new ArrayList<>(MEMORY_SAMPLE_SIZE);
+        ResultHandler<Patient> handler = context -> {
+            Patient patient = context.getResultObject();
+            rows[0]++;
+            String patientKey = "patient::" + patient.getId();
+            if (sampleKeys.size() < MEMORY_SAMPLE_SIZE) {
+                sampleKeys.add(patientKey);
+            }
+            writer.add(CacheWrite.set(patientKey, patient, ttl()));
+        };
+
+        if (activeOnly) {
+            LocalDate today = LocalDate.now();
+            patientMapper.streamActivePatients(today, today.plusDays(Math.max(1, patientWindowDays) - 1L), since, handler);
+        } else {
+            QueryWrapper<Patient> wrapper = new QueryWrapper<>();
+            if (since != null) {
+                wrapper.ge("update_time", since);
+            }
+            patientMapper.streamByWrapper(wrapper, handler);
+        }
+
+        if (activeOnly && since == null) {
+            writer.flush();
+            writer.setDetail(estimateSavedMemory(rows[0], sampleKeys));
+        }
+        return rows[0];
+    }
+
+    /**
+     * 按采样键的平均内存占用，估算相比全量预热节省的Redis内存
+     */
+    private String estimateSavedMemory(long warmed, List<String> sampleKeys) {
+        Long total = patientMapper.selectCount(null);
+        long totalPatients = total != null ? total : warmed;
+        long sampled = 0;
+        long sampledBytes = 0;
+        for (String key : sampleKeys) {
+            Long bytes = redisUtil.memoryUsage(key);
+            if (bytes != null) {
+                sampled++;
+                sampledBytes += bytes;
+            }
+        }
+        String counts = "预热患者" + warmed + "/" + totalPatients;
+        if (sampled == 0) {
+            return counts + "，无法获取键内存占用";
+        }
+        long averageBytes = sampledBytes / sampled;
+        long savedBytes = Math.max(0, totalPatients - warmed) * averageBytes;
+        log.info("患者按活跃度预热: 预热 {} / 共 {} 个患者，单键约 {} 字节，相比全量预热节省约 {} KB",
+                warmed, totalPatients, averageBytes, savedBytes / 1024);
+        return counts + "，单键约" + averageBytes + "字节，节省约" + savedBytes / 1024 + "KB";
+    }
+
+    /**
+     * 预热数据的存活时间，带随机抖动
+     */
+    long ttl() {
+        return redisUtil.jitter(CACHE_TTL_MILLIS);
+    }
+
+    /**
+     * 预热阶段的数据加载逻辑
+     */
+    @FunctionalInterface
+    private interface StageLoader {
+        /**
+         * @param since 增量起点，为null时全量加载
+         * @param writer 批量写入器
+         * @return 从数据库读取的行数
+         */
+        long load(LocalDateTime since, CacheBatchWriter writer);
+    }
+}
@@ -0,0 +1,360 @@
+package com.luoye.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.luoye.cache.RedisCircuitBreaker;
+import com.luoye.entity.Dept;
+import com.luoye.entity.Doctor;
+import com.luoye.entity.Slot;
+import com.luoye.mapper.DeptMapper;
+import com.luoye.mapper.DoctorMapper;
+import com.luoye.mapper.SlotMapper;
+import com.luoye.util.RedisUtil;
+import com.luoye.util.RedisUtil.CacheWrite;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * 启动缓存预热
+ * 按阶段分批写入，每批完成后把进度检查点写入Redis；持有预热锁的节点宕机后，锁自动过期，
+ * 其他节点接手并从检查点继续。关键阶段（科室、医生、今明两天的号源和库存）完成前，
+ * 本节点对负载均衡报告未就绪
+ */
+@Component
+@Slf4j
+public class CacheWarmupTask {
+
+    /**
+     * 检查点键前缀，完整格式为 cache_warmup:{日期}:{阶段}，值为已处理的最大ID，-1表示阶段已完成
+     */
+    private static final String CHECKPOINT_PREFIX = "cache_warmup:";
+
+    private static final String WARMUP_LOCK_KEY = "lock:cache_warmup";
+
+    private static final long STAGE_DONE = -1L;
+
+    /**
+     * 检查点保留时间，跨过零点后按新日期重新预热
+     */
+    private static final long CHECKPOINT_TTL_HOURS = 48;
+
+    /**
+     * 未持有预热锁的节点轮询检查点的间隔
+     */
+    private static final long POLL_INTERVAL_MILLIS = 2000;
+
+    /**
+     * 关键阶段，完成后节点才接收流量
+     */
+    private static final List<String> CRITICAL_STAGES = List.of("dept", "doctor", "doctor_dept", "slot", "slot_list");
+
+    /**
+     * 剩余数据交给增量预热，由预热水位线保证可续做
+     */
+    private static final String REMAINING_STAGE = "remaining";
+
+    /**
+     * 等待关键阶段完成的最长时间，超时后不再阻塞就绪，避免节点永远无法接收流量
+     */
+    @Value("${cache.warmup.max-wait-seconds:600}")
+    private long maxWaitSeconds;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private DeptMapper deptMapper;
+
+    @Autowired
+    private DoctorMapper doctorMapper;
+
+    @Autowired
+    private SlotMapper slotMapper;
+
+    @Autowired
+    private CachePreloadEngine cachePreloadEngine;
+
+    @Autowired
+    private CachePreloadTask cachePreloadTask;
+
+    /**
+     * 应用启动后预热，在实体ID过滤器重建之后执行。
+     * 阻塞到关键阶段完成，Spring Boot在所有ApplicationReadyEvent监听器返回后才把就绪状态切换为接收流量；
+     * Redis不可用或熔断未关闭时预热锁和检查点都无法读写，不再等待，节点直接以降级模式接收流量
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void warmupOnStartup() {
+        if (!redisCircuitBreaker.isClosed() || !redisUtil.isConnected()) {
+            log.warn("Redis不可用，熔断状态: {}，跳过启动缓存预热，节点以降级模式接收流量，由定时预热补齐",
+                    redisCircuitBreaker.getState());
+            return;
+        }
+        AvailabilityChangeEvent.publish(applicationContext, ReadinessState.REFUSING_TRAFFIC);
+        log.info("应用启动，开始缓存预热，Redis连接状态: {}", redisUtil.getConnectionStatus());
+        LocalDate today = LocalDate.now();
+        CompletableFuture<Void> criticalWarm = new CompletableFuture<>();
+
+        Thread worker = new Thread(() -> runWarmup(today, criticalWarm), "cache-warmup");
+        worker.setDaemon(true);
+        worker.start();
+
+        long start = System.currentTimeMillis();
+        try {
+            criticalWarm.get(maxWaitSeconds, TimeUnit.SECONDS);
+            if (redisCircuitBreaker.isClosed()) {
+                log.info("关键缓存预热完成，耗时: {}ms，节点开始接收流量", System.currentTimeMillis() - start);
+            } else {
+                log.warn("等待缓存预热期间Redis熔断，节点以降级模式接收流量，预热在后台继续重试");
+            }
+        } catch (TimeoutException e) {
+            log.warn("等待关键缓存预热超过 {} 秒，节点在缓存未完全预热的情况下接收流量", maxWaitSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("关键缓存预热失败，节点在缓存未完全预热的情况下接收流量", e);
+        }
+    }
+
+    /**
+     * 查询当日各预热阶段的进度
+     * @return 阶段名称到进度的映射：done已完成，pending未开始，其余为已处理到的ID
+     */
+    public Map<String, String> getProgress() {
+        LocalDate today = LocalDate.now();
+        Map<String, String> progress = new LinkedHashMap<>();
+        List<String> stages = new ArrayList<>(CRITICAL_STAGES);
+        stages.add(REMAINING_STAGE);
+        for (String stage : stages) {
+            Long checkpoint = readCheckpoint(today, stage);
+            progress.put(stage, checkpoint == null ? "pending" : checkpoint == STAGE_DONE ? "done" : String.valueOf(checkpoint));
+        }
+        return progress;
+    }
+
+    /**
+     * 抢到预热锁的节点执行预热，其余节点等待；持有者宕机后锁过期，等待的节点接手
+     */
+    private void runWarmup(LocalDate date, CompletableFuture<Void> criticalWarm) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(maxWaitSeconds) * 2;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                if (!redisCircuitBreaker.isClosed()) {
+                    // 熔断期间无法抢锁和读取检查点，先放行流量，恢复后继续
+                    criticalWarm.complete(null);
+                }
+                if (isDone(date, CRITICAL_STAGES)) {
+                    criticalWarm.complete(null);
+                }
+                if (isDone(date, List.of(REMAINING_STAGE)) && criticalWarm.isDone()) {
+                    return;
+                }
+                // 租约时间为-1时由Redisson看门狗续期，节点宕机后锁在30秒内过期
+                if (redisUtil.tryLock(WARMUP_LOCK_KEY, 0, -1, TimeUnit.MILLISECONDS)) {
+                    try {
+                        log.info("获得缓存预热锁，从检查点继续预热，日期: {}", date);
+                        warmCriticalStages(date);
+                        criticalWarm.complete(null);
+                        warmRemaining(date);
+                        return;
+                    } finally {
+                        redisUtil.unlock(WARMUP_LOCK_KEY);
+                    }
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            log.warn("缓存预热未在限定时间内完成，等待下一次定时预热");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            criticalWarm.completeExceptionally(e);
+            log.error("缓存预热失败，已完成的批次保留在检查点中", e);
+        }
+    }
+
+    private void warmCriticalStages(LocalDate date) {
+        LocalDate tomorrow = date.plusDays(1);
+        runStage(date, "dept", lastId -> warmDepts());
+        runStage(date, "doctor", this::warmDoctorBatch);
+        runStage(date, "doctor_dept", this::warmDoctorDeptBatch);
+        runStage(date, "slot", lastId -> warmSlotBatch(lastId, date, tomorrow));
+        runStage(date, "slot_list", lastId -> warmSlotListBatch(lastId, date, tomorrow));
+    }
+
+    /**
+     * 其余数据（管理员、患者、之后几天的号源）交给增量预热，没有水位线时自动退化为全量
+     */
+    private void warmRemaining(LocalDate date) {
+        if (isDone(date, List.of(REMAINING_STAGE))) {
+            return;
+        }
+        cachePreloadTask.incrementalPreloadCacheData();
+        PreloadReport report = cachePreloadEngine.getLastReport();
+        if (report != null && report.isSuccess()) {
+            writeCheckpoint(date, REMAINING_STAGE, STAGE_DONE);
+        }
+    }
+
+    /**
+     * 执行单个阶段，直到批处理返回完成；每批成功后写检查点
+     */
+    private void runStage(LocalDate date, String stage, BatchStep step) {
+        Long checkpoint = readCheckpoint(date, stage);
+        if (checkpoint != null && checkpoint == STAGE_DONE) {
+            return;
+        }
+        long lastId = checkpoint == null ? 0 : checkpoint;
+        long start = System.currentTimeMillis();
+        while (true) {
+            long next = step.run(lastId);
+            writeCheckpoint(date, stage, next);
+            if (next == STAGE_DONE) {
+                break;
+            }
+            lastId = next;
+        }
+        log.info("缓存预热阶段完成: {}, 耗时: {}ms", stage, System.currentTimeMillis() - start);
+    }
+
+    private long warmDepts() {
+        CacheBatchWriter writer = new CacheBatchWriter(redisUtil);
+        List<Dept> enabledDepts = deptMapper.selectList(new QueryWrapper<Dept>().eq("status", 1));
+        writer.add(CacheWrite.set("dept_list::enabled", enabledDepts, cachePreloadEngine.ttl()));
+        for (Dept dept : enabledDepts) {
+            writer.add(CacheWrite.set("dept::" + dept.getId(), dept, cachePreloadEngine.ttl()));
+        }
+        writer.flush();
+        return STAGE_DONE;
+    }
+
+    private long warmDoctorBatch(long lastId) {
+        List<Doctor> doctors = doctorMapper.selectList(new QueryWrapper<Doctor>()
+                .gt("id", lastId).orderByAsc("id").last("limit " + CacheBatchWriter.PIPELINE_BATCH_SIZE));
+        CacheBatchWriter writer = new CacheBatchWriter(redisUtil);
+        for (Doctor doctor : doctors) {
+            writer.add(CacheWrite.set("doctor::" + doctor.getId(), doctor, cachePreloadEngine.ttl()));
+        }
+        writer.flush();
+        return nextCursor(doctors.size(), doctors.isEmpty() ? lastId : doctors.get(doctors.size() - 1).getId());
+    }
+
+    private long warmDoctorDeptBatch(long lastId) {
+        List<Long> deptIds = toIds(deptMapper.selectObjs(new QueryWrapper<Dept>()
+                .select("id").eq("status", 1).gt("id", lastId).orderByAsc("id")
+                .last("limit " + CacheBatchWriter.PIPELINE_BATCH_SIZE)));
+        if (!deptIds.isEmpty()) {
+            Map<Long, List<Doctor>> doctorsByDept = doctorMapper.selectList(new QueryWrapper<Doctor>()
+                            .in("dept_id", deptIds).eq("status", 1)).stream()
+                    .collect(Collectors.groupingBy(Doctor::getDeptId));
+            CacheBatchWriter writer = new CacheBatchWriter(redisUtil);
+            doctorsByDept.forEach((deptId, doctors) ->
+                    writer.add(CacheWrite.set("doctor_dept::" + deptId, doctors, cachePreloadEngine.ttl())));
+            writer.flush();
+        }
+        return nextCursor(deptIds.size(), deptIds.isEmpty() ? lastId : deptIds.get(deptIds.size() - 1));
+    }
+
+    /**
+     * 号源和库存计数；库存只在缺失时写入，避免覆盖Redis中正在扣减的计数
+     */
+    private long warmSlotBatch(long lastId, LocalDate startDate, LocalDate endDate) {
+        List<Slot> slots = slotMapper.selectList(new QueryWrapper<Slot>()
+                .ge("schedule_date", startDate).le("schedule_date", endDate)
+                .gt("id", lastId).orderByAsc("id").last("limit " + CacheBatchWriter.PIPELINE_BATCH_SIZE));
+        CacheBatchWriter writer = new CacheBatchWriter(redisUtil);
+        for (Slot slot : slots) {
+            writer.add(CacheWrite.set("slot::" + slot.getId(), slot, cachePreloadEngine.ttl()));
+            long inventoryTtl = cachePreloadEngine.ttl();
+            writer.add(CacheWrite.setIfAbsent("slot_inventory::bookedCount::" + slot.getId(), slot.getBookedCount(), inventoryTtl));
+            writer.add(CacheWrite.setIfAbsent("slot_inventory::totalCount::" + slot.getId(), slot.getTotalCount(), inventoryTtl));
+        }
+        writer.flush();
+        return nextCursor(slots.size(), slots.isEmpty() ? lastId : slots.get(slots.size() - 1).getId());
+    }
+
+    /**
+     * 医生每日号源列表，按医生ID分批
+     */
+    private long warmSlotListBatch(long lastDoctorId, LocalDate startDate, LocalDate endDate) {
+        List<Long> doctorIds = toIds(slotMapper.selectObjs(new QueryWrapper<Slot>()
+                .select("distinct doctor_id")
+                .ge("schedule_date", startDate).le("schedule_date", endDate)
+                .gt("doctor_id", lastDoctorId).orderByAsc("doctor_id")
+                .last("limit " + CacheBatchWriter.PIPELINE_BATCH_SIZE)));
+        if (!doctorIds.isEmpty()) {
+            Map<Long, Map<LocalDate, List<Slot>>> slotsByDoctorDate = slotMapper.selectList(new QueryWrapper<Slot>()
+                            .in("doctor_id", doctorIds)
+                            .ge("schedule_date", startDate).le("schedule_date", endDate)).stream()
+                    .collect(Collectors.groupingBy(Slot::getDoctorId, Collectors.groupingBy(Slot::getScheduleDate)));
+            CacheBatchWriter writer = new CacheBatchWriter(redisUtil);
+            cachePreloadEngine.writeSlotLists(slotsByDoctorDate, writer);
+            writer.flush();
+        }
+        return nextCursor(doctorIds.size(), doctorIds.isEmpty() ? lastDoctorId : doctorIds.get(doctorIds.size() - 1));
+    }
+
+    /**
+     * 不足一批说明已处理到末尾
+     */
+    private static long nextCursor(int batchSize, long lastId) {
+        return batchSize < CacheBatchWriter.PIPELINE_BATCH_SIZE ? STAGE_DONE : lastId;
+    }
+
+    private static List<Long> toIds(List<Object> values) {
+        List<Long> ids = new ArrayList<>(values.size());
+        for (Object value : values) {
+            ids.add(((Number) value).longValue());
+        }
+        return ids;
+    }
+
+    private boolean isDone(LocalDate date, List<String> stages) {
+        for (String stage : stages) {
+            Long checkpoint = readCheckpoint(date, stage);
+            if (checkpoint == null || checkpoint != STAGE_DONE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Long readCheckpoint(LocalDate date, String stage) {
+        return redisUtil.get(CHECKPOINT_PREFIX + date + ":" + stage, Long.class);
+    }
+
+    private void writeCheckpoint(LocalDate date, String stage, long value) {
+        redisUtil.set(CHECKPOINT_PREFIX + date + ":" + stage, value, CHECKPOINT_TTL_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * 单批处理逻辑
+     */
+    @FunctionalInterface
+    private interface BatchStep {
+        /**
+         * @param lastId 上一批处理到的ID
+         * @return 本批处理到的ID，阶段完成时返回STAGE_DONE
+         */
+        long run(long lastId);
+    }
+}
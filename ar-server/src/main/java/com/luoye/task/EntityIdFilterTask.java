@@ -0,0 +1,113 @@
+package com.luoye.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.luoye.cache.EntityIdFilter;
+import com.luoye.mapper.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * 实体ID过滤器重建任务
+ * 启动时和每日凌晨按ID区间分批扫描各实体表，重建布隆过滤器
+ */
+@Component
+@Slf4j
+public class EntityIdFilterTask {
+
+    /**
+     * 每批扫描的ID数量
+     */
+    private static final int BATCH_SIZE = 5000;
+
+    @Autowired
+    private EntityIdFilter entityIdFilter;
+
+    @Autowired
+    private AdminMapper adminMapper;
+
+    @Autowired
+    private DeptMapper deptMapper;
+
+    @Autowired
+    private DoctorMapper doctorMapper;
+
+    @Autowired
+    private PatientMapper patientMapper;
+
+    @Autowired
+    private SlotMapper slotMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 应用启动后重建，先于缓存预热执行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void rebuildOnStartup() {
+        rebuildAll();
+    }
+
+    /**
+     * 每日凌晨重建，清理已删除ID并按最新数据量调整容量
+     */
+    @Scheduled(cron = "0 30 0 * * ?")
+    public void rebuildDaily() {
+        rebuildAll();
+    }
+
+    private void rebuildAll() {
+        long start = System.currentTimeMillis();
+        rebuild("admin", adminMapper);
+        rebuild("dept", deptMapper);
+        rebuild("doctor", doctorMapper);
+        rebuild("patient", patientMapper);
+        rebuild("slot", slotMapper);
+        rebuild("order", orderMapper);
+        log.info("实体ID过滤器全部重建完成，耗时: {}ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 重建单个实体类型，失败时保留旧过滤器（未初始化时不拦截）
+     */
+    private <T> void rebuild(String type, BaseMapper<T> mapper) {
+        try {
+            long count = mapper.selectCount(null);
+            entityIdFilter.rebuild(type, count, consumer -> scanIds(mapper, consumer));
+        } catch (Exception e) {
+            log.error("实体ID过滤器重建失败，类型: {}", type, e);
+        }
+    }
+
+    /**
+     * 按ID区间分批读取，只查询主键列，避免一次性加载整张表
+     */
+    private <T> void scanIds(BaseMapper<T> mapper, LongConsumer consumer) {
+        long lastId = 0;
+        while (true) {
+            QueryWrapper<T> wrapper = new QueryWrapper<T>()
+                    .select("id")
+                    .gt("id", lastId)
+                    .orderByAsc("id")
+                    .last("limit " + BATCH_SIZE);
+            List<Object> ids = mapper.selectObjs(wrapper);
+            for (Object id : ids) {
+                lastId = ((Number) id).longValue();
+                consumer.accept(lastId);
+            }
+            if (ids.size() < BATCH_SIZE) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.luoye.task;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存预热报告，记录每个阶段的耗时和写入数量
+ */
+@Data
+public class PreloadReport {
+
+    /**
+     * 预热模式：FULL全量，INCREMENTAL增量
+     */
+    private String mode;
+
+    private LocalDateTime startTime;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    private long totalMillis;
+
+    private List<Stage> stages = new ArrayList<>();
+
+    /**
+     * 是否所有阶段都成功
+     */
+    public boolean isSuccess() {
+        return stages.stream().allMatch(Stage::isSuccess);
+    }
+
+    /**
+     * 生成单行摘要，用于日志和操作记录
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(mode).append("预热，总耗时").append(totalMillis).append("ms");
+        for (Stage stage : stages) {
+            builder.append("；").append(stage.getName())
+                    .append(stage.isIncremental() ? "(增量)" : "(全量)")
+                    .append(" 行数").append(stage.getRows())
+                    .append(" 写入").append(stage.getWrites())
+                    .append(" 耗时").append(stage.getMillis()).append("ms");
+            if (stage.getDetail() != null) {
+                builder.append(" ").append(stage.getDetail());
+            }
+            if (!stage.isSuccess()) {
+                builder.append(" 失败: ").append(stage.getError());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 单个阶段的结果
+     */
+    @Data
+    public static class Stage {
+
+        private String name;
+
+        /**
+         * 是否按水位线增量执行，没有水位线时退化为全量
+         */
+        private boolean incremental;
+
+        /**
+         * 从数据库读取的行数
+         */
+        private long rows;
+
+        /**
+         * 写入Redis的键数量
+         */
+        private long writes;
+
+        private long millis;
+
+        private boolean success;
+
+        private String error;
+
+        /**
+         * 阶段的补充说明，如按活跃度筛选患者时的内存节省估算
+         */
+        private String detail;
+    }
+}
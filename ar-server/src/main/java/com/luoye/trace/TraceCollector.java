@@ -0,0 +1,242 @@
+package com.luoye.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求链路采集
+ * 每个请求开始时创建链路，Controller、Service、SQL、Redis命令和分布式锁各自记录Span；
+ * 请求结束后再决定是否保留（尾部采样）：失败或耗时超过阈值的链路全部保留，其余按比例抽样。
+ * 保留的链路放在固定大小的环形缓冲区中供运行指标接口查询，可选地由后台线程以每行一条JSON追加到本地文件
+ */
+@Slf4j
+@Component
+public class TraceCollector {
+
+    @Value("${trace.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 单个链路保存的Span数量上限，超出后只计入按类型的汇总
+     */
+    @Value("${trace.max-spans:200}")
+    private int maxSpans;
+
+    @Value("${trace.slow-threshold-millis:500}")
+    private long slowThresholdMillis;
+
+    /**
+     * 正常请求的保留比例
+     */
+    @Value("${trace.sample-rate:0.01}")
+    private double sampleRate;
+
+    /**
+     * 内存中保留的链路数量
+     */
+    @Value("${trace.capacity:200}")
+    private int capacity;
+
+    /**
+     * 导出文件，为空时不导出
+     */
+    @Value("${trace.export-file:}")
+    private String exportFile;
+
+    @Value("${trace.export-max-bytes:104857600}")
+    private long exportMaxBytes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private AtomicReferenceArray<Trace> kept;
+
+    private final AtomicLong keptIndex = new AtomicLong();
+
+    private ThreadPoolExecutor exportExecutor;
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder keptError = new LongAdder();
+    private final LongAdder keptSlow = new LongAdder();
+    private final LongAdder keptSampled = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder exportDropped = new LongAdder();
+    private final LongAdder exportFailures = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        kept = new AtomicReferenceArray<>(Math.max(1, capacity));
+        if (!exportFile.isEmpty()) {
+            // 单线程、有界队列，导出积压时直接放弃，不阻塞请求线程
+            exportExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(1000), runnable -> {
+                        Thread thread = new Thread(runnable, "trace-export");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, (runnable, executor) -> exportDropped.increment());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (exportExecutor != null) {
+            exportExecutor.shutdown();
+            try {
+                exportExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 开始一个链路
+     * @param traceId 链路ID，即请求ID
+     * @param name 入口名称
+     * @return 链路，未启用时返回null
+     */
+    public Trace begin(String traceId, String name) {
+        if (!enabled) {
+            return null;
+        }
+        started.increment();
+        return new Trace(traceId, name, maxSpans);
+    }
+
+    /**
+     * 结束链路并决定是否保留
+     * @param trace 链路，可以为null
+     * @param status HTTP状态码
+     * @param error 未处理的异常，没有时为null
+     */
+    public void finish(Trace trace, int status, Throwable error) {
+        if (trace == null) {
+            return;
+        }
+        trace.finish(status, error != null ? error.getClass().getSimpleName() : null);
+        if (trace.hasError()) {
+            keptError.increment();
+        } else if (trace.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis)) {
+            keptSlow.increment();
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            keptSampled.increment();
+        } else {
+            discarded.increment();
+            return;
+        }
+        kept.set((int) (keptIndex.getAndIncrement() % kept.length()), trace);
+        if (exportExecutor != null) {
+            exportExecutor.execute(() -> export(trace));
+        }
+    }
+
+    /**
+     * 采集统计
+     * @return 开始、各原因保留、丢弃和导出的链路数量
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("slowThresholdMillis", slowThresholdMillis);
+        stats.put("sampleRate", sampleRate);
+        stats.put("started", started.sum());
+        stats.put("keptError", keptError.sum());
+        stats.put("keptSlow", keptSlow.sum());
+        stats.put("keptSampled", keptSampled.sum());
+        stats.put("discarded", discarded.sum());
+        stats.put("exportFile", exportFile);
+        stats.put("exported", exported.sum());
+        stats.put("exportDropped", exportDropped.sum());
+        stats.put("exportFailures", exportFailures.sum());
+        return stats;
+    }
+
+    /**
+     * 查询保留的链路摘要，按耗时从高到低排列
+     * @param minMillis 最小耗时（毫秒）
+     * @param limit 返回数量
+     * @return 链路摘要列表
+     */
+    public List<Map<String, Object>> listTraces(long minMillis, int limit) {
+        List<Trace> traces = new ArrayList<>();
+        long minNanos = TimeUnit.MILLISECONDS.toNanos(minMillis);
+        for (int i = 0; i < kept.length(); i++) {
+            Trace trace = kept.get(i);
+            if (trace != null && trace.getDurationNanos() >= minNanos) {
+                traces.add(trace);
+            }
+        }
+        traces.sort(Comparator.comparingLong(Trace::getDurationNanos).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int i = 0; i < traces.size() && i < limit; i++) {
+            result.add(traces.get(i).toSummary());
+        }
+        return result;
+    }
+
+    /**
+     * 按链路ID查询完整链路
+     * @param traceId 链路ID（请求ID）
+     * @return 链路，未保留或已被覆盖时返回null
+     */
+    public Map<String, Object> getTrace(String traceId) {
+        for (int i = 0; i < kept.length(); i++) {
+            Trace trace = kept.get(i);
+            if (trace != null && trace.getTraceId().equals(traceId)) {
+                return trace.toMap();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 追加到导出文件，超过大小上限时滚动为 .1 文件
+     */
+    private void export(Trace trace) {
+        Path path = Paths.get(exportFile);
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            if (Files.exists(path) && Files.size(path) >= exportMaxBytes) {
+                Files.move(path, Paths.get(exportFile + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(objectMapper.writeValueAsString(trace.toMap()));
+                writer.newLine();
+            }
+            exported.increment();
+        } catch (IOException e) {
+            exportFailures.increment();
+            log.warn("链路导出失败，请求ID: {}, 原因: {}", trace.getTraceId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.luoye.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.luoye.cache.TokenRevocationList;
+import com.luoye.cache.VerifiedTokenCache;
+import com.luoye.context.BaseContext;
+import com.luoye.interceptor.JwtInterceptor;
+import com.luoye.metrics.LatencyHistogram;
+import com.luoye.util.JwtUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JWT拦截器基准测试：对比每次请求都做格式校验和HS512验签，与按令牌摘要命中已验证令牌缓存的单次请求开销
+ * 直接运行main方法，无需启动Spring容器和Redis
+ */
+public class JwtInterceptorBenchmark {
+
+    private static final int WARMUP_ROUNDS = 50_000;
+    private static final int MEASURE_ROUNDS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        // 与生产配置一致，只输出告警以上的日志
+        org.slf4j.Logger root = LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        if (root instanceof Logger) {
+            ((Logger) root).setLevel(Level.WARN);
+        }
+
+        JwtUtil jwtUtil = new JwtUtil();
+        jwtUtil.setJwtKey("benchmark_jwt_secret_key_which_is_at_least_sixty_four_bytes_long_for_hs512_signing");
+        jwtUtil.setJwtTtl(604800000L);
+        jwtUtil.afterPropertiesSet();
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("patientId", 10001L);
+        claims.put("phone", "13800000000");
+        String token = JwtUtil.createToken(claims);
+        HttpServletRequest request = request("/order/list", "Bearer " + token);
+
+        double[] verify = measure(interceptor(false), request);
+        double[] cached = measure(interceptor(true), request);
+        System.out.printf("每次验签   平均 %.0fns/请求, p99 %.4fms%n", verify[0], verify[1]);
+        System.out.printf("令牌缓存   平均 %.0fns/请求, p99 %.4fms%n", cached[0], cached[1]);
+    }
+
+    /**
+     * @return 平均耗时（纳秒）和p99（毫秒）
+     */
+    private static double[] measure(JwtInterceptor interceptor, HttpServletRequest request) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            interceptor.preHandle(request, null, null);
+            BaseContext.clear();
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        long total = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long begin = System.nanoTime();
+            if (!interceptor.preHandle(request, null, null)) {
+                throw new IllegalStateException("令牌验证失败");
+            }
+            long elapsed = System.nanoTime() - begin;
+            BaseContext.clear();
+            histogram.record(elapsed);
+            total += elapsed;
+        }
+        Object p99 = histogram.snapshot().get("p99Ms");
+        return new double[]{(double) total / MEASURE_ROUNDS, ((Number) p99).doubleValue()};
+    }
+
+    private static JwtInterceptor interceptor(boolean cacheEnabled) throws Exception {
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        setField(cache, "enabled", cacheEnabled);
+        setField(cache, "maxSize", 10000);
+        setField(cache, "ttlSeconds", 600L);
+        cache.init();
+        // 吊销列表为空，只计入每次请求的内存查找
+        TokenRevocationList revocationList = new TokenRevocationList();
+        setField(revocationList, "verifiedTokenCache", cache);
+        JwtInterceptor interceptor = new JwtInterceptor();
+        setField(interceptor, "verifiedTokenCache", cache);
+        setField(interceptor, "tokenRevocationList", revocationList);
+        return interceptor;
+    }
+
+    private static HttpServletRequest request(String uri, String authorization) {
+        return (HttpServletRequest) Proxy.newProxyInstance(JwtInterceptorBenchmark.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getRequestURI":
+                            return uri;
+                        case "getHeader":
+                            return "Authorization".equals(args[0]) ? authorization : null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static void setField(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
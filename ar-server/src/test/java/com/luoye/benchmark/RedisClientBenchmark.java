@@ -0,0 +1,189 @@
+package com.luoye.benchmark;
+
+import com.luoye.metrics.LatencyHistogram;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.redisson.Redisson;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.redisson.spring.data.connection.RedissonConnectionFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis客户端基准测试：对比原来的"Lettuce连接池 + 独立Redisson锁客户端"与统一后的"单个Redisson客户端"
+ * 混合负载为单键读写、20键管道读取和分布式锁加解锁，输出吞吐量、各操作的延迟分位数和客户端线程数。
+ * 需要本地Redis，直接运行main方法，参数为 host port（默认 localhost 6379）
+ */
+public class RedisClientBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int KEY_COUNT = 1000;
+    private static final int LOCK_COUNT = 50;
+    private static final int PIPELINE_SIZE = 20;
+    private static final long WARMUP_MILLIS = 3_000;
+    private static final long MEASURE_MILLIS = 10_000;
+    private static final String KEY_PREFIX = "bench:client:";
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 6379;
+
+        int baseThreads = Thread.activeCount();
+        LettuceConnectionFactory lettuce = lettuceFactory(host, port);
+        RedissonClient lockClient = redisson(host, port, 10);
+        run("改造前 Lettuce(池8)+Redisson(池10)", template(lettuce), lockClient, baseThreads);
+        lettuce.destroy();
+        lockClient.shutdown();
+
+        baseThreads = Thread.activeCount();
+        RedissonClient unified = redisson(host, port, 24);
+        run("改造后 单个Redisson(池24)", template(new RedissonConnectionFactory(unified)), unified, baseThreads);
+        unified.shutdown();
+    }
+
+    private static LettuceConnectionFactory lettuceFactory(String host, int port) {
+        GenericObjectPoolConfig<Object> pool = new GenericObjectPoolConfig<>();
+        pool.setMaxTotal(8);
+        pool.setMaxIdle(8);
+        pool.setMinIdle(0);
+        LettucePoolingClientConfiguration clientConfig = LettucePoolingClientConfiguration.builder()
+                .poolConfig(pool)
+                .commandTimeout(Duration.ofSeconds(2))
+                .build();
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port), clientConfig);
+        factory.afterPropertiesSet();
+        return factory;
+    }
+
+    private static RedissonClient redisson(String host, int port, int poolSize) {
+        Config config = new Config();
+        config.setThreads(4).setNettyThreads(8);
+        config.useSingleServer()
+                .setAddress("redis://" + host + ":" + port)
+                .setConnectionPoolSize(poolSize)
+                .setConnectionMinimumIdleSize(Math.min(8, poolSize))
+                .setTimeout(3000)
+                .setTcpNoDelay(true);
+        return Redisson.create(config);
+    }
+
+    private static StringRedisTemplate template(RedisConnectionFactory factory) {
+        StringRedisTemplate template = new StringRedisTemplate(factory);
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    private static void run(String name, StringRedisTemplate template, RedissonClient lockClient, int baseThreads)
+            throws InterruptedException {
+        for (int i = 0; i < KEY_COUNT; i++) {
+            template.opsForValue().set(KEY_PREFIX + i, "value-" + i);
+        }
+        // 预热后重新计数
+        Map<String, LatencyHistogram> warmup = newHistograms();
+        drive(template, lockClient, warmup, new LongAdder(), WARMUP_MILLIS);
+
+        Map<String, LatencyHistogram> histograms = newHistograms();
+        LongAdder ops = new LongAdder();
+        long elapsed = drive(template, lockClient, histograms, ops, MEASURE_MILLIS);
+        List<String> keys = new ArrayList<>(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys.add(KEY_PREFIX + i);
+        }
+        template.delete(keys);
+
+        System.out.printf("%s: 吞吐 %.0f ops/s, 客户端线程 %d%n", name,
+                ops.sum() * 1000.0 / elapsed, Thread.activeCount() - baseThreads);
+        histograms.forEach((op, histogram) -> {
+            Map<String, Object> snapshot = histogram.snapshot();
+            System.out.printf("  %-8s 次数=%d p50=%sms p99=%sms max=%sms%n", op, snapshot.get("count"),
+                    snapshot.get("p50Ms"), snapshot.get("p99Ms"), snapshot.get("maxMs"));
+        });
+    }
+
+    private static Map<String, LatencyHistogram> newHistograms() {
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        histograms.put("GET", new LatencyHistogram());
+        histograms.put("SET", new LatencyHistogram());
+        histograms.put("PIPELINE", new LatencyHistogram());
+        histograms.put("LOCK", new LatencyHistogram());
+        return histograms;
+    }
+
+    /**
+     * 多线程执行混合负载：60%读、15%写、15%管道读、10%加解锁
+     * @return 实际执行时长（毫秒）
+     */
+    private static long drive(StringRedisTemplate template, RedissonClient lockClient,
+                              Map<String, LatencyHistogram> histograms, LongAdder ops, long durationMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + durationMillis;
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.currentTimeMillis() < deadline) {
+                        int dice = random.nextInt(100);
+                        long begin = System.nanoTime();
+                        String op;
+                        if (dice < 60) {
+                            template.opsForValue().get(KEY_PREFIX + random.nextInt(KEY_COUNT));
+                            op = "GET";
+                        } else if (dice < 75) {
+                            template.opsForValue().set(KEY_PREFIX + random.nextInt(KEY_COUNT), "value-" + dice);
+                            op = "SET";
+                        } else if (dice < 90) {
+                            pipelineGet(template, random);
+                            op = "PIPELINE";
+                        } else {
+                            RLock lock = lockClient.getLock(KEY_PREFIX + "lock:" + random.nextInt(LOCK_COUNT));
+                            if (lock.tryLock(100, 1000, TimeUnit.MILLISECONDS)) {
+                                lock.unlock();
+                            }
+                            op = "LOCK";
+                        }
+                        histograms.get(op).record(System.nanoTime() - begin);
+                        ops.increment();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }, "bench-" + t);
+            thread.start();
+        }
+        done.await();
+        return System.currentTimeMillis() - start;
+    }
+
+    private static void pipelineGet(StringRedisTemplate template, ThreadLocalRandom random) {
+        List<byte[]> keys = new ArrayList<>(PIPELINE_SIZE);
+        for (int i = 0; i < PIPELINE_SIZE; i++) {
+            keys.add((KEY_PREFIX + random.nextInt(KEY_COUNT)).getBytes(StandardCharsets.UTF_8));
+        }
+        template.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[] key : keys) {
+                connection.stringCommands().get(key);
+            }
+            return null;
+        });
+    }
+}
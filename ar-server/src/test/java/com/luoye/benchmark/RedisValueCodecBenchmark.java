@@ -0,0 +1,119 @@
+package com.luoye.benchmark;
+
+import com.luoye.cache.codec.BinaryValueCodec;
+import com.luoye.cache.codec.CompactRedisSerializer;
+import com.luoye.cache.codec.EntitySchemas;
+import com.luoye.config.WebConfig;
+import com.luoye.entity.Doctor;
+import com.luoye.vo.SlotVO;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 缓存值编码基准测试：对比JSON（带类型信息）与二进制格式的体积和编解码耗时
+ * 直接运行main方法，无需启动Spring容器和Redis
+ */
+public class RedisValueCodecBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURE_ROUNDS = 100_000;
+
+    public static void main(String[] args) {
+        RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer(new WebConfig().redisObjectMapper());
+        BinaryValueCodec codec = EntitySchemas.defaultCodec();
+        RedisSerializer<Object> binary = new CompactRedisSerializer(codec, json, true);
+
+        Doctor doctor = sampleDoctor();
+        List<SlotVO> slots = sampleSlots(20);
+
+        run("Doctor", doctor, json, binary);
+        run("List<SlotVO>(20)", slots, json, binary);
+    }
+
+    private static void run(String name, Object value, RedisSerializer<Object> json, RedisSerializer<Object> binary) {
+        byte[] jsonBytes = json.serialize(value);
+        byte[] binaryBytes = binary.serialize(value);
+        System.out.printf("%s 体积: json=%d字节, binary=%d字节, 压缩比=%.1f%%%n",
+                name, jsonBytes.length, binaryBytes.length, 100.0 * binaryBytes.length / jsonBytes.length);
+        System.out.printf("%s json   编码 %.0fns/op, 解码 %.0fns/op%n",
+                name, measureEncode(json, value), measureDecode(json, jsonBytes));
+        System.out.printf("%s binary 编码 %.0fns/op, 解码 %.0fns/op%n",
+                name, measureEncode(binary, value), measureDecode(binary, binaryBytes));
+    }
+
+    private static double measureEncode(RedisSerializer<Object> serializer, Object value) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += serializer.serialize(value).length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += serializer.serialize(value).length;
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(sink);
+        return (double) elapsed / MEASURE_ROUNDS;
+    }
+
+    private static double measureDecode(RedisSerializer<Object> serializer, byte[] bytes) {
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += serializer.deserialize(bytes).hashCode();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            sink += serializer.deserialize(bytes).hashCode();
+        }
+        long elapsed = System.nanoTime() - start;
+        consume(sink);
+        return (double) elapsed / MEASURE_ROUNDS;
+    }
+
+    private static void consume(long sink) {
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static Doctor sampleDoctor() {
+        Doctor doctor = new Doctor();
+        doctor.setId(10086L);
+        doctor.setName("张医生");
+        doctor.setPhone("13800138000");
+        doctor.setPassword("e10adc3949ba59abbe56e057f20f883e");
+        doctor.setGender(1);
+        doctor.setCard("110101199001011234");
+        doctor.setStatus(1);
+        doctor.setPost(2);
+        doctor.setIntroduction("从事心血管内科临床工作二十余年，擅长冠心病、高血压的诊治");
+        doctor.setDeptId(12L);
+        doctor.setCreateTime(LocalDateTime.of(2024, 3, 1, 9, 30));
+        doctor.setUpdateTime(LocalDateTime.of(2024, 6, 18, 14, 5, 12));
+        return doctor;
+    }
+
+    private static List<SlotVO> sampleSlots(int count) {
+        List<SlotVO> slots = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SlotVO slot = new SlotVO();
+            slot.setId(500000L + i);
+            slot.setDeptId(12L);
+            slot.setDoctorId(10086L);
+            slot.setDoctorName("张医生");
+            slot.setDoctorPost(2);
+            slot.setFeeAmount(5000);
+            slot.setDeptName("心血管内科");
+            slot.setScheduleDate(LocalDate.of(2024, 7, 1));
+            slot.setTimePeriod(i % 2 == 0 ? "上午" : "下午");
+            slot.setStatus(1);
+            slot.setDoctorIntroduction("从事心血管内科临床工作二十余年，擅长冠心病、高血压的诊治");
+            slots.add(slot);
+        }
+        return slots;
+    }
+}
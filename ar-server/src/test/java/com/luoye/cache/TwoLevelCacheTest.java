@@ -0,0 +1,197 @@
+package com.luoye.cache;
+
+import com.luoye.cache.codec.CompactRedisSerializer;
+import com.luoye.cache.codec.EntitySchemas;
+import com.luoye.entity.Doctor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 二级缓存的失效代数：读取L2期间发生的写入或失效不能被旧值覆盖回L1；L1保存副本，调用方修改返回值不影响缓存
+ */
+class TwoLevelCacheTest {
+
+    private HookedCache redisCache;
+    private LocalCache<String, byte[]> localCache;
+    private RedisSerializer<Object> localSerializer;
+    private RedisTemplate<String, Object> redisTemplate;
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "windowSeconds", 10);
+        ReflectionTestUtils.setField(circuitBreaker, "minimumCalls", 20);
+        ReflectionTestUtils.setField(circuitBreaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(circuitBreaker, "slowCallMillis", 200L);
+        ReflectionTestUtils.setField(circuitBreaker, "slowCallRateThreshold", 80);
+        ReflectionTestUtils.setField(circuitBreaker, "openSeconds", 10L);
+        ReflectionTestUtils.setField(circuitBreaker, "halfOpenCalls", 5);
+        circuitBreaker.init();
+
+        redisTemplate = mock(RedisTemplate.class);
+        localSerializer = CompactRedisSerializer.forLocalCopies(EntitySchemas.defaultCodec(),
+                new GenericJackson2JsonRedisSerializer());
+        CacheMetrics cacheMetrics = new CacheMetrics();
+        TwoLevelCacheManager cacheManager = new TwoLevelCacheManager(mock(RedisCacheManager.class),
+                Collections.emptyMap(), redisTemplate, cacheMetrics, circuitBreaker,
+                new TwoLevelCacheManager.LocalCacheSpec(100, Duration.ofMinutes(1)), localSerializer);
+        redisCache = new HookedCache("doctor");
+        localCache = new LocalCache<>(100, 1, TimeUnit.MINUTES);
+        cache = new TwoLevelCache("doctor", redisCache, localCache, localSerializer, cacheManager, cacheMetrics,
+                circuitBreaker);
+    }
+
+    @Test
+    void fillsLocalCacheFromRemoteHit() {
+        redisCache.put("1", "v1");
+
+        assertEquals("v1", cache.get("1").get());
+
+        assertEquals("v1", local("1"));
+    }
+
+    @Test
+    void putDuringRemoteReadIsNotOverwrittenByStaleValue() {
+        redisCache.put("1", "old");
+        redisCache.onGet = () -> cache.put("1", "new");
+
+        assertEquals("old", cache.get("1").get());
+
+        assertEquals("new", local("1"));
+        assertEquals("new", cache.get("1").get());
+    }
+
+    @Test
+    void putIfAbsentDuringRemoteReadIsNotOverwrittenByStaleValue() {
+        redisCache.put("1", "old");
+        // 读取L2之后，该键被其他节点删除并由本节点重新写入
+        redisCache.onGet = () -> {
+            redisCache.evict("1");
+            assertNull(cache.putIfAbsent("1", "new"));
+        };
+
+        assertEquals("old", cache.get("1").get());
+
+        assertEquals("new", local("1"));
+        assertEquals("new", cache.get("1").get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putIfAbsentBroadcastsOnlyWhenValueWritten() {
+        assertNull(cache.putIfAbsent("1", "v1"));
+        verify(redisTemplate).execute(any(RedisCallback.class));
+        assertEquals("v1", local("1"));
+
+        clearInvocations(redisTemplate);
+        assertEquals("v1", cache.putIfAbsent("1", "v2").get());
+        verify(redisTemplate, never()).execute(any(RedisCallback.class));
+        assertEquals("v1", local("1"));
+    }
+
+    @Test
+    void remoteEvictionDuringRemoteReadPreventsRefill() {
+        redisCache.put("1", "old");
+        redisCache.onGet = () -> {
+            redisCache.evict("1");
+            cache.evictLocal("1");
+        };
+
+        cache.get("1");
+
+        assertNull(local("1"));
+    }
+
+    @Test
+    void modifyingReturnedValueDoesNotChangeCachedValue() {
+        Doctor doctor = doctor();
+        cache.put(1L, doctor);
+        // 写入后调用方继续修改原对象
+        doctor.setName("写入后修改");
+
+        Doctor first = cache.get(1L, Doctor.class);
+        assertEquals("张三", first.getName());
+        // 模拟更新接口在事务内修改查询结果、清空密码后返回
+        first.setName("未提交的修改");
+        first.setPassword(null);
+
+        Doctor second = cache.get(1L, Doctor.class);
+        assertNotSame(first, second);
+        assertEquals("张三", second.getName());
+        assertEquals("secret", second.getPassword());
+        assertEquals(LocalDateTime.of(2026, 1, 1, 8, 0), second.getUpdateTime());
+    }
+
+    @Test
+    void remoteHitIsCopiedIntoLocalCache() {
+        redisCache.put("1", doctor());
+
+        cache.get("1", Doctor.class).setName("修改");
+
+        assertEquals("张三", cache.get("1", Doctor.class).getName());
+        assertEquals("张三", ((Doctor) local("1")).getName());
+    }
+
+    private Object local(String key) {
+        byte[] bytes = localCache.get(key);
+        return bytes != null ? localSerializer.deserialize(bytes) : null;
+    }
+
+    private static Doctor doctor() {
+        Doctor doctor = new Doctor();
+        doctor.setId(1L);
+        doctor.setName("张三");
+        doctor.setPassword("secret");
+        doctor.setStatus(1);
+        doctor.setDeptId(10L);
+        doctor.setUpdateTime(LocalDateTime.of(2026, 1, 1, 8, 0));
+        return doctor;
+    }
+
+    /**
+     * 在读取L2时执行一次回调，模拟并发的写入或失效
+     */
+    private static final class HookedCache extends ConcurrentMapCache {
+
+        private Runnable onGet;
+
+        private HookedCache(String name) {
+            super(name);
+        }
+
+        @Override
+        public Cache.ValueWrapper get(Object key) {
+            Cache.ValueWrapper wrapper = super.get(key);
+            Runnable hook = onGet;
+            onGet = null;
+            if (hook != null) {
+                hook.run();
+            }
+            return wrapper;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.luoye.cache.codec;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * 缓存实体结构与实体类保持一致：实体新增字段而结构未追加时，二进制缓存会静默丢失该字段
+ */
+class EntitySchemasTest {
+
+    private final BinaryValueCodec codec = EntitySchemas.defaultCodec();
+
+    @Test
+    void everyEntityFieldIsInSchema() {
+        assertFalse(codec.getSchemas().isEmpty());
+        for (EntitySchema<?> schema : codec.getSchemas()) {
+            Set<String> missing = new TreeSet<>();
+            for (Field field : instanceFields(schema.getType())) {
+                if (!schema.getFieldNames().contains(field.getName())) {
+                    missing.add(field.getName());
+                }
+            }
+            assertTrue(missing.isEmpty(), schema.getType().getSimpleName() + " 的缓存结构缺少字段: " + missing);
+        }
+    }
+
+    @Test
+    void fullyPopulatedEntityRoundTrips() throws Exception {
+        for (EntitySchema<?> schema : codec.getSchemas()) {
+            Object entity = populate(schema.getType());
+
+            Object decoded = codec.decode(codec.encode(entity));
+
+            assertNotNull(decoded);
+            assertEquals(schema.getType(), decoded.getClass());
+            for (Field field : instanceFields(schema.getType())) {
+                field.setAccessible(true);
+                assertEquals(field.get(entity), field.get(decoded),
+                        schema.getType().getSimpleName() + "." + field.getName() + " 编解码后不一致");
+            }
+        }
+    }
+
+    @Test
+    void fullyPopulatedListRoundTrips() throws Exception {
+        for (EntitySchema<?> schema : codec.getSchemas()) {
+            List<Object> list = List.of(populate(schema.getType()), populate(schema.getType()));
+
+            Object decoded = codec.decode(codec.encode(list));
+
+            assertTrue(decoded instanceof List);
+            List<?> decodedList = (List<?>) decoded;
+            assertEquals(2, decodedList.size());
+            for (Field field : instanceFields(schema.getType())) {
+                field.setAccessible(true);
+                assertEquals(field.get(list.get(1)), field.get(decodedList.get(1)),
+                        schema.getType().getSimpleName() + "." + field.getName() + " 列表编解码后不一致");
+            }
+        }
+    }
+
+    private static List<Field> instanceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * 每个字段填入不同的非空值
+     */
+    private static Object populate(Class<?> type) throws Exception {
+        Object entity = type.getDeclaredConstructor().newInstance();
+        int seed = 1;
+        for (Field field : instanceFields(type)) {
+            field.setAccessible(true);
+            Class<?> fieldType = field.getType();
+            seed++;
+            if (fieldType == Long.class) {
+                field.set(entity, 1_000_000_000L + seed);
+            } else if (fieldType == Integer.class) {
+                field.set(entity, seed);
+            } else if (fieldType == String.class) {
+                field.set(entity, field.getName() + "-值-" + seed);
+            } else if (fieldType == LocalDate.class) {
+                field.set(entity, LocalDate.of(2026, 10, seed % 28 + 1));
+            } else if (fieldType == LocalDateTime.class) {
+                field.set(entity, LocalDateTime.of(2026, 10, seed % 28 + 1, 8, 30, 15, 123_456_789));
+            } else {
+                fail(type.getSimpleName() + "." + field.getName() + " 的类型 " + fieldType.getSimpleName()
+                        + " 没有对应的FieldType");
+            }
+        }
+        return entity;
+    }
+}
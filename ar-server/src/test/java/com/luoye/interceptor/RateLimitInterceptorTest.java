@@ -0,0 +1,174 @@
+package com.luoye.interceptor;
+
+import com.luoye.cache.RedisCircuitBreaker;
+import com.luoye.util.RedisUtil;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.redisson.spring.data.connection.RedissonConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 限流拦截器：受信任代理下的客户端IP解析，以及Redis令牌桶脚本的突发、补充和拒绝
+ * 令牌桶用例需要本地Redis（127.0.0.1:6379），不可用时跳过
+ */
+class RateLimitInterceptorTest {
+
+    private static final String TEST_NETWORK = "198.51.100.";
+
+    private static RedissonClient redissonClient;
+
+    private static RedisTemplate<String, Object> redisTemplate;
+
+    @BeforeAll
+    static void connect() {
+        Config config = new Config();
+        config.useSingleServer().setAddress("redis://127.0.0.1:6379")
+                .setConnectTimeout(1000).setTimeout(1000).setRetryAttempts(0)
+                .setConnectionMinimumIdleSize(1).setConnectionPoolSize(2);
+        try {
+            redissonClient = Redisson.create(config);
+        } catch (Exception e) {
+            return;
+        }
+        redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(new RedissonConnectionFactory(redissonClient));
+        redisTemplate.setKeySerializer(StringRedisSerializer.UTF_8);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        if (redissonClient != null) {
+            redissonClient.getKeys().deleteByPattern("rate_limit::auth:ip:" + TEST_NETWORK + "*");
+            redissonClient.shutdown();
+        }
+    }
+
+    @Test
+    void ignoresForwardedForFromUntrustedConnection() {
+        RateLimitInterceptor interceptor = interceptor("10.0.0.0/8", "ANONYMOUS=10/20");
+        MockHttpServletRequest request = request("203.0.113.7", "1.1.1.1");
+        assertEquals("203.0.113.7", interceptor.clientIp(request));
+    }
+
+    @Test
+    void ignoresForwardedForWhenNoProxyConfigured() {
+        RateLimitInterceptor interceptor = interceptor("", "ANONYMOUS=10/20");
+        assertEquals("10.0.0.5", interceptor.clientIp(request("10.0.0.5", "198.51.100.1")));
+    }
+
+    @Test
+    void takesRightmostUntrustedForwardedAddress() {
+        RateLimitInterceptor interceptor = interceptor("10.0.0.0/8, 192.168.1.10", "ANONYMOUS=10/20");
+        // 最左侧是客户端自行伪造的地址，负载均衡追加的才是真实来源
+        MockHttpServletRequest request = request("10.0.0.5", "6.6.6.6, 198.51.100.1, 192.168.1.10");
+        assertEquals("198.51.100.1", interceptor.clientIp(request));
+
+        assertEquals("198.51.100.2", interceptor.clientIp(request("10.1.2.3", "198.51.100.2")));
+        // 全部为受信任代理时取最左侧
+        assertEquals("10.9.9.9", interceptor.clientIp(request("10.0.0.5", "10.9.9.9, 192.168.1.10")));
+        assertEquals("10.0.0.5", interceptor.clientIp(request("10.0.0.5", null)));
+    }
+
+    @Test
+    void matchesIpv6Ranges() {
+        RateLimitInterceptor interceptor = interceptor("fd00::/8", "ANONYMOUS=10/20");
+        assertEquals("2001:db8::1", interceptor.clientIp(request("fd12::1", "2001:db8::1")));
+        assertEquals("fe80::1", interceptor.clientIp(request("fe80::1", "2001:db8::1")));
+    }
+
+    @Test
+    void rejectsInvalidTrustedProxy() {
+        assertThrows(IllegalArgumentException.class, () -> interceptor("10.0.0.0/33", "ANONYMOUS=10/20"));
+        assertThrows(IllegalArgumentException.class, () -> interceptor("proxy.local", "ANONYMOUS=10/20"));
+    }
+
+    @Test
+    void redisBucketAllowsBurstThenRejectsWithRetryAfterAndRefills() throws Exception {
+        assumeTrue(redisTemplate != null, "本地Redis不可用");
+        // 每秒补充4个，容量3；速率低于2/租期，每个请求都向Redis申请
+        RateLimitInterceptor interceptor = interceptor("", "ANONYMOUS=4/3");
+        String ip = TEST_NETWORK + (UUID.randomUUID().hashCode() & 0x7F);
+        redisTemplate.delete("rate_limit::auth:ip:" + ip);
+
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            assertTrue(interceptor.preHandle(request(ip, null), response, null), "突发第" + (i + 1) + "个请求应放行");
+            assertNull(response.getHeader("Retry-After"));
+        }
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request(ip, null), rejected, null));
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        // 250ms补充1个令牌
+        Thread.sleep(300);
+        assertTrue(interceptor.preHandle(request(ip, null), new MockHttpServletResponse(), null));
+        assertFalse(interceptor.preHandle(request(ip, null), new MockHttpServletResponse(), null));
+
+        Map<String, Object> stats = interceptor.getStatistics();
+        assertEquals("{allowed=4, rejected=2}", String.valueOf(((Map<?, ?>) stats.get("groups")).get("auth")));
+        assertEquals(0L, stats.get("localFallbacks"));
+        assertEquals(6L, stats.get("redisCalls"));
+    }
+
+    private RateLimitInterceptor interceptor(String trustedProxies, String limits) {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor();
+        ReflectionTestUtils.setField(interceptor, "enabled", true);
+        ReflectionTestUtils.setField(interceptor, "leaseMillis", 1000L);
+        ReflectionTestUtils.setField(interceptor, "maxLeaseSize", 20);
+        ReflectionTestUtils.setField(interceptor, "localMaxSize", 1000);
+        ReflectionTestUtils.setField(interceptor, "trustedProxies", trustedProxies);
+        ReflectionTestUtils.setField(interceptor, "authLimits", limits);
+        ReflectionTestUtils.setField(interceptor, "orderRegisterLimits", "");
+        ReflectionTestUtils.setField(interceptor, "slotQueryLimits", "");
+        ReflectionTestUtils.setField(interceptor, "defaultLimits", "");
+        ReflectionTestUtils.setField(interceptor, "redisUtil", redisUtil());
+        interceptor.init();
+        return interceptor;
+    }
+
+    private static RedisUtil redisUtil() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "windowSeconds", 10);
+        ReflectionTestUtils.setField(breaker, "minimumCalls", 20);
+        ReflectionTestUtils.setField(breaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(breaker, "slowCallMillis", 1000L);
+        ReflectionTestUtils.setField(breaker, "slowCallRateThreshold", 80);
+        ReflectionTestUtils.setField(breaker, "openSeconds", 10L);
+        ReflectionTestUtils.setField(breaker, "halfOpenCalls", 5);
+        breaker.init();
+        RedisUtil redisUtil = new RedisUtil();
+        ReflectionTestUtils.setField(redisUtil, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(redisUtil, "redisTemplate", redisTemplate);
+        return redisUtil;
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/patient/login");
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
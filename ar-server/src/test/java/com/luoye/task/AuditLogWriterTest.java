@@ -0,0 +1,211 @@
+package com.luoye.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luoye.entity.Log;
+import com.luoye.mapper.LogMapper;
+import com.luoye.service.impl.LogServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 审计日志写入器：缓冲区满时丢弃、数据库失败时转存本地文件、恢复后回放和关闭时写完缓冲区
+ */
+class AuditLogWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final LogMapper logMapper = mock(LogMapper.class);
+
+    /**
+     * 每次insertBatch收到的日志，写入器会复用批次列表，这里保存副本
+     */
+    private final List<List<Log>> inserted = new CopyOnWriteArrayList<>();
+
+    private volatile boolean databaseDown;
+
+    private Path spillFile;
+
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        spillFile = tempDir.resolve("audit-spill.log");
+        when(logMapper.insertBatch(anyList())).thenAnswer(invocation -> {
+            if (databaseDown) {
+                throw new IllegalStateException("数据库不可用");
+            }
+            List<Log> logs = invocation.getArgument(0);
+            inserted.add(new ArrayList<>(logs));
+            return logs.size();
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void dropsWhenBufferIsFull() {
+        writer = writer(4, 100);
+        awaitWriterParked();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(writer.submit(entry(i)));
+        }
+        assertFalse(writer.submit(entry(4)));
+
+        assertEquals(4, writer.getStatistics().get("capacity"));
+        assertEquals(4L, writer.getStatistics().get("pending"));
+        assertEquals(4L, writer.getStatistics().get("enqueued"));
+        assertEquals(1L, writer.getStatistics().get("dropped"));
+    }
+
+    @Test
+    void spillsToFileWhileDatabaseIsDownAndReplaysAfterRecovery() throws Exception {
+        databaseDown = true;
+        writer = writer(16, 2);
+        awaitWriterParked();
+
+        // 积压满一批时唤醒写入线程
+        writer.submit(entry(1));
+        writer.submit(entry(2));
+        await(() -> (long) writer.getStatistics().get("spilled") == 2L);
+
+        List<String> lines = Files.readAllLines(spillFile, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"operationDetail\":\"操作1\""));
+        assertTrue(lines.get(1).contains("\"operationDetail\":\"操作2\""));
+        assertEquals(1L, writer.getStatistics().get("failedBatches"));
+        assertTrue((boolean) writer.getStatistics().get("spilling"));
+        assertTrue(inserted.isEmpty());
+
+        // 数据库恢复且退避时间已过，下一批写入成功后回放本地文件
+        databaseDown = false;
+        ReflectionTestUtils.setField(writer, "spillUntil", 0L);
+        writer.submit(entry(3));
+        writer.submit(entry(4));
+        await(() -> (long) writer.getStatistics().get("replayed") == 2L);
+
+        assertEquals(List.of("操作3", "操作4"), details(inserted.get(0)));
+        assertEquals(List.of("操作1", "操作2"), details(inserted.get(1)));
+        assertEquals(LocalDateTime.of(2026, 1, 1, 8, 0, 1), inserted.get(1).get(0).getCreateTime());
+        assertFalse(Files.exists(spillFile));
+        assertFalse(Files.exists(tempDir.resolve("audit-spill.log.replaying")));
+        assertEquals(2L, writer.getStatistics().get("written"));
+    }
+
+    @Test
+    void requeuesInterruptedReplayOnStartup() throws Exception {
+        ObjectMapper objectMapper = objectMapper();
+        Files.write(tempDir.resolve("audit-spill.log.replaying"), List.of(
+                objectMapper.writeValueAsString(entry(1)), objectMapper.writeValueAsString(entry(2))),
+                StandardCharsets.UTF_8);
+
+        writer = writer(16, 1);
+        assertEquals(2, Files.readAllLines(spillFile, StandardCharsets.UTF_8).size());
+        assertFalse(Files.exists(tempDir.resolve("audit-spill.log.replaying")));
+
+        writer.submit(entry(3));
+        await(() -> (long) writer.getStatistics().get("replayed") == 2L);
+        // 每批1条，回放分两次写入
+        assertEquals(List.of("操作3"), details(inserted.get(0)));
+        assertEquals(List.of("操作1"), details(inserted.get(1)));
+        assertEquals(List.of("操作2"), details(inserted.get(2)));
+    }
+
+    @Test
+    void shutdownDrainsBufferAndRejectsNewEntries() throws InterruptedException {
+        writer = writer(64, 100);
+        awaitWriterParked();
+        for (int i = 0; i < 5; i++) {
+            writer.submit(entry(i));
+        }
+        assertTrue(inserted.isEmpty());
+
+        writer.shutdown();
+
+        assertEquals(List.of("操作0", "操作1", "操作2", "操作3", "操作4"), details(inserted.get(0)));
+        assertEquals(0L, writer.getStatistics().get("pending"));
+        assertFalse(writer.submit(entry(5)));
+        assertEquals(1L, writer.getStatistics().get("dropped"));
+    }
+
+    /**
+     * 刷新间隔设为1分钟，只有积压满一批或关闭时才会写入
+     */
+    private AuditLogWriter writer(int bufferSize, int batchSize) {
+        LogServiceImpl logService = new LogServiceImpl();
+        ReflectionTestUtils.setField(logService, "logMapper", logMapper);
+        AuditLogWriter auditLogWriter = new AuditLogWriter();
+        ReflectionTestUtils.setField(auditLogWriter, "bufferSize", bufferSize);
+        ReflectionTestUtils.setField(auditLogWriter, "batchSize", batchSize);
+        ReflectionTestUtils.setField(auditLogWriter, "flushIntervalMillis", 60000L);
+        ReflectionTestUtils.setField(auditLogWriter, "retryIntervalMillis", 60000L);
+        ReflectionTestUtils.setField(auditLogWriter, "spillFile", spillFile.toString());
+        ReflectionTestUtils.setField(auditLogWriter, "shutdownTimeoutMillis", 5000L);
+        ReflectionTestUtils.setField(auditLogWriter, "logService", logService);
+        ReflectionTestUtils.setField(auditLogWriter, "objectMapper", objectMapper());
+        auditLogWriter.init();
+        return auditLogWriter;
+    }
+
+    /**
+     * 等待写入线程完成首轮空转并进入休眠，之后提交的日志只会在满一批或关闭时写入
+     */
+    private void awaitWriterParked() {
+        Thread thread = (Thread) ReflectionTestUtils.getField(writer, "writerThread");
+        await(() -> thread.getState() == Thread.State.TIMED_WAITING);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("等待超时");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static ObjectMapper objectMapper() {
+        return new ObjectMapper().findAndRegisterModules();
+    }
+
+    private static Log entry(int index) {
+        Log entry = new Log();
+        entry.setLogType("OPERATION");
+        entry.setOperatorType("PATIENT");
+        entry.setOperatorId(10000L + index);
+        entry.setOperationDetail("操作" + index);
+        entry.setCreateTime(LocalDateTime.of(2026, 1, 1, 8, 0, index));
+        return entry;
+    }
+
+    private static List<String> details(List<Log> logs) {
+        return logs.stream().map(Log::getOperationDetail).collect(Collectors.toList());
+    }
+}
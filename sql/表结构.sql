@@ -155,3 +155,8 @@ create table queue
     comment '排队表';
 
 
+
+-- 缓存预热按近期就诊活动筛选患者时使用的索引
+create index idx_slot_schedule_date on slot (schedule_date);
+create index idx_order_slot_status on `order` (slot_id, order_status, patient_id);
+create index idx_queue_status_patient on queue (queue_status, patient_id);